@@ -9,11 +9,16 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentTransaction;
 
 import com.example.vetcalls.R;
+import com.example.vetcalls.obj.AppointmentCompletionSweeper;
+import com.example.vetcalls.obj.AppointmentTimestampMigration;
 import com.example.vetcalls.usersFragment.CalendarFragment;
 import com.example.vetcalls.usersFragment.ChatFragment;
 import com.example.vetcalls.usersFragment.HistoryFragment;
 import com.example.vetcalls.usersFragment.HomeFragment;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
 
 /**
  * HomeActivity serves as the main container activity for regular users in the VetCalls application.
@@ -70,6 +75,14 @@ public class HomeActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser != null) {
+            // Sweep once the migration has given every appointment the end time the sweep queries on
+            AppointmentTimestampMigration.runOnce(this, currentUser.getUid(), false,
+                    () -> new AppointmentCompletionSweeper(FirebaseFirestore.getInstance(), currentUser.getUid(), false).run(null));
+            AppointmentCompletionSweeper.schedule(getApplicationContext());
+        }
+
         setContentView(R.layout.activity_home);
 
         Fragment defaultFragment = new HomeFragment();
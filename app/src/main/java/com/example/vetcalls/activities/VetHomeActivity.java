@@ -8,12 +8,17 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 
 import com.example.vetcalls.R;
+import com.example.vetcalls.obj.AppointmentCompletionSweeper;
+import com.example.vetcalls.obj.AppointmentTimestampMigration;
 import com.example.vetcalls.vetFragment.VetHomeFragment;
-import com.example.vetcalls.usersFragment.CalendarFragment;
 import com.example.vetcalls.usersFragment.ChatFragment;
 import com.example.vetcalls.vetFragment.PatientDetailsFragment;
+import com.example.vetcalls.vetFragment.VetScheduleFragment;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationBarView;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
 
 /**
  * Main activity for veterinarian users providing navigation between different sections.
@@ -34,6 +39,14 @@ public class VetHomeActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser != null) {
+            // Sweep once the migration has given every appointment the end time the sweep queries on
+            AppointmentTimestampMigration.runOnce(this, currentUser.getUid(), true,
+                    () -> new AppointmentCompletionSweeper(FirebaseFirestore.getInstance(), currentUser.getUid(), true).run(null));
+            AppointmentCompletionSweeper.schedule(getApplicationContext());
+        }
+
         setContentView(R.layout.activity_vet_home);
 
         bottomNavigationView = findViewById(R.id.bottom_navigation);
@@ -58,7 +71,7 @@ public class VetHomeActivity extends AppCompatActivity {
                 } else if (itemId == R.id.nav_patient) {
                     selectedFragment = new PatientDetailsFragment();
                 } else if (itemId == R.id.nav_schedule) {
-                    selectedFragment = new CalendarFragment();
+                    selectedFragment = new VetScheduleFragment();
                 }
 
                 if (selectedFragment != null) {
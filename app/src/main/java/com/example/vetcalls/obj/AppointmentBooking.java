@@ -0,0 +1,375 @@
+package com.example.vetcalls.obj;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.TransactionOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Books and cancels appointments in Firestore transactions guarded by a per-veterinarian slot lock.
+ * Each veterinarian has one lock document per day, "Veterinarians/{vetId}/SlotLocks/{date}", whose
+ * "slots" map holds the start and end time of every appointment booked on that day.
+ * A booking reads the lock, checks the requested slot against it and writes the updated lock together
+ * with both appointment copies, so two owners racing for the same slot cannot both succeed:
+ * the second commit sees the lock changed under it, is retried by Firestore and then finds the slot taken.
+ * <p>
+ * Lock documents are created lazily: the first booking on a day that has no lock yet seeds it from the
+ * veterinarian's existing appointments. Entries left behind by appointments that were deleted without
+ * releasing their slot are dropped the first time they get in the way of a booking.
+ *
+ * @author Ofek Levi
+ */
+public class AppointmentBooking {
+
+    private static final String TAG = "AppointmentBooking";
+
+    /** Error message reported when the requested slot is already booked. */
+    public static final String SLOT_TAKEN = "This time was just booked by someone else";
+
+    /** Error message reported when the appointment's times are malformed or it ends after midnight. */
+    public static final String INVALID_TIME = "Appointment must start and end on the same day";
+
+    /** How many times Firestore re-runs a booking that lost a race for the lock before giving up. */
+    static final int MAX_ATTEMPTS = 10;
+
+    private static final String SLOTS_FIELD = "slots";
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Result of one run of the booking transaction.
+     */
+    private enum Outcome {
+        /** The lock and both copies were written. */
+        BOOKED,
+        /** The slot overlaps another appointment; nothing was written. */
+        SLOT_TAKEN,
+        /** The day has no lock document yet and no seed was supplied; nothing was written. */
+        NEEDS_SEED,
+        /** The start or end time is malformed or not after the start; nothing was written. */
+        INVALID_TIME
+    }
+
+    /**
+     * Creates a booking helper on the given Firestore instance.
+     *
+     * @param db The Firestore instance
+     */
+    public AppointmentBooking(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Returns the slot lock document of a veterinarian's day.
+     *
+     * @param db The Firestore instance
+     * @param vetId Veterinarian's unique identifier
+     * @param date The date in yyyy-M-d format
+     * @return Reference to the day's lock document
+     */
+    public static DocumentReference slotLockOf(FirebaseFirestore db, String vetId, String date) {
+        return db.collection("Veterinarians").document(vetId).collection("SlotLocks").document(date);
+    }
+
+    /**
+     * Books an appointment, or moves an existing one, if its slot is still free.
+     * When editing, the appointment's previous slot is released and copies left under a previous
+     * dog or veterinarian are removed in the same transaction.
+     * The copies are written with the sortable time fields of {@link AppointmentTimes}.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param appointmentData Map containing appointment details, including dogId, vetId, date, startTime and endTime
+     * @param previousData The appointment as currently stored when editing, or null for a new booking
+     * @param onSuccess Callback to run once the slot is claimed and both copies are written, may be null
+     * @param onFailure Callback to run with {@link #SLOT_TAKEN} or another error message, may be null
+     */
+    public void book(String appointmentId, Map<String, Object> appointmentData, Map<String, Object> previousData,
+                     Runnable onSuccess, Consumer<String> onFailure) {
+        book(appointmentId, AppointmentTimes.withTimestamps(appointmentData), previousData, null, onSuccess, onFailure);
+    }
+
+    /**
+     * Runs the booking transaction, seeding a missing lock from the given appointments.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param appointmentData Map containing appointment details
+     * @param previousData The appointment as currently stored, may be null
+     * @param seed The veterinarian's appointments that day, used if the lock does not exist yet, may be null
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    private void book(String appointmentId, Map<String, Object> appointmentData, Map<String, Object> previousData,
+                      List<Map<String, Object>> seed, Runnable onSuccess, Consumer<String> onFailure) {
+        String vetId = (String) appointmentData.get("vetId");
+        String date = (String) appointmentData.get("date");
+        if (vetId == null || vetId.isEmpty() || date == null || date.isEmpty()) {
+            if (onFailure != null) onFailure.accept("Appointment is missing a veterinarian or date");
+            return;
+        }
+        if (!isValidRange(appointmentData.get("startTime"), appointmentData.get("endTime"))) {
+            Log.w(TAG, "Rejected appointment " + appointmentId + " with times "
+                    + appointmentData.get("startTime") + "-" + appointmentData.get("endTime"));
+            if (onFailure != null) onFailure.accept(INVALID_TIME);
+            return;
+        }
+
+        TransactionOptions options = new TransactionOptions.Builder().setMaxAttempts(MAX_ATTEMPTS).build();
+        db.runTransaction(options, transaction -> runBooking(transaction, appointmentId, appointmentData, previousData, seed))
+                .addOnSuccessListener(outcome -> {
+                    switch (outcome) {
+                        case BOOKED:
+                            Log.d(TAG, "Booked appointment " + appointmentId + " with vet " + vetId + " on " + date);
+                            if (onSuccess != null) onSuccess.run();
+                            break;
+                        case SLOT_TAKEN:
+                            Log.d(TAG, "Slot for appointment " + appointmentId + " is already taken");
+                            if (onFailure != null) onFailure.accept(SLOT_TAKEN);
+                            break;
+                        case NEEDS_SEED:
+                            seedAndBook(appointmentId, appointmentData, previousData, onSuccess, onFailure);
+                            break;
+                        case INVALID_TIME:
+                            if (onFailure != null) onFailure.accept(INVALID_TIME);
+                            break;
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to book appointment " + appointmentId, e);
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+
+    /**
+     * Loads the veterinarian's appointments that day and retries the booking with them as the lock's seed.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param appointmentData Map containing appointment details
+     * @param previousData The appointment as currently stored, may be null
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    private void seedAndBook(String appointmentId, Map<String, Object> appointmentData, Map<String, Object> previousData,
+                             Runnable onSuccess, Consumer<String> onFailure) {
+        String vetId = (String) appointmentData.get("vetId");
+        String date = (String) appointmentData.get("date");
+        db.collection("Veterinarians").document(vetId).collection("Appointments")
+                .whereEqualTo("date", date)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<Map<String, Object>> seed = new ArrayList<>();
+                    for (QueryDocumentSnapshot doc : snapshot) {
+                        seed.add(slotEntry(doc.getId(), doc.get("startTime"), doc.get("endTime")));
+                    }
+                    Log.d(TAG, "Seeding slot lock for vet " + vetId + " on " + date + " with " + seed.size() + " appointments");
+                    book(appointmentId, appointmentData, previousData, seed, onSuccess, onFailure);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to load appointments to seed slot lock", e);
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+
+    /**
+     * Body of the booking transaction. Firestore may run it several times,
+     * so it only reads through the transaction and builds every value it writes from scratch.
+     *
+     * @param transaction The running transaction
+     * @param appointmentId Appointment's unique identifier
+     * @param appointmentData Map containing appointment details
+     * @param previousData The appointment as currently stored, may be null
+     * @param seed Entries to use if the lock does not exist yet, may be null
+     * @return What the transaction did
+     * @throws FirebaseFirestoreException If a read fails
+     */
+    private Outcome runBooking(Transaction transaction, String appointmentId, Map<String, Object> appointmentData,
+                               Map<String, Object> previousData, List<Map<String, Object>> seed)
+            throws FirebaseFirestoreException {
+        String dogId = (String) appointmentData.get("dogId");
+        String vetId = (String) appointmentData.get("vetId");
+        String date = (String) appointmentData.get("date");
+        int start = AppointmentSlotIndex.parseMinutes(appointmentData.get("startTime"));
+        int end = AppointmentSlotIndex.parseMinutes(appointmentData.get("endTime"));
+
+        String previousDogId = previousData != null ? (String) previousData.get("dogId") : null;
+        String previousVetId = previousData != null ? (String) previousData.get("vetId") : null;
+        String previousDate = previousData != null ? (String) previousData.get("date") : null;
+
+        DocumentReference lockRef = slotLockOf(db, vetId, date);
+        DocumentSnapshot lock = transaction.get(lockRef);
+        Map<String, Map<String, Object>> slots;
+        if (lock.exists()) {
+            slots = slotsOf(lock);
+        } else if (seed != null) {
+            slots = new HashMap<>();
+            for (Map<String, Object> entry : seed) {
+                slots.put((String) entry.get("documentId"), entry);
+            }
+        } else {
+            return Outcome.NEEDS_SEED;
+        }
+        slots.remove(appointmentId);
+
+        if (!isValidRange(appointmentData.get("startTime"), appointmentData.get("endTime"))) return Outcome.INVALID_TIME;
+        AppointmentSlotIndex.Conflict conflict;
+        while ((conflict = AppointmentSlotIndex.fromAppointments(new ArrayList<>(slots.values()), null)
+                .findConflict(start, end - start)) != null) {
+            DocumentSnapshot holder = transaction.get(db.collection("Veterinarians").document(vetId)
+                    .collection("Appointments").document(conflict.appointmentId));
+            if (holder.exists()) return Outcome.SLOT_TAKEN;
+            Log.d(TAG, "Dropping stale slot lock entry " + conflict.appointmentId);
+            slots.remove(conflict.appointmentId);
+        }
+
+        boolean slotMoved = previousVetId != null && previousDate != null
+                && (!previousVetId.equals(vetId) || !previousDate.equals(date));
+        DocumentReference previousLockRef = slotMoved ? slotLockOf(db, previousVetId, previousDate) : null;
+        boolean releasePrevious = previousLockRef != null && transaction.get(previousLockRef).exists();
+
+        slots.put(appointmentId, slotEntry(appointmentId, appointmentData.get("startTime"), appointmentData.get("endTime")));
+        Map<String, Object> lockData = new HashMap<>();
+        lockData.put(SLOTS_FIELD, withoutIds(slots));
+        transaction.set(lockRef, lockData);
+
+        if (releasePrevious) {
+            transaction.update(previousLockRef, FieldPath.of(SLOTS_FIELD, appointmentId), FieldValue.delete());
+        }
+        if (previousData != null) {
+            boolean dogMoved = previousDogId != null && !previousDogId.equals(dogId);
+            boolean vetMoved = previousVetId != null && !previousVetId.equals(vetId);
+            for (DocumentReference ref : AppointmentFanOut.copiesOf(db, appointmentId,
+                    dogMoved ? previousDogId : null, vetMoved ? previousVetId : null)) {
+                transaction.delete(ref);
+            }
+        }
+        for (DocumentReference ref : AppointmentFanOut.copiesOf(db, appointmentId, dogId, vetId)) {
+            transaction.set(ref, AppointmentFanOut.dataFor(ref, appointmentData));
+        }
+        return Outcome.BOOKED;
+    }
+
+    /**
+     * Deletes an appointment's copies and releases its slot in one transaction.
+     * The slot is found through the veterinarian's copy; if that copy is already gone only the
+     * remaining copies are deleted.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param dogId Dog's unique identifier
+     * @param vetId Veterinarian's unique identifier
+     * @param onSuccess Callback to run once the appointment is deleted, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    public void cancel(String appointmentId, String dogId, String vetId,
+                       Runnable onSuccess, Consumer<String> onFailure) {
+        List<DocumentReference> copies = AppointmentFanOut.copiesOf(db, appointmentId, dogId, vetId);
+        if (copies.isEmpty()) {
+            if (onFailure != null) onFailure.accept("No appointment copies to delete");
+            return;
+        }
+
+        db.runTransaction(transaction -> {
+            DocumentReference lockRef = null;
+            if (vetId != null && !vetId.isEmpty()) {
+                DocumentSnapshot vetCopy = transaction.get(db.collection("Veterinarians").document(vetId)
+                        .collection("Appointments").document(appointmentId));
+                String date = vetCopy.getString("date");
+                if (date != null && !date.isEmpty()) {
+                    DocumentReference candidate = slotLockOf(db, vetId, date);
+                    if (transaction.get(candidate).exists()) lockRef = candidate;
+                }
+            }
+
+            if (lockRef != null) {
+                transaction.update(lockRef, FieldPath.of(SLOTS_FIELD, appointmentId), FieldValue.delete());
+            }
+            for (DocumentReference ref : copies) {
+                transaction.delete(ref);
+            }
+            return null;
+        }).addOnSuccessListener(aVoid -> {
+            Log.d(TAG, "Cancelled appointment " + appointmentId);
+            if (onSuccess != null) onSuccess.run();
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Failed to cancel appointment " + appointmentId, e);
+            if (onFailure != null) onFailure.accept(e.getMessage());
+        });
+    }
+
+    /**
+     * Reads the slot entries of a lock document, tagging each with its appointment ID.
+     *
+     * @param lock The lock document
+     * @return Entries keyed by appointment ID
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> slotsOf(DocumentSnapshot lock) {
+        Map<String, Map<String, Object>> slots = new HashMap<>();
+        Object stored = lock.get(SLOTS_FIELD);
+        if (!(stored instanceof Map)) return slots;
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) stored).entrySet()) {
+            if (!(entry.getValue() instanceof Map)) continue;
+            Map<String, Object> fields = (Map<String, Object>) entry.getValue();
+            slots.put(entry.getKey(), slotEntry(entry.getKey(), fields.get("startTime"), fields.get("endTime")));
+        }
+        return slots;
+    }
+
+    /**
+     * Checks that an appointment's times form a range within one day.
+     * "24:00" is accepted as an end time; anything later, malformed, or not after the start is not.
+     *
+     * @param startTime Start time in HH:mm
+     * @param endTime End time in HH:mm
+     * @return true if the slot can be checked against the lock
+     */
+    public static boolean isValidRange(Object startTime, Object endTime) {
+        int start = AppointmentSlotIndex.parseMinutes(startTime);
+        int end = AppointmentSlotIndex.parseMinutes(endTime);
+        return start >= 0 && start < AppointmentSlotIndex.MINUTES_PER_DAY && end > start;
+    }
+
+    /**
+     * Creates a slot entry in the format {@link AppointmentSlotIndex#fromAppointments} reads.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param startTime Start time in HH:mm
+     * @param endTime End time in HH:mm
+     * @return The slot entry
+     */
+    private static Map<String, Object> slotEntry(String appointmentId, Object startTime, Object endTime) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("documentId", appointmentId);
+        entry.put("startTime", startTime);
+        entry.put("endTime", endTime);
+        return entry;
+    }
+
+    /**
+     * Strips the appointment IDs from slot entries before they are stored, since the map key already holds them.
+     *
+     * @param slots Entries keyed by appointment ID
+     * @return The stored form of the "slots" map
+     */
+    private static Map<String, Object> withoutIds(Map<String, Map<String, Object>> slots) {
+        Map<String, Object> stored = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : slots.entrySet()) {
+            Map<String, Object> fields = new HashMap<>(entry.getValue());
+            fields.remove("documentId");
+            if (fields.get("startTime") == null || fields.get("endTime") == null) continue;
+            stored.put(entry.getKey(), fields);
+        }
+        return stored;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.vetcalls.obj;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.function.Consumer;
+
+/**
+ * Background job that marks appointments as completed once their end time has passed.
+ * It runs for the signed-in user from an hourly inexact alarm (see {@link AppointmentSweepReceiver})
+ * and once when the app starts, so screens only ever read the "completed" flag.
+ * Each run queries the user's uncompleted appointments whose "endAt" is in the past with one
+ * collection-group query, which returns the dog and veterinarian copies alike, and completes every
+ * page in a single batch. Completed copies drop out of the query, so the next page is simply
+ * the first page again until it comes back empty.
+ *
+ * @author Ofek Levi
+ */
+public class AppointmentCompletionSweeper {
+
+    private static final String TAG = "CompletionSweeper";
+
+    /** Documents completed per batch, under the 500 operation limit. */
+    public static final int PAGE_SIZE = 400;
+
+    /** Upper bound on pages per run, so a single run always finishes within the receiver's time. */
+    static final int MAX_PAGES_PER_RUN = 5;
+
+    private static final int ALARM_REQUEST_CODE = 4101;
+
+    private final FirebaseFirestore db;
+    private final String userId;
+    private final boolean isVet;
+
+    private int completedCount = 0;
+
+    /**
+     * Creates a sweeper for a user on the given Firestore instance.
+     *
+     * @param db The Firestore instance
+     * @param userId The signed-in user's unique identifier
+     * @param isVet true if the user is a veterinarian
+     */
+    public AppointmentCompletionSweeper(FirebaseFirestore db, String userId, boolean isVet) {
+        this.db = db;
+        this.userId = userId;
+        this.isVet = isVet;
+    }
+
+    /**
+     * Creates a sweeper for the signed-in user.
+     *
+     * @param context Context used to read the user type
+     * @return The sweeper, or null if nobody is signed in
+     */
+    public static AppointmentCompletionSweeper forSignedInUser(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return null;
+        SharedPreferences prefs = context.getSharedPreferences("UserProfile", Context.MODE_PRIVATE);
+        return new AppointmentCompletionSweeper(FirebaseFirestore.getInstance(), user.getUid(), prefs.getBoolean("isVet", false));
+    }
+
+    /**
+     * Schedules the hourly sweep. Scheduling again replaces the existing alarm.
+     *
+     * @param context The application context
+     */
+    public static void schedule(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + AlarmManager.INTERVAL_HOUR,
+                AlarmManager.INTERVAL_HOUR,
+                sweepIntent(context));
+        Log.d(TAG, "Hourly appointment sweep scheduled");
+    }
+
+    /**
+     * Returns the broadcast that triggers a sweep.
+     *
+     * @param context The application context
+     * @return The pending broadcast
+     */
+    private static PendingIntent sweepIntent(Context context) {
+        Intent intent = new Intent(context, AppointmentSweepReceiver.class);
+        return PendingIntent.getBroadcast(context, ALARM_REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * Completes every past appointment of the user, a page at a time.
+     *
+     * @param onDone Callback receiving the number of completed copies, may be null
+     */
+    public void run(Consumer<Integer> onDone) {
+        sweepPage(System.currentTimeMillis(), 0, onDone);
+    }
+
+    /**
+     * Completes one page of past appointments and continues with the next.
+     *
+     * @param now The time the run started, in epoch milliseconds
+     * @param pages Pages completed so far in this run
+     * @param onDone Callback receiving the number of completed copies, may be null
+     */
+    private void sweepPage(long now, int pages, Consumer<Integer> onDone) {
+        if (pages >= MAX_PAGES_PER_RUN) {
+            finish(onDone);
+            return;
+        }
+
+        db.collectionGroup("Appointments")
+                .whereEqualTo(isVet ? "vetId" : "ownerId", userId)
+                .whereEqualTo("completed", false)
+                .whereLessThan(AppointmentTimes.END_AT, now)
+                .limit(PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.isEmpty()) {
+                        finish(onDone);
+                        return;
+                    }
+                    completePage(snapshot, now, pages, onDone);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to query past appointments", e);
+                    finish(onDone);
+                });
+    }
+
+    /**
+     * Marks every appointment copy of a page as completed in one batch.
+     *
+     * @param snapshot The page
+     * @param now The time the run started, in epoch milliseconds
+     * @param pages Pages completed so far in this run
+     * @param onDone Callback receiving the number of completed copies, may be null
+     */
+    private void completePage(QuerySnapshot snapshot, long now, int pages, Consumer<Integer> onDone) {
+        WriteBatch batch = db.batch();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            batch.update(doc.getReference(), "completed", true);
+        }
+        int size = snapshot.size();
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    completedCount += size;
+                    if (size < PAGE_SIZE) {
+                        finish(onDone);
+                    } else {
+                        sweepPage(now, pages + 1, onDone);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to complete past appointments", e);
+                    finish(onDone);
+                });
+    }
+
+    /**
+     * Reports the end of a run.
+     *
+     * @param onDone Callback receiving the number of completed copies, may be null
+     */
+    private void finish(Consumer<Integer> onDone) {
+        Log.d(TAG, "Sweep finished, " + completedCount + " appointment copies completed");
+        if (onDone != null) onDone.accept(completedCount);
+    }
+}
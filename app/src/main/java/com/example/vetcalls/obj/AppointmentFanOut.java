@@ -0,0 +1,201 @@
+package com.example.vetcalls.obj;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Fan-out write engine for appointments.
+ * An appointment is stored as a denormalized copy under the dog and under the veterinarian,
+ * so every write to it is collected into a single WriteBatch and committed atomically.
+ * Either all copies are written or none of them are, in a single round trip.
+ * Every copy records which side it is on in {@link #COPY_FIELD}, since both live in subcollections named
+ * "Appointments" and a collection-group query would otherwise match each appointment twice.
+ *
+ * @author Ofek Levi
+ */
+public class AppointmentFanOut {
+
+    private static final String TAG = "AppointmentFanOut";
+
+    /** Firestore allows at most 500 operations in a single batch. */
+    public static final int MAX_BATCH_OPERATIONS = 500;
+
+    /** Field naming the side a copy is stored on: {@link #DOG_COPY} or {@link #VET_COPY}. */
+    public static final String COPY_FIELD = "copy";
+
+    /** Value of {@link #COPY_FIELD} on the copy under DogProfiles/{dogId}. */
+    public static final String DOG_COPY = "dog";
+
+    /** Value of {@link #COPY_FIELD} on the copy under Veterinarians/{vetId}. */
+    public static final String VET_COPY = "vet";
+
+    private final FirebaseFirestore db;
+    private final WriteBatch batch;
+    private int operationCount = 0;
+
+    /**
+     * Creates a new fan-out write on the default Firestore instance.
+     */
+    public AppointmentFanOut() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    /**
+     * Creates a new fan-out write on the given Firestore instance.
+     *
+     * @param db The Firestore instance to write to
+     */
+    public AppointmentFanOut(FirebaseFirestore db) {
+        this.db = db;
+        this.batch = db.batch();
+    }
+
+    /**
+     * Returns references to every denormalized copy of an appointment.
+     * Copies whose owner ID is missing are skipped.
+     *
+     * @param db The Firestore instance
+     * @param appointmentId Appointment's unique identifier
+     * @param dogId Dog's unique identifier, may be null
+     * @param vetId Veterinarian's unique identifier, may be null
+     * @return List of document references holding a copy of the appointment
+     */
+    public static List<DocumentReference> copiesOf(FirebaseFirestore db, String appointmentId, String dogId, String vetId) {
+        List<DocumentReference> refs = new ArrayList<>();
+        if (dogId != null && !dogId.isEmpty()) {
+            refs.add(db.collection("DogProfiles").document(dogId)
+                    .collection("Appointments").document(appointmentId));
+        }
+        if (vetId != null && !vetId.isEmpty()) {
+            refs.add(db.collection("Veterinarians").document(vetId)
+                    .collection("Appointments").document(appointmentId));
+        }
+        return refs;
+    }
+
+    /**
+     * Returns which side an appointment copy is stored on.
+     *
+     * @param ref Reference to the copy
+     * @return {@link #DOG_COPY}, {@link #VET_COPY}, or null if the reference is not an appointment copy
+     */
+    public static String copyKindOf(DocumentReference ref) {
+        DocumentReference parent = ref.getParent().getParent();
+        if (parent == null) return null;
+        String root = parent.getParent().getId();
+        if ("DogProfiles".equals(root)) return DOG_COPY;
+        if ("Veterinarians".equals(root)) return VET_COPY;
+        return null;
+    }
+
+    /**
+     * Returns the appointment data as written to one copy, tagged with its side.
+     *
+     * @param ref Reference to the copy
+     * @param appointmentData Map containing appointment details
+     * @return A new map with {@link #COPY_FIELD} set
+     */
+    public static Map<String, Object> dataFor(DocumentReference ref, Map<String, Object> appointmentData) {
+        Map<String, Object> data = new HashMap<>(appointmentData);
+        data.put(COPY_FIELD, copyKindOf(ref));
+        return data;
+    }
+
+    /**
+     * Queues a full write of the appointment data to every copy.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param appointmentData Map containing appointment details, including dogId and vetId
+     * @return This fan-out for chaining
+     */
+    public AppointmentFanOut set(String appointmentId, Map<String, Object> appointmentData) {
+        String dogId = (String) appointmentData.get("dogId");
+        String vetId = (String) appointmentData.get("vetId");
+        for (DocumentReference ref : copiesOf(db, appointmentId, dogId, vetId)) {
+            batch.set(ref, dataFor(ref, appointmentData));
+            operationCount++;
+        }
+        return this;
+    }
+
+    /**
+     * Queues an update of the given fields on every copy.
+     * If any copy is missing the whole batch fails, so copies never drift apart.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param dogId Dog's unique identifier
+     * @param vetId Veterinarian's unique identifier
+     * @param fields Fields to update on each copy
+     * @return This fan-out for chaining
+     */
+    public AppointmentFanOut update(String appointmentId, String dogId, String vetId, Map<String, Object> fields) {
+        for (DocumentReference ref : copiesOf(db, appointmentId, dogId, vetId)) {
+            batch.update(ref, fields);
+            operationCount++;
+        }
+        return this;
+    }
+
+    /**
+     * Queues deletion of every copy.
+     *
+     * @param appointmentId Appointment's unique identifier
+     * @param dogId Dog's unique identifier
+     * @param vetId Veterinarian's unique identifier
+     * @return This fan-out for chaining
+     */
+    public AppointmentFanOut delete(String appointmentId, String dogId, String vetId) {
+        for (DocumentReference ref : copiesOf(db, appointmentId, dogId, vetId)) {
+            batch.delete(ref);
+            operationCount++;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of operations queued so far.
+     *
+     * @return Number of queued write operations
+     */
+    public int size() {
+        return operationCount;
+    }
+
+    /**
+     * Commits all queued writes atomically and reports a single result.
+     *
+     * @param onSuccess Callback to run when every copy has been written, may be null
+     * @param onFailure Callback to run with an error message if the batch failed, may be null
+     */
+    public void commit(Runnable onSuccess, Consumer<String> onFailure) {
+        if (operationCount == 0) {
+            Log.w(TAG, "Nothing to commit");
+            if (onFailure != null) onFailure.accept("No appointment copies to write");
+            return;
+        }
+        if (operationCount > MAX_BATCH_OPERATIONS) {
+            Log.e(TAG, "Batch too large: " + operationCount);
+            if (onFailure != null) onFailure.accept("Too many writes in one batch: " + operationCount);
+            return;
+        }
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Committed " + operationCount + " appointment writes");
+                    if (onSuccess != null) onSuccess.run();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to commit appointment writes", e);
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+}
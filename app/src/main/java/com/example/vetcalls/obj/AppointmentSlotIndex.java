@@ -0,0 +1,284 @@
+package com.example.vetcalls.obj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Interval index over one veterinarian's appointments on one day.
+ * Appointments are kept sorted by start minute together with a running maximum of their end minutes,
+ * so a conflict check is a single binary search, and free slots are found by walking the merged busy blocks.
+ * Times are minutes from midnight; an appointment occupies [start, end).
+ *
+ * @author Ofek Levi
+ */
+public class AppointmentSlotIndex {
+
+    /** Minutes in a day; no slot may end after midnight. */
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** Suggested slots start on this minute granularity. */
+    static final int SLOT_ALIGNMENT_MINUTES = 5;
+
+    private final int[] starts;
+    private final int[] ends;
+    private final String[] ids;
+
+    /** maxEnd[i] is the latest end among intervals 0..i. */
+    private final int[] maxEnd;
+
+    /** maxEndIndex[i] is the interval that reaches maxEnd[i]. */
+    private final int[] maxEndIndex;
+
+    /** Disjoint busy blocks in order, as start/end pairs. */
+    private final int[] busyStarts;
+    private final int[] busyEnds;
+
+    /**
+     * An existing appointment that overlaps a requested slot.
+     */
+    public static class Conflict {
+        /** Document ID of the conflicting appointment */
+        public final String appointmentId;
+
+        /** Start of the conflicting appointment, in minutes from midnight */
+        public final int startMinute;
+
+        /** End of the conflicting appointment, in minutes from midnight */
+        public final int endMinute;
+
+        /**
+         * Creates a conflict description.
+         *
+         * @param appointmentId Document ID of the conflicting appointment
+         * @param startMinute Start of the conflicting appointment
+         * @param endMinute End of the conflicting appointment
+         */
+        Conflict(String appointmentId, int startMinute, int endMinute) {
+            this.appointmentId = appointmentId;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+    }
+
+    /**
+     * Builds the index from a day's appointment documents.
+     * Appointments with missing or malformed times are ignored, as is the excluded appointment,
+     * which lets an edited appointment be checked without conflicting with itself.
+     *
+     * @param appointments The day's appointment documents with "startTime" and "endTime" in HH:mm
+     * @param excludedAppointmentId Document ID to leave out, may be null
+     * @return The index
+     */
+    public static AppointmentSlotIndex fromAppointments(List<Map<String, Object>> appointments, String excludedAppointmentId) {
+        List<int[]> intervals = new ArrayList<>();
+        List<String> intervalIds = new ArrayList<>();
+        for (Map<String, Object> appointment : appointments) {
+            String id = appointment.get("documentId") != null
+                    ? (String) appointment.get("documentId") : (String) appointment.get("id");
+            if (excludedAppointmentId != null && excludedAppointmentId.equals(id)) continue;
+
+            int start = parseMinutes(appointment.get("startTime"));
+            int end = parseMinutes(appointment.get("endTime"));
+            if (start < 0 || end <= start) continue;
+            intervals.add(new int[]{start, end, intervalIds.size()});
+            intervalIds.add(id);
+        }
+        return new AppointmentSlotIndex(intervals, intervalIds);
+    }
+
+    /**
+     * Creates the index from raw intervals.
+     *
+     * @param intervals Intervals as {start, end, idIndex}
+     * @param intervalIds Appointment IDs referenced by idIndex
+     */
+    private AppointmentSlotIndex(List<int[]> intervals, List<String> intervalIds) {
+        intervals.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        int n = intervals.size();
+        starts = new int[n];
+        ends = new int[n];
+        ids = new String[n];
+        maxEnd = new int[n];
+        maxEndIndex = new int[n];
+
+        int[] blockStarts = new int[n];
+        int[] blockEnds = new int[n];
+        int blocks = 0;
+
+        for (int i = 0; i < n; i++) {
+            int[] interval = intervals.get(i);
+            starts[i] = interval[0];
+            ends[i] = interval[1];
+            ids[i] = intervalIds.get(interval[2]);
+
+            if (i == 0 || ends[i] > maxEnd[i - 1]) {
+                maxEnd[i] = ends[i];
+                maxEndIndex[i] = i;
+            } else {
+                maxEnd[i] = maxEnd[i - 1];
+                maxEndIndex[i] = maxEndIndex[i - 1];
+            }
+
+            if (blocks > 0 && starts[i] <= blockEnds[blocks - 1]) {
+                blockEnds[blocks - 1] = Math.max(blockEnds[blocks - 1], ends[i]);
+            } else {
+                blockStarts[blocks] = starts[i];
+                blockEnds[blocks] = ends[i];
+                blocks++;
+            }
+        }
+        busyStarts = Arrays.copyOf(blockStarts, blocks);
+        busyEnds = Arrays.copyOf(blockEnds, blocks);
+    }
+
+    /**
+     * Returns the number of indexed appointments.
+     *
+     * @return The number of appointments
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Finds an appointment that overlaps the requested slot.
+     *
+     * @param startMinute Start of the requested slot, in minutes from midnight
+     * @param durationMinutes Length of the requested slot
+     * @return The overlapping appointment that ends last, or null if the slot is free
+     */
+    public Conflict findConflict(int startMinute, int durationMinutes) {
+        int endMinute = startMinute + durationMinutes;
+        int last = lastStartingBefore(endMinute);
+        if (last < 0 || maxEnd[last] <= startMinute) return null;
+        int index = maxEndIndex[last];
+        return new Conflict(ids[index], starts[index], ends[index]);
+    }
+
+    /**
+     * Checks whether the requested slot is free.
+     *
+     * @param startMinute Start of the requested slot, in minutes from midnight
+     * @param durationMinutes Length of the requested slot
+     * @return True if no appointment overlaps the slot
+     */
+    public boolean isFree(int startMinute, int durationMinutes) {
+        return findConflict(startMinute, durationMinutes) == null;
+    }
+
+    /**
+     * Returns the earliest free slots of the given length, starting no earlier than the given minute.
+     * Slots start on a five-minute boundary, do not overlap each other and end by midnight.
+     *
+     * @param fromMinute The earliest acceptable start, in minutes from midnight
+     * @param durationMinutes Length of each slot
+     * @param count The maximum number of slots to return
+     * @return Start minutes of up to {@code count} free slots, in order
+     */
+    public List<Integer> nextFreeSlots(int fromMinute, int durationMinutes, int count) {
+        List<Integer> slots = new ArrayList<>();
+        if (durationMinutes <= 0 || count <= 0) return slots;
+
+        int candidate = alignUp(Math.max(0, fromMinute));
+        int block = firstBlockEndingAfter(candidate);
+
+        while (slots.size() < count && candidate + durationMinutes <= MINUTES_PER_DAY) {
+            if (block < busyStarts.length && candidate + durationMinutes > busyStarts[block]) {
+                candidate = alignUp(Math.max(candidate, busyEnds[block]));
+                block++;
+                continue;
+            }
+            slots.add(candidate);
+            candidate = alignUp(candidate + durationMinutes);
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the index of the last interval that starts before the given minute.
+     *
+     * @param minute The minute to search for
+     * @return The interval index, or -1 if none starts before it
+     */
+    private int lastStartingBefore(int minute) {
+        int low = 0;
+        int high = starts.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < minute) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the first busy block that ends after the given minute.
+     *
+     * @param minute The minute to search for
+     * @return The block index, or the number of blocks if all end by then
+     */
+    private int firstBlockEndingAfter(int minute) {
+        int low = 0;
+        int high = busyEnds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (busyEnds[mid] <= minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rounds a minute up to the slot alignment.
+     *
+     * @param minute The minute to round
+     * @return The aligned minute
+     */
+    private static int alignUp(int minute) {
+        int remainder = minute % SLOT_ALIGNMENT_MINUTES;
+        return remainder == 0 ? minute : minute + SLOT_ALIGNMENT_MINUTES - remainder;
+    }
+
+    /**
+     * Parses an "HH:mm" value into minutes from midnight.
+     *
+     * @param value The stored time value
+     * @return Minutes from midnight, or -1 if the value is missing or malformed
+     */
+    public static int parseMinutes(Object value) {
+        if (!(value instanceof String)) return -1;
+        String time = (String) value;
+        int colon = time.indexOf(':');
+        if (colon <= 0 || colon == time.length() - 1) return -1;
+        try {
+            int hours = Integer.parseInt(time.substring(0, colon).trim());
+            int minutes = Integer.parseInt(time.substring(colon + 1).trim());
+            if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59) return -1;
+            int total = hours * 60 + minutes;
+            return total <= MINUTES_PER_DAY ? total : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Formats minutes from midnight as "HH:mm".
+     *
+     * @param minutes Minutes from midnight
+     * @return The formatted time
+     */
+    public static String formatMinutes(int minutes) {
+        return String.format(Locale.US, "%02d:%02d", minutes / 60, minutes % 60);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.vetcalls.obj;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * BroadcastReceiver fired by the hourly alarm of {@link AppointmentCompletionSweeper}.
+ * The sweep runs asynchronously, so the broadcast is kept alive with goAsync until it finishes.
+ *
+ * @author Ofek Levi
+ */
+public class AppointmentSweepReceiver extends BroadcastReceiver {
+
+    /**
+     * Runs one sweep for the signed-in user.
+     *
+     * @param context The Context in which the receiver is running
+     * @param intent The Intent being received
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        AppointmentCompletionSweeper sweeper = AppointmentCompletionSweeper.forSignedInUser(context.getApplicationContext());
+        if (sweeper == null) {
+            Log.d("AppointmentSweepReceiver", "No signed-in user, skipping sweep");
+            return;
+        }
+        PendingResult pendingResult = goAsync();
+        sweeper.run(completed -> pendingResult.finish());
+    }
+}
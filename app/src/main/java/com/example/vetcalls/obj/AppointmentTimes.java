@@ -0,0 +1,192 @@
+package com.example.vetcalls.obj;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sortable time fields for appointments.
+ * Appointments keep their display fields "date" (yyyy-M-d) and "startTime"/"endTime" (HH:mm),
+ * which do not sort lexically, next to epoch milliseconds in "startAt"/"endAt" and the start's
+ * minute of the day in "startMinute". The epoch fields are what range queries and orderBy use.
+ * Times are interpreted in the device's time zone, like the date and time pickers that produce them.
+ *
+ * @author Ofek Levi
+ */
+public final class AppointmentTimes {
+
+    /** Start of the appointment in epoch milliseconds. */
+    public static final String START_AT = "startAt";
+
+    /** End of the appointment in epoch milliseconds. */
+    public static final String END_AT = "endAt";
+
+    /** Start of the appointment in minutes from midnight. */
+    public static final String START_MINUTE = "startMinute";
+
+    private static final long MINUTE_MS = 60 * 1000L;
+
+    private AppointmentTimes() {}
+
+    /**
+     * Returns the start of a day in epoch milliseconds.
+     *
+     * @param date The date in yyyy-M-d format
+     * @return Local midnight of that day, or -1 if the date is missing or malformed
+     */
+    public static long dayStart(Object date) {
+        if (!(date instanceof String)) return -1;
+        String[] parts = ((String) date).trim().split("-");
+        if (parts.length != 3) return -1;
+        try {
+            int year = Integer.parseInt(parts[0]);
+            int month = Integer.parseInt(parts[1]);
+            int day = Integer.parseInt(parts[2]);
+            if (month < 1 || month > 12 || day < 1 || day > 31) return -1;
+            return dayStart(year, month, day);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the start of a day in epoch milliseconds.
+     *
+     * @param year The year
+     * @param month The month, 1 to 12
+     * @param day The day of the month
+     * @return Local midnight of that day
+     */
+    public static long dayStart(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Returns the start of today in epoch milliseconds.
+     *
+     * @return Local midnight of the current day
+     */
+    public static long todayStart() {
+        Calendar now = Calendar.getInstance();
+        return dayStart(now.get(Calendar.YEAR), now.get(Calendar.MONTH) + 1, now.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Moves a day start by whole days, keeping it on local midnight across daylight saving changes.
+     *
+     * @param dayStart Local midnight of a day, in epoch milliseconds
+     * @param days Number of days to move, may be negative
+     * @return Local midnight of the resulting day
+     */
+    public static long addDays(long dayStart, int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayStart);
+        calendar.add(Calendar.DAY_OF_MONTH, days);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Formats an instant as the stored "date" value of its local day.
+     *
+     * @param millis Epoch milliseconds
+     * @return The date in yyyy-M-d format
+     */
+    public static String dateOf(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR) + "-" + (calendar.get(Calendar.MONTH) + 1) + "-" + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * Returns when an appointment starts, preferring the stored "startAt" field.
+     *
+     * @param appointment The appointment fields
+     * @return Epoch milliseconds of the start, or -1 if it cannot be determined
+     */
+    public static long startAtOf(Map<String, Object> appointment) {
+        Object stored = appointment.get(START_AT);
+        if (stored instanceof Number) return ((Number) stored).longValue();
+        return instantOf(appointment.get("date"), appointment.get("startTime"));
+    }
+
+    /**
+     * Returns when an appointment ends, preferring the stored "endAt" field.
+     *
+     * @param appointment The appointment fields
+     * @return Epoch milliseconds of the end, or -1 if it cannot be determined
+     */
+    public static long endAtOf(Map<String, Object> appointment) {
+        Object stored = appointment.get(END_AT);
+        if (stored instanceof Number) return ((Number) stored).longValue();
+        return instantOf(appointment.get("date"), appointment.get("endTime"));
+    }
+
+    /**
+     * Checks whether an appointment is missing sortable time fields it could have.
+     *
+     * @param appointment The appointment fields
+     * @return True if "startAt", "endAt" or "startMinute" is missing or disagrees with the display fields
+     */
+    public static boolean needsTimestamps(Map<String, Object> appointment) {
+        Map<String, Object> expected = timestampsOf(appointment);
+        for (Map.Entry<String, Object> field : expected.entrySet()) {
+            Object stored = appointment.get(field.getKey());
+            if (!(stored instanceof Number) || ((Number) stored).longValue() != ((Number) field.getValue()).longValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the sortable time fields from an appointment's date and times.
+     * Fields that cannot be computed because the display fields are malformed are left out.
+     *
+     * @param appointment The appointment fields
+     * @return Map with "startAt", "endAt" and "startMinute" where they could be computed
+     */
+    public static Map<String, Object> timestampsOf(Map<String, Object> appointment) {
+        Map<String, Object> fields = new HashMap<>();
+        long start = instantOf(appointment.get("date"), appointment.get("startTime"));
+        long end = instantOf(appointment.get("date"), appointment.get("endTime"));
+        if (start >= 0) {
+            fields.put(START_AT, start);
+            fields.put(START_MINUTE, (long) AppointmentSlotIndex.parseMinutes(appointment.get("startTime")));
+        }
+        if (end >= 0) fields.put(END_AT, end);
+        return fields;
+    }
+
+    /**
+     * Returns a copy of the appointment with its sortable time fields filled in.
+     *
+     * @param appointment The appointment fields
+     * @return A new map with the original fields plus "startAt", "endAt" and "startMinute"
+     */
+    public static Map<String, Object> withTimestamps(Map<String, Object> appointment) {
+        Map<String, Object> stamped = new HashMap<>(appointment);
+        stamped.putAll(timestampsOf(appointment));
+        return stamped;
+    }
+
+    /**
+     * Combines a stored date and time into an instant.
+     *
+     * @param date The date in yyyy-M-d format
+     * @param time The time in HH:mm format
+     * @return Epoch milliseconds, or -1 if either value is missing or malformed
+     */
+    private static long instantOf(Object date, Object time) {
+        long day = dayStart(date);
+        int minutes = AppointmentSlotIndex.parseMinutes(time);
+        if (day < 0 || minutes < 0) return -1;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(day);
+        calendar.set(Calendar.HOUR_OF_DAY, minutes / 60);
+        calendar.set(Calendar.MINUTE, minutes % 60);
+        return minutes == AppointmentSlotIndex.MINUTES_PER_DAY ? addDays(day, 1) : calendar.getTimeInMillis();
+    }
+}
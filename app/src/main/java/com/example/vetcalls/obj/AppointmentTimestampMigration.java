@@ -0,0 +1,279 @@
+package com.example.vetcalls.obj;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.Repositories;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Batch job that backfills the sortable time fields of {@link AppointmentTimes} and the
+ * {@link AppointmentFanOut#COPY_FIELD} tag on existing appointments.
+ * Each signed-in user migrates the appointments they take part in: owners every copy whose "ownerId"
+ * is theirs, veterinarians every copy whose "vetId" is theirs. Both copies of an appointment carry these
+ * fields, so one collection-group query reaches the dog and veterinarian copies alike.
+ * The query is read one page at a time and every page is written in a single batch. Documents that
+ * already have correct fields are skipped, so an interrupted run simply starts over on the next launch.
+ * A page that fails to read or commit is retried with exponential backoff; the first failure also runs the
+ * completion callback, so work chained on the migration is not skipped while it retries.
+ * <p>
+ * Appointments a veterinarian booked before the owner was recorded carry the veterinarian's own ID
+ * as "ownerId"; the veterinarian's run also repairs those from the dog profile.
+ *
+ * @author Ofek Levi
+ */
+public class AppointmentTimestampMigration {
+
+    private static final String TAG = "AppointmentMigration";
+    private static final String PREFS_NAME = "AppointmentMigration";
+
+    /** Bumped whenever the migrated fields change, so every user runs the job again. */
+    private static final int VERSION = 2;
+
+    /** Documents read per page. Each costs at most one update, keeping batches under 500 operations. */
+    public static final int PAGE_SIZE = 400;
+
+    /** Delay before the first retry of a failed page; each further retry waits twice as long. */
+    private static final long RETRY_BASE_MILLIS = 30 * 1000L;
+
+    /** Retries of failed pages in one run before waiting for the next launch. */
+    private static final int MAX_RETRIES = 6;
+
+    private static final Handler retryHandler = new Handler(Looper.getMainLooper());
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences checkpoint;
+    private final String userId;
+    private final boolean isVet;
+
+    private int migratedCount = 0;
+    private int failures = 0;
+
+    /**
+     * Starts the migration for a user unless it already completed for them.
+     *
+     * @param context Context used to access the checkpoint store
+     * @param userId The signed-in user's unique identifier
+     * @param isVet true if the user is a veterinarian
+     */
+    public static void runOnce(Context context, String userId, boolean isVet) {
+        runOnce(context, userId, isVet, null);
+    }
+
+    /**
+     * Starts the migration for a user unless it already completed for them.
+     *
+     * @param context Context used to access the checkpoint store
+     * @param userId The signed-in user's unique identifier
+     * @param isVet true if the user is a veterinarian
+     * @param onDone Callback to run once the user's appointments are migrated, and also after the first failed
+     *               page so it is not held up by retries; it may therefore run twice, may be null
+     */
+    public static void runOnce(Context context, String userId, boolean isVet, Runnable onDone) {
+        if (userId == null || userId.isEmpty()) return;
+        new AppointmentTimestampMigration(context, FirebaseFirestore.getInstance(), userId, isVet).run(onDone);
+    }
+
+    /**
+     * Creates a migration on the given Firestore instance.
+     *
+     * @param context Context used to access the checkpoint store
+     * @param db The Firestore instance
+     * @param userId The user whose appointments are migrated
+     * @param isVet true if the user is a veterinarian
+     */
+    public AppointmentTimestampMigration(Context context, FirebaseFirestore db, String userId, boolean isVet) {
+        this.db = db;
+        this.checkpoint = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.userId = userId;
+        this.isVet = isVet;
+    }
+
+    /**
+     * Runs the migration if it has not completed for this user yet.
+     *
+     * @param onDone Callback to run once every page has been migrated, and also after the first failed page, may be null
+     */
+    public void run(Runnable onDone) {
+        if (checkpoint.getInt(doneKey(), 0) >= VERSION) {
+            if (onDone != null) onDone.run();
+            return;
+        }
+        Log.d(TAG, "Migrating appointments of " + (isVet ? "vet " : "owner ") + userId);
+        migratePage(null, onDone);
+    }
+
+    /**
+     * Reads the page after the given document and writes the missing fields of its appointments.
+     *
+     * @param after The last document of the previous page, or null for the first page
+     * @param onDone Callback to run once the query is exhausted, may be null
+     */
+    private void migratePage(DocumentSnapshot after, Runnable onDone) {
+        Query page = db.collectionGroup("Appointments")
+                .whereEqualTo(isVet ? "vetId" : "ownerId", userId)
+                .limit(PAGE_SIZE);
+        if (after != null) page = page.startAfter(after);
+
+        page.get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.isEmpty()) {
+                        finish(onDone);
+                        return;
+                    }
+                    resolveOwners(snapshot, owners -> {
+                        WriteBatch batch = db.batch();
+                        int updates = 0;
+                        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                            Map<String, Object> fields = changesFor(doc, owners);
+                            if (fields.isEmpty()) continue;
+                            batch.update(doc.getReference(), fields);
+                            updates++;
+                        }
+                        DocumentSnapshot last = snapshot.getDocuments().get(snapshot.size() - 1);
+                        boolean lastPage = snapshot.size() < PAGE_SIZE;
+                        if (updates == 0) {
+                            if (lastPage) finish(onDone); else migratePage(last, onDone);
+                            return;
+                        }
+                        int committed = updates;
+                        batch.commit()
+                                .addOnSuccessListener(aVoid -> {
+                                    migratedCount += committed;
+                                    Log.d(TAG, "Migrated " + migratedCount + " appointment copies so far");
+                                    if (lastPage) finish(onDone); else migratePage(last, onDone);
+                                })
+                                .addOnFailureListener(e -> retry(after, onDone, "Failed to migrate appointment page", e));
+                    });
+                })
+                .addOnFailureListener(e -> retry(after, onDone, "Failed to read appointments to migrate", e));
+    }
+
+    /**
+     * Schedules the failed page again after a growing delay. The first failure also runs the
+     * completion callback, so what is chained on the migration still runs on the appointments
+     * migrated so far.
+     *
+     * @param after The last document before the failed page, or null for the first page
+     * @param onDone Callback to run once the query is exhausted, may be null
+     * @param message Description of what failed
+     * @param e The failure
+     */
+    private void retry(DocumentSnapshot after, Runnable onDone, String message, Exception e) {
+        failures++;
+        if (failures == 1 && onDone != null) onDone.run();
+        if (failures > MAX_RETRIES) {
+            Log.e(TAG, message + ", giving up until the next launch", e);
+            return;
+        }
+        long delay = RETRY_BASE_MILLIS << (failures - 1);
+        Log.e(TAG, message + ", retrying in " + delay / 1000 + " seconds", e);
+        retryHandler.postDelayed(() -> migratePage(after, onDone), delay);
+    }
+
+    /**
+     * Returns the fields a document needs updated.
+     *
+     * @param doc The appointment copy
+     * @param owners Owner IDs of the page's dogs whose appointments need their owner repaired
+     * @return The fields to update, empty if the document is already migrated
+     */
+    private Map<String, Object> changesFor(DocumentSnapshot doc, Map<String, String> owners) {
+        Map<String, Object> data = doc.getData();
+        Map<String, Object> fields = new HashMap<>();
+        if (data == null) return fields;
+        if (AppointmentTimes.needsTimestamps(data)) fields.putAll(AppointmentTimes.timestampsOf(data));
+        String copy = AppointmentFanOut.copyKindOf(doc.getReference());
+        if (copy != null && !copy.equals(data.get(AppointmentFanOut.COPY_FIELD))) {
+            fields.put(AppointmentFanOut.COPY_FIELD, copy);
+        }
+        if (needsOwnerRepair(data)) {
+            String ownerId = owners.get((String) data.get("dogId"));
+            if (ownerId != null) fields.put("ownerId", ownerId);
+        }
+        return fields;
+    }
+
+    /**
+     * Checks whether an appointment records the veterinarian running the migration as its owner.
+     *
+     * @param data The appointment fields
+     * @return True if the owner must be looked up from the dog profile
+     */
+    private boolean needsOwnerRepair(Map<String, Object> data) {
+        return isVet && userId.equals(data.get("ownerId")) && data.get("dogId") instanceof String;
+    }
+
+    /**
+     * Looks up the owners of the page's dogs whose appointments need their owner repaired.
+     *
+     * @param snapshot The page
+     * @param onResolved Callback receiving owner IDs keyed by dog ID; empty if nothing needs repair
+     */
+    private void resolveOwners(QuerySnapshot snapshot, Consumer<Map<String, String>> onResolved) {
+        Set<String> dogIds = new LinkedHashSet<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            Map<String, Object> data = doc.getData();
+            if (data != null && needsOwnerRepair(data)) dogIds.add((String) data.get("dogId"));
+        }
+        if (dogIds.isEmpty()) {
+            onResolved.accept(new HashMap<>());
+            return;
+        }
+
+        Repositories.dogs().getDogs(new ArrayList<>(dogIds),
+                new DataCallback<List<Map<String, Object>>>() {
+                    @Override
+                    public void onSuccess(List<Map<String, Object>> dogs) {
+                        Map<String, String> owners = new HashMap<>();
+                        for (Map<String, Object> dog : dogs) {
+                            Object ownerId = dog.get("ownerId");
+                            if (ownerId instanceof String) owners.put((String) dog.get("documentId"), (String) ownerId);
+                        }
+                        onResolved.accept(owners);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "Failed to look up dog owners, migrating times only", e);
+                        onResolved.accept(new HashMap<>());
+                    }
+                });
+    }
+
+    /**
+     * Records that the migration completed for this user.
+     *
+     * @param onDone Callback to run, may be null
+     */
+    private void finish(Runnable onDone) {
+        checkpoint.edit().putInt(doneKey(), VERSION).apply();
+        Log.d(TAG, "Appointment migration done, " + migratedCount + " copies updated");
+        if (onDone != null) onDone.run();
+    }
+
+    /**
+     * Returns the checkpoint key of this user.
+     *
+     * @return The preference key
+     */
+    private String doneKey() {
+        return "done_" + userId;
+    }
+}
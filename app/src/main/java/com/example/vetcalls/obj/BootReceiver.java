@@ -6,13 +6,12 @@ import android.content.Intent;
 import android.util.Log;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 /**
  * BroadcastReceiver that handles device boot completion events.
- * Automatically reschedules notification reminders after device reboot
- * by retrieving stored reminders from Firestore and setting them up again.
+ * Re-arms the reminder alarm from the on-device reminder queue, so reminders are back within
+ * milliseconds of a reboot even without connectivity, restores the hourly appointment completion sweep,
+ * and defers the reconciliation of the queue with Firestore to {@link ReminderReconciler}.
  *
  * @author Ofek Levi
  */
@@ -29,6 +28,11 @@ public class BootReceiver extends BroadcastReceiver {
     public void onReceive(Context context, Intent intent) {
         if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
             Log.d("BootReceiver", "Device rebooted, rescheduling reminders...");
+            Context appContext = context.getApplicationContext();
+
+            // The reminder queue survives the reboot, only its single alarm has to be armed again
+            new ReminderRegistry(appContext).armNext();
+
             String userId = null;
             try {
                 userId = FirebaseAuth.getInstance().getCurrentUser() != null ?
@@ -38,22 +42,8 @@ public class BootReceiver extends BroadcastReceiver {
             }
             if (userId == null) return;
 
-            FirebaseFirestore db = FirebaseFirestore.getInstance();
-            db.collection("Users").document(userId)
-                    .collection("Reminders")
-                    .get()
-                    .addOnSuccessListener(queryDocumentSnapshots -> {
-                        NotificationHelper notificationHelper = new NotificationHelper(context);
-                        long now = System.currentTimeMillis();
-                        for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                            Long time = doc.getTimestamp("time") != null ? doc.getTimestamp("time").toDate().getTime() : null;
-                            if (time != null && time > now) {
-                                String title = doc.getString("title");
-                                String description = doc.getString("description");
-                                notificationHelper.scheduleNotification(context, title, description, time);
-                            }
-                        }
-                    });
+            AppointmentCompletionSweeper.schedule(appContext);
+            ReminderReconciler.scheduleAfterBoot(appContext);
         }
     }
-}
\ No newline at end of file
+}
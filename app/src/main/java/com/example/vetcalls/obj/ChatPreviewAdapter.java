@@ -1,13 +1,18 @@
 package com.example.vetcalls.obj;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.*;
 import android.widget.*;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.example.vetcalls.R;
 
 import java.util.*;
@@ -15,10 +20,12 @@ import java.util.*;
 /**
  * RecyclerView adapter for displaying chat preview items in a list.
  * Handles the binding of ChatPreview data to view holders and manages click events.
+ * New lists are diffed on a background thread and applied as positional updates.
+ * Avatars are loaded through a {@link ListImagePreloader}, so the avatars of upcoming rows can be preloaded.
  *
  * @author Ofek Levi
  */
-public class ChatPreviewAdapter extends RecyclerView.Adapter<ChatViewHolder> {
+public class ChatPreviewAdapter extends RecyclerView.Adapter<ChatViewHolder> implements ListImagePreloader.RowImages {
 
     /**
      * Interface for handling chat item click events.
@@ -32,8 +39,24 @@ public class ChatPreviewAdapter extends RecyclerView.Adapter<ChatViewHolder> {
         void onChatClick(ChatPreview chat);
     }
 
-    private List<ChatPreview> chatList;
+    private static final DiffUtil.ItemCallback<ChatPreview> CHAT_DIFF = new DiffUtil.ItemCallback<ChatPreview>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatPreview oldChat, @NonNull ChatPreview newChat) {
+            return Objects.equals(oldChat.chatId, newChat.chatId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatPreview oldChat, @NonNull ChatPreview newChat) {
+            return Objects.equals(oldChat.displayName, newChat.displayName)
+                    && Objects.equals(oldChat.imageUrl, newChat.imageUrl)
+                    && Objects.equals(oldChat.lastMessage, newChat.lastMessage)
+                    && Objects.equals(oldChat.lastMessageTime, newChat.lastMessageTime);
+        }
+    };
+
+    private final AsyncListDiffer<ChatPreview> differ = new AsyncListDiffer<>(this, CHAT_DIFF);
     private OnChatClickListener listener;
+    private final ListImagePreloader imagePreloader = new ListImagePreloader("ChatPreviewAdapter", this);
 
     /**
      * Constructor for creating the adapter with chat data and click listener.
@@ -42,8 +65,57 @@ public class ChatPreviewAdapter extends RecyclerView.Adapter<ChatViewHolder> {
      * @param listener Listener for handling chat item clicks
      */
     public ChatPreviewAdapter(List<ChatPreview> chatList, OnChatClickListener listener) {
-        this.chatList = chatList;
         this.listener = listener;
+        setHasStableIds(true);
+        submitList(chatList);
+    }
+
+    /**
+     * Replaces the displayed chats, updating only the rows that changed.
+     *
+     * @param chats The chat previews to display
+     */
+    public void submitList(List<ChatPreview> chats) {
+        differ.submitList(new ArrayList<>(chats));
+    }
+
+    /**
+     * Preloads the avatars of upcoming rows while a RecyclerView showing this adapter scrolls.
+     *
+     * @param recyclerView The list showing this adapter
+     * @param rowsAhead How many rows past the visible ones to preload
+     */
+    public void attachImagePreloader(RecyclerView recyclerView, int rowsAhead) {
+        imagePreloader.attach(recyclerView, rowsAhead);
+    }
+
+    /**
+     * Returns the avatar shown by a row.
+     *
+     * @param position The row's adapter position
+     * @return The avatar, or an empty list if the chat has none
+     */
+    @NonNull
+    @Override
+    public List<String> imagesAt(int position) {
+        String imageUrl = differ.getCurrentList().get(position).imageUrl;
+        return imageUrl != null && !imageUrl.isEmpty() ? Collections.singletonList(imageUrl) : Collections.emptyList();
+    }
+
+    /**
+     * Builds the request of a row's avatar, used both to bind and to preload it.
+     * The crop is set explicitly rather than taken from the view's scale type, so both requests match.
+     *
+     * @param glide The request manager to build it with
+     * @param image The avatar URL or storage location
+     * @return The request
+     */
+    @NonNull
+    @Override
+    public RequestBuilder<Drawable> requestFor(@NonNull RequestManager glide, @NonNull String image) {
+        return glide.load(image)
+                .placeholder(R.drawable.user_person_profile_avatar_icon_190943)
+                .centerCrop();
     }
 
     /**
@@ -69,13 +141,16 @@ public class ChatPreviewAdapter extends RecyclerView.Adapter<ChatViewHolder> {
      */
     @Override
     public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
-        ChatPreview chat = chatList.get(position);
+        ChatPreview chat = differ.getCurrentList().get(position);
 
         holder.name.setText(chat.displayName);
-        Glide.with(holder.itemView.getContext())
-                .load(chat.imageUrl)
-                .placeholder(R.drawable.user_person_profile_avatar_icon_190943)
-                .into(holder.image);
+        List<String> avatar = imagesAt(position);
+        if (!avatar.isEmpty()) {
+            imagePreloader.load(holder.image, avatar.get(0));
+        } else {
+            Glide.with(holder.itemView.getContext()).clear(holder.image);
+            holder.image.setImageResource(R.drawable.user_person_profile_avatar_icon_190943);
+        }
 
         holder.itemView.setOnClickListener(v -> {
             if (listener != null) {
@@ -91,6 +166,17 @@ public class ChatPreviewAdapter extends RecyclerView.Adapter<ChatViewHolder> {
      */
     @Override
     public int getItemCount() {
-        return chatList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the stable ID of the chat at the given position.
+     *
+     * @param position The position of the item within the adapter's data set
+     * @return The stable ID derived from the chat's ID
+     */
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(differ.getCurrentList().get(position).chatId);
     }
 }
\ No newline at end of file
@@ -1,6 +1,14 @@
+package com.example.vetcalls.obj;
+
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.vetcalls.R;
+
 /**
  * ViewHolder class for chat preview items in the RecyclerView.
  * Holds references to the UI components of each chat preview item
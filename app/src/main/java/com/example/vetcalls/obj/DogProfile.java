@@ -24,6 +24,12 @@ public class DogProfile {
     /** URL for the dog's profile image */
     public String profileImageUrl;
 
+    /** URL for the medium size variant of the profile image, see {@link ImageVariants} */
+    public String profileImageMediumUrl;
+
+    /** URL for the thumbnail variant of the profile image, see {@link ImageVariants} */
+    public String profileImageThumbUrl;
+
     /** Breed of the dog */
     public String race;
 
@@ -4,6 +4,7 @@ import com.example.vetcalls.R;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -14,12 +15,18 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.FragmentActivity;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import com.example.vetcalls.obj.DogProfileViewHolder;
 
@@ -27,17 +34,38 @@ import com.example.vetcalls.obj.DogProfileViewHolder;
  * RecyclerView adapter for displaying dog profiles in a list.
  * Handles the binding of DogProfile data to view holders, manages current dog selection,
  * and updates profile information in SharedPreferences and UI.
+ * New lists are diffed on a background thread and applied as positional updates.
+ * Row images are loaded through a {@link ListImagePreloader}, so the images of upcoming rows can be preloaded.
  *
  * @author Ofek Levi
  */
-public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder> {
+public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder> implements ListImagePreloader.RowImages {
 
     private static final String TAG = "DogProfileAdapter";
-    private List<DogProfile> dogList;
+
+    private static final DiffUtil.ItemCallback<DogProfile> DOG_DIFF = new DiffUtil.ItemCallback<DogProfile>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull DogProfile oldDog, @NonNull DogProfile newDog) {
+            return Objects.equals(keyOf(oldDog), keyOf(newDog));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull DogProfile oldDog, @NonNull DogProfile newDog) {
+            return oldDog.isCurrent == newDog.isCurrent
+                    && Objects.equals(oldDog.name, newDog.name)
+                    && Objects.equals(oldDog.age, newDog.age)
+                    && Objects.equals(oldDog.profileImageUrl, newDog.profileImageUrl)
+                    && Objects.equals(oldDog.profileImageThumbUrl, newDog.profileImageThumbUrl);
+        }
+    };
+
+    private final AsyncListDiffer<DogProfile> differ = new AsyncListDiffer<>(this, DOG_DIFF);
     private Context context;
     private DogProfile currentDog;
     private OnDogClickListener onDogClickListener;
     private int baseIndex = 0;
+    private final ListImagePreloader imagePreloader = new ListImagePreloader(TAG, this);
+    private int rowImageSize;
 
     /**
      * Interface for handling dog profile click events.
@@ -61,9 +89,20 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
      */
     public DogProfileAdapter(Context context, List<DogProfile> dogList, OnDogClickListener listener, int baseIndex) {
         this.context = context;
-        this.dogList = dogList != null ? dogList : new ArrayList<>();
         this.onDogClickListener = listener;
         this.baseIndex = baseIndex;
+        setHasStableIds(true);
+        updateDogList(dogList != null ? dogList : new ArrayList<>());
+    }
+
+    /**
+     * Returns the key that identifies a dog across list updates.
+     *
+     * @param dog The dog profile
+     * @return The dog's ID, or its name for profiles saved before they had an ID
+     */
+    private static String keyOf(DogProfile dog) {
+        return dog.dogId != null ? dog.dogId : dog.name;
     }
 
     /**
@@ -75,7 +114,7 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
     public void setCurrentDog(DogProfile dog) {
         if (currentDog != null) {
             currentDog.isCurrent = false;
-            int oldPosition = dogList.indexOf(currentDog);
+            int oldPosition = differ.getCurrentList().indexOf(currentDog);
             if (oldPosition != -1) {
                 notifyItemChanged(oldPosition);
             }
@@ -84,13 +123,52 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
         currentDog = dog;
         if (currentDog != null) {
             currentDog.isCurrent = true;
-            int newPosition = dogList.indexOf(currentDog);
+            int newPosition = differ.getCurrentList().indexOf(currentDog);
             if (newPosition != -1) {
                 notifyItemChanged(newPosition);
             }
         }
     }
 
+    /**
+     * Preloads the images of upcoming rows while a RecyclerView showing this adapter scrolls.
+     *
+     * @param recyclerView The list showing this adapter
+     * @param rowsAhead How many rows past the visible ones to preload
+     */
+    public void attachImagePreloader(RecyclerView recyclerView, int rowsAhead) {
+        imagePreloader.attach(recyclerView, rowsAhead);
+    }
+
+    /**
+     * Returns the image shown by a row: the smallest size of the dog's picture that covers the row's image view.
+     *
+     * @param position The row's adapter position
+     * @return The image, or an empty list if the dog has no picture
+     */
+    @NonNull
+    @Override
+    public List<String> imagesAt(int position) {
+        DogProfile dog = differ.getCurrentList().get(position);
+        String url = ImageVariants.forSize(rowImageSize, dog.profileImageThumbUrl, dog.profileImageMediumUrl, dog.profileImageUrl);
+        return url != null ? Collections.singletonList(url) : Collections.emptyList();
+    }
+
+    /**
+     * Builds the request of a row's image, used both to bind and to preload it.
+     *
+     * @param glide The request manager to build it with
+     * @param image The image URL or storage location
+     * @return The request
+     */
+    @NonNull
+    @Override
+    public RequestBuilder<Drawable> requestFor(@NonNull RequestManager glide, @NonNull String image) {
+        return glide.load(image)
+                .placeholder(R.drawable.user_person_profile_avatar_icon_190943)
+                .circleCrop();
+    }
+
     /**
      * Creates a new ViewHolder by inflating the dog item layout.
      *
@@ -114,7 +192,7 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
      */
     @Override
     public void onBindViewHolder(@NonNull DogProfileViewHolder holder, int position) {
-        DogProfile dog = dogList.get(position);
+        DogProfile dog = differ.getCurrentList().get(position);
         Log.d(TAG, "Binding dog: " + dog.name + ", id: " + dog.dogId + ", isCurrent: " + dog.isCurrent);
 
         holder.dogName.setText(dog.name);
@@ -131,12 +209,10 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
             holder.dogBio.setVisibility(View.GONE);
         }
 
-        if (dog.profileImageUrl != null && !dog.profileImageUrl.isEmpty()) {
-            Glide.with(context)
-                    .load(dog.profileImageUrl)
-                    .placeholder(R.drawable.user_person_profile_avatar_icon_190943)
-                    .circleCrop()
-                    .into(holder.dogImage);
+        rowImageSize = ImageVariants.sizeOf(holder.dogImage);
+        List<String> rowImages = imagesAt(position);
+        if (!rowImages.isEmpty()) {
+            imagePreloader.load(holder.dogImage, rowImages.get(0));
         } else {
             holder.dogImage.setImageResource(R.drawable.user_person_profile_avatar_icon_190943);
         }
@@ -150,8 +226,10 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
 
         holder.itemView.setOnClickListener(v -> {
             Log.d(TAG, "Dog card clicked: " + dog.name);
+            int adapterPosition = holder.getAdapterPosition();
+            if (adapterPosition == RecyclerView.NO_POSITION) return;
             if (onDogClickListener != null) {
-                onDogClickListener.onDogClick(position + baseIndex);
+                onDogClickListener.onDogClick(adapterPosition + baseIndex);
             } else {
                 updateProfile(dog);
             }
@@ -220,10 +298,12 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
             if (dogAge != null) dogAge.setText("Age: " + (dog.age != null ? dog.age : ""));
             if (bioTextView != null) bioTextView.setText(bioBuilder.toString().trim());
 
-            if (profilePic != null && dog.profileImageUrl != null && !dog.profileImageUrl.isEmpty()) {
+            String headerImageUrl = profilePic != null ? ImageVariants.forView(profilePic,
+                    dog.profileImageThumbUrl, dog.profileImageMediumUrl, dog.profileImageUrl) : null;
+            if (headerImageUrl != null) {
                 try {
                     Glide.with(context)
-                            .load(dog.profileImageUrl)
+                            .load(headerImageUrl)
                             .circleCrop()
                             .into(profilePic);
                 } catch (Exception e) {
@@ -236,14 +316,12 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
     }
 
     /**
-     * Updates the dog list with new data and refreshes the RecyclerView.
+     * Updates the dog list with new data, refreshing only the rows that changed.
      *
      * @param newList The new list of DogProfile objects to display
      */
     public void updateDogList(List<DogProfile> newList) {
-        dogList.clear();
-        dogList.addAll(newList);
-        notifyDataSetChanged();
+        differ.submitList(new ArrayList<>(newList));
     }
 
     /**
@@ -253,6 +331,17 @@ public class DogProfileAdapter extends RecyclerView.Adapter<DogProfileViewHolder
      */
     @Override
     public int getItemCount() {
-        return dogList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the stable ID of the dog at the given position.
+     *
+     * @param position The position of the item within the adapter's data set
+     * @return The stable ID derived from the dog's ID
+     */
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(keyOf(differ.getCurrentList().get(position)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,401 @@
+package com.example.vetcalls.obj;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Propagates dog profile edits to every denormalized copy of the profile.
+ * The new profile is diffed against the stored DogProfiles document, and only the changed fields are
+ * written, in one batch, to DogProfiles and to the copies in Users/{owner}/Dogs and
+ * Veterinarians/{vet}/Patients. A copy that only references the dog is upgraded to the whole profile once.
+ * Chat headers are only touched when the dog's name or image changed.
+ *
+ * @author Ofek Levi
+ */
+public class DogProfilePropagator {
+
+    private static final String TAG = "DogProfilePropagator";
+
+    /** Firestore allows at most 500 operations in a single batch. */
+    private static final int MAX_BATCH_OPERATIONS = 500;
+
+    /** Fields of the profile that every full copy holds, as written by {@link #toFieldMap}. */
+    static final Set<String> PROFILE_FIELDS = new HashSet<>(Arrays.asList(
+            "dogId", "name", "age", "bio", "profileImageUrl", ImageVariants.MEDIUM_FIELD, ImageVariants.THUMB_FIELD,
+            "race", "birthday", "weight", "allergies", "vaccines", "ownerId", "vetId", "vetName", "lastVetChange"));
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Creates a propagator on the default Firestore instance.
+     */
+    public DogProfilePropagator() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    /**
+     * Creates a propagator on the given Firestore instance.
+     *
+     * @param db The Firestore instance to write to
+     */
+    public DogProfilePropagator(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Converts the shared fields of a dog profile into a map.
+     * Null strings and zero timestamps are treated as "not provided" and left out,
+     * so a partial profile only carries the fields it actually sets.
+     *
+     * @param dogProfile The profile to convert
+     * @return Map of the provided field names and values
+     */
+    static Map<String, Object> toFieldMap(DogProfile dogProfile) {
+        Map<String, Object> fields = new HashMap<>();
+        putIfPresent(fields, "dogId", dogProfile.dogId);
+        putIfPresent(fields, "name", dogProfile.name);
+        putIfPresent(fields, "age", dogProfile.age);
+        putIfPresent(fields, "bio", dogProfile.bio);
+        putIfPresent(fields, "profileImageUrl", dogProfile.profileImageUrl);
+        putIfPresent(fields, ImageVariants.MEDIUM_FIELD, dogProfile.profileImageMediumUrl);
+        putIfPresent(fields, ImageVariants.THUMB_FIELD, dogProfile.profileImageThumbUrl);
+        putIfPresent(fields, "race", dogProfile.race);
+        putIfPresent(fields, "birthday", dogProfile.birthday);
+        putIfPresent(fields, "weight", dogProfile.weight);
+        putIfPresent(fields, "allergies", dogProfile.allergies);
+        putIfPresent(fields, "vaccines", dogProfile.vaccines);
+        putIfPresent(fields, "ownerId", dogProfile.ownerId);
+        putIfPresent(fields, "vetId", dogProfile.vetId);
+        putIfPresent(fields, "vetName", dogProfile.vetName);
+        if (dogProfile.lastVetChange != 0) fields.put("lastVetChange", dogProfile.lastVetChange);
+        return fields;
+    }
+
+    /**
+     * Adds a value to the map if it is not null.
+     *
+     * @param fields The map to add to
+     * @param key The field name
+     * @param value The field value
+     */
+    private static void putIfPresent(Map<String, Object> fields, String key, Object value) {
+        if (value != null) fields.put(key, value);
+    }
+
+    /**
+     * Computes the fields whose value differs from the baseline.
+     *
+     * @param baseline The last known field values
+     * @param updated The new field values
+     * @return Map containing only the changed fields
+     */
+    static Map<String, Object> diff(Map<String, Object> baseline, Map<String, Object> updated) {
+        Map<String, Object> changes = new HashMap<>();
+        for (Map.Entry<String, Object> entry : updated.entrySet()) {
+            Object oldValue = baseline.get(entry.getKey());
+            Object newValue = entry.getValue();
+            if (oldValue instanceof Number && newValue instanceof Number) {
+                if (((Number) oldValue).longValue() != ((Number) newValue).longValue()) {
+                    changes.put(entry.getKey(), newValue);
+                }
+            } else if (!Objects.equals(oldValue, newValue)) {
+                changes.put(entry.getKey(), newValue);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * One write to a copy of the profile.
+     */
+    static class CopyWrite {
+
+        /**
+         * How a copy is written.
+         */
+        enum Kind {
+            /** Updates the given fields of an existing document. */
+            UPDATE,
+            /** Merges the given fields, creating the document if needed. */
+            MERGE,
+            /** Deletes the document. */
+            DELETE
+        }
+
+        /** Document path of the copy */
+        final String path;
+
+        /** How it is written */
+        final Kind kind;
+
+        /** Fields written, empty for a delete */
+        final Map<String, Object> fields;
+
+        /**
+         * Creates a write.
+         *
+         * @param path Document path of the copy
+         * @param kind How it is written
+         * @param fields Fields written
+         */
+        CopyWrite(String path, Kind kind, Map<String, Object> fields) {
+            this.path = path;
+            this.kind = kind;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Propagates a dog profile edit to every copy that needs it.
+     * The stored profile is read with the default source, so it comes from the server when online and
+     * from the local cache when offline, and the writes are queued like any other offline write.
+     *
+     * @param dogProfile The updated profile; null fields are left unchanged
+     * @param onSuccess Callback to run once all copies are up to date, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    public void propagate(DogProfile dogProfile, Runnable onSuccess, Consumer<String> onFailure) {
+        if (dogProfile == null || dogProfile.dogId == null) {
+            if (onFailure != null) onFailure.accept("Missing dog ID");
+            return;
+        }
+        String dogId = dogProfile.dogId;
+        Map<String, Object> updated = toFieldMap(dogProfile);
+
+        db.collection("DogProfiles").document(dogId).get()
+                .addOnSuccessListener(doc -> {
+                    Map<String, Object> baseline = doc.exists() && doc.getData() != null
+                            ? doc.getData() : new HashMap<>();
+                    Map<String, Object> changes = diff(baseline, updated);
+                    if (changes.isEmpty()) {
+                        Log.d(TAG, "No changes for dog " + dogId + ", nothing to write");
+                        if (onSuccess != null) onSuccess.run();
+                        return;
+                    }
+                    changes.put("lastUpdated", dogProfile.lastUpdated > 0 ? dogProfile.lastUpdated : System.currentTimeMillis());
+                    readCopiesAndWrite(dogId, baseline, changes, onSuccess, onFailure);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to read stored profile of dog " + dogId, e);
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+
+    /**
+     * Reads the owner's and the veterinarian's copies to see which fields they hold,
+     * then writes the edit to every copy in one batch.
+     *
+     * @param dogId The dog's unique identifier
+     * @param baseline The stored field values
+     * @param changes The changed fields, including the update timestamp
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    private void readCopiesAndWrite(String dogId, Map<String, Object> baseline, Map<String, Object> changes,
+                                    Runnable onSuccess, Consumer<String> onFailure) {
+        Map<String, Object> merged = new HashMap<>(baseline);
+        merged.putAll(changes);
+        String ownerPath = ownerCopyPath(dogId, (String) merged.get("ownerId"));
+        String vetPath = vetCopyPath(dogId, (String) baseline.get("vetId"));
+
+        Task<DocumentSnapshot> ownerRead = ownerPath != null ? db.document(ownerPath).get() : Tasks.forResult(null);
+        Task<DocumentSnapshot> vetRead = vetPath != null ? db.document(vetPath).get() : Tasks.forResult(null);
+
+        Tasks.whenAllComplete(ownerRead, vetRead).addOnCompleteListener(done -> {
+            List<CopyWrite> writes = plan(dogId, baseline, changes, copyOf(ownerRead), copyOf(vetRead));
+            WriteBatch batch = db.batch();
+            for (CopyWrite write : writes) {
+                DocumentReference ref = db.document(write.path);
+                switch (write.kind) {
+                    case UPDATE:
+                        batch.update(ref, write.fields);
+                        break;
+                    case MERGE:
+                        batch.set(ref, write.fields, SetOptions.merge());
+                        break;
+                    case DELETE:
+                        batch.delete(ref);
+                        break;
+                }
+            }
+            Log.d(TAG, "Writing " + changes.keySet() + " for dog " + dogId + " to " + writes.size() + " documents");
+
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        if (changes.containsKey("name") || changes.containsKey("profileImageUrl")
+                                || changes.containsKey(ImageVariants.THUMB_FIELD)) {
+                            // Chat headers only show small avatars, so they get the thumbnail when there is one
+                            String thumbUrl = (String) merged.get(ImageVariants.THUMB_FIELD);
+                            updateChats(dogId, (String) merged.get("name"),
+                                    thumbUrl != null && !thumbUrl.isEmpty() ? thumbUrl : (String) merged.get("profileImageUrl"));
+                        }
+                        if (onSuccess != null) onSuccess.run();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Failed to propagate changes for dog " + dogId, e);
+                        if (onFailure != null) onFailure.accept(e.getMessage());
+                    });
+        });
+    }
+
+    /**
+     * Returns the fields of a copy as read.
+     *
+     * @param read The read of the copy
+     * @return The copy's fields, an empty map if it does not exist, or null if it was not read
+     */
+    private static Map<String, Object> copyOf(Task<DocumentSnapshot> read) {
+        if (!read.isSuccessful() || read.getResult() == null) {
+            if (read.getException() != null) Log.w(TAG, "Could not read profile copy", read.getException());
+            return null;
+        }
+        DocumentSnapshot doc = read.getResult();
+        return doc.exists() && doc.getData() != null ? doc.getData() : new HashMap<>();
+    }
+
+    /**
+     * Decides which documents receive which fields for an edit.
+     * DogProfiles and every full copy only get the changed fields. A copy that is missing, or holds
+     * only some of the stored fields, such as an owner entry that only references the dog, gets the
+     * whole profile once, after which it is a full copy. A copy that could not be read gets the changed
+     * fields merged in. When the veterinarian changes, the old patient copy is deleted and the new one
+     * gets the whole profile.
+     *
+     * @param dogId The dog's unique identifier
+     * @param baseline The stored field values, empty if the profile does not exist yet
+     * @param changes The changed fields, including the update timestamp
+     * @param ownerCopy The owner's copy, empty if it does not exist, or null if it was not read
+     * @param vetCopy The stored veterinarian's copy, empty if it does not exist, or null if it was not read
+     * @return The writes, in order
+     */
+    static List<CopyWrite> plan(String dogId, Map<String, Object> baseline, Map<String, Object> changes,
+                                Map<String, Object> ownerCopy, Map<String, Object> vetCopy) {
+        Map<String, Object> merged = new HashMap<>(baseline);
+        merged.putAll(changes);
+        List<CopyWrite> writes = new ArrayList<>();
+
+        String profilePath = "DogProfiles/" + dogId;
+        writes.add(baseline.isEmpty()
+                ? new CopyWrite(profilePath, CopyWrite.Kind.MERGE, merged)
+                : new CopyWrite(profilePath, CopyWrite.Kind.UPDATE, changes));
+
+        String ownerPath = ownerCopyPath(dogId, (String) merged.get("ownerId"));
+        if (ownerPath != null) {
+            writes.add(copyWrite(ownerPath, ownerCopy, baseline, changes, merged));
+        }
+
+        String oldVetPath = vetCopyPath(dogId, (String) baseline.get("vetId"));
+        String vetPath = vetCopyPath(dogId, (String) merged.get("vetId"));
+        boolean vetMoved = oldVetPath != null && !oldVetPath.equals(vetPath);
+        if (vetMoved) {
+            writes.add(new CopyWrite(oldVetPath, CopyWrite.Kind.DELETE, new HashMap<>()));
+        }
+        if (vetPath != null) {
+            writes.add(vetMoved
+                    ? new CopyWrite(vetPath, CopyWrite.Kind.MERGE, merged)
+                    : copyWrite(vetPath, vetCopy, baseline, changes, merged));
+        }
+        return writes;
+    }
+
+    /**
+     * Decides how one denormalized copy is written.
+     *
+     * @param path Document path of the copy
+     * @param copy The copy as read, empty if it does not exist, or null if it was not read
+     * @param baseline The stored field values
+     * @param changes The changed fields
+     * @param merged The whole profile after the edit
+     * @return The write
+     */
+    private static CopyWrite copyWrite(String path, Map<String, Object> copy, Map<String, Object> baseline,
+                                       Map<String, Object> changes, Map<String, Object> merged) {
+        if (copy == null) return new CopyWrite(path, CopyWrite.Kind.MERGE, changes);
+        if (!holdsProfile(copy, baseline)) return new CopyWrite(path, CopyWrite.Kind.MERGE, merged);
+        return new CopyWrite(path, CopyWrite.Kind.UPDATE, changes);
+    }
+
+    /**
+     * Checks whether a copy holds every profile field that is stored on the dog.
+     *
+     * @param copy The copy's fields
+     * @param baseline The stored field values
+     * @return true if it is a full copy, false if it is missing or only references the dog
+     */
+    static boolean holdsProfile(Map<String, Object> copy, Map<String, Object> baseline) {
+        if (copy.isEmpty()) return false;
+        for (String field : baseline.keySet()) {
+            if (PROFILE_FIELDS.contains(field) && !copy.containsKey(field)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the path of the owner's copy.
+     *
+     * @param dogId The dog's unique identifier
+     * @param ownerId The owner's unique identifier, may be null
+     * @return The document path, or null without an owner
+     */
+    private static String ownerCopyPath(String dogId, String ownerId) {
+        return ownerId == null || ownerId.isEmpty() ? null : "Users/" + ownerId + "/Dogs/" + dogId;
+    }
+
+    /**
+     * Returns the path of a veterinarian's patient copy.
+     *
+     * @param dogId The dog's unique identifier
+     * @param vetId The veterinarian's unique identifier, may be null
+     * @return The document path, or null without a veterinarian
+     */
+    private static String vetCopyPath(String dogId, String vetId) {
+        return vetId == null || vetId.isEmpty() ? null : "Veterinarians/" + vetId + "/Patients/" + dogId;
+    }
+
+    /**
+     * Updates the dog's name and image on every chat header, in batches.
+     *
+     * @param dogId The dog's unique identifier
+     * @param name The dog's current name
+     * @param imageUrl The dog's current image URL
+     */
+    private void updateChats(String dogId, String name, String imageUrl) {
+        db.collection("Chats")
+                .whereEqualTo("dogId", dogId)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<DocumentSnapshot> chats = querySnapshot.getDocuments();
+                    for (int start = 0; start < chats.size(); start += MAX_BATCH_OPERATIONS) {
+                        WriteBatch batch = db.batch();
+                        int end = Math.min(start + MAX_BATCH_OPERATIONS, chats.size());
+                        for (DocumentSnapshot chatDoc : chats.subList(start, end)) {
+                            batch.update(chatDoc.getReference(),
+                                    "dogName", name,
+                                    "dogImageUrl", imageUrl != null ? imageUrl : "");
+                        }
+                        int count = end - start;
+                        batch.commit()
+                                .addOnSuccessListener(aVoid -> Log.d(TAG, "Updated " + count + " chats for dog " + dogId))
+                                .addOnFailureListener(e -> Log.e(TAG, "Failed to update chats for dog " + dogId, e));
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to query chats for dog " + dogId, e));
+    }
+}
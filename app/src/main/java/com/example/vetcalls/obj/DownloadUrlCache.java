@@ -0,0 +1,185 @@
+package com.example.vetcalls.obj;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.gson.Gson;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Persistent cache of Firebase Storage download URLs, keyed by storage location.
+ * Uploaded images are recorded on profiles and messages by their "gs://bucket/path" location instead of
+ * a tokenized download URL, so a rotated token never breaks a stored reference and an upload does not have
+ * to wait for its download URL. The URL is only needed to fetch the bytes: it is resolved the first time,
+ * kept for {@link #TTL_MILLIS}, and dropped with {@link #invalidate} if the server stops accepting it.
+ * Values that already are http(s) URLs, written by older versions of the app, pass through unchanged.
+ *
+ * @author Ofek Levi
+ */
+public class DownloadUrlCache {
+
+    private static final String TAG = "DownloadUrlCache";
+    private static final String PREFS_NAME = "DownloadUrlCache";
+
+    /** Prefix of a storage location. */
+    public static final String STORAGE_SCHEME = "gs://";
+
+    /** How long a resolved download URL is used before it is resolved again. */
+    public static final long TTL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    private static final Gson gson = new Gson();
+    private static volatile DownloadUrlCache instance;
+
+    private final SharedPreferences prefs;
+    private final Map<String, Entry> memory = new ConcurrentHashMap<>();
+
+    /**
+     * A resolved download URL as stored in the cache.
+     */
+    private static class Entry {
+        String url;
+        long expiresAt;
+    }
+
+    /**
+     * Returns the cache, loading it from the application's preferences on first use.
+     *
+     * @param context Any context; the application context is kept
+     * @return The shared cache
+     */
+    public static DownloadUrlCache get(Context context) {
+        if (instance == null) {
+            synchronized (DownloadUrlCache.class) {
+                if (instance == null) {
+                    instance = new DownloadUrlCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Loads the unexpired entries and removes the expired ones from the preferences.
+     *
+     * @param context The application context
+     */
+    private DownloadUrlCache(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor expired = prefs.edit();
+        for (Map.Entry<String, ?> stored : prefs.getAll().entrySet()) {
+            Entry entry = stored.getValue() instanceof String
+                    ? gson.fromJson((String) stored.getValue(), Entry.class) : null;
+            if (entry != null && entry.url != null && entry.expiresAt > now) {
+                memory.put(stored.getKey(), entry);
+            } else {
+                expired.remove(stored.getKey());
+            }
+        }
+        expired.apply();
+    }
+
+    /**
+     * Checks whether a stored image value is a storage location rather than a URL.
+     *
+     * @param value The stored value
+     * @return true if it starts with {@link #STORAGE_SCHEME}
+     */
+    public static boolean isStorageLocation(String value) {
+        return value != null && value.startsWith(STORAGE_SCHEME);
+    }
+
+    /**
+     * Returns the cached download URL of a location without resolving it.
+     *
+     * @param location The storage location
+     * @return The URL, or null if it is not cached or has expired
+     */
+    public String peek(String location) {
+        Entry entry = memory.get(location);
+        if (entry == null) return null;
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            invalidate(location);
+            return null;
+        }
+        return entry.url;
+    }
+
+    /**
+     * Caches the download URL of a location.
+     *
+     * @param location The storage location
+     * @param url Its download URL
+     */
+    public void put(String location, String url) {
+        Entry entry = new Entry();
+        entry.url = url;
+        entry.expiresAt = System.currentTimeMillis() + TTL_MILLIS;
+        memory.put(location, entry);
+        prefs.edit().putString(location, gson.toJson(entry)).apply();
+    }
+
+    /**
+     * Drops the cached download URL of a location, for example after the server rejected it.
+     *
+     * @param location The storage location
+     */
+    public void invalidate(String location) {
+        if (memory.remove(location) != null) {
+            Log.d(TAG, "Invalidated download URL of " + location);
+        }
+        prefs.edit().remove(location).apply();
+    }
+
+    /**
+     * Returns a fetchable URL for a stored image value, resolving and caching it if needed.
+     * Blocks while resolving, so it must not be called on the main thread.
+     *
+     * @param value A storage location or an http(s) URL
+     * @return The URL to fetch
+     * @throws ExecutionException If the download URL could not be resolved
+     * @throws InterruptedException If the thread was interrupted while resolving
+     */
+    public String resolveNow(String value) throws ExecutionException, InterruptedException {
+        if (!isStorageLocation(value)) return value;
+        String cached = peek(value);
+        if (cached != null) return cached;
+
+        Uri uri = Tasks.await(FirebaseStorage.getInstance().getReferenceFromUrl(value).getDownloadUrl());
+        put(value, uri.toString());
+        return uri.toString();
+    }
+
+    /**
+     * Returns a fetchable URL for a stored image value, resolving and caching it if needed.
+     * Callbacks run on the main thread; a cached URL is delivered immediately.
+     *
+     * @param value A storage location or an http(s) URL
+     * @param onResolved Callback receiving the URL to fetch
+     * @param onFailure Callback receiving the error if the download URL could not be resolved
+     */
+    public void resolve(String value, Consumer<String> onResolved, Consumer<Exception> onFailure) {
+        String cached = isStorageLocation(value) ? peek(value) : value;
+        if (cached != null) {
+            onResolved.accept(cached);
+            return;
+        }
+        FirebaseStorage.getInstance().getReferenceFromUrl(value).getDownloadUrl()
+                .addOnSuccessListener(uri -> {
+                    put(value, uri.toString());
+                    onResolved.accept(uri.toString());
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to resolve download URL of " + value, e);
+                    onFailure.accept(e);
+                });
+    }
+}
@@ -1,30 +1,42 @@
 package com.example.vetcalls.obj;
 
+import android.content.Context;
 import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
-import com.google.android.gms.tasks.Task;
-import com.google.android.gms.tasks.Tasks;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.util.Map;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Helper class for managing user and veterinarian data operations in Firestore.
  * Provides comprehensive functionality for user creation, profile management,
  * image uploads, appointment handling, and data synchronization across collections.
+ * Appointments are booked and cancelled only through {@link AppointmentBooking}, which keeps the
+ * veterinarian's slot lock in step with the copies.
  *
  * @author Ofek Levi
  */
@@ -34,6 +46,9 @@ public class FirestoreUserHelper {
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
     private static final FirebaseStorage storage = FirebaseStorage.getInstance();
 
+    /** How old a replaced profile picture must be before it is deleted. */
+    private static final long REPLACED_IMAGE_GRACE_MILLIS = 10 * 60 * 1000L;
+
     /**
      * Creates a new user or veterinarian in the Firestore database.
      * Saves user data to the Users collection and additionally to Veterinarians collection if the user is a vet.
@@ -65,12 +80,15 @@ public class FirestoreUserHelper {
 
     /**
      * Uploads a veterinarian's profile image to Firebase Storage and updates the database.
+     * The image is uploaded in the sizes of {@link ImagePipeline#PROFILE_VARIANTS}, and all three URLs
+     * are recorded on the profile. The previous picture is deleted once the profile points at the new one.
      *
+     * @param context Context used to read the image
      * @param imageUri The URI of the image to upload
      * @param vetId The unique identifier of the veterinarian
      * @param listener Callback listener for upload success or failure
      */
-    public static void uploadVetProfileImage(Uri imageUri, String vetId, OnImageUploadListener listener) {
+    public static void uploadVetProfileImage(Context context, Uri imageUri, String vetId, OnImageUploadListener listener) {
         if (imageUri == null) {
             if (listener != null) {
                 listener.onUploadFailed(new IllegalArgumentException("Image URI is null"));
@@ -80,41 +98,28 @@ public class FirestoreUserHelper {
 
         Log.d(TAG, "Starting upload of vet profile image for vet ID: " + vetId);
 
-        StorageReference storageRef = storage.getReference()
-                .child("vet_profile_images/" + vetId + ".jpg");
-
-        UploadTask uploadTask = storageRef.putFile(imageUri);
-
-        uploadTask.addOnSuccessListener(taskSnapshot -> {
-            Log.d(TAG, "Vet image upload successful, getting download URL");
-            storageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                String imageUrl = uri.toString();
-                Log.d(TAG, "Vet image URL: " + imageUrl);
+        String folder = ImageVariants.VET_IMAGES_ROOT + vetId;
+        uploadProfileVariants(context, imageUri, folder, urls -> {
+            String imageUrl = urls.get(ImageVariants.FULL_FIELD);
+            Log.d(TAG, "Vet image URL: " + imageUrl);
 
-                Veterinarian vet = new Veterinarian();
-                vet.profileImageUrl = imageUrl;
-
-                db.collection("Veterinarians").document(vetId)
-                        .set(vet, SetOptions.merge())
-                        .addOnSuccessListener(aVoid -> {
-                            Log.d(TAG, "Vet image URL updated in Veterinarians collection");
-                            if (listener != null) {
-                                listener.onUploadSuccess(imageUrl);
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Failed to update vet image URL", e);
-                            if (listener != null) {
-                                listener.onUploadFailed(e);
-                            }
-                        });
-            }).addOnFailureListener(e -> {
-                Log.e(TAG, "Failed to get vet image download URL", e);
-                if (listener != null) {
-                    listener.onUploadFailed(e);
-                }
-            });
-        }).addOnFailureListener(e -> {
+            db.collection("Veterinarians").document(vetId)
+                    .set(new HashMap<String, Object>(urls), SetOptions.merge())
+                    .addOnSuccessListener(aVoid -> {
+                        Log.d(TAG, "Vet image URLs updated in Veterinarians collection");
+                        deleteReplacedImages(folder, db.collection("Veterinarians").document(vetId), urls);
+                        if (listener != null) {
+                            listener.onVariantsUploaded(urls);
+                            listener.onUploadSuccess(imageUrl);
+                        }
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Failed to update vet image URL", e);
+                        if (listener != null) {
+                            listener.onUploadFailed(e);
+                        }
+                    });
+        }, e -> {
             Log.e(TAG, "Failed to upload vet image", e);
             if (listener != null) {
                 listener.onUploadFailed(e);
@@ -194,13 +199,16 @@ public class FirestoreUserHelper {
     /**
      * Uploads a dog's profile image to Firebase Storage and updates the database.
      * Also triggers global updates across all relevant collections.
+     * The image is uploaded in the sizes of {@link ImagePipeline#PROFILE_VARIANTS}, and all three URLs
+     * are recorded on the profile. The previous picture is deleted once the profile points at the new one.
      *
+     * @param context Context used to read the image
      * @param imageUri The URI of the image to upload
      * @param dogId The dog's unique identifier
      * @param ownerId The owner's unique identifier
      * @param listener Callback listener for upload success or failure
      */
-    public static void uploadDogProfileImage(Uri imageUri, String dogId, String ownerId, OnImageUploadListener listener) {
+    public static void uploadDogProfileImage(Context context, Uri imageUri, String dogId, String ownerId, OnImageUploadListener listener) {
         if (imageUri == null) {
             if (listener != null) {
                 listener.onUploadFailed(new IllegalArgumentException("Image URI is null"));
@@ -208,41 +216,35 @@ public class FirestoreUserHelper {
             return;
         }
 
-        StorageReference storageRef = storage.getReference()
-                .child("dog_profile_images/" + dogId + ".jpg");
-
-        UploadTask uploadTask = storageRef.putFile(imageUri);
-
-        uploadTask.addOnSuccessListener(taskSnapshot -> {
-            storageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                String imageUrl = uri.toString();
-
-                DogProfile dogProfile = new DogProfile();
-                dogProfile.profileImageUrl = imageUrl;
-
-                db.collection("DogProfiles").document(dogId)
-                        .set(dogProfile, SetOptions.merge())
-                        .addOnSuccessListener(aVoid -> {
-                            Log.d(TAG, "Image URL updated in DogProfiles");
-                            dogProfile.dogId = dogId;
-                            updateDogProfileEverywhere(dogProfile);
-                            if (listener != null) {
-                                listener.onUploadSuccess(imageUrl);
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Failed to update image URL", e);
-                            if (listener != null) {
-                                listener.onUploadFailed(e);
-                            }
-                        });
-            }).addOnFailureListener(e -> {
-                Log.e(TAG, "Failed to get download URL", e);
-                if (listener != null) {
-                    listener.onUploadFailed(e);
-                }
-            });
-        }).addOnFailureListener(e -> {
+        String folder = ImageVariants.DOG_IMAGES_ROOT + dogId;
+        uploadProfileVariants(context, imageUri, folder, urls -> {
+            String imageUrl = urls.get(ImageVariants.FULL_FIELD);
+
+            DogProfile dogProfile = new DogProfile();
+            dogProfile.dogId = dogId;
+            dogProfile.ownerId = ownerId;
+            // Only the image changes here, so clear the constructor's default age
+            dogProfile.age = null;
+            dogProfile.profileImageUrl = imageUrl;
+            dogProfile.profileImageMediumUrl = urls.get(ImageVariants.MEDIUM_FIELD);
+            dogProfile.profileImageThumbUrl = urls.get(ImageVariants.THUMB_FIELD);
+
+            updateDogProfileEverywhere(dogProfile,
+                    () -> {
+                        Log.d(TAG, "Image URLs updated in DogProfiles");
+                        deleteReplacedImages(folder, db.collection("DogProfiles").document(dogId), urls);
+                        if (listener != null) {
+                            listener.onVariantsUploaded(urls);
+                            listener.onUploadSuccess(imageUrl);
+                        }
+                    },
+                    error -> {
+                        Log.e(TAG, "Failed to update image URL: " + error);
+                        if (listener != null) {
+                            listener.onUploadFailed(new Exception(error));
+                        }
+                    });
+        }, e -> {
             Log.e(TAG, "Failed to upload image", e);
             if (listener != null) {
                 listener.onUploadFailed(e);
@@ -251,381 +253,286 @@ public class FirestoreUserHelper {
     }
 
     /**
-     * Interface for handling image upload callbacks.
+     * Prepares the sizes of a profile picture and uploads them side by side into the profile's folder,
+     * named after the content hash of the full size: "{hash}.jpg" and the smaller sizes with a suffix.
+     * Sizes already stored under that name, such as when the same photo is picked again, are not uploaded twice
+     * unless they are old enough to be collected, see {@link #uploadIfMissing}.
+     * Each size is recorded by its storage location, loaded through {@link StorageImageLoader}.
+     *
+     * @param context Context used to read the image
+     * @param imageUri The URI of the image to upload
+     * @param folder Storage folder of the profile's pictures
+     * @param onUploaded Callback receiving the storage locations keyed by their {@link ImageVariants} field
+     * @param onFailure Callback receiving the error if preparing or any upload fails
      */
-    public interface OnImageUploadListener {
-        /**
-         * Called when image upload is successful.
-         *
-         * @param imageUrl The download URL of the uploaded image
-         */
-        void onUploadSuccess(String imageUrl);
-
-        /**
-         * Called when image upload fails.
-         *
-         * @param e The exception that caused the failure
-         */
-        void onUploadFailed(Exception e);
+    private static void uploadProfileVariants(Context context, Uri imageUri, String folder,
+                                              Consumer<Map<String, String>> onUploaded, Consumer<Exception> onFailure) {
+        ImagePipeline.prepareVariants(context, imageUri, ImagePipeline.PROFILE_VARIANTS, variants -> {
+            String hash = ImagePipeline.contentHash(variants.get(0));
+            List<Task<String>> locations = new ArrayList<>();
+            for (int i = 0; i < variants.size(); i++) {
+                StorageReference storageRef = storage.getReference()
+                        .child(folder + "/" + hash + ImageVariants.PATH_SUFFIXES[i] + ".jpg");
+                locations.add(uploadIfMissing(storageRef, variants.get(i)));
+            }
+            Tasks.whenAllSuccess(locations)
+                    .addOnSuccessListener(results -> {
+                        Map<String, String> urls = new HashMap<>();
+                        for (int i = 0; i < results.size(); i++) {
+                            urls.put(ImageVariants.FIELDS[i], (String) results.get(i));
+                        }
+                        onUploaded.accept(urls);
+                    })
+                    .addOnFailureListener(onFailure::accept);
+        }, error -> onFailure.accept(new IOException(error)));
     }
 
     /**
-     * Adds an appointment to both dog and veterinarian collections.
+     * Uploads content-addressed bytes unless an object with that name was stored recently.
+     * An object older than {@link #REPLACED_IMAGE_GRACE_MILLIS} is uploaded again, which renews its
+     * creation time, so a replaced picture that is picked again is not collected by
+     * {@link #deleteReplacedImages} running for an earlier change before the profile points back at it.
      *
-     * @param appointmentId Unique identifier for the appointment
-     * @param appointmentData Map containing appointment details
+     * @param storageRef Where to upload them, named after their content hash
+     * @param bytes The JPEG bytes
+     * @return Task resolving to the storage location of the stored object
      */
-    public static void addAppointment(String appointmentId, Map<String, Object> appointmentData) {
-        String dogId = (String) appointmentData.get("dogId");
-        String vetId = (String) appointmentData.get("vetId");
-
-        if (dogId != null && !dogId.isEmpty()) {
-            db.collection("DogProfiles")
-                    .document(dogId)
-                    .collection("Appointments")
-                    .document(appointmentId)
-                    .set(appointmentData)
-                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Appointment added to dog"))
-                    .addOnFailureListener(e -> Log.e(TAG, "Failed to add appointment to dog", e));
-        }
-
-        if (vetId != null && !vetId.isEmpty()) {
-            db.collection("Veterinarians")
-                    .document(vetId)
-                    .collection("Appointments")
-                    .document(appointmentId)
-                    .set(appointmentData)
-                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Appointment added to vet"))
-                    .addOnFailureListener(e -> Log.e(TAG, "Failed to add appointment to vet", e));
-        }
+    private static Task<String> uploadIfMissing(StorageReference storageRef, byte[] bytes) {
+        return storageRef.getMetadata().continueWithTask(existing -> {
+            if (existing.isSuccessful()) {
+                StorageMetadata metadata = existing.getResult();
+                if (metadata != null && metadata.getCreationTimeMillis()
+                        >= System.currentTimeMillis() - REPLACED_IMAGE_GRACE_MILLIS) {
+                    Log.d(TAG, "Image already stored, skipping upload: " + storageRef.getPath());
+                    return Tasks.forResult(storageRef.toString());
+                }
+                Log.d(TAG, "Image stored before the grace period, uploading again: " + storageRef.getPath());
+            } else if (!isNotFound(existing.getException())) {
+                throw existing.getException();
+            }
+            return ImagePipeline.uploadImmutable(storageRef, bytes).continueWith(upload -> {
+                if (!upload.isSuccessful()) throw upload.getException();
+                return storageRef.toString();
+            });
+        });
     }
 
     /**
-     * Deletes an appointment from both dog and veterinarian collections.
+     * Deletes in the background every picture in a profile's folder other than the current one,
+     * along with the pictures stored in place before uploads were content-addressed.
+     * Pictures younger than {@link #REPLACED_IMAGE_GRACE_MILLIS} are kept, since they may belong to
+     * an upload still in flight from another screen; they are collected on the next change instead.
+     * Just before deleting, the profile is read again from the server and any picture it references is
+     * kept, as another change may have pointed it back at a picture this one replaced.
+     * Failures are only logged, as a leftover picture costs storage but breaks nothing.
      *
-     * @param appointmentId Unique identifier for the appointment
-     * @param dogId Dog's unique identifier
-     * @param vetId Veterinarian's unique identifier
+     * @param folder Storage folder of the profile's pictures
+     * @param profileRef The profile document recording the pictures
+     * @param currentUrls The storage locations now recorded on the profile
      */
-    public static void deleteAppointment(String appointmentId, String dogId, String vetId) {
-        if (dogId != null && !dogId.isEmpty()) {
-            db.collection("DogProfiles")
-                    .document(dogId)
-                    .collection("Appointments")
-                    .document(appointmentId)
-                    .delete()
-                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Appointment deleted from dog"))
-                    .addOnFailureListener(e -> Log.e(TAG, "Failed to delete appointment from dog", e));
+    private static void deleteReplacedImages(String folder, DocumentReference profileRef, Map<String, String> currentUrls) {
+        Set<String> current = new HashSet<>();
+        for (String url : currentUrls.values()) {
+            addImageName(current, url);
         }
-
-        if (vetId != null && !vetId.isEmpty()) {
-            db.collection("Veterinarians")
-                    .document(vetId)
-                    .collection("Appointments")
-                    .document(appointmentId)
-                    .delete()
-                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Appointment deleted from vet"))
-                    .addOnFailureListener(e -> Log.e(TAG, "Failed to delete appointment from vet", e));
+        long cutoff = System.currentTimeMillis() - REPLACED_IMAGE_GRACE_MILLIS;
+
+        storage.getReference().child(folder).listAll()
+                .addOnSuccessListener(listing -> {
+                    List<StorageReference> candidates = new ArrayList<>();
+                    List<Task<StorageMetadata>> metadata = new ArrayList<>();
+                    for (StorageReference item : listing.getItems()) {
+                        if (current.contains(item.getName())) continue;
+                        candidates.add(item);
+                        metadata.add(item.getMetadata());
+                    }
+                    if (candidates.isEmpty()) return;
+
+                    Tasks.whenAllComplete(metadata).addOnSuccessListener(done -> {
+                        List<StorageReference> replaced = new ArrayList<>();
+                        for (int i = 0; i < candidates.size(); i++) {
+                            Task<StorageMetadata> read = metadata.get(i);
+                            if (!read.isSuccessful()) {
+                                Log.e(TAG, "Failed to read replaced image: " + candidates.get(i).getPath(), read.getException());
+                            } else if (read.getResult().getCreationTimeMillis() < cutoff) {
+                                replaced.add(candidates.get(i));
+                            }
+                        }
+                        if (!replaced.isEmpty()) deleteUnreferencedImages(profileRef, replaced);
+                    });
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to list images in " + folder, e));
+
+        for (String suffix : ImageVariants.PATH_SUFFIXES) {
+            String legacyPath = folder + suffix + ".jpg";
+            storage.getReference().child(legacyPath).delete()
+                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Deleted legacy image: " + legacyPath))
+                    .addOnFailureListener(e -> {
+                        if (!isNotFound(e)) Log.e(TAG, "Failed to delete legacy image: " + legacyPath, e);
+                    });
         }
     }
 
     /**
-     * Completely deletes an appointment from all locations with callback support.
+     * Deletes the given pictures except those the profile currently references on the server.
+     * Nothing is deleted if the profile cannot be read.
      *
-     * @param appointmentId Unique identifier for the appointment
-     * @param dogId Dog's unique identifier
-     * @param vetId Veterinarian's unique identifier
-     * @param onSuccess Callback to run on successful deletion
-     * @param onFailure Callback to run on deletion failure
+     * @param profileRef The profile document recording the pictures
+     * @param replaced Pictures believed to be replaced
      */
-    public static void deleteAppointmentCompletely(String appointmentId, String dogId, String vetId,
-                                                   Runnable onSuccess,
-                                                   java.util.function.Consumer<String> onFailure) {
-        Log.d(TAG, "Starting complete deletion of appointment: " + appointmentId);
-
-        Task<Void> deleteDogAppointment = db.collection("DogProfiles")
-                .document(dogId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .delete();
-
-        Task<Void> deleteVetAppointment = db.collection("Veterinarians")
-                .document(vetId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .delete();
-
-        Tasks.whenAllComplete(deleteDogAppointment, deleteVetAppointment)
-                .addOnCompleteListener(task -> {
-                    boolean allSuccessful = true;
-                    StringBuilder errorMessages = new StringBuilder();
-
-                    for (Task<?> individualTask : task.getResult()) {
-                        if (!individualTask.isSuccessful()) {
-                            allSuccessful = false;
-                            Exception exception = individualTask.getException();
-                            if (exception != null) {
-                                errorMessages.append(exception.getMessage()).append("; ");
-                            }
-                        }
+    private static void deleteUnreferencedImages(DocumentReference profileRef, List<StorageReference> replaced) {
+        profileRef.get(Source.SERVER)
+                .addOnSuccessListener(profile -> {
+                    Set<String> referenced = new HashSet<>();
+                    for (String field : ImageVariants.FIELDS) {
+                        addImageName(referenced, profile.getString(field));
                     }
-
-                    if (allSuccessful) {
-                        Log.d(TAG, "Appointment deleted completely from all locations");
-                        onSuccess.run();
-                    } else {
-                        Log.e(TAG, "Failed to delete appointment from some locations: " + errorMessages.toString());
-                        onFailure.accept("Failed to delete from some locations: " + errorMessages.toString());
+                    for (StorageReference item : replaced) {
+                        if (referenced.contains(item.getName())) {
+                            Log.d(TAG, "Keeping image the profile points at again: " + item.getPath());
+                            continue;
+                        }
+                        item.delete()
+                                .addOnSuccessListener(aVoid -> Log.d(TAG, "Deleted replaced image: " + item.getPath()))
+                                .addOnFailureListener(e -> Log.e(TAG, "Failed to delete replaced image: " + item.getPath(), e));
                     }
-                });
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to read profile before deleting replaced images: " + profileRef.getPath(), e));
     }
 
     /**
-     * Adds a reminder to a user's Reminders subcollection.
+     * Adds the object name of a recorded picture to a set.
+     * Values that are not Firebase Storage locations or URLs are skipped.
      *
-     * @param userId User's unique identifier
-     * @param reminderId Reminder's unique identifier
-     * @param reminderData Map containing reminder details
+     * @param names The set to add to
+     * @param url A storage location or download URL, may be null
      */
-    public static void addReminderToUser(@NonNull String userId, @NonNull String reminderId, Map<String, Object> reminderData) {
-        db.collection("Users").document(userId)
-                .collection("Reminders").document(reminderId)
-                .set(reminderData)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Reminder added to user"))
-                .addOnFailureListener(e -> Log.e(TAG, "Failed to add reminder to user", e));
+    private static void addImageName(Set<String> names, String url) {
+        if (url == null || url.isEmpty()) return;
+        try {
+            names.add(storage.getReferenceFromUrl(url).getName());
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Not a storage image: " + url);
+        }
     }
 
     /**
-     * Completely deletes a user and all associated data from the system.
-     * This includes profile images, dog profiles, appointments, and authentication data.
+     * Checks whether a storage exception means the object does not exist.
      *
-     * @param userId User's unique identifier
-     * @param onSuccess Callback to run on successful deletion
-     * @param onFailure Callback to run on deletion failure
+     * @param e The exception to check
+     * @return true if the object did not exist
      */
-    public static void deleteUserCompletely(String userId, Runnable onSuccess, Runnable onFailure) {
-        Log.d(TAG, "Starting deletion process for user: " + userId);
+    private static boolean isNotFound(Exception e) {
+        return e instanceof StorageException
+                && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
 
-        db.collection("Users").document(userId).get()
-                .addOnSuccessListener(userDoc -> {
-                    if (!userDoc.exists()) {
-                        Log.e(TAG, "User document not found: " + userId);
-                        if (onFailure != null) onFailure.run();
-                        return;
-                    }
+    /**
+     * Interface for handling image upload callbacks.
+     */
+    public interface OnImageUploadListener {
+        /**
+         * Called when image upload is successful.
+         *
+         * @param imageUrl The storage location of the uploaded image, which Glide loads like a URL
+         */
+        void onUploadSuccess(String imageUrl);
 
-                    List<Task<Void>> deleteTasks = new ArrayList<>();
-
-                    db.collection("Users").document(userId).collection("Dogs").get()
-                            .addOnSuccessListener(dogSnapshots -> {
-                                Log.d(TAG, "Found " + dogSnapshots.size() + " dogs to delete");
-
-                                List<String> dogIds = new ArrayList<>();
-
-                                List<Task<Void>> deleteImageTasks = new ArrayList<>();
-
-                                for (QueryDocumentSnapshot dogDoc : dogSnapshots) {
-                                    String dogId = dogDoc.getString("dogId");
-                                    if (dogId != null && !dogId.isEmpty()) {
-                                        dogIds.add(dogId);
-
-                                        StorageReference imageRef = storage.getReference()
-                                                .child("dog_profile_images/" + dogId + ".jpg");
-                                        Task<Void> deleteImageTask = imageRef.delete();
-                                        deleteImageTasks.add(deleteImageTask);
-                                    }
-                                }
-
-                                Boolean isVet = userDoc.getBoolean("isVet");
-                                if (isVet != null && isVet) {
-                                    StorageReference vetImageRef = storage.getReference()
-                                            .child("vet_profile_images/" + userId + ".jpg");
-                                    Task<Void> deleteVetImageTask = vetImageRef.delete();
-                                    deleteImageTasks.add(deleteVetImageTask);
-                                }
-
-                                Tasks.whenAllComplete(deleteImageTasks)
-                                        .addOnCompleteListener(task -> {
-                                            deleteUserData(userId, dogIds, onSuccess, onFailure);
-                                        });
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error fetching user's dogs", e);
-                                if (onFailure != null) onFailure.run();
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error fetching user document", e);
-                    if (onFailure != null) onFailure.run();
-                });
+        /**
+         * Called just before {@link #onUploadSuccess} with the location of every uploaded size.
+         *
+         * @param urls The storage locations keyed by their {@link ImageVariants} field
+         */
+        default void onVariantsUploaded(Map<String, String> urls) {
+        }
+
+        /**
+         * Called when image upload fails.
+         *
+         * @param e The exception that caused the failure
+         */
+        void onUploadFailed(Exception e);
     }
 
     /**
-     * Helper method for deleting user data after image deletion is complete.
+     * Deletes every stored reminder of an appointment from a user's Reminders subcollection,
+     * so the reminders are not scheduled again after a reboot.
      *
      * @param userId User's unique identifier
-     * @param dogIds List of dog IDs associated with the user
-     * @param onSuccess Callback to run on successful deletion
-     * @param onFailure Callback to run on deletion failure
+     * @param appointmentId Appointment's unique identifier
      */
-    private static void deleteUserData(String userId, List<String> dogIds, Runnable onSuccess, Runnable onFailure) {
-        Log.d(TAG, "Starting data deletion for user: " + userId + " with " + dogIds.size() + " dogs");
-
-        List<Task<Void>> deleteTasks = new ArrayList<>();
-
-        for (String dogId : dogIds) {
-            db.collection("DogProfiles").document(dogId).collection("Appointments").get()
-                    .addOnSuccessListener(appointments -> {
-                        for (QueryDocumentSnapshot appointment : appointments) {
-                            String appointmentId = appointment.getId();
-                            String vetId = appointment.getString("vetId");
-
-                            Task<Void> deleteAppointmentTask = appointment.getReference().delete();
-                            deleteTasks.add(deleteAppointmentTask);
-
-                            if (vetId != null && !vetId.isEmpty()) {
-                                Task<Void> deleteVetAppointment = db.collection("Veterinarians")
-                                        .document(vetId)
-                                        .collection("Appointments")
-                                        .document(appointmentId)
-                                        .delete();
-                                deleteTasks.add(deleteVetAppointment);
-                            }
-                        }
-                    });
-
-            Task<Void> deleteDogTask = db.collection("DogProfiles").document(dogId).delete();
-            deleteTasks.add(deleteDogTask);
-            Log.d(TAG, "Added task to delete dog: " + dogId);
-        }
+    public static void deleteAppointmentReminders(@NonNull String userId, @NonNull String appointmentId) {
+        replaceAppointmentReminders(userId, appointmentId, new HashMap<>());
+    }
 
-        db.collection("Users").document(userId).collection("Reminders").get()
-                .addOnSuccessListener(reminders -> {
-                    for (QueryDocumentSnapshot reminder : reminders) {
-                        Task<Void> deleteReminderTask = reminder.getReference().delete();
-                        deleteTasks.add(deleteReminderTask);
+    /**
+     * Replaces the stored reminders of an appointment in one batch: reminders not in the given map
+     * are deleted, including ones saved under older, randomly generated IDs, and the rest are written.
+     *
+     * @param userId User's unique identifier
+     * @param appointmentId Appointment's unique identifier
+     * @param reminders Reminder data keyed by reminder ID, empty to delete them all
+     */
+    public static void replaceAppointmentReminders(@NonNull String userId, @NonNull String appointmentId,
+                                                   Map<String, Map<String, Object>> reminders) {
+        CollectionReference remindersRef = db.collection("Users").document(userId).collection("Reminders");
+        remindersRef.whereEqualTo("appointmentId", appointmentId)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.isEmpty() && reminders.isEmpty()) return;
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        if (!reminders.containsKey(doc.getId())) batch.delete(doc.getReference());
                     }
-                });
-
-        db.collection("Users").document(userId).get()
-                .addOnSuccessListener(userDoc -> {
-                    Boolean isVet = userDoc.getBoolean("isVet");
-                    if (isVet != null && isVet) {
-                        db.collection("Veterinarians").document(userId).collection("Appointments").get()
-                                .addOnSuccessListener(appointments -> {
-                                    for (QueryDocumentSnapshot appointment : appointments) {
-                                        String appointmentId = appointment.getId();
-                                        String dogId = appointment.getString("dogId");
-
-                                        Task<Void> deleteAppointmentTask = appointment.getReference().delete();
-                                        deleteTasks.add(deleteAppointmentTask);
-
-                                        if (dogId != null && !dogId.isEmpty()) {
-                                            Task<Void> deleteDogAppointment = db.collection("DogProfiles")
-                                                    .document(dogId)
-                                                    .collection("Appointments")
-                                                    .document(appointmentId)
-                                                    .delete();
-                                            deleteTasks.add(deleteDogAppointment);
-                                        }
-                                    }
-                                });
-
-                        Task<Void> deleteVetTask = db.collection("Veterinarians").document(userId).delete();
-                        deleteTasks.add(deleteVetTask);
+                    for (Map.Entry<String, Map<String, Object>> reminder : reminders.entrySet()) {
+                        batch.set(remindersRef.document(reminder.getKey()), reminder.getValue());
                     }
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> Log.d(TAG, "Stored " + reminders.size() + " reminders of appointment " + appointmentId))
+                            .addOnFailureListener(e -> Log.e(TAG, "Failed to store appointment reminders", e));
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to load appointment reminders", e));
+    }
 
-                    db.collection("Users").document(userId).collection("Dogs").get()
-                            .addOnSuccessListener(dogsCollection -> {
-                                for (QueryDocumentSnapshot dogDoc : dogsCollection) {
-                                    Task<Void> deleteDogRefTask = dogDoc.getReference().delete();
-                                    deleteTasks.add(deleteDogRefTask);
-                                }
-
-                                Tasks.whenAllComplete(deleteTasks)
-                                        .addOnSuccessListener(results -> {
-                                            Log.d(TAG, "All delete tasks completed. Results: " + results.size());
-
-                                            int errorCount = 0;
-                                            for (Task task : results) {
-                                                if (!task.isSuccessful()) {
-                                                    errorCount++;
-                                                }
-                                            }
-                                            Log.d(TAG, "Tasks completed with " + errorCount + " errors");
-
-                                            db.collection("Users").document(userId).delete()
-                                                    .addOnSuccessListener(aVoid -> {
-                                                        Log.d(TAG, "User document deleted successfully");
-
-                                                        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
-                                                        if (user != null && user.getUid().equals(userId)) {
-                                                            user.delete()
-                                                                    .addOnSuccessListener(aVoid2 -> {
-                                                                        Log.d(TAG, "User authentication deleted successfully");
-                                                                        if (onSuccess != null) onSuccess.run();
-                                                                    })
-                                                                    .addOnFailureListener(e -> {
-                                                                        Log.e(TAG, "Error deleting user authentication", e);
-                                                                        if (onFailure != null) onFailure.run();
-                                                                    });
-                                                        } else {
-                                                            if (onSuccess != null) onSuccess.run();
-                                                        }
-                                                    })
-                                                    .addOnFailureListener(e -> {
-                                                        Log.e(TAG, "Error deleting user document", e);
-                                                        if (onFailure != null) onFailure.run();
-                                                    });
-                                        })
-                                        .addOnFailureListener(e -> {
-                                            Log.e(TAG, "Error waiting for delete tasks", e);
-                                            if (onFailure != null) onFailure.run();
-                                        });
-                            });
-                });
+    /**
+     * Completely deletes a user and all associated data from the system.
+     * This includes profile images, dog profiles, appointments, and authentication data.
+     * Deletion runs through {@link UserCascadeDeleter}, so an interrupted deletion resumes
+     * from its last checkpoint when this is called again for the same user.
+     *
+     * @param context Context used to store the deletion checkpoint
+     * @param userId User's unique identifier
+     * @param listener Listener for progress, completion and failure
+     * @return true if the deletion was started, false if one for this user is already running
+     */
+    public static boolean deleteUserCompletely(android.content.Context context, String userId,
+                                               UserCascadeDeleter.ProgressListener listener) {
+        Log.d(TAG, "Starting deletion process for user: " + userId);
+        return new UserCascadeDeleter(context, userId, listener).start();
     }
 
     /**
      * Updates a dog profile across all relevant collections in the system.
      * This includes DogProfiles, user's Dogs subcollection, veterinarian's Patients, and chat information.
+     * Only fields that differ from the stored profile are written, to each copy that holds them, see {@link DogProfilePropagator}.
      *
      * @param dogProfile The DogProfile object containing updated information
      */
     public static void updateDogProfileEverywhere(DogProfile dogProfile) {
-        if (dogProfile == null || dogProfile.dogId == null) return;
-        String dogId = dogProfile.dogId;
-        String ownerId = dogProfile.ownerId;
-        String vetId = dogProfile.vetId;
-        String name = dogProfile.name;
-        String imageUrl = dogProfile.profileImageUrl;
-
-        db.collection("DogProfiles").document(dogId)
-                .set(dogProfile, SetOptions.merge());
-
-        if (ownerId != null) {
-            db.collection("Users").document(ownerId)
-                    .collection("Dogs").document(dogId)
-                    .set(dogProfile, SetOptions.merge());
-        }
-
-        if (vetId != null) {
-            db.collection("Veterinarians").document(vetId)
-                    .collection("Patients").document(dogId)
-                    .set(dogProfile, SetOptions.merge());
-        }
+        updateDogProfileEverywhere(dogProfile, null, null);
+    }
 
-        db.collection("Chats")
-                .whereEqualTo("dogId", dogId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    for (com.google.firebase.firestore.DocumentSnapshot chatDoc : querySnapshot.getDocuments()) {
-                        chatDoc.getReference().update(
-                                "dogName", name,
-                                "dogImageUrl", imageUrl != null ? imageUrl : ""
-                        );
-                    }
-                });
+    /**
+     * Updates a dog profile across all relevant collections with callback support.
+     *
+     * @param dogProfile The DogProfile object containing updated information; null fields are left unchanged
+     * @param onSuccess Callback to run once all copies are updated, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    public static void updateDogProfileEverywhere(DogProfile dogProfile, Runnable onSuccess,
+                                                  java.util.function.Consumer<String> onFailure) {
+        if (dogProfile == null || dogProfile.dogId == null) return;
+        new DogProfilePropagator(db).propagate(dogProfile, onSuccess, onFailure);
     }
 
     /**
@@ -639,34 +546,18 @@ public class FirestoreUserHelper {
      * @param onError Callback to run on error with error message
      */
     public static void markAppointmentCompletedEverywhere(android.content.Context context, String appointmentId, String dogId, String vetId, Runnable onSuccess, java.util.function.Consumer<String> onError) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
-        db.collection("Veterinarians")
-                .document(vetId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .update("completed", true)
-                .addOnFailureListener(e -> {
-                    if (onError != null) onError.accept("Vet: " + e.getMessage());
-                });
-
-        db.collection("DogProfiles")
-                .document(dogId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .update("completed", true)
-                .addOnFailureListener(e -> {
-                    if (onError != null) onError.accept("Dog: " + e.getMessage());
-                });
-
-        db.collection("appointments")
-                .document(appointmentId)
-                .update("completed", true)
-                .addOnSuccessListener(aVoid -> {
+        Map<String, Object> fields = new java.util.HashMap<>();
+        fields.put("completed", true);
+
+        new AppointmentFanOut(db)
+                .update(appointmentId, dogId, vetId, fields)
+                .commit(() -> {
+                    // The global copy is legacy and not read anywhere, so it must not block success
+                    db.collection("appointments")
+                            .document(appointmentId)
+                            .update(fields)
+                            .addOnFailureListener(e -> Log.w(TAG, "Global appointment not updated: " + e.getMessage()));
                     if (onSuccess != null) onSuccess.run();
-                })
-                .addOnFailureListener(e -> {
-                    if (onError != null) onError.accept("Global: " + e.getMessage());
-                });
+                }, onError);
     }
 }
\ No newline at end of file
@@ -0,0 +1,490 @@
+package com.example.vetcalls.obj;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Prepares picked and captured photos for upload.
+ * The image is decoded with subsampling, so a 12 MP original never has to fit in memory at full size,
+ * turned upright from its EXIF orientation, scaled down to the longest side of a {@link Spec} and encoded
+ * as JPEG at the spec's quality. The resulting bytes are uploaded with putBytes instead of the original file.
+ * Videos are not recompressed, but a poster frame is extracted from them the same way.
+ * Decoding and encoding run on a background thread; results are delivered on the main thread.
+ *
+ * @author Ofek Levi
+ */
+public class ImagePipeline {
+
+    private static final String TAG = "ImagePipeline";
+
+    private static final String CAPTURES_DIRECTORY = "captures";
+
+    /** Cache-Control of uploads stored under their content hash, whose bytes never change. */
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /**
+     * Target size and quality of a prepared image.
+     */
+    public static class Spec {
+        /** Longest side of the prepared image in pixels. */
+        public final int maxDimension;
+        /** JPEG quality from 0 to 100. */
+        public final int quality;
+
+        /**
+         * Creates a spec.
+         *
+         * @param maxDimension Longest side of the prepared image in pixels
+         * @param quality JPEG quality from 0 to 100
+         */
+        public Spec(int maxDimension, int quality) {
+            this.maxDimension = maxDimension;
+            this.quality = quality;
+        }
+    }
+
+    /**
+     * A poster frame and the duration of a video, as shown in a chat row before the video is played.
+     */
+    public static class VideoPoster {
+        /** The poster frame as JPEG bytes. */
+        public final byte[] jpeg;
+        /** Length of the video in milliseconds, or 0 if it is unknown. */
+        public final long durationMillis;
+
+        /**
+         * Creates a video poster.
+         *
+         * @param jpeg The poster frame as JPEG bytes
+         * @param durationMillis Length of the video in milliseconds, or 0 if it is unknown
+         */
+        public VideoPoster(byte[] jpeg, long durationMillis) {
+            this.jpeg = jpeg;
+            this.durationMillis = durationMillis;
+        }
+    }
+
+    /** Profile picture variant for list rows and chat headers, up to 64 dp on the densest screens. */
+    public static final Spec THUMBNAIL = new Spec(256, 75);
+
+    /** Profile picture variant for profile headers and detail screens. */
+    public static final Spec MEDIUM = new Spec(768, 80);
+
+    /** Profile picture variant kept for full-screen viewing. */
+    public static final Spec FULL = new Spec(1600, 85);
+
+    /** The profile picture variants, largest first, as uploaded by {@link #prepareVariants}. */
+    public static final List<Spec> PROFILE_VARIANTS = Arrays.asList(FULL, MEDIUM, THUMBNAIL);
+
+    /** Photos sent in chat, which can be opened full screen. */
+    public static final Spec CHAT_PHOTO = new Spec(1600, 82);
+
+    /** Poster frames of videos sent in chat, shown at the size of a chat photo row. */
+    public static final Spec VIDEO_POSTER = new Spec(640, 75);
+
+    /** Time of the poster frame, a moment in so it is less likely to be a black fade-in. */
+    private static final long POSTER_FRAME_TIME_US = 1_000_000L;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ImagePipeline() {
+    }
+
+    /**
+     * Prepares an image in the background.
+     *
+     * @param context Any context, used to open the image
+     * @param imageUri The picked or captured image
+     * @param spec The target size and quality
+     * @param onReady Callback receiving the JPEG bytes on the main thread
+     * @param onFailure Callback receiving an error message on the main thread
+     */
+    public static void prepare(Context context, Uri imageUri, Spec spec, Consumer<byte[]> onReady, Consumer<String> onFailure) {
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        executor.execute(() -> {
+            try {
+                byte[] bytes = prepareNow(resolver, imageUri, spec);
+                mainHandler.post(() -> onReady.accept(bytes));
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                Log.e(TAG, "Failed to prepare image " + imageUri, e);
+                mainHandler.post(() -> onFailure.accept(e.getMessage() != null ? e.getMessage() : "Failed to prepare image"));
+            }
+        });
+    }
+
+    /**
+     * Prepares several variants of an image in the background from a single decode.
+     *
+     * @param context Any context, used to open the image
+     * @param imageUri The picked or captured image
+     * @param specs The variants to prepare, largest first
+     * @param onReady Callback receiving the JPEG bytes of each variant, in the order of the specs, on the main thread
+     * @param onFailure Callback receiving an error message on the main thread
+     */
+    public static void prepareVariants(Context context, Uri imageUri, List<Spec> specs,
+                                       Consumer<List<byte[]>> onReady, Consumer<String> onFailure) {
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        executor.execute(() -> {
+            try {
+                List<byte[]> variants = prepareVariantsNow(resolver, imageUri, specs);
+                mainHandler.post(() -> onReady.accept(variants));
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                Log.e(TAG, "Failed to prepare image variants of " + imageUri, e);
+                mainHandler.post(() -> onFailure.accept(e.getMessage() != null ? e.getMessage() : "Failed to prepare image"));
+            }
+        });
+    }
+
+    /**
+     * Prepares several variants of an image on the calling thread. The image is decoded once at the
+     * size of the first spec, and each smaller variant is scaled down from that bitmap.
+     *
+     * @param resolver The content resolver used to open the image
+     * @param imageUri The picked or captured image
+     * @param specs The variants to prepare, largest first
+     * @return The JPEG bytes of each variant, in the order of the specs
+     * @throws IOException If the image cannot be read or decoded
+     */
+    public static List<byte[]> prepareVariantsNow(ContentResolver resolver, Uri imageUri, List<Spec> specs) throws IOException {
+        Bitmap source = decode(resolver, imageUri, specs.get(0).maxDimension);
+        try {
+            List<byte[]> variants = new ArrayList<>();
+            for (Spec spec : specs) {
+                Bitmap scaled = scaleDown(source, spec.maxDimension);
+                try {
+                    variants.add(encode(scaled, spec.quality));
+                } finally {
+                    if (scaled != source) scaled.recycle();
+                }
+            }
+            return variants;
+        } finally {
+            source.recycle();
+        }
+    }
+
+    /**
+     * Prepares an image on the calling thread.
+     *
+     * @param resolver The content resolver used to open the image
+     * @param imageUri The picked or captured image
+     * @param spec The target size and quality
+     * @return The JPEG bytes
+     * @throws IOException If the image cannot be read or decoded
+     */
+    public static byte[] prepareNow(ContentResolver resolver, Uri imageUri, Spec spec) throws IOException {
+        Bitmap bitmap = decode(resolver, imageUri, spec.maxDimension);
+        try {
+            return encode(bitmap, spec.quality);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Extracts the poster frame and duration of a video in the background.
+     *
+     * @param context Any context, used to open the video
+     * @param videoUri The picked or recorded video
+     * @param spec The target size and quality of the poster frame
+     * @param onReady Callback receiving the poster on the main thread
+     * @param onFailure Callback receiving an error message on the main thread
+     */
+    public static void preparePoster(Context context, Uri videoUri, Spec spec, Consumer<VideoPoster> onReady, Consumer<String> onFailure) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            try {
+                VideoPoster poster = preparePosterNow(appContext, videoUri, spec);
+                mainHandler.post(() -> onReady.accept(poster));
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                Log.e(TAG, "Failed to prepare poster of " + videoUri, e);
+                mainHandler.post(() -> onFailure.accept(e.getMessage() != null ? e.getMessage() : "Failed to prepare poster"));
+            }
+        });
+    }
+
+    /**
+     * Extracts the poster frame and duration of a video on the calling thread.
+     * The frame is taken from the sync frame closest to {@link #POSTER_FRAME_TIME_US}, or the first one
+     * for shorter videos, then scaled down and encoded like a photo.
+     *
+     * @param context Any context, used to open the video
+     * @param videoUri The picked or recorded video
+     * @param spec The target size and quality of the poster frame
+     * @return The poster
+     * @throws IOException If no frame can be extracted
+     */
+    public static VideoPoster preparePosterNow(Context context, Uri videoUri, Spec spec) throws IOException {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(context, videoUri);
+            String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            long durationMillis = duration != null ? Long.parseLong(duration) : 0;
+
+            long frameTimeUs = Math.min(POSTER_FRAME_TIME_US, durationMillis * 1000 / 2);
+            Bitmap frame = retriever.getFrameAtTime(frameTimeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+            if (frame == null) throw new IOException("No frame in video " + videoUri);
+
+            Bitmap scaled = scaleDown(frame, spec.maxDimension);
+            try {
+                return new VideoPoster(encode(scaled, spec.quality), durationMillis);
+            } finally {
+                if (scaled != frame) scaled.recycle();
+                frame.recycle();
+            }
+        } finally {
+            retriever.release();
+        }
+    }
+
+    /**
+     * Encodes a bitmap as JPEG.
+     *
+     * @param bitmap The bitmap
+     * @param quality JPEG quality from 0 to 100
+     * @return The JPEG bytes
+     */
+    private static byte[] encode(Bitmap bitmap, int quality) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out);
+        Log.d(TAG, "Prepared " + bitmap.getWidth() + "x" + bitmap.getHeight() + " image, " + out.size() + " bytes");
+        return out.toByteArray();
+    }
+
+    /**
+     * Scales a bitmap down so its longest side is at most the given size.
+     *
+     * @param bitmap The bitmap
+     * @param maxDimension Longest side of the result in pixels
+     * @return The scaled bitmap, or the same bitmap if it is already small enough
+     */
+    private static Bitmap scaleDown(Bitmap bitmap, int maxDimension) {
+        int longestSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longestSide <= maxDimension) return bitmap;
+        float scale = (float) maxDimension / longestSide;
+        return Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+    }
+
+    /**
+     * Decodes an image upright and no larger than the given longest side.
+     *
+     * @param resolver The content resolver used to open the image
+     * @param imageUri The image
+     * @param maxDimension Longest side of the result in pixels
+     * @return The decoded bitmap
+     * @throws IOException If the image cannot be read or decoded
+     */
+    static Bitmap decode(ContentResolver resolver, Uri imageUri, int maxDimension) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, imageUri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("Not a decodable image: " + imageUri);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSizeFor(Math.max(bounds.outWidth, bounds.outHeight), maxDimension);
+        Bitmap sampled;
+        try (InputStream in = open(resolver, imageUri)) {
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (sampled == null) throw new IOException("Not a decodable image: " + imageUri);
+
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) maxDimension / Math.max(sampled.getWidth(), sampled.getHeight()));
+        matrix.postScale(scale, scale);
+        applyOrientation(matrix, readOrientation(resolver, imageUri));
+        if (matrix.isIdentity()) return sampled;
+
+        Bitmap result = Bitmap.createBitmap(sampled, 0, 0, sampled.getWidth(), sampled.getHeight(), matrix, true);
+        if (result != sampled) sampled.recycle();
+        return result;
+    }
+
+    /**
+     * Uploads prepared JPEG bytes.
+     *
+     * @param storageRef Where to upload them
+     * @param bytes The JPEG bytes
+     * @return The upload task
+     */
+    public static UploadTask upload(StorageReference storageRef, byte[] bytes) {
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType("image/jpeg")
+                .build();
+        return storageRef.putBytes(bytes, metadata);
+    }
+
+    /**
+     * Uploads prepared JPEG bytes to a path named after their {@link #contentHash}.
+     * Such an object is never overwritten with different bytes, so it is marked cacheable forever.
+     *
+     * @param storageRef Where to upload them
+     * @param bytes The JPEG bytes
+     * @return The upload task
+     */
+    public static UploadTask uploadImmutable(StorageReference storageRef, byte[] bytes) {
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType("image/jpeg")
+                .setCacheControl(IMMUTABLE_CACHE_CONTROL)
+                .build();
+        return storageRef.putBytes(bytes, metadata);
+    }
+
+    /**
+     * Returns the SHA-256 hash of prepared bytes, used to name them in storage.
+     *
+     * @param bytes The bytes
+     * @return The hash as lowercase hex
+     */
+    public static String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format(Locale.US, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android runtime ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Saves a camera thumbnail to the app's cache so it can be previewed and prepared like a picked image.
+     * It is written losslessly, leaving the only lossy encoding to {@link #prepare}, and unlike
+     * MediaStore.insertImage it does not add a copy to the user's gallery.
+     *
+     * @param context Any context
+     * @param bitmap The captured bitmap
+     * @return A file URI of the saved image, or null if it could not be written
+     */
+    public static Uri saveCapture(Context context, Bitmap bitmap) {
+        if (bitmap == null) return null;
+        File directory = new File(context.getCacheDir(), CAPTURES_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Failed to create " + directory);
+            return null;
+        }
+        File file = new File(directory, "capture_" + System.currentTimeMillis() + ".png");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+            return Uri.fromFile(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save captured image", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the largest power-of-two subsampling that keeps the longest side at least the target.
+     *
+     * @param longestSide Longest side of the original in pixels
+     * @param maxDimension Longest side wanted in pixels
+     * @return The inSampleSize to decode with
+     */
+    static int sampleSizeFor(int longestSide, int maxDimension) {
+        int sampleSize = 1;
+        while (longestSide / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Reads the EXIF orientation of an image.
+     *
+     * @param resolver The content resolver used to open the image
+     * @param imageUri The image
+     * @return The orientation, or ORIENTATION_NORMAL if it has none or cannot be read
+     */
+    private static int readOrientation(ContentResolver resolver, Uri imageUri) {
+        try (InputStream in = open(resolver, imageUri)) {
+            return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "No readable EXIF orientation for " + imageUri);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * Adds the transform that turns an image with the given EXIF orientation upright.
+     *
+     * @param matrix The matrix to add to
+     * @param orientation The EXIF orientation
+     */
+    private static void applyOrientation(Matrix matrix, int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Opens an image for reading.
+     *
+     * @param resolver The content resolver
+     * @param imageUri The image
+     * @return The stream
+     * @throws IOException If the image cannot be opened
+     */
+    private static InputStream open(ContentResolver resolver, Uri imageUri) throws IOException {
+        InputStream in = resolver.openInputStream(imageUri);
+        if (in == null) throw new IOException("Cannot open " + imageUri);
+        return in;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.vetcalls.obj;
+
+import android.content.res.Resources;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Map;
+
+/**
+ * Picks which size of a profile picture to load.
+ * Profile pictures are uploaded in the three sizes of {@link ImagePipeline#PROFILE_VARIANTS}, and each URL is
+ * recorded on the profile: "profileImageThumbUrl", "profileImageMediumUrl" and "profileImageUrl" for the
+ * full size. Each image view loads the smallest size that still covers it. Profiles uploaded before
+ * the variants existed only have "profileImageUrl", which is then used everywhere.
+ * Each size is stored as "{root}{id}/{hash}{suffix}.jpg", named after the hash of the full size,
+ * so a new picture always gets new URLs and a stored one never changes.
+ * The recorded values are storage locations, loaded by {@link StorageImageLoader}; older profiles
+ * may still hold download URLs, which Glide loads directly.
+ *
+ * @author Ofek Levi
+ */
+public class ImageVariants {
+
+    /** Profile field holding the thumbnail URL. */
+    public static final String THUMB_FIELD = "profileImageThumbUrl";
+
+    /** Profile field holding the medium size URL. */
+    public static final String MEDIUM_FIELD = "profileImageMediumUrl";
+
+    /** Profile field holding the full size URL. */
+    public static final String FULL_FIELD = "profileImageUrl";
+
+    /** Profile field of each size, in the order of {@link ImagePipeline#PROFILE_VARIANTS}. */
+    static final String[] FIELDS = {FULL_FIELD, MEDIUM_FIELD, THUMB_FIELD};
+
+    /** Storage path suffix of each size, in the order of {@link ImagePipeline#PROFILE_VARIANTS}. */
+    static final String[] PATH_SUFFIXES = {"", "_medium", "_thumb"};
+
+    /** Storage folder holding a folder of profile pictures per dog. */
+    static final String DOG_IMAGES_ROOT = "dog_profile_images/";
+
+    /** Storage folder holding a folder of profile pictures per veterinarian. */
+    static final String VET_IMAGES_ROOT = "vet_profile_images/";
+
+    private ImageVariants() {
+    }
+
+    /**
+     * Returns the smallest available variant that covers the given size.
+     *
+     * @param sizePx Longest side the image is shown at, in pixels
+     * @param thumbUrl The thumbnail URL, may be null or empty
+     * @param mediumUrl The medium size URL, may be null or empty
+     * @param fullUrl The full size URL, may be null or empty
+     * @return The URL to load, or null if the profile has no image
+     */
+    public static String forSize(int sizePx, String thumbUrl, String mediumUrl, String fullUrl) {
+        if (sizePx <= ImagePipeline.THUMBNAIL.maxDimension && !isEmpty(thumbUrl)) return thumbUrl;
+        if (sizePx <= ImagePipeline.MEDIUM.maxDimension && !isEmpty(mediumUrl)) return mediumUrl;
+        if (!isEmpty(fullUrl)) return fullUrl;
+        if (!isEmpty(mediumUrl)) return mediumUrl;
+        return isEmpty(thumbUrl) ? null : thumbUrl;
+    }
+
+    /**
+     * Returns the smallest available variant of a loaded profile, for avatars such as chat headers.
+     *
+     * @param profile The profile fields
+     * @return The URL to load, or null if the profile has no image
+     */
+    public static String thumbnailOf(Map<String, Object> profile) {
+        return forSize(0, stringOf(profile.get(THUMB_FIELD)), stringOf(profile.get(MEDIUM_FIELD)), stringOf(profile.get(FULL_FIELD)));
+    }
+
+    /**
+     * Returns the smallest available variant that covers an image view.
+     * The view's size is taken from its layout parameters, so it can be used before layout;
+     * views without a fixed size are assumed to be as large as the screen.
+     *
+     * @param view The view the image is loaded into
+     * @param thumbUrl The thumbnail URL, may be null or empty
+     * @param mediumUrl The medium size URL, may be null or empty
+     * @param fullUrl The full size URL, may be null or empty
+     * @return The URL to load, or null if the profile has no image
+     */
+    public static String forView(View view, String thumbUrl, String mediumUrl, String fullUrl) {
+        return forSize(sizeOf(view), thumbUrl, mediumUrl, fullUrl);
+    }
+
+    /**
+     * Returns the longest side a view is shown at.
+     * The layout size is used only when both sides are fixed; a view that matches its parent or wraps its
+     * content on either side is sized by its measured size, or by the screen before it is measured.
+     *
+     * @param view The view
+     * @return The size in pixels
+     */
+    static int sizeOf(View view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int size = params != null && params.width > 0 && params.height > 0 ? Math.max(params.width, params.height) : 0;
+        if (size <= 0) size = Math.max(view.getWidth(), view.getHeight());
+        if (size <= 0) {
+            Resources resources = view.getResources();
+            size = Math.max(resources.getDisplayMetrics().widthPixels, resources.getDisplayMetrics().heightPixels);
+        }
+        return size;
+    }
+
+    /**
+     * Returns a field value as a string.
+     *
+     * @param value The field value
+     * @return The value, or null if it is not a string
+     */
+    private static String stringOf(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Checks whether a URL is missing.
+     *
+     * @param url The URL
+     * @return true if it is null or empty
+     */
+    private static boolean isEmpty(String url) {
+        return url == null || url.trim().isEmpty();
+    }
+}
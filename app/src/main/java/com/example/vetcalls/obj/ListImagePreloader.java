@@ -0,0 +1,188 @@
+package com.example.vetcalls.obj;
+
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Preloads the images of the rows about to scroll into a RecyclerView into Glide's memory cache,
+ * and measures how often a bound row finds its image already there.
+ * The adapter names each row's images and builds their request in one place, used both when binding
+ * and when preloading, so a preloaded image has the same cache key as the row's own load. Preloads are
+ * made at the size of the row's image view, taken from the first bound row.
+ * <p>
+ * A bound image served from memory after being preloaded counts as a hit. The hit rate of each list
+ * is logged every {@link #REPORT_EVERY} bound images.
+ *
+ * @author Ofek Levi
+ */
+public class ListImagePreloader {
+
+    private static final String TAG = "ListImagePreloader";
+
+    /** Rows ahead of the visible ones whose images are preloaded when a list does not choose. */
+    public static final int DEFAULT_ROWS_AHEAD = 10;
+
+    /** Bound images between two hit rate reports. */
+    public static final int REPORT_EVERY = 20;
+
+    /** Preloaded images remembered for counting hits. */
+    private static final int MAX_TRACKED_PRELOADS = 200;
+
+    /**
+     * The images of an adapter's rows.
+     */
+    public interface RowImages {
+        /**
+         * Returns the images shown by a row.
+         *
+         * @param position The row's adapter position
+         * @return The image URLs or storage locations, empty if the row shows none
+         */
+        @NonNull
+        List<String> imagesAt(int position);
+
+        /**
+         * Builds the request a row uses to show an image.
+         *
+         * @param glide The request manager to build it with
+         * @param image The image URL or storage location
+         * @return The request, without a target
+         */
+        @NonNull
+        RequestBuilder<Drawable> requestFor(@NonNull RequestManager glide, @NonNull String image);
+    }
+
+    private final String listName;
+    private final RowImages rows;
+    private final ViewPreloadSizeProvider<String> sizeProvider = new ViewPreloadSizeProvider<>();
+    private final Set<Object> preloaded = Collections.newSetFromMap(new LinkedHashMap<Object, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+            return size() > MAX_TRACKED_PRELOADS;
+        }
+    });
+
+    private int boundCount;
+    private int hitCount;
+
+    private final RequestListener<Drawable> preloadListener = new RequestListener<Drawable>() {
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model, @NonNull Target<Drawable> target, boolean isFirstResource) {
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target, @NonNull DataSource dataSource, boolean isFirstResource) {
+            preloaded.add(model);
+            return false;
+        }
+    };
+
+    private final RequestListener<Drawable> bindListener = new RequestListener<Drawable>() {
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model, @NonNull Target<Drawable> target, boolean isFirstResource) {
+            count(false);
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target, @NonNull DataSource dataSource, boolean isFirstResource) {
+            count(dataSource == DataSource.MEMORY_CACHE && preloaded.contains(model));
+            return false;
+        }
+    };
+
+    /**
+     * Creates a preloader for an adapter's rows.
+     *
+     * @param listName Name of the list in the hit rate reports
+     * @param rows The images of the adapter's rows
+     */
+    public ListImagePreloader(String listName, RowImages rows) {
+        this.listName = listName;
+        this.rows = rows;
+    }
+
+    /**
+     * Starts preloading while a RecyclerView scrolls.
+     *
+     * @param recyclerView The list showing the adapter
+     * @param rowsAhead How many rows past the visible ones to preload
+     */
+    public void attach(RecyclerView recyclerView, int rowsAhead) {
+        RequestManager glide = Glide.with(recyclerView);
+        ListPreloader.PreloadModelProvider<String> models = new ListPreloader.PreloadModelProvider<String>() {
+            @NonNull
+            @Override
+            public List<String> getPreloadItems(int position) {
+                return rows.imagesAt(position);
+            }
+
+            @Nullable
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String image) {
+                return rows.requestFor(glide, image).addListener(preloadListener);
+            }
+        };
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(glide, models, sizeProvider, rowsAhead));
+    }
+
+    /**
+     * Loads an image into a bound row, counting whether it was preloaded.
+     * The first view passed in sets the size of all preloads.
+     *
+     * @param imageView The row's image view
+     * @param image The image URL or storage location
+     */
+    public void load(ImageView imageView, String image) {
+        sizeProvider.setView(imageView);
+        rows.requestFor(Glide.with(imageView), image)
+                .addListener(bindListener)
+                .into(imageView);
+    }
+
+    /**
+     * Returns the share of bound images that were served from memory after being preloaded.
+     *
+     * @return The hit rate from 0 to 1, or 0 before any image was bound
+     */
+    public double getHitRate() {
+        return boundCount == 0 ? 0 : (double) hitCount / boundCount;
+    }
+
+    /**
+     * Counts a bound image and reports the hit rate every {@link #REPORT_EVERY} images.
+     *
+     * @param hit true if the image was preloaded and served from memory
+     */
+    private void count(boolean hit) {
+        boundCount++;
+        if (hit) hitCount++;
+        if (boundCount % REPORT_EVERY == 0) {
+            Log.d(TAG, listName + " preload hit rate: " + hitCount + "/" + boundCount
+                    + " (" + Math.round(getHitRate() * 100) + "%)");
+        }
+    }
+}
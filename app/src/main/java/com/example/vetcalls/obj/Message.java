@@ -1,5 +1,7 @@
 package com.example.vetcalls.obj;
 
+import com.google.firebase.firestore.DocumentId;
+
 import java.util.Date;
 
 /**
@@ -11,6 +13,10 @@ import java.util.Date;
  */
 public class Message {
 
+    /** Firestore document ID of the message, filled in when the message is read */
+    @DocumentId
+    private String messageId;
+
     /** Unique identifier of the message sender */
     private String senderId;
 
@@ -23,6 +29,12 @@ public class Message {
     /** The actual message content */
     private String content;
 
+    /** Poster frame of a video message, shown in the chat until the video is opened */
+    private String posterUrl;
+
+    /** Length of a video message in milliseconds, 0 if unknown */
+    private long durationMillis;
+
     /**
      * Default constructor required for Firestore serialization.
      */
@@ -44,6 +56,24 @@ public class Message {
         this.content = content;
     }
 
+    /**
+     * Gets the Firestore document ID of the message.
+     *
+     * @return The message's document ID, or null for a message that was not read from Firestore
+     */
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Sets the Firestore document ID of the message.
+     *
+     * @param messageId The message's document ID
+     */
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
     /**
      * Gets the unique identifier of the message sender.
      *
@@ -115,4 +145,40 @@ public class Message {
     public void setContent(String content) {
         this.content = content;
     }
+
+    /**
+     * Gets the poster frame of a video message.
+     *
+     * @return The storage location or URL of the poster, or null for other messages and older videos
+     */
+    public String getPosterUrl() {
+        return posterUrl;
+    }
+
+    /**
+     * Sets the poster frame of a video message.
+     *
+     * @param posterUrl The storage location or URL of the poster
+     */
+    public void setPosterUrl(String posterUrl) {
+        this.posterUrl = posterUrl;
+    }
+
+    /**
+     * Gets the length of a video message.
+     *
+     * @return The length in milliseconds, or 0 if unknown
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Sets the length of a video message.
+     *
+     * @param durationMillis The length in milliseconds
+     */
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
 }
\ No newline at end of file
@@ -2,14 +2,19 @@ package com.example.vetcalls.obj;
 
 import android.app.Dialog;
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.view.*;
 import android.widget.*;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.example.vetcalls.R;
 
 import java.text.SimpleDateFormat;
@@ -19,16 +24,60 @@ import java.util.*;
  * RecyclerView adapter for displaying chat messages in a conversation.
  * Handles different message types (text, image, video) with proper alignment
  * based on sender identity and includes date headers for better organization.
+ * New lists are diffed on a background thread, so a new message binds only its own row.
+ * Photos and video posters are loaded through a {@link ListImagePreloader}, so those of upcoming rows can be preloaded.
+ * A video row only shows its poster frame and duration; a player is created when the video is opened full screen.
  *
  * @author Ofek Levi
  */
-public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
+public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> implements ListImagePreloader.RowImages {
+
+    /**
+     * A message together with whether its row shows a date header.
+     * The header depends on the previous message, so it is part of the row's content.
+     */
+    private static class MessageRow {
+        final Message message;
+        final boolean showDateHeader;
+
+        /**
+         * Creates a message row.
+         *
+         * @param message The message shown in the row
+         * @param showDateHeader Whether the row starts a new day
+         */
+        MessageRow(Message message, boolean showDateHeader) {
+            this.message = message;
+            this.showDateHeader = showDateHeader;
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<MessageRow> ROW_DIFF = new DiffUtil.ItemCallback<MessageRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull MessageRow oldRow, @NonNull MessageRow newRow) {
+            return keyOf(oldRow.message).equals(keyOf(newRow.message));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull MessageRow oldRow, @NonNull MessageRow newRow) {
+            Message oldMessage = oldRow.message;
+            Message newMessage = newRow.message;
+            return oldRow.showDateHeader == newRow.showDateHeader
+                    && Objects.equals(oldMessage.getSenderId(), newMessage.getSenderId())
+                    && Objects.equals(oldMessage.getTimestamp(), newMessage.getTimestamp())
+                    && Objects.equals(oldMessage.getType(), newMessage.getType())
+                    && Objects.equals(oldMessage.getContent(), newMessage.getContent())
+                    && Objects.equals(oldMessage.getPosterUrl(), newMessage.getPosterUrl())
+                    && oldMessage.getDurationMillis() == newMessage.getDurationMillis();
+        }
+    };
 
     private Context context;
-    private ArrayList<Message> messageList;
+    private final AsyncListDiffer<MessageRow> differ = new AsyncListDiffer<>(this, ROW_DIFF);
     private String currentUserId;
     private SimpleDateFormat timeFormat;
     private SimpleDateFormat dateFormat;
+    private final ListImagePreloader imagePreloader = new ListImagePreloader("MessageAdapter", this);
 
     /**
      * Constructor for creating the message adapter.
@@ -39,10 +88,85 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
      */
     public MessageAdapter(Context context, ArrayList<Message> messageList, String currentUserId) {
         this.context = context;
-        this.messageList = messageList;
         this.currentUserId = currentUserId;
         this.timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        setHasStableIds(true);
+        submitMessages(messageList, null);
+    }
+
+    /**
+     * Replaces the displayed messages. The difference to the current list is computed
+     * on a background thread and applied as positional updates.
+     *
+     * @param messages The messages to display, in chronological order
+     * @param onCommitted Callback to run once the new list is displayed, may be null
+     */
+    public void submitMessages(List<Message> messages, Runnable onCommitted) {
+        List<MessageRow> rows = new ArrayList<>(messages.size());
+        Message previous = null;
+        for (Message message : messages) {
+            boolean showDateHeader = previous == null || !isSameDay(previous.getTimestamp(), message.getTimestamp());
+            rows.add(new MessageRow(message, showDateHeader));
+            previous = message;
+        }
+        differ.submitList(rows, onCommitted);
+    }
+
+    /**
+     * Returns the key that identifies a message across list updates.
+     *
+     * @param message The message
+     * @return The message's document ID, or its sender and time if it has none yet
+     */
+    private static String keyOf(Message message) {
+        if (message.getMessageId() != null) return message.getMessageId();
+        return message.getSenderId() + "@" + (message.getTimestamp() != null ? message.getTimestamp().getTime() : 0);
+    }
+
+    /**
+     * Preloads the photos of upcoming rows while a RecyclerView showing this adapter scrolls.
+     *
+     * @param recyclerView The list showing this adapter
+     * @param rowsAhead How many rows past the visible ones to preload
+     */
+    public void attachImagePreloader(RecyclerView recyclerView, int rowsAhead) {
+        imagePreloader.attach(recyclerView, rowsAhead);
+    }
+
+    /**
+     * Returns the image shown by a row: the photo of a photo message or the poster of a video message.
+     *
+     * @param position The row's adapter position
+     * @return The image, or an empty list if the row shows none
+     */
+    @NonNull
+    @Override
+    public List<String> imagesAt(int position) {
+        Message message = differ.getCurrentList().get(position).message;
+        String image = null;
+        if ("image".equals(message.getType())) {
+            image = message.getContent();
+        } else if ("video".equals(message.getType())) {
+            image = message.getPosterUrl();
+        }
+        return image != null ? Collections.singletonList(image) : Collections.emptyList();
+    }
+
+    /**
+     * Builds the request of a row's photo, used both to bind and to preload it.
+     * The crop is set explicitly rather than taken from the view's scale type, so both requests match.
+     *
+     * @param glide The request manager to build it with
+     * @param image The photo URL or storage location
+     * @return The request
+     */
+    @NonNull
+    @Override
+    public RequestBuilder<Drawable> requestFor(@NonNull RequestManager glide, @NonNull String image) {
+        return glide.load(image)
+                .placeholder(R.drawable.user_person_profile_avatar_icon_190943)
+                .centerCrop();
     }
 
     /**
@@ -68,14 +192,15 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
      */
     @Override
     public void onBindViewHolder(@NonNull MessageViewHolder holder, int position) {
-        Message msg = messageList.get(position);
+        MessageRow row = differ.getCurrentList().get(position);
+        Message msg = row.message;
 
         holder.textMessage.setVisibility(View.GONE);
         holder.imageMessage.setVisibility(View.GONE);
         holder.videoMessage.setVisibility(View.GONE);
         holder.dateHeader.setVisibility(View.GONE);
 
-        if (position == 0 || !isSameDay(messageList.get(position - 1).getTimestamp(), msg.getTimestamp())) {
+        if (row.showDateHeader) {
             holder.dateHeader.setVisibility(View.VISIBLE);
             holder.dateHeader.setText(getDateHeader(msg.getTimestamp()));
         }
@@ -101,17 +226,26 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
             case "image":
                 holder.imageMessage.setVisibility(View.VISIBLE);
                 holder.videoMessage.setVisibility(View.GONE);
-                Glide.with(context)
-                        .load(msg.getContent())
-                        .placeholder(R.drawable.user_person_profile_avatar_icon_190943)
-                        .into(holder.imageMessage);
+                List<String> photo = imagesAt(position);
+                if (!photo.isEmpty()) imagePreloader.load(holder.imageMessage, photo.get(0));
                 holder.imageMessage.setOnClickListener(v -> showFullScreenMedia(msg.getContent(), "image"));
                 break;
             case "video":
                 holder.imageMessage.setVisibility(View.GONE);
                 holder.videoMessage.setVisibility(View.VISIBLE);
-                holder.videoMessage.setVideoURI(Uri.parse(msg.getContent()));
-                holder.videoMessage.seekTo(1);
+                List<String> poster = imagesAt(position);
+                if (!poster.isEmpty()) {
+                    imagePreloader.load(holder.videoPoster, poster.get(0));
+                } else {
+                    // Videos sent before posters existed show the plain background behind the play icon
+                    Glide.with(context).clear(holder.videoPoster);
+                }
+                if (msg.getDurationMillis() > 0) {
+                    holder.videoDuration.setText(formatDuration(msg.getDurationMillis()));
+                    holder.videoDuration.setVisibility(View.VISIBLE);
+                } else {
+                    holder.videoDuration.setVisibility(View.GONE);
+                }
                 holder.videoMessage.setOnClickListener(v -> showFullScreenMedia(msg.getContent(), "video"));
                 break;
         }
@@ -122,6 +256,21 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
         }
     }
 
+    /**
+     * Formats the length of a video as minutes and seconds, with hours only when needed.
+     *
+     * @param durationMillis The length in milliseconds
+     * @return The formatted length, for example "1:05"
+     */
+    private static String formatDuration(long durationMillis) {
+        long totalSeconds = durationMillis / 1000;
+        long hours = totalSeconds / 3600;
+        long minutes = totalSeconds % 3600 / 60;
+        long seconds = totalSeconds % 60;
+        if (hours > 0) return String.format(Locale.US, "%d:%02d:%02d", hours, minutes, seconds);
+        return String.format(Locale.US, "%d:%02d", minutes, seconds);
+    }
+
     /**
      * Checks if two dates are on the same day.
      *
@@ -129,7 +278,7 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
      * @param date2 Second date to compare
      * @return true if both dates are on the same day, false otherwise
      */
-    private boolean isSameDay(Date date1, Date date2) {
+    private static boolean isSameDay(Date date1, Date date2) {
         if (date1 == null || date2 == null) return false;
         Calendar cal1 = Calendar.getInstance();
         Calendar cal2 = Calendar.getInstance();
@@ -175,14 +324,26 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
      */
     @Override
     public int getItemCount() {
-        return messageList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the stable ID of the message at the given position.
+     *
+     * @param position The position of the item within the adapter's data set
+     * @return The stable ID derived from the message's document ID
+     */
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(keyOf(differ.getCurrentList().get(position).message));
     }
 
     /**
      * Displays media content (image or video) in a full-screen dialog.
      * Provides an immersive viewing experience with click-to-dismiss functionality.
+     * This is the only place a video player is created, and it is stopped when the dialog closes.
      *
-     * @param url The URL of the media content to display
+     * @param url The storage location or URL of the media content to display
      * @param type The type of media ("image" or "video")
      */
     private void showFullScreenMedia(String url, String type) {
@@ -197,9 +358,12 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageViewHolder> {
         } else if ("video".equals(type)) {
             FrameLayout layout = new FrameLayout(context);
             VideoView videoView = new VideoView(context);
-            videoView.setVideoURI(Uri.parse(url));
+            DownloadUrlCache.get(context).resolve(url, resolved -> videoView.setVideoURI(Uri.parse(resolved)),
+                    e -> Toast.makeText(context, "שגיאה בטעינת הסרטון", Toast.LENGTH_SHORT).show());
             videoView.setLayoutParams(new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            videoView.setMediaController(new MediaController(context));
             videoView.setOnPreparedListener(mp -> videoView.start());
+            dialog.setOnDismissListener(d -> videoView.stopPlayback());
             layout.addView(videoView);
             dialog.setContentView(layout);
             layout.setOnClickListener(v -> dialog.dismiss());
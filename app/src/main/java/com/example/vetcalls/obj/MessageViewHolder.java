@@ -1,10 +1,10 @@
 package com.example.vetcalls.obj;
 
 import android.view.View;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
-import android.widget.VideoView;
 
 import com.example.vetcalls.R;
 
@@ -32,8 +32,14 @@ public class MessageViewHolder extends RecyclerView.ViewHolder {
     /** ImageView for displaying image message content */
     public ImageView imageMessage;
 
-    /** VideoView for displaying video message content */
-    public VideoView videoMessage;
+    /** Container of a video message's poster, play icon and duration */
+    public FrameLayout videoMessage;
+
+    /** ImageView for displaying the poster frame of a video message */
+    public ImageView videoPoster;
+
+    /** TextView for displaying the duration of a video message */
+    public TextView videoDuration;
 
     /** TextView for displaying the message timestamp */
     public TextView messageTime;
@@ -54,6 +60,8 @@ public class MessageViewHolder extends RecyclerView.ViewHolder {
         textMessage = itemView.findViewById(R.id.textMessage);
         imageMessage = itemView.findViewById(R.id.imageMessage);
         videoMessage = itemView.findViewById(R.id.videoMessage);
+        videoPoster = itemView.findViewById(R.id.videoPoster);
+        videoDuration = itemView.findViewById(R.id.videoDuration);
         messageTime = itemView.findViewById(R.id.messageTime);
         dateHeader = itemView.findViewById(R.id.dateHeader);
     }
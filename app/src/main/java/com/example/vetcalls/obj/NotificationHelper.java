@@ -15,8 +15,8 @@ import android.widget.Toast;
 
 /**
  * Helper class for managing notification scheduling and cancellation.
- * Handles notification channel creation, exact alarm scheduling with proper permission handling,
- * and provides functionality for both scheduling and canceling notifications.
+ * Handles notification channel creation, the single exact reminder alarm with proper permission handling,
+ * and canceling notifications.
  *
  * @author Ofek Levi
  */
@@ -24,6 +24,9 @@ public class NotificationHelper {
 
     private static final String CHANNEL_ID = "appointment_channel";
     private static final String CHANNEL_NAME = "תזכורות תורים";
+
+    /** Request code of the single reminder alarm; {@link ReminderRegistry} hands out codes from 1000 up. */
+    private static final int REMINDER_ALARM_REQUEST_CODE = 1;
     private final Context context;
 
     /**
@@ -57,51 +60,76 @@ public class NotificationHelper {
     }
 
     /**
-     * Schedules a notification to be displayed at a specific time.
-     * Handles permission checks for exact alarms on Android 12+ and creates unique request codes.
+     * Arms the single reminder alarm, replacing the time it was armed for before.
+     * {@link ReminderRegistry} arms it for its earliest queued reminder. Without the exact alarm
+     * permission on Android 12+ an inexact alarm is used, so reminders still arrive, possibly late.
      *
      * @param context The application context
-     * @param title The notification title
-     * @param message The notification message content
-     * @param timeInMillis The time in milliseconds when the notification should be displayed
+     * @param timeInMillis The time in milliseconds when the alarm should fire
      */
     @SuppressLint("ScheduleExactAlarm")
-    public void scheduleNotification(Context context, String title, String message, long timeInMillis) {
-        if (timeInMillis <= System.currentTimeMillis()) {
-            Log.w("NotificationHelper", "Cannot schedule notification in the past");
+    void armReminderAlarm(Context context, long timeInMillis) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+
+        PendingIntent pendingIntent = reminderAlarmIntent(context);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent);
+            Log.w("NotificationHelper", "Exact alarms not allowed, reminder alarm armed inexactly for: " + timeInMillis);
             return;
         }
 
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(context, ReminderReceiver.class);
-        intent.putExtra("title", title);
-        intent.putExtra("message", message);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent);
+        }
 
-        int requestCode = (int) (timeInMillis % Integer.MAX_VALUE);
+        Log.i("NotificationHelper", "Reminder alarm armed for: " + timeInMillis);
+    }
 
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+    /**
+     * Disarms the single reminder alarm.
+     *
+     * @param context The application context
+     */
+    void cancelReminderAlarm(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(reminderAlarmIntent(context));
+        }
+    }
+
+    /**
+     * Returns the broadcast the reminder alarm delivers.
+     *
+     * @param context The application context
+     * @return The pending broadcast
+     */
+    private static PendingIntent reminderAlarmIntent(Context context) {
+        Intent intent = new Intent(context, ReminderReceiver.class);
+        intent.setAction(ReminderReceiver.ACTION_DELIVER_DUE);
+        return PendingIntent.getBroadcast(
                 context,
-                requestCode,
+                REMINDER_ALARM_REQUEST_CODE,
                 intent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
+    }
 
-        if (alarmManager != null) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                if (!alarmManager.canScheduleExactAlarms()) {
-                    openExactAlarmSettings(context);
-                    return;
-                }
-            }
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent);
-            } else {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent);
-            }
-
-            Log.i("NotificationHelper", "Notification scheduled for: " + timeInMillis);
-        }
+    /**
+     * Checks that reminders can be delivered on time, asking the user to allow exact alarms on Android 12+
+     * if they are not allowed yet.
+     *
+     * @param context The context to open the settings from
+     * @return true if exact alarms are allowed
+     */
+    public boolean ensureExactAlarmPermission(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) return true;
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null || alarmManager.canScheduleExactAlarms()) return true;
+        openExactAlarmSettings(context);
+        return false;
     }
 
     /**
@@ -115,6 +143,7 @@ public class NotificationHelper {
             Intent intent = new Intent();
             intent.setAction(Settings.ACTION_REQUEST_SCHEDULE_EXACT_ALARM);
             intent.setData(Uri.parse("package:" + context.getPackageName()));
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
             context.startActivity(intent);
 
             Toast.makeText(context, "נא לאשר התראות מדויקות בהגדרות", Toast.LENGTH_LONG).show();
@@ -14,37 +14,60 @@ import androidx.core.app.NotificationCompat;
 import com.example.vetcalls.R;
 import com.example.vetcalls.activities.HomeActivity;
 
+import java.util.List;
+
 /**
  * BroadcastReceiver that handles scheduled reminder notifications.
- * Receives broadcast intents from the alarm manager and displays notifications
- * with custom title and message content, including click action to open the app.
+ * Receives the single reminder alarm armed by {@link ReminderRegistry}, displays a notification
+ * for every reminder due within the coalescing window, with click action to open the app,
+ * and lets the registry arm the alarm for the next reminder.
  *
  * @author Ofek Levi
  */
 public class ReminderReceiver extends BroadcastReceiver {
 
+    /** Action of the reminder alarm's broadcast. */
+    public static final String ACTION_DELIVER_DUE = "com.example.vetcalls.action.DELIVER_DUE_REMINDERS";
+
     private static final String CHANNEL_ID = "appointment_channel";
 
     /**
      * Called when the BroadcastReceiver is receiving an Intent broadcast.
-     * Extracts notification data from the intent and displays a notification to the user.
+     * Takes the due reminders from the registry and displays a notification for each.
+     * A broadcast carrying its own title and message, as alarms set by older app versions do,
+     * is displayed as well.
      *
      * @param context The Context in which the receiver is running
-     * @param intent The Intent being received containing notification details
+     * @param intent The Intent being received
      */
     @Override
     public void onReceive(Context context, Intent intent) {
         Log.d("ReminderReceiver", "Received reminder broadcast");
 
         Bundle extras = intent.getExtras();
-        if (extras == null) {
-            Log.e("ReminderReceiver", "No extras found in intent");
-            return;
+        if (extras != null && extras.containsKey("title")) {
+            showNotification(context, (int) System.currentTimeMillis(),
+                    extras.getString("title", "תזכורת לתור"), extras.getString("message", "יש לך תור קרוב!"));
         }
 
-        String title = extras.getString("title", "תזכורת לתור");
-        String message = extras.getString("message", "יש לך תור קרוב!");
+        List<ReminderRegistry.Entry> due = new ReminderRegistry(context).takeDue(System.currentTimeMillis());
+        Log.d("ReminderReceiver", "Delivering " + due.size() + " due reminders");
+        for (ReminderRegistry.Entry reminder : due) {
+            showNotification(context, reminder.requestCode,
+                    reminder.title != null ? reminder.title : "תזכורת לתור",
+                    reminder.message != null ? reminder.message : "יש לך תור קרוב!");
+        }
+    }
 
+    /**
+     * Displays one reminder notification.
+     *
+     * @param context The Context in which the receiver is running
+     * @param notificationId The notification's ID, so cancelling the reminder can remove it
+     * @param title The notification title
+     * @param message The notification message content
+     */
+    private void showNotification(Context context, int notificationId, String title, String message) {
         Intent notificationIntent = new Intent(context, HomeActivity.class);
         notificationIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
 
@@ -65,11 +88,10 @@ public class ReminderReceiver extends BroadcastReceiver {
 
         NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         if (notificationManager != null) {
-            int notificationId = (int) System.currentTimeMillis();
             notificationManager.notify(notificationId, builder.build());
             Log.d("ReminderReceiver", "Notification displayed with ID: " + notificationId);
         } else {
             Log.e("ReminderReceiver", "NotificationManager is null");
         }
     }
-}
\ No newline at end of file
+}
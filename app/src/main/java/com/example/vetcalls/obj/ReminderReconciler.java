@@ -0,0 +1,119 @@
+package com.example.vetcalls.obj;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Background job that brings the on-device reminder queue of {@link ReminderRegistry} in line with the
+ * reminders stored in the user's Reminders subcollection.
+ * The device queue is what reminders are delivered from, so a reboot never waits on the network;
+ * this job only catches up with changes made elsewhere, such as reminders created before the queue existed
+ * or on another device, and appointments deleted on another device. It runs from an inexact alarm some time
+ * after boot (see {@link ReminderSyncReceiver}) and is retried hourly until it reaches Firestore.
+ *
+ * @author Ofek Levi
+ */
+public class ReminderReconciler {
+
+    private static final String TAG = "ReminderReconciler";
+
+    private static final int ALARM_REQUEST_CODE = 4102;
+
+    /** How long after boot the reconciliation runs, leaving the boot itself to more urgent work. */
+    private static final long BOOT_DELAY_MILLIS = 15 * 60 * 1000;
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final String userId;
+
+    /**
+     * Creates a reconciler for a user on the given Firestore instance.
+     *
+     * @param context Any context; the application context is kept
+     * @param db The Firestore instance
+     * @param userId The signed-in user's unique identifier
+     */
+    public ReminderReconciler(Context context, FirebaseFirestore db, String userId) {
+        this.context = context.getApplicationContext();
+        this.db = db;
+        this.userId = userId;
+    }
+
+    /**
+     * Schedules a reconciliation a while after boot.
+     *
+     * @param context The application context
+     */
+    public static void scheduleAfterBoot(Context context) {
+        schedule(context, BOOT_DELAY_MILLIS);
+    }
+
+    /**
+     * Schedules a reconciliation on an inexact alarm that does not wake the device.
+     * Scheduling again replaces the pending one.
+     *
+     * @param context The application context
+     * @param delayMillis How long from now it should run
+     */
+    static void schedule(Context context, long delayMillis) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+        Intent intent = new Intent(context, ReminderSyncReceiver.class);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, ALARM_REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        alarmManager.set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + delayMillis, pendingIntent);
+        Log.d(TAG, "Reminder reconciliation scheduled in " + delayMillis / 60000 + " minutes");
+    }
+
+    /**
+     * Reads the user's stored reminders and updates the device queue to match: future reminders are
+     * queued or moved to their stored time, and queued reminders of appointments that no longer have
+     * any stored reminder are cancelled. The reminders are read from the server only: a cached copy may be
+     * stale or empty, and cancelling against it would drop reminders that still exist. When the server
+     * cannot be reached, nothing is changed and the run is retried in an hour.
+     *
+     * @param onDone Callback to run once the run ends, successful or not, may be null
+     */
+    public void run(Runnable onDone) {
+        db.collection("Users").document(userId)
+                .collection("Reminders")
+                .get(Source.SERVER)
+                .addOnSuccessListener(snapshot -> {
+                    ReminderRegistry registry = new ReminderRegistry(context);
+                    Set<String> storedAppointments = new HashSet<>();
+                    long now = System.currentTimeMillis();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        // Reminders stored before slots existed are keyed by their document ID
+                        String appointmentId = doc.getString("appointmentId") != null ? doc.getString("appointmentId") : doc.getId();
+                        String slot = doc.getString("slot") != null ? doc.getString("slot") : doc.getId();
+                        storedAppointments.add(appointmentId);
+
+                        Long time = doc.getTimestamp("time") != null ? doc.getTimestamp("time").toDate().getTime() : null;
+                        if (time != null && time > now) {
+                            registry.schedule(appointmentId, slot, doc.getString("title"), doc.getString("description"), time);
+                        }
+                    }
+                    for (String appointmentId : registry.queuedAppointments()) {
+                        if (!storedAppointments.contains(appointmentId)) registry.cancelAppointment(appointmentId);
+                    }
+                    Log.d(TAG, "Reconciled " + snapshot.size() + " stored reminders");
+                    if (onDone != null) onDone.run();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to load stored reminders, retrying later", e);
+                    schedule(context, AlarmManager.INTERVAL_HOUR);
+                    if (onDone != null) onDone.run();
+                });
+    }
+}
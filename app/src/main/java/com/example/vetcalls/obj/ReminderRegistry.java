@@ -0,0 +1,289 @@
+package com.example.vetcalls.obj;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local registry and due-queue of the reminders scheduled on this device.
+ * Every reminder is keyed by its appointment and a slot name (for example the first or second reminder
+ * picked for an appointment), so scheduling a key again replaces it instead of adding a second one,
+ * and every reminder of an appointment can be cancelled by the appointment's ID alone.
+ * <p>
+ * Reminders do not get an alarm each. The registry keeps them ordered by time and arms one alarm for
+ * the earliest; when it fires, {@link ReminderReceiver} takes every reminder due within
+ * {@link #COALESCE_WINDOW_MILLIS} and the alarm is armed again for the next one. A cancelled reminder
+ * simply leaves the queue, so it can never fire.
+ *
+ * @author Ofek Levi
+ */
+public class ReminderRegistry {
+
+    private static final String TAG = "ReminderRegistry";
+    private static final String PREFS_NAME = "ReminderRegistry";
+    private static final String KEY_PREFIX = "reminder:";
+    private static final String KEY_NEXT_REQUEST_CODE = "nextRequestCode";
+
+    /** First request code handed out, kept clear of the reminder alarm's own request code. */
+    private static final int FIRST_REQUEST_CODE = 1000;
+
+    /** Reminders due this soon after the alarm fires are delivered with it instead of waking the device again. */
+    public static final long COALESCE_WINDOW_MILLIS = 60 * 1000;
+
+    private static final Object LOCK = new Object();
+    private static final Gson gson = new Gson();
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    /**
+     * A scheduled reminder as stored in the registry. The request code doubles as its notification ID.
+     */
+    public static class Entry {
+        public String appointmentId;
+        public String slot;
+        public int requestCode;
+        public long time;
+        public String title;
+        public String message;
+    }
+
+    /**
+     * Creates a registry backed by the application's preferences.
+     *
+     * @param context Any context; the application context is kept
+     */
+    public ReminderRegistry(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Queues a reminder, replacing the one previously queued for the same appointment and slot.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param slot Name of the reminder within the appointment
+     * @param title The notification title
+     * @param message The notification message content
+     * @param timeInMillis When the notification should be displayed
+     */
+    public void schedule(String appointmentId, String slot, String title, String message, long timeInMillis) {
+        synchronized (LOCK) {
+            Entry entry = get(appointmentId, slot);
+            if (entry == null) {
+                entry = new Entry();
+                entry.appointmentId = appointmentId;
+                entry.slot = slot;
+                entry.requestCode = nextRequestCode();
+            }
+
+            if (timeInMillis <= System.currentTimeMillis()) {
+                Log.w(TAG, "Reminder " + keyOf(appointmentId, slot) + " is in the past, not scheduling");
+                prefs.edit().remove(keyOf(appointmentId, slot)).apply();
+                armNext();
+                return;
+            }
+
+            entry.time = timeInMillis;
+            entry.title = title;
+            entry.message = message;
+            prefs.edit().putString(keyOf(appointmentId, slot), gson.toJson(entry)).apply();
+            Log.d(TAG, "Queued reminder " + keyOf(appointmentId, slot) + " for " + timeInMillis);
+            armNext();
+        }
+    }
+
+    /**
+     * Cancels one reminder of an appointment.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param slot Name of the reminder within the appointment
+     */
+    public void cancel(String appointmentId, String slot) {
+        synchronized (LOCK) {
+            if (remove(appointmentId, slot)) armNext();
+        }
+    }
+
+    /**
+     * Cancels every reminder of an appointment.
+     *
+     * @param appointmentId The appointment's unique identifier
+     */
+    public void cancelAppointment(String appointmentId) {
+        synchronized (LOCK) {
+            boolean removed = false;
+            for (Entry entry : entriesOf(appointmentId)) {
+                removed |= remove(entry.appointmentId, entry.slot);
+            }
+            if (removed) armNext();
+            Log.d(TAG, "Cancelled reminders of appointment " + appointmentId);
+        }
+    }
+
+    /**
+     * Returns the reminders currently scheduled for an appointment.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @return The appointment's entries, empty if it has none
+     */
+    public List<Entry> entriesOf(String appointmentId) {
+        synchronized (LOCK) {
+            return entriesWithPrefix(keyOf(appointmentId, ""));
+        }
+    }
+
+    /**
+     * Returns the appointments that have at least one queued reminder.
+     *
+     * @return The appointment IDs
+     */
+    public Set<String> queuedAppointments() {
+        synchronized (LOCK) {
+            Set<String> appointmentIds = new HashSet<>();
+            for (Entry entry : dueQueue()) {
+                appointmentIds.add(entry.appointmentId);
+            }
+            return appointmentIds;
+        }
+    }
+
+    /**
+     * Removes and returns every reminder due within the coalescing window, then arms the alarm
+     * for the earliest reminder left.
+     *
+     * @param now The current time in epoch milliseconds
+     * @return The due reminders ordered by time
+     */
+    public List<Entry> takeDue(long now) {
+        synchronized (LOCK) {
+            List<Entry> due = new ArrayList<>();
+            SharedPreferences.Editor editor = prefs.edit();
+            for (Entry entry : dueQueue()) {
+                if (entry.time > now + COALESCE_WINDOW_MILLIS) break;
+                due.add(entry);
+                editor.remove(keyOf(entry.appointmentId, entry.slot));
+            }
+            editor.apply();
+            armNext();
+            return due;
+        }
+    }
+
+    /**
+     * Arms the single reminder alarm for the earliest queued reminder, or disarms it if the queue is empty.
+     * Called after every change to the queue and after a reboot, since alarms do not survive one.
+     */
+    public void armNext() {
+        synchronized (LOCK) {
+            List<Entry> queue = dueQueue();
+            NotificationHelper notificationHelper = new NotificationHelper(context);
+            if (queue.isEmpty()) {
+                notificationHelper.cancelReminderAlarm(context);
+                Log.d(TAG, "No reminders queued, alarm disarmed");
+                return;
+            }
+            notificationHelper.armReminderAlarm(context, Math.max(queue.get(0).time, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Returns every queued reminder ordered by time.
+     *
+     * @return The queue
+     */
+    private List<Entry> dueQueue() {
+        List<Entry> queue = entriesWithPrefix(KEY_PREFIX);
+        queue.sort((a, b) -> Long.compare(a.time, b.time));
+        return queue;
+    }
+
+    /**
+     * Returns the stored entries whose key starts with a prefix.
+     *
+     * @param prefix The key prefix
+     * @return The matching entries
+     */
+    private List<Entry> entriesWithPrefix(String prefix) {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, ?> stored : prefs.getAll().entrySet()) {
+            if (!stored.getKey().startsWith(prefix) || !(stored.getValue() instanceof String)) continue;
+            Entry entry = parse((String) stored.getValue());
+            if (entry != null) entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Removes one reminder from the queue along with its notification if it is showing.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param slot Name of the reminder within the appointment
+     * @return True if the reminder was queued
+     */
+    private boolean remove(String appointmentId, String slot) {
+        Entry entry = get(appointmentId, slot);
+        if (entry == null) return false;
+        new NotificationHelper(context).cancelNotification(context, entry.requestCode);
+        prefs.edit().remove(keyOf(appointmentId, slot)).apply();
+        return true;
+    }
+
+    /**
+     * Reads one entry.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param slot Name of the reminder within the appointment
+     * @return The entry, or null if none is stored
+     */
+    private Entry get(String appointmentId, String slot) {
+        return parse(prefs.getString(keyOf(appointmentId, slot), null));
+    }
+
+    /**
+     * Parses a stored entry.
+     *
+     * @param json The stored JSON
+     * @return The entry, or null if it is missing or unreadable
+     */
+    private static Entry parse(String json) {
+        if (json == null) return null;
+        try {
+            return gson.fromJson(json, Entry.class);
+        } catch (Exception e) {
+            Log.e(TAG, "Unreadable reminder entry", e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands out a request code no other registered reminder uses.
+     *
+     * @return The request code
+     */
+    private int nextRequestCode() {
+        int requestCode = prefs.getInt(KEY_NEXT_REQUEST_CODE, FIRST_REQUEST_CODE);
+        int next = requestCode == Integer.MAX_VALUE ? FIRST_REQUEST_CODE : requestCode + 1;
+        prefs.edit().putInt(KEY_NEXT_REQUEST_CODE, next).apply();
+        return requestCode;
+    }
+
+    /**
+     * Returns the preference key of a reminder.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param slot Name of the reminder within the appointment
+     * @return The key
+     */
+    private static String keyOf(String appointmentId, String slot) {
+        return KEY_PREFIX + appointmentId + "/" + slot;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.vetcalls.obj;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/**
+ * BroadcastReceiver fired by the deferred alarm of {@link ReminderReconciler}.
+ * The reconciliation runs asynchronously, so the broadcast is kept alive with goAsync until it finishes.
+ *
+ * @author Ofek Levi
+ */
+public class ReminderSyncReceiver extends BroadcastReceiver {
+
+    /**
+     * Runs one reconciliation for the signed-in user.
+     *
+     * @param context The Context in which the receiver is running
+     * @param intent The Intent being received
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            Log.d("ReminderSyncReceiver", "No signed-in user, skipping reminder reconciliation");
+            return;
+        }
+        PendingResult pendingResult = goAsync();
+        new ReminderReconciler(context, FirebaseFirestore.getInstance(), user.getUid()).run(pendingResult::finish);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.vetcalls.obj;
+
+/**
+ * Derives RecyclerView stable item IDs from document IDs.
+ * Uses a 64-bit FNV-1a hash, so distinct document IDs practically never share an item ID.
+ *
+ * @author Ofek Levi
+ */
+public final class StableIds {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StableIds() {}
+
+    /**
+     * Returns the stable item ID for a key.
+     *
+     * @param key The item's unique key, usually its document ID
+     * @return The item ID, or RecyclerView.NO_ID (-1) if the key is null
+     */
+    public static long of(String key) {
+        if (key == null) return -1;
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash == -1 ? 0 : hash;
+    }
+}
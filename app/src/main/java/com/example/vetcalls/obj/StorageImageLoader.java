@@ -0,0 +1,240 @@
+package com.example.vetcalls.obj;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.HttpUrlFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Glide model loader for images recorded by their storage location ("gs://bucket/path").
+ * The location itself is the cache key, which is safe because stored images are never overwritten,
+ * so the disk cache keeps working after a download token rotates. The bytes are fetched over HTTP from
+ * the download URL kept in {@link DownloadUrlCache}; a cached URL the server rejects is resolved once more.
+ * Registered by {@link VetCallsGlideModule}, so every Glide.load of such a string goes through it.
+ *
+ * @author Ofek Levi
+ */
+public class StorageImageLoader implements ModelLoader<String, InputStream> {
+
+    private static final String TAG = "StorageImageLoader";
+
+    /** Connect and read timeout of the HTTP fetch, the same as Glide's own URL loader. */
+    private static final int TIMEOUT_MILLIS = 2500;
+
+    private final DownloadUrlCache downloadUrls;
+
+    /**
+     * Creates a loader.
+     *
+     * @param downloadUrls The cache of resolved download URLs
+     */
+    public StorageImageLoader(DownloadUrlCache downloadUrls) {
+        this.downloadUrls = downloadUrls;
+    }
+
+    /**
+     * Builds the load of a storage location, keyed by the location itself.
+     *
+     * @param model The storage location
+     * @param width The target width
+     * @param height The target height
+     * @param options The load options
+     * @return The load data
+     */
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull String model, int width, int height, @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(model), new StorageFetcher(model, downloadUrls));
+    }
+
+    /**
+     * Handles only storage locations; URLs are left to Glide's own loaders.
+     *
+     * @param model The string passed to Glide
+     * @return true if it is a storage location
+     */
+    @Override
+    public boolean handles(@NonNull String model) {
+        return DownloadUrlCache.isStorageLocation(model);
+    }
+
+    /**
+     * Creates {@link StorageImageLoader} instances for Glide's registry.
+     */
+    public static class Factory implements ModelLoaderFactory<String, InputStream> {
+
+        private final Context context;
+
+        /**
+         * Creates a factory.
+         *
+         * @param context Any context; the application context is kept
+         */
+        public Factory(Context context) {
+            this.context = context.getApplicationContext();
+        }
+
+        /**
+         * Builds a loader backed by the shared download URL cache.
+         *
+         * @param multiFactory Glide's factory of other loaders, not used
+         * @return The loader
+         */
+        @NonNull
+        @Override
+        public ModelLoader<String, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new StorageImageLoader(DownloadUrlCache.get(context));
+        }
+
+        /**
+         * Nothing to release.
+         */
+        @Override
+        public void teardown() {
+        }
+    }
+
+    /**
+     * Resolves the download URL of a location and fetches it over HTTP.
+     */
+    private static class StorageFetcher implements DataFetcher<InputStream> {
+
+        private final String location;
+        private final DownloadUrlCache downloadUrls;
+        private volatile HttpUrlFetcher delegate;
+        private volatile boolean cancelled;
+
+        /**
+         * Creates a fetcher.
+         *
+         * @param location The storage location
+         * @param downloadUrls The cache of resolved download URLs
+         */
+        StorageFetcher(String location, DownloadUrlCache downloadUrls) {
+            this.location = location;
+            this.downloadUrls = downloadUrls;
+        }
+
+        /**
+         * Fetches the image on Glide's source thread.
+         *
+         * @param priority The load priority
+         * @param callback Callback receiving the stream or the error
+         */
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+            fetch(priority, callback, true);
+        }
+
+        /**
+         * Fetches the image from its download URL, resolving it if it is not cached.
+         *
+         * @param priority The load priority
+         * @param callback Callback receiving the stream or the error
+         * @param retryRejected true to resolve a rejected cached URL again and retry once
+         */
+        private void fetch(Priority priority, DataCallback<? super InputStream> callback, boolean retryRejected) {
+            boolean wasCached = downloadUrls.peek(location) != null;
+            String url;
+            try {
+                url = downloadUrls.resolveNow(location);
+            } catch (ExecutionException e) {
+                callback.onLoadFailed(e);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callback.onLoadFailed(e);
+                return;
+            }
+            if (cancelled) return;
+
+            HttpUrlFetcher fetcher = new HttpUrlFetcher(new GlideUrl(url), TIMEOUT_MILLIS);
+            delegate = fetcher;
+            fetcher.loadData(priority, new DataCallback<InputStream>() {
+                @Override
+                public void onDataReady(InputStream data) {
+                    callback.onDataReady(data);
+                }
+
+                @Override
+                public void onLoadFailed(@NonNull Exception e) {
+                    if (retryRejected && wasCached && isRejected(e)) {
+                        Log.d(TAG, "Cached download URL rejected, resolving again: " + location);
+                        downloadUrls.invalidate(location);
+                        fetcher.cleanup();
+                        fetch(priority, callback, false);
+                        return;
+                    }
+                    callback.onLoadFailed(e);
+                }
+            });
+        }
+
+        /**
+         * Checks whether the server refused a download URL, as it does once its token is revoked.
+         *
+         * @param e The fetch error
+         * @return true for an HTTP 401, 403 or 404 response
+         */
+        private static boolean isRejected(Exception e) {
+            if (!(e instanceof HttpException)) return false;
+            int status = ((HttpException) e).getStatusCode();
+            return status == 401 || status == 403 || status == 404;
+        }
+
+        /**
+         * Closes the fetched stream.
+         */
+        @Override
+        public void cleanup() {
+            HttpUrlFetcher fetcher = delegate;
+            if (fetcher != null) fetcher.cleanup();
+        }
+
+        /**
+         * Cancels the fetch.
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            HttpUrlFetcher fetcher = delegate;
+            if (fetcher != null) fetcher.cancel();
+        }
+
+        /**
+         * Returns the class of the fetched data.
+         *
+         * @return InputStream.class
+         */
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return InputStream.class;
+        }
+
+        /**
+         * Returns where the data comes from.
+         *
+         * @return DataSource.REMOTE
+         */
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.REMOTE;
+        }
+    }
+}
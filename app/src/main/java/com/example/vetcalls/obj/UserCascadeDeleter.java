@@ -0,0 +1,610 @@
+package com.example.vetcalls.obj;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.FirebaseTooManyRequestsException;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable cascade delete engine for a user account.
+ * Walks the account's data stage by stage (dogs and their appointments, vet mirror copies,
+ * reminders, storage images, profile documents and finally authentication), reading one page
+ * at a time and deleting it in a single bounded batch. Only one request is in flight at any time.
+ * The current stage is checkpointed in SharedPreferences, so a process that is killed midway
+ * can resume from where it stopped. Every stage is idempotent, since already deleted documents
+ * simply no longer show up in the next page.
+ * <p>
+ * At most one deletion per user runs in the process at a time, however many screens ask for it.
+ * A stage that fails for a reason retrying will not fix, such as a missing permission or an
+ * authentication that needs a fresh sign-in, marks the checkpoint so the deletion is not resumed
+ * automatically until the user starts it again.
+ *
+ * @author Ofek Levi
+ */
+public class UserCascadeDeleter {
+
+    private static final String TAG = "UserCascadeDeleter";
+    private static final String PREFS_NAME = "CascadeDelete";
+
+    /** Documents read per page. Each appointment costs up to two deletes, keeping batches under 500 operations. */
+    public static final int PAGE_SIZE = 200;
+
+    /** Users whose deletion is running in this process. */
+    private static final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Ordered stages of the cascade. Deletion always moves forward through this order.
+     */
+    public enum Stage {
+        START,
+        DOGS,
+        VET_APPOINTMENTS,
+        VET_PATIENTS,
+        REMINDERS,
+        DOG_REFERENCES,
+        IMAGES,
+        PROFILE,
+        AUTH,
+        DONE
+    }
+
+    /**
+     * Listener for deletion progress and completion.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after every committed batch.
+         *
+         * @param stage The stage currently being processed
+         * @param deletedCount Total number of deleted documents and files so far, including previous runs
+         */
+        void onProgress(Stage stage, int deletedCount);
+
+        /**
+         * Called once the account and all its data have been deleted.
+         */
+        void onComplete();
+
+        /**
+         * Called when a stage fails. The checkpoint is kept so the deletion can be resumed.
+         *
+         * @param stage The stage that failed
+         * @param e The exception that caused the failure
+         */
+        void onFailure(Stage stage, Exception e);
+    }
+
+    private final FirebaseFirestore db;
+    private final FirebaseStorage storage;
+    private final SharedPreferences checkpoint;
+    private final String userId;
+    private final ProgressListener listener;
+
+    private Stage stage;
+    private int deletedCount;
+    private boolean isVet;
+    private final List<String> dogIds = new ArrayList<>();
+
+    /**
+     * Creates a cascade deleter on the default Firebase instances.
+     *
+     * @param context Context used to access the checkpoint store
+     * @param userId The user whose account is being deleted
+     * @param listener Listener for progress and completion
+     */
+    public UserCascadeDeleter(Context context, String userId, ProgressListener listener) {
+        this(context, FirebaseFirestore.getInstance(), FirebaseStorage.getInstance(), userId, listener);
+    }
+
+    /**
+     * Creates a cascade deleter on the given Firebase instances, for example ones pointed at the emulator.
+     *
+     * @param context Context used to access the checkpoint store
+     * @param db The Firestore instance
+     * @param storage The Storage instance
+     * @param userId The user whose account is being deleted
+     * @param listener Listener for progress and completion
+     */
+    public UserCascadeDeleter(Context context, FirebaseFirestore db, FirebaseStorage storage,
+                              String userId, ProgressListener listener) {
+        this.db = db;
+        this.storage = storage;
+        this.checkpoint = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.userId = userId;
+        this.listener = listener;
+    }
+
+    /**
+     * Checks whether a deletion for the given user was started and has not finished yet.
+     *
+     * @param context Context used to access the checkpoint store
+     * @param userId The user's unique identifier
+     * @return true if a checkpoint exists for the user
+     */
+    public static boolean hasPendingDeletion(Context context, String userId) {
+        if (userId == null) return false;
+        return context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .contains(userId + "_stage");
+    }
+
+    /**
+     * Checks whether a pending deletion may be resumed without asking the user,
+     * that is, it has not stopped on a failure that retrying will not fix.
+     *
+     * @param context Context used to access the checkpoint store
+     * @param userId The user's unique identifier
+     * @return true if a checkpoint exists and its last failure, if any, was transient
+     */
+    public static boolean canResumeAutomatically(Context context, String userId) {
+        return hasPendingDeletion(context, userId)
+                && !context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getBoolean(userId + "_blocked", false);
+    }
+
+    /**
+     * Checks whether a deletion for the given user is running in this process.
+     *
+     * @param userId The user's unique identifier
+     * @return true if a deletion was started and has neither completed nor failed
+     */
+    public static boolean isRunning(String userId) {
+        return userId != null && running.contains(userId);
+    }
+
+    /**
+     * Starts the deletion, or resumes it from the last checkpoint if one exists.
+     * Does nothing if a deletion for the same user is already running in this process.
+     *
+     * @return true if the deletion was started, false if one was already running
+     */
+    public boolean start() {
+        if (!running.add(userId)) {
+            Log.d(TAG, "Deletion of user " + userId + " is already running");
+            return false;
+        }
+        restoreCheckpoint();
+        Log.d(TAG, "Deleting user " + userId + " from stage " + stage + ", " + deletedCount + " already deleted");
+        checkpoint.edit().remove(userId + "_blocked").apply();
+        runStage();
+        return true;
+    }
+
+    /**
+     * Loads the persisted stage, counters and dog list for this user.
+     */
+    private void restoreCheckpoint() {
+        stage = Stage.valueOf(checkpoint.getString(userId + "_stage", Stage.START.name()));
+        deletedCount = checkpoint.getInt(userId + "_deleted", 0);
+        isVet = checkpoint.getBoolean(userId + "_isVet", false);
+        dogIds.clear();
+        dogIds.addAll(checkpoint.getStringSet(userId + "_dogs", new HashSet<>()));
+    }
+
+    /**
+     * Persists the current stage, counters and remaining dog list.
+     */
+    private void saveCheckpoint() {
+        checkpoint.edit()
+                .putString(userId + "_stage", stage.name())
+                .putInt(userId + "_deleted", deletedCount)
+                .putBoolean(userId + "_isVet", isVet)
+                .putStringSet(userId + "_dogs", new HashSet<>(dogIds))
+                .apply();
+    }
+
+    /**
+     * Removes the checkpoint once deletion has fully completed.
+     */
+    private void clearCheckpoint() {
+        checkpoint.edit()
+                .remove(userId + "_stage")
+                .remove(userId + "_deleted")
+                .remove(userId + "_isVet")
+                .remove(userId + "_dogs")
+                .remove(userId + "_allDogs")
+                .remove(userId + "_images")
+                .remove(userId + "_blocked")
+                .apply();
+    }
+
+    /**
+     * Moves to the next stage, checkpoints and continues.
+     *
+     * @param next The stage to move to
+     */
+    private void advance(Stage next) {
+        stage = next;
+        saveCheckpoint();
+        runStage();
+    }
+
+    /**
+     * Dispatches to the handler of the current stage.
+     */
+    private void runStage() {
+        switch (stage) {
+            case START:
+                collectAccountInfo();
+                break;
+            case DOGS:
+                deleteNextDog();
+                break;
+            case VET_APPOINTMENTS:
+                if (isVet) {
+                    drainAppointments(db.collection("Veterinarians").document(userId).collection("Appointments"),
+                            false, () -> advance(Stage.VET_PATIENTS));
+                } else {
+                    advance(Stage.VET_PATIENTS);
+                }
+                break;
+            case VET_PATIENTS:
+                if (isVet) {
+                    drain(db.collection("Veterinarians").document(userId).collection("Patients"),
+                            () -> advance(Stage.REMINDERS));
+                } else {
+                    advance(Stage.REMINDERS);
+                }
+                break;
+            case REMINDERS:
+                drain(db.collection("Users").document(userId).collection("Reminders"),
+                        () -> advance(Stage.DOG_REFERENCES));
+                break;
+            case DOG_REFERENCES:
+                drain(db.collection("Users").document(userId).collection("Dogs"),
+                        () -> advance(Stage.IMAGES));
+                break;
+            case IMAGES:
+                deleteNextImage();
+                break;
+            case PROFILE:
+                deleteProfileDocuments();
+                break;
+            case AUTH:
+                deleteAuthentication();
+                break;
+            case DONE:
+                clearCheckpoint();
+                running.remove(userId);
+                Log.d(TAG, "User " + userId + " deleted, " + deletedCount + " items removed");
+                if (listener != null) listener.onComplete();
+                break;
+        }
+    }
+
+    /**
+     * Reads the user document and the list of dogs once, before anything is deleted.
+     * The dog list is checkpointed because the references to it are deleted later.
+     */
+    private void collectAccountInfo() {
+        db.collection("Users").document(userId).get()
+                .addOnSuccessListener(userDoc -> {
+                    if (!userDoc.exists()) {
+                        fail(new IllegalStateException("User document not found: " + userId));
+                        return;
+                    }
+                    Boolean vetFlag = userDoc.getBoolean("isVet");
+                    isVet = vetFlag != null && vetFlag;
+
+                    db.collection("Users").document(userId).collection("Dogs").get()
+                            .addOnSuccessListener(dogSnapshots -> {
+                                Set<String> ids = new HashSet<>();
+                                for (DocumentSnapshot dogDoc : dogSnapshots.getDocuments()) {
+                                    String dogId = dogDoc.getString("dogId");
+                                    ids.add(dogId != null && !dogId.isEmpty() ? dogId : dogDoc.getId());
+                                }
+                                dogIds.clear();
+                                dogIds.addAll(ids);
+                                checkpoint.edit().putStringSet(userId + "_allDogs", ids).apply();
+                                Log.d(TAG, "Found " + dogIds.size() + " dogs to delete, isVet=" + isVet);
+                                advance(Stage.DOGS);
+                            })
+                            .addOnFailureListener(this::fail);
+                })
+                .addOnFailureListener(this::fail);
+    }
+
+    /**
+     * Deletes the next remaining dog: all of its appointments with their vet mirrors,
+     * then the dog profile and the vet's patient copy.
+     */
+    private void deleteNextDog() {
+        if (dogIds.isEmpty()) {
+            advance(Stage.VET_APPOINTMENTS);
+            return;
+        }
+        String dogId = dogIds.get(0);
+
+        drainAppointments(db.collection("DogProfiles").document(dogId).collection("Appointments"), true, () ->
+                db.collection("DogProfiles").document(dogId).get()
+                        .addOnSuccessListener(dogDoc -> {
+                            WriteBatch batch = db.batch();
+                            batch.delete(dogDoc.getReference());
+                            String vetId = dogDoc.getString("vetId");
+                            if (vetId != null && !vetId.isEmpty()) {
+                                batch.delete(db.collection("Veterinarians").document(vetId)
+                                        .collection("Patients").document(dogId));
+                            }
+                            batch.commit()
+                                    .addOnSuccessListener(aVoid -> {
+                                        dogIds.remove(dogId);
+                                        deletedCount++;
+                                        reportProgress();
+                                        saveCheckpoint();
+                                        deleteNextDog();
+                                    })
+                                    .addOnFailureListener(this::fail);
+                        })
+                        .addOnFailureListener(this::fail));
+    }
+
+    /**
+     * Deletes an appointments collection page by page, removing the mirror copy of each appointment as well.
+     *
+     * @param appointments The appointments collection to drain
+     * @param mirrorIsVet true if the mirror copy lives under the veterinarian, false if under the dog
+     * @param onDone Callback to run once the collection is empty
+     */
+    private void drainAppointments(CollectionReference appointments, boolean mirrorIsVet, Runnable onDone) {
+        appointments.limit(PAGE_SIZE).get()
+                .addOnSuccessListener(page -> {
+                    if (page.isEmpty()) {
+                        onDone.run();
+                        return;
+                    }
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot appointment : page.getDocuments()) {
+                        batch.delete(appointment.getReference());
+                        String mirrorOwner = appointment.getString(mirrorIsVet ? "vetId" : "dogId");
+                        if (mirrorOwner != null && !mirrorOwner.isEmpty()) {
+                            batch.delete(db.collection(mirrorIsVet ? "Veterinarians" : "DogProfiles")
+                                    .document(mirrorOwner)
+                                    .collection("Appointments")
+                                    .document(appointment.getId()));
+                        }
+                    }
+                    int pageSize = page.size();
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                deletedCount += pageSize;
+                                reportProgress();
+                                saveCheckpoint();
+                                drainAppointments(appointments, mirrorIsVet, onDone);
+                            })
+                            .addOnFailureListener(this::fail);
+                })
+                .addOnFailureListener(this::fail);
+    }
+
+    /**
+     * Deletes every document of a collection page by page.
+     *
+     * @param collection The collection to drain
+     * @param onDone Callback to run once the collection is empty
+     */
+    private void drain(CollectionReference collection, Runnable onDone) {
+        collection.limit(PAGE_SIZE).get()
+                .addOnSuccessListener(page -> {
+                    if (page.isEmpty()) {
+                        onDone.run();
+                        return;
+                    }
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        batch.delete(doc.getReference());
+                    }
+                    int pageSize = page.size();
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                deletedCount += pageSize;
+                                reportProgress();
+                                saveCheckpoint();
+                                drain(collection, onDone);
+                            })
+                            .addOnFailureListener(this::fail);
+                })
+                .addOnFailureListener(this::fail);
+    }
+
+    /**
+     * Deletes stored profile images one at a time. Images that no longer exist are skipped.
+     * A folder entry, ending with "/", is first replaced by the images listed in it.
+     * The remaining paths are checkpointed so a resumed run does not retry finished ones.
+     */
+    private void deleteNextImage() {
+        Set<String> remaining = new HashSet<>(checkpoint.getStringSet(userId + "_images", imagePaths()));
+        if (remaining.isEmpty()) {
+            advance(Stage.PROFILE);
+            return;
+        }
+        String path = remaining.iterator().next();
+        if (path.endsWith("/")) {
+            expandImageFolder(remaining, path);
+            return;
+        }
+
+        storage.getReference().child(path).delete()
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful() && !isNotFound(task.getException())) {
+                        fail(task.getException());
+                        return;
+                    }
+                    if (task.isSuccessful()) {
+                        deletedCount++;
+                        reportProgress();
+                    }
+                    remaining.remove(path);
+                    checkpoint.edit().putStringSet(userId + "_images", remaining).apply();
+                    saveCheckpoint();
+                    deleteNextImage();
+                });
+    }
+
+    /**
+     * Replaces a folder entry of the remaining paths with the images stored in it.
+     *
+     * @param remaining The remaining paths, including the folder
+     * @param folder The folder path, ending with "/"
+     */
+    private void expandImageFolder(Set<String> remaining, String folder) {
+        storage.getReference().child(folder).listAll()
+                .addOnSuccessListener(listing -> {
+                    for (StorageReference item : listing.getItems()) {
+                        remaining.add(item.getPath());
+                    }
+                    remaining.remove(folder);
+                    checkpoint.edit().putStringSet(userId + "_images", remaining).apply();
+                    saveCheckpoint();
+                    deleteNextImage();
+                })
+                .addOnFailureListener(this::fail);
+    }
+
+    /**
+     * Builds the storage paths of all profile images owned by the account: the folder of
+     * content-addressed pictures of each profile, and every size of a picture stored in place
+     * by older versions of the app.
+     *
+     * @return Set of storage paths and folders to delete
+     */
+    private Set<String> imagePaths() {
+        Set<String> paths = new HashSet<>();
+        for (String dogId : checkpoint.getStringSet(userId + "_allDogs", new HashSet<>())) {
+            addImagePaths(paths, ImageVariants.DOG_IMAGES_ROOT + dogId);
+        }
+        if (isVet) {
+            addImagePaths(paths, ImageVariants.VET_IMAGES_ROOT + userId);
+        }
+        return paths;
+    }
+
+    /**
+     * Adds the image folder of one profile and its legacy in-place images.
+     *
+     * @param paths The set to add to
+     * @param folder Storage folder of the profile's pictures
+     */
+    private static void addImagePaths(Set<String> paths, String folder) {
+        paths.add(folder + "/");
+        for (String suffix : ImageVariants.PATH_SUFFIXES) {
+            paths.add(folder + suffix + ".jpg");
+        }
+    }
+
+    /**
+     * Deletes the user document and, for veterinarians, the Veterinarians document in one batch.
+     */
+    private void deleteProfileDocuments() {
+        WriteBatch batch = db.batch();
+        batch.delete(db.collection("Users").document(userId));
+        if (isVet) {
+            batch.delete(db.collection("Veterinarians").document(userId));
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    deletedCount += isVet ? 2 : 1;
+                    reportProgress();
+                    advance(Stage.AUTH);
+                })
+                .addOnFailureListener(this::fail);
+    }
+
+    /**
+     * Deletes the Firebase Authentication account if it belongs to the signed-in user.
+     */
+    private void deleteAuthentication() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || !user.getUid().equals(userId)) {
+            advance(Stage.DONE);
+            return;
+        }
+        user.delete()
+                .addOnSuccessListener(aVoid -> advance(Stage.DONE))
+                .addOnFailureListener(this::fail);
+    }
+
+    /**
+     * Checks whether a storage exception means the object was already gone.
+     *
+     * @param e The exception to check
+     * @return true if the object did not exist
+     */
+    private static boolean isNotFound(Exception e) {
+        return e instanceof StorageException
+                && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
+
+    /**
+     * Reports the current progress to the listener.
+     */
+    private void reportProgress() {
+        if (listener != null) listener.onProgress(stage, deletedCount);
+    }
+
+    /**
+     * Checks whether a failure may go away on its own, such as a lost connection or a busy server.
+     *
+     * @param e The exception to check
+     * @return true if retrying later can succeed without the user doing anything
+     */
+    public static boolean isTransient(Exception e) {
+        if (e instanceof FirebaseNetworkException || e instanceof FirebaseTooManyRequestsException) return true;
+        if (e instanceof FirebaseFirestoreException) {
+            switch (((FirebaseFirestoreException) e).getCode()) {
+                case UNAVAILABLE:
+                case DEADLINE_EXCEEDED:
+                case ABORTED:
+                case RESOURCE_EXHAUSTED:
+                case CANCELLED:
+                case INTERNAL:
+                case UNKNOWN:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (e instanceof StorageException) {
+            int code = ((StorageException) e).getErrorCode();
+            return code == StorageException.ERROR_RETRY_LIMIT_EXCEEDED || code == StorageException.ERROR_UNKNOWN;
+        }
+        return false;
+    }
+
+    /**
+     * Stops the cascade and reports the failure. Once anything has been deleted
+     * the checkpoint is kept for a later resume; a failure that is not transient also
+     * blocks the automatic resume, see {@link #canResumeAutomatically}.
+     *
+     * @param e The exception that caused the failure
+     */
+    private void fail(Exception e) {
+        Log.e(TAG, "Deletion of user " + userId + " failed at stage " + stage, e);
+        running.remove(userId);
+        if (stage != Stage.START) {
+            saveCheckpoint();
+            if (!isTransient(e)) {
+                checkpoint.edit().putBoolean(userId + "_blocked", true).apply();
+            }
+        }
+        if (listener != null) listener.onFailure(stage, e);
+    }
+}
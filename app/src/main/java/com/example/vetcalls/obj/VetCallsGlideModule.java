@@ -0,0 +1,45 @@
+package com.example.vetcalls.obj;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.io.InputStream;
+
+/**
+ * Glide configuration of the app.
+ * Registers {@link StorageImageLoader} ahead of Glide's own string loaders, so storage locations
+ * can be passed to Glide.load like any URL.
+ *
+ * @author Ofek Levi
+ */
+@GlideModule
+public final class VetCallsGlideModule extends AppGlideModule {
+
+    /**
+     * Registers the storage location loader.
+     *
+     * @param context The application context
+     * @param glide The Glide instance
+     * @param registry The registry to add the loader to
+     */
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(String.class, InputStream.class, new StorageImageLoader.Factory(context));
+    }
+
+    /**
+     * Disables the legacy manifest modules lookup, as the app declares none.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.vetcalls.obj;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory per-day index of a veterinarian's appointments.
+ * Whole ranges (a week or a month) are loaded at once and split by day, and the index remembers which
+ * ranges it holds, so a screen can tell whether a day can be shown without going to the network.
+ * Days are keyed by their local midnight in epoch milliseconds, see {@link AppointmentTimes#dayStart(Object)}.
+ *
+ * @author Ofek Levi
+ */
+public class VetScheduleIndex {
+
+    /** Appointments keyed by day, each day's list sorted by start. */
+    private final TreeMap<Long, List<Map<String, Object>>> byDay = new TreeMap<>();
+
+    /** Loaded ranges as [from, to) pairs. */
+    private final List<long[]> loadedRanges = new ArrayList<>();
+
+    /**
+     * Stores the appointments of a range, replacing whatever the index held for its days.
+     *
+     * @param fromMillis Local midnight starting the range, inclusive
+     * @param toMillis Local midnight ending the range, exclusive
+     * @param appointments Appointments starting in the range
+     */
+    public synchronized void putRange(long fromMillis, long toMillis, List<Map<String, Object>> appointments) {
+        byDay.subMap(fromMillis, toMillis).clear();
+        for (Map<String, Object> appointment : appointments) {
+            long day = dayOf(appointment);
+            if (day < fromMillis || day >= toMillis) continue;
+            List<Map<String, Object>> dayList = byDay.get(day);
+            if (dayList == null) {
+                dayList = new ArrayList<>();
+                byDay.put(day, dayList);
+            }
+            dayList.add(appointment);
+        }
+        for (List<Map<String, Object>> dayList : byDay.subMap(fromMillis, toMillis).values()) {
+            dayList.sort((a, b) -> Long.compare(AppointmentTimes.startAtOf(a), AppointmentTimes.startAtOf(b)));
+        }
+
+        for (Iterator<long[]> it = loadedRanges.iterator(); it.hasNext(); ) {
+            long[] range = it.next();
+            if (range[0] >= fromMillis && range[1] <= toMillis) it.remove();
+        }
+        loadedRanges.add(new long[]{fromMillis, toMillis});
+    }
+
+    /**
+     * Checks whether the day has been loaded as part of some range.
+     *
+     * @param dayStart Local midnight of the day
+     * @return True if the day's appointments are in the index, even if there are none
+     */
+    public synchronized boolean isLoaded(long dayStart) {
+        for (long[] range : loadedRanges) {
+            if (dayStart >= range[0] && dayStart < range[1]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the appointments of a day.
+     *
+     * @param dayStart Local midnight of the day
+     * @return Copies of the day's appointments sorted by start, empty if there are none
+     */
+    public synchronized List<Map<String, Object>> appointmentsOn(long dayStart) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        List<Map<String, Object>> dayList = byDay.get(dayStart);
+        if (dayList == null) return result;
+        for (Map<String, Object> appointment : dayList) {
+            result.add(new HashMap<>(appointment));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of days in a range that have at least one appointment.
+     *
+     * @param fromMillis Local midnight starting the range, inclusive
+     * @param toMillis Local midnight ending the range, exclusive
+     * @return The number of busy days
+     */
+    public synchronized int busyDays(long fromMillis, long toMillis) {
+        return byDay.subMap(fromMillis, toMillis).size();
+    }
+
+    /**
+     * Drops every loaded range.
+     */
+    public synchronized void clear() {
+        byDay.clear();
+        loadedRanges.clear();
+    }
+
+    /**
+     * Returns the day an appointment belongs to.
+     *
+     * @param appointment The appointment fields
+     * @return Local midnight of its day, or -1 if it cannot be determined
+     */
+    private static long dayOf(Map<String, Object> appointment) {
+        long day = AppointmentTimes.dayStart(appointment.get("date"));
+        if (day >= 0) return day;
+        long startAt = AppointmentTimes.startAtOf(appointment);
+        return startAt < 0 ? -1 : AppointmentTimes.dayStart(AppointmentTimes.dateOf(startAt));
+    }
+}
@@ -27,6 +27,12 @@ public class Veterinarian {
     /** URL for the veterinarian's profile image */
     public String profileImageUrl;
 
+    /** URL for the medium size variant of the profile image, see {@link ImageVariants} */
+    public String profileImageMediumUrl;
+
+    /** URL for the thumbnail variant of the profile image, see {@link ImageVariants} */
+    public String profileImageThumbUrl;
+
     /** Veterinarian's email address */
     public String email;
 
@@ -0,0 +1,128 @@
+package com.example.vetcalls.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Data access for appointments.
+ * Results are returned as stored document fields, with the document ID under "documentId".
+ *
+ * @author Ofek Levi
+ */
+public interface AppointmentRepository {
+
+    /**
+     * Loads a single appointment from the dog's copy.
+     *
+     * @param dogId The dog's unique identifier
+     * @param appointmentId The appointment's unique identifier
+     * @param callback Callback receiving the appointment, or null if it does not exist
+     */
+    void getAppointment(String dogId, String appointmentId, DataCallback<Map<String, Object>> callback);
+
+    /**
+     * Loads a veterinarian's appointments on a given date.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param date The date in yyyy-M-d format
+     * @param callback Callback receiving the appointments
+     */
+    void getVetAppointmentsOnDate(String vetId, String date, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads a dog's appointments on a given date.
+     *
+     * @param dogId The dog's unique identifier
+     * @param date The date in yyyy-M-d format
+     * @param callback Callback receiving the appointments
+     */
+    void getDogAppointmentsOnDate(String dogId, String date, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads all appointments of a dog.
+     *
+     * @param dogId The dog's unique identifier
+     * @param callback Callback receiving the appointments
+     */
+    void getDogAppointments(String dogId, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads the completed appointments of a dog.
+     *
+     * @param dogId The dog's unique identifier
+     * @param callback Callback receiving the appointments
+     */
+    void getCompletedDogAppointments(String dogId, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads a veterinarian's appointments that start within a time range, ordered by start.
+     * Day, week and month views pass the local midnights that bound them.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, exclusive
+     * @param callback Callback receiving the appointments
+     */
+    void getVetAppointmentsBetween(String vetId, long fromMillis, long toMillis,
+                                   DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads every appointment of an owner's dogs that starts within a time range, ordered by start,
+     * in a single query.
+     *
+     * @param ownerId The owner's unique identifier
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, exclusive
+     * @param callback Callback receiving the appointments
+     */
+    void getOwnerAppointmentsBetween(String ownerId, long fromMillis, long toMillis,
+                                     DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads the completed appointments of all of an owner's dogs in a single query.
+     *
+     * @param ownerId The owner's unique identifier
+     * @param callback Callback receiving the appointments
+     */
+    void getCompletedOwnerAppointments(String ownerId, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Books an appointment, writing it to every location that holds a copy of it,
+     * unless another appointment of the same veterinarian already overlaps its slot.
+     * When editing, the previous slot is released and copies under a previous dog or veterinarian are removed.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param appointmentData Map containing appointment details
+     * @param previousData The appointment as currently stored when editing, or null for a new booking
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null;
+     *                  receives {@link com.example.vetcalls.obj.AppointmentBooking#SLOT_TAKEN} if the slot is taken
+     */
+    void saveAppointment(String appointmentId, Map<String, Object> appointmentData, Map<String, Object> previousData,
+                         Runnable onSuccess, Consumer<String> onFailure);
+
+    /**
+     * Deletes an appointment from every location that holds a copy of it.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param dogId The dog's unique identifier
+     * @param vetId The veterinarian's unique identifier
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    void deleteAppointment(String appointmentId, String dogId, String vetId,
+                           Runnable onSuccess, Consumer<String> onFailure);
+
+    /**
+     * Marks an appointment as completed in every location that holds a copy of it.
+     *
+     * @param appointmentId The appointment's unique identifier
+     * @param dogId The dog's unique identifier
+     * @param vetId The veterinarian's unique identifier
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    void markCompleted(String appointmentId, String dogId, String vetId,
+                       Runnable onSuccess, Consumer<String> onFailure);
+}
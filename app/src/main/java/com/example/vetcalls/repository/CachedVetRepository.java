@@ -0,0 +1,246 @@
+package com.example.vetcalls.repository;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide veterinarian directory kept in memory.
+ * The first directory request attaches a snapshot listener to the "Veterinarians" collection;
+ * after the initial load Firestore only delivers the documents that changed, so later pickers
+ * are served from memory without reading the whole collection again. The directory only counts as loaded
+ * once a snapshot comes from the server, since a snapshot from the local cache may hold just a few vets;
+ * a vet missing from the loaded directory is still read through the wrapped repository.
+ * Writes go to the wrapped repository and are merged into the cache once they succeed.
+ *
+ * @author Ofek Levi
+ */
+public class CachedVetRepository implements VetRepository {
+
+    private static final String TAG = "CachedVetRepository";
+
+    private final FirebaseFirestore db;
+    private final VetRepository delegate;
+
+    /** Cached veterinarian fields keyed by vet ID, in the order they were first seen. */
+    private final Map<String, Map<String, Object>> directory = new LinkedHashMap<>();
+
+    /** Directory requests waiting for the first snapshot. */
+    private final List<DataCallback<List<Map<String, Object>>>> pending = new ArrayList<>();
+
+    private ListenerRegistration registration;
+    private boolean loaded = false;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * Creates a cache on the given Firestore instance.
+     *
+     * @param db The Firestore instance to listen on
+     * @param delegate The repository used for single reads before the directory is loaded and for writes
+     */
+    public CachedVetRepository(FirebaseFirestore db, VetRepository delegate) {
+        this.db = db;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void getAllVets(DataCallback<List<Map<String, Object>>> callback) {
+        if (loaded) {
+            hits++;
+            callback.onSuccess(snapshotOfDirectory());
+            return;
+        }
+        misses++;
+        pending.add(callback);
+        if (registration == null) startListening();
+    }
+
+    @Override
+    public synchronized void getVet(String vetId, DataCallback<Map<String, Object>> callback) {
+        Map<String, Object> vet = loaded ? directory.get(vetId) : null;
+        if (vet != null) {
+            hits++;
+            callback.onSuccess(copy(vetId, vet));
+            return;
+        }
+        misses++;
+        delegate.getVet(vetId, callback);
+    }
+
+    @Override
+    public synchronized void getVets(List<String> vetIds, DataCallback<List<Map<String, Object>>> callback) {
+        if (!loaded) {
+            misses++;
+            delegate.getVets(vetIds, callback);
+            return;
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String vetId : vetIds) {
+            Map<String, Object> vet = directory.get(vetId);
+            if (vet != null) {
+                result.add(copy(vetId, vet));
+            } else {
+                missing.add(vetId);
+            }
+        }
+        if (missing.isEmpty()) {
+            hits++;
+            callback.onSuccess(result);
+            return;
+        }
+        // A vet added since the last snapshot, or one the listener has not delivered yet
+        misses++;
+        delegate.getVets(missing, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> fetched) {
+                result.addAll(fetched);
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    public void saveVetProfile(String vetId, Map<String, Object> fields, Runnable onSuccess, Consumer<String> onFailure) {
+        delegate.saveVetProfile(vetId, fields, () -> {
+            synchronized (this) {
+                if (loaded) directory.computeIfAbsent(vetId, k -> new HashMap<>()).putAll(fields);
+            }
+            if (onSuccess != null) onSuccess.run();
+        }, onFailure);
+    }
+
+    /**
+     * Returns how many requests were answered from memory.
+     *
+     * @return The number of cache hits
+     */
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns how many requests had to wait for or go to Firestore.
+     *
+     * @return The number of cache misses
+     */
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Stops listening and drops the cached directory, so the next request loads it again.
+     */
+    public synchronized void invalidate() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        directory.clear();
+        loaded = false;
+    }
+
+    /**
+     * Attaches the snapshot listener that fills and refreshes the directory.
+     */
+    private void startListening() {
+        registration = db.collection("Veterinarians").addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+            List<DataCallback<List<Map<String, Object>>>> waiting;
+            List<Map<String, Object>> result;
+            synchronized (this) {
+                if (e != null) {
+                    Log.e(TAG, "Vet directory listener failed", e);
+                    waiting = new ArrayList<>(pending);
+                    pending.clear();
+                    invalidate();
+                    for (DataCallback<List<Map<String, Object>>> callback : waiting) {
+                        callback.onFailure(e);
+                    }
+                    return;
+                }
+                if (snapshot == null) return;
+
+                for (DocumentChange change : snapshot.getDocumentChanges()) {
+                    String vetId = change.getDocument().getId();
+                    if (change.getType() == DocumentChange.Type.REMOVED) {
+                        directory.remove(vetId);
+                    } else {
+                        directory.put(vetId, new HashMap<>(change.getDocument().getData()));
+                    }
+                }
+                if (snapshot.getMetadata().isFromCache()) {
+                    // May only hold the few vets earlier single reads left in the local cache
+                    Log.d(TAG, "Vet directory snapshot from cache with " + directory.size() + " vets, waiting for the server");
+                    return;
+                }
+                loaded = true;
+                Log.d(TAG, "Vet directory has " + directory.size() + " vets after "
+                        + snapshot.getDocumentChanges().size() + " changes (hits=" + hits + ", misses=" + misses + ")");
+
+                if (pending.isEmpty()) return;
+                waiting = new ArrayList<>(pending);
+                pending.clear();
+                result = snapshotOfDirectory();
+            }
+            for (DataCallback<List<Map<String, Object>>> callback : waiting) {
+                callback.onSuccess(copyAll(result));
+            }
+        });
+    }
+
+    /**
+     * Copies the whole directory into the list format returned to callers.
+     *
+     * @return A list of veterinarian maps, each with its document ID
+     */
+    private List<Map<String, Object>> snapshotOfDirectory() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : directory.entrySet()) {
+            result.add(copy(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Copies a list of veterinarian maps so each caller gets its own instances.
+     *
+     * @param vets The maps to copy
+     * @return A list of independent copies
+     */
+    private static List<Map<String, Object>> copyAll(List<Map<String, Object>> vets) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> vet : vets) {
+            result.add(new HashMap<>(vet));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of a cached veterinarian with its document ID.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param data The cached fields
+     * @return A copy of the fields with the document ID
+     */
+    private static Map<String, Object> copy(String vetId, Map<String, Object> data) {
+        Map<String, Object> result = new HashMap<>(data);
+        result.put(Documents.ID, vetId);
+        return result;
+    }
+}
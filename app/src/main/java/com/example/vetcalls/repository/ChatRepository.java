@@ -0,0 +1,93 @@
+package com.example.vetcalls.repository;
+
+import com.example.vetcalls.obj.Message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Data access for chats and their messages.
+ * Chat results are returned as stored document fields, with the document ID under "documentId".
+ *
+ * @author Ofek Levi
+ */
+public interface ChatRepository {
+
+    /**
+     * Loads every chat the user participates in.
+     *
+     * @param userId The user's unique identifier
+     * @param callback Callback receiving the chat documents
+     */
+    void getChatsForUser(String userId, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads a single chat document.
+     *
+     * @param chatId The chat's unique identifier
+     * @param callback Callback receiving the chat document, or null if it does not exist
+     */
+    void getChat(String chatId, DataCallback<Map<String, Object>> callback);
+
+    /**
+     * Creates or overwrites a chat document.
+     *
+     * @param chatId The chat's unique identifier
+     * @param data The chat fields
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    void createChat(String chatId, Map<String, Object> data, Runnable onSuccess, Consumer<String> onFailure);
+
+    /**
+     * Listens to the newest messages of a chat, in chronological order.
+     * Only the last {@code limit} messages are delivered, however long the chat is;
+     * older messages are loaded on demand with {@link #loadMessagesBefore}.
+     *
+     * @param chatId The chat's unique identifier
+     * @param limit The maximum number of messages to listen to
+     * @param callback Callback receiving the newest messages on every change
+     * @return Subscription that stops the listener when removed
+     */
+    Subscription listenToRecentMessages(String chatId, int limit, DataCallback<List<Message>> callback);
+
+    /**
+     * Loads the page of messages that comes right before the given message, in chronological order.
+     *
+     * @param chatId The chat's unique identifier
+     * @param oldest The oldest message already loaded; the page ends just before it
+     * @param limit The maximum number of messages to load
+     * @param callback Callback receiving the older messages, fewer than {@code limit} when the start of the chat is reached
+     */
+    void loadMessagesBefore(String chatId, Message oldest, int limit, DataCallback<List<Message>> callback);
+
+    /**
+     * Adds a message to a chat.
+     *
+     * @param chatId The chat's unique identifier
+     * @param message The message to add
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    void sendMessage(String chatId, Message message, Runnable onSuccess, Consumer<String> onFailure);
+
+    /**
+     * Updates the last message preview shown in the chat list.
+     *
+     * @param chatId The chat's unique identifier
+     * @param lastMessage The text of the last message
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    void updateLastMessage(String chatId, String lastMessage, Runnable onSuccess, Consumer<String> onFailure);
+
+    /**
+     * Updates the veterinarian's name and image on every chat the veterinarian takes part in.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param vetName The veterinarian's current name
+     * @param vetImageUrl The veterinarian's current image URL
+     */
+    void updateVetDetails(String vetId, String vetName, String vetImageUrl);
+}
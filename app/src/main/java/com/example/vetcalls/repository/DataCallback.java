@@ -0,0 +1,24 @@
+package com.example.vetcalls.repository;
+
+/**
+ * Callback for asynchronous repository reads.
+ *
+ * @param <T> The type of the loaded result
+ * @author Ofek Levi
+ */
+public interface DataCallback<T> {
+
+    /**
+     * Called when the data was loaded successfully.
+     *
+     * @param result The loaded result, may be null for a missing single document
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when loading failed.
+     *
+     * @param e The exception that caused the failure
+     */
+    void onFailure(Exception e);
+}
@@ -0,0 +1,50 @@
+package com.example.vetcalls.repository;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversions from Firestore snapshots to the plain maps returned by repositories.
+ *
+ * @author Ofek Levi
+ */
+final class Documents {
+
+    /** Key under which every returned map carries its document ID. */
+    static final String ID = "documentId";
+
+    private Documents() {}
+
+    /**
+     * Converts a document snapshot into a map of its fields plus its ID.
+     *
+     * @param doc The document snapshot
+     * @return Map of the document's fields, or null if the document does not exist
+     */
+    static Map<String, Object> toMap(DocumentSnapshot doc) {
+        if (doc == null || !doc.exists()) return null;
+        Map<String, Object> data = doc.getData() != null ? new HashMap<>(doc.getData()) : new HashMap<>();
+        data.put(ID, doc.getId());
+        return data;
+    }
+
+    /**
+     * Converts every document of a query result into a map.
+     *
+     * @param snapshot The query snapshot
+     * @return List of document maps in query order
+     */
+    static List<Map<String, Object>> toList(QuerySnapshot snapshot) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (snapshot == null) return result;
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            result.add(toMap(doc));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.vetcalls.repository;
+
+import com.example.vetcalls.obj.DogProfile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Data access for dog profiles.
+ * Results are returned as stored document fields, with the document ID under "documentId".
+ *
+ * @author Ofek Levi
+ */
+public interface DogRepository {
+
+    /**
+     * Loads the dog copies stored under a user's Dogs subcollection.
+     *
+     * @param ownerId The owner's unique identifier
+     * @param callback Callback receiving the list of dog documents
+     */
+    void getOwnerDogs(String ownerId, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads all dog profiles owned by a user from the DogProfiles collection.
+     *
+     * @param ownerId The owner's unique identifier
+     * @param callback Callback receiving the list of dog documents
+     */
+    void getDogsByOwner(String ownerId, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads all dog profiles assigned to a veterinarian.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param callback Callback receiving the list of dog documents
+     */
+    void getDogsByVet(String vetId, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads a single dog profile.
+     *
+     * @param dogId The dog's unique identifier
+     * @param callback Callback receiving the dog document, or null if it does not exist
+     */
+    void getDog(String dogId, DataCallback<Map<String, Object>> callback);
+
+    /**
+     * Loads several dog profiles by ID. Missing dogs are left out of the result.
+     *
+     * @param dogIds The dogs' unique identifiers
+     * @param callback Callback receiving the found dog documents
+     */
+    void getDogs(List<String> dogIds, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads those of several dog profiles whose "lastUpdated" is later than a watermark.
+     * Dogs that are missing or unchanged since the watermark are left out of the result.
+     *
+     * @param dogIds The dogs' unique identifiers
+     * @param since The watermark in epoch milliseconds
+     * @param callback Callback receiving the changed dog documents
+     */
+    void getDogsUpdatedSince(List<String> dogIds, long since, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Updates a dog profile and all of its denormalized copies.
+     *
+     * @param dogProfile The updated profile; null fields are left unchanged
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    void updateDog(DogProfile dogProfile, Runnable onSuccess, Consumer<String> onFailure);
+}
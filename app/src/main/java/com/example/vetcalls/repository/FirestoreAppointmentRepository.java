@@ -0,0 +1,153 @@
+package com.example.vetcalls.repository;
+
+import com.example.vetcalls.obj.AppointmentBooking;
+import com.example.vetcalls.obj.AppointmentFanOut;
+import com.example.vetcalls.obj.AppointmentTimes;
+import com.example.vetcalls.obj.FirestoreUserHelper;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Firestore implementation of {@link AppointmentRepository}.
+ * Bookings and deletions go through {@link AppointmentBooking} so they claim and release the veterinarian's
+ * slot lock in the same transaction as the copies; other writes go through {@link FirestoreUserHelper}.
+ *
+ * @author Ofek Levi
+ */
+public class FirestoreAppointmentRepository implements AppointmentRepository {
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Creates a repository on the given Firestore instance.
+     *
+     * @param db The Firestore instance
+     */
+    public FirestoreAppointmentRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Returns the appointments subcollection of a dog.
+     *
+     * @param dogId The dog's unique identifier
+     * @return The dog's Appointments collection
+     */
+    private CollectionReference dogAppointments(String dogId) {
+        return db.collection("DogProfiles").document(dogId).collection("Appointments");
+    }
+
+    @Override
+    public void getAppointment(String dogId, String appointmentId, DataCallback<Map<String, Object>> callback) {
+        dogAppointments(dogId).document(appointmentId).get()
+                .addOnSuccessListener(doc -> callback.onSuccess(Documents.toMap(doc)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getVetAppointmentsOnDate(String vetId, String date, DataCallback<List<Map<String, Object>>> callback) {
+        db.collection("Veterinarians").document(vetId).collection("Appointments")
+                .whereEqualTo("date", date)
+                .get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getDogAppointmentsOnDate(String dogId, String date, DataCallback<List<Map<String, Object>>> callback) {
+        dogAppointments(dogId).whereEqualTo("date", date).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getDogAppointments(String dogId, DataCallback<List<Map<String, Object>>> callback) {
+        dogAppointments(dogId).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getCompletedDogAppointments(String dogId, DataCallback<List<Map<String, Object>>> callback) {
+        dogAppointments(dogId).whereEqualTo("completed", true).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getVetAppointmentsBetween(String vetId, long fromMillis, long toMillis,
+                                          DataCallback<List<Map<String, Object>>> callback) {
+        startingBetween(db.collection("Veterinarians").document(vetId).collection("Appointments"), fromMillis, toMillis)
+                .get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getOwnerAppointmentsBetween(String ownerId, long fromMillis, long toMillis,
+                                            DataCallback<List<Map<String, Object>>> callback) {
+        startingBetween(ownerAppointments(ownerId), fromMillis, toMillis).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    /**
+     * Restricts a query to appointments starting within a range, ordered by start.
+     *
+     * @param query The appointments query
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, exclusive
+     * @return The range query
+     */
+    private static Query startingBetween(Query query, long fromMillis, long toMillis) {
+        return query.whereGreaterThanOrEqualTo(AppointmentTimes.START_AT, fromMillis)
+                .whereLessThan(AppointmentTimes.START_AT, toMillis)
+                .orderBy(AppointmentTimes.START_AT, Query.Direction.ASCENDING);
+    }
+
+    @Override
+    public void getCompletedOwnerAppointments(String ownerId, DataCallback<List<Map<String, Object>>> callback) {
+        ownerAppointments(ownerId).whereEqualTo("completed", true).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    /**
+     * Returns a collection-group query over the dogs' appointment copies of one owner.
+     * Veterinarians' appointment subcollections share the "Appointments" ID, so the query is
+     * restricted to dog copies by {@link AppointmentFanOut#COPY_FIELD} and reads each appointment once.
+     * Needs the collection-group indexes declared in firestore.indexes.json; copies written before the
+     * field existed get it from {@link com.example.vetcalls.obj.AppointmentTimestampMigration}.
+     *
+     * @param ownerId The owner's unique identifier
+     * @return The owner's appointments query
+     */
+    private Query ownerAppointments(String ownerId) {
+        return db.collectionGroup("Appointments")
+                .whereEqualTo(AppointmentFanOut.COPY_FIELD, AppointmentFanOut.DOG_COPY)
+                .whereEqualTo("ownerId", ownerId);
+    }
+
+    @Override
+    public void saveAppointment(String appointmentId, Map<String, Object> appointmentData, Map<String, Object> previousData,
+                                Runnable onSuccess, Consumer<String> onFailure) {
+        new AppointmentBooking(db).book(appointmentId, appointmentData, previousData, onSuccess, onFailure);
+    }
+
+    @Override
+    public void deleteAppointment(String appointmentId, String dogId, String vetId,
+                                  Runnable onSuccess, Consumer<String> onFailure) {
+        new AppointmentBooking(db).cancel(appointmentId, dogId, vetId, onSuccess, onFailure);
+    }
+
+    @Override
+    public void markCompleted(String appointmentId, String dogId, String vetId,
+                              Runnable onSuccess, Consumer<String> onFailure) {
+        FirestoreUserHelper.markAppointmentCompletedEverywhere(null, appointmentId, dogId, vetId, onSuccess, onFailure);
+    }
+}
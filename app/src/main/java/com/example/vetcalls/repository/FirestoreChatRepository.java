@@ -0,0 +1,177 @@
+package com.example.vetcalls.repository;
+
+import android.util.Log;
+
+import com.example.vetcalls.obj.Message;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Firestore implementation of {@link ChatRepository}.
+ *
+ * @author Ofek Levi
+ */
+public class FirestoreChatRepository implements ChatRepository {
+
+    private static final String TAG = "FirestoreChatRepository";
+
+    /** Firestore allows at most 500 operations in a single batch. */
+    private static final int MAX_BATCH_OPERATIONS = 500;
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Creates a repository on the given Firestore instance.
+     *
+     * @param db The Firestore instance
+     */
+    public FirestoreChatRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public void getChatsForUser(String userId, DataCallback<List<Map<String, Object>>> callback) {
+        db.collection("Chats").whereArrayContains("participants", userId).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getChat(String chatId, DataCallback<Map<String, Object>> callback) {
+        db.collection("Chats").document(chatId).get()
+                .addOnSuccessListener(doc -> callback.onSuccess(Documents.toMap(doc)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void createChat(String chatId, Map<String, Object> data, Runnable onSuccess, Consumer<String> onFailure) {
+        db.collection("Chats").document(chatId).set(data)
+                .addOnSuccessListener(aVoid -> {
+                    if (onSuccess != null) onSuccess.run();
+                })
+                .addOnFailureListener(e -> {
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+
+    @Override
+    public Subscription listenToRecentMessages(String chatId, int limit, DataCallback<List<Message>> callback) {
+        ListenerRegistration registration = chronological(messagesOf(chatId))
+                .limitToLast(limit)
+                .addSnapshotListener((snapshot, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "Error listening to messages", e);
+                        callback.onFailure(e);
+                        return;
+                    }
+                    if (snapshot == null) return;
+                    callback.onSuccess(toMessages(snapshot));
+                });
+        return registration::remove;
+    }
+
+    @Override
+    public void loadMessagesBefore(String chatId, Message oldest, int limit, DataCallback<List<Message>> callback) {
+        chronological(messagesOf(chatId))
+                .endBefore(oldest.getTimestamp(), oldest.getMessageId())
+                .limitToLast(limit)
+                .get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(toMessages(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void sendMessage(String chatId, Message message, Runnable onSuccess, Consumer<String> onFailure) {
+        messagesOf(chatId).add(message)
+                .addOnSuccessListener(documentReference -> {
+                    if (onSuccess != null) onSuccess.run();
+                })
+                .addOnFailureListener(e -> {
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+
+    @Override
+    public void updateLastMessage(String chatId, String lastMessage, Runnable onSuccess, Consumer<String> onFailure) {
+        Map<String, Object> lastMessageData = new HashMap<>();
+        lastMessageData.put("lastMessage", lastMessage);
+        lastMessageData.put("lastMessageTime", new Date());
+
+        db.collection("Chats").document(chatId).update(lastMessageData)
+                .addOnSuccessListener(aVoid -> {
+                    if (onSuccess != null) onSuccess.run();
+                })
+                .addOnFailureListener(e -> {
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+
+    /**
+     * Returns the messages collection of a chat.
+     *
+     * @param chatId The chat's unique identifier
+     * @return The chat's messages collection
+     */
+    private CollectionReference messagesOf(String chatId) {
+        return db.collection("Chats").document(chatId).collection("Messages");
+    }
+
+    /**
+     * Orders messages by time, breaking ties by document ID so page cursors are exact.
+     *
+     * @param messages The messages collection
+     * @return The ordered query
+     */
+    private static Query chronological(CollectionReference messages) {
+        return messages.orderBy("timestamp", Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
+    }
+
+    /**
+     * Converts query results into messages, keeping their document IDs.
+     *
+     * @param snapshot The query snapshot
+     * @return The messages in query order
+     */
+    private static List<Message> toMessages(QuerySnapshot snapshot) {
+        List<Message> messages = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : snapshot) {
+            messages.add(doc.toObject(Message.class));
+        }
+        return messages;
+    }
+
+    @Override
+    public void updateVetDetails(String vetId, String vetName, String vetImageUrl) {
+        db.collection("Chats").whereEqualTo("vetId", vetId).get()
+                .addOnSuccessListener(snapshot -> {
+                    List<DocumentSnapshot> vetChats = snapshot.getDocuments();
+                    for (int start = 0; start < vetChats.size(); start += MAX_BATCH_OPERATIONS) {
+                        WriteBatch batch = db.batch();
+                        int end = Math.min(start + MAX_BATCH_OPERATIONS, vetChats.size());
+                        for (DocumentSnapshot chatDoc : vetChats.subList(start, end)) {
+                            batch.update(chatDoc.getReference(), "vetName", vetName, "vetImageUrl", vetImageUrl);
+                        }
+                        int count = end - start;
+                        batch.commit()
+                                .addOnSuccessListener(aVoid -> Log.d(TAG, "Updated " + count + " chats for vet " + vetId))
+                                .addOnFailureListener(e -> Log.e(TAG, "Failed to update chats for vet " + vetId, e));
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to query chats for vet " + vetId, e));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.vetcalls.repository;
+
+import com.example.vetcalls.obj.DogProfile;
+import com.example.vetcalls.obj.DogProfilePropagator;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Firestore implementation of {@link DogRepository}.
+ *
+ * @author Ofek Levi
+ */
+public class FirestoreDogRepository implements DogRepository {
+
+    /** Maximum number of values Firestore accepts in a single whereIn filter. */
+    static final int WHERE_IN_LIMIT = 10;
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Creates a repository on the given Firestore instance.
+     *
+     * @param db The Firestore instance
+     */
+    public FirestoreDogRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public void getOwnerDogs(String ownerId, DataCallback<List<Map<String, Object>>> callback) {
+        db.collection("Users").document(ownerId).collection("Dogs").get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getDogsByOwner(String ownerId, DataCallback<List<Map<String, Object>>> callback) {
+        db.collection("DogProfiles").whereEqualTo("ownerId", ownerId).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getDogsByVet(String vetId, DataCallback<List<Map<String, Object>>> callback) {
+        db.collection("DogProfiles").whereEqualTo("vetId", vetId).get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getDog(String dogId, DataCallback<Map<String, Object>> callback) {
+        db.collection("DogProfiles").document(dogId).get()
+                .addOnSuccessListener(doc -> callback.onSuccess(Documents.toMap(doc)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getDogs(List<String> dogIds, DataCallback<List<Map<String, Object>>> callback) {
+        getDogsInChunks(dogIds, null, callback);
+    }
+
+    @Override
+    public void getDogsUpdatedSince(List<String> dogIds, long since, DataCallback<List<Map<String, Object>>> callback) {
+        getDogsInChunks(dogIds, since, callback);
+    }
+
+    /**
+     * Loads dog profiles by ID with one whereIn query per {@link #WHERE_IN_LIMIT} IDs.
+     *
+     * @param dogIds The dogs' unique identifiers
+     * @param since Only dogs whose "lastUpdated" is later than this are returned, or null for all of them
+     * @param callback Callback receiving the found dog documents
+     */
+    private void getDogsInChunks(List<String> dogIds, Long since, DataCallback<List<Map<String, Object>>> callback) {
+        if (dogIds.isEmpty()) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int start = 0; start < dogIds.size(); start += WHERE_IN_LIMIT) {
+            List<String> chunk = dogIds.subList(start, Math.min(start + WHERE_IN_LIMIT, dogIds.size()));
+            Query query = db.collection("DogProfiles")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk));
+            if (since != null) query = query.whereGreaterThan("lastUpdated", since);
+            chunks.add(query.get());
+        }
+        Tasks.whenAllSuccess(chunks)
+                .addOnSuccessListener(results -> {
+                    List<Map<String, Object>> dogs = new ArrayList<>();
+                    for (Object result : results) {
+                        dogs.addAll(Documents.toList((QuerySnapshot) result));
+                    }
+                    callback.onSuccess(dogs);
+                })
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void updateDog(DogProfile dogProfile, Runnable onSuccess, Consumer<String> onFailure) {
+        new DogProfilePropagator(db).propagate(dogProfile, onSuccess, onFailure);
+    }
+}
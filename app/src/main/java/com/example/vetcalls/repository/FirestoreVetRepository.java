@@ -0,0 +1,82 @@
+package com.example.vetcalls.repository;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Firestore implementation of {@link VetRepository}.
+ *
+ * @author Ofek Levi
+ */
+public class FirestoreVetRepository implements VetRepository {
+
+    private final FirebaseFirestore db;
+
+    /**
+     * Creates a repository on the given Firestore instance.
+     *
+     * @param db The Firestore instance
+     */
+    public FirestoreVetRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public void getAllVets(DataCallback<List<Map<String, Object>>> callback) {
+        db.collection("Veterinarians").get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(Documents.toList(snapshot)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getVet(String vetId, DataCallback<Map<String, Object>> callback) {
+        db.collection("Veterinarians").document(vetId).get()
+                .addOnSuccessListener(doc -> callback.onSuccess(Documents.toMap(doc)))
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void getVets(List<String> vetIds, DataCallback<List<Map<String, Object>>> callback) {
+        if (vetIds.isEmpty()) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int start = 0; start < vetIds.size(); start += FirestoreDogRepository.WHERE_IN_LIMIT) {
+            List<String> chunk = vetIds.subList(start, Math.min(start + FirestoreDogRepository.WHERE_IN_LIMIT, vetIds.size()));
+            chunks.add(db.collection("Veterinarians")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+        Tasks.whenAllSuccess(chunks)
+                .addOnSuccessListener(results -> {
+                    List<Map<String, Object>> vets = new ArrayList<>();
+                    for (Object result : results) {
+                        vets.addAll(Documents.toList((QuerySnapshot) result));
+                    }
+                    callback.onSuccess(vets);
+                })
+                .addOnFailureListener(callback::onFailure);
+    }
+
+    @Override
+    public void saveVetProfile(String vetId, Map<String, Object> fields, Runnable onSuccess, Consumer<String> onFailure) {
+        db.collection("Veterinarians").document(vetId)
+                .set(fields, SetOptions.merge())
+                .addOnSuccessListener(aVoid -> {
+                    if (onSuccess != null) onSuccess.run();
+                })
+                .addOnFailureListener(e -> {
+                    if (onFailure != null) onFailure.accept(e.getMessage());
+                });
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.vetcalls.repository;
+
+import com.example.vetcalls.obj.AppointmentBooking;
+import com.example.vetcalls.obj.AppointmentSlotIndex;
+import com.example.vetcalls.obj.AppointmentTimes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-memory implementation of {@link AppointmentRepository}.
+ * Keeps the dog and veterinarian copies of every appointment, like the Firestore layout,
+ * and answers synchronously without a network. Bookings are checked against the veterinarian's other
+ * appointments that day under the repository lock, which plays the role of the Firestore slot lock.
+ *
+ * @author Ofek Levi
+ */
+public class InMemoryAppointmentRepository implements AppointmentRepository {
+
+    private final Map<String, Map<String, Map<String, Object>>> dogAppointments = new HashMap<>();
+    private final Map<String, Map<String, Map<String, Object>>> vetAppointments = new HashMap<>();
+
+    /**
+     * Returns copies of the appointments in a collection that match a filter.
+     *
+     * @param appointments The appointments keyed by ID, may be null
+     * @param filter The filter to apply
+     * @return List of matching appointments
+     */
+    private static List<Map<String, Object>> select(Map<String, Map<String, Object>> appointments,
+                                                    Predicate<Map<String, Object>> filter) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (appointments == null) return result;
+        for (Map.Entry<String, Map<String, Object>> entry : appointments.entrySet()) {
+            if (filter.test(entry.getValue())) {
+                Map<String, Object> copy = new HashMap<>(entry.getValue());
+                copy.put(Documents.ID, entry.getKey());
+                result.add(copy);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void getAppointment(String dogId, String appointmentId, DataCallback<Map<String, Object>> callback) {
+        Map<String, Map<String, Object>> dogCopies = dogAppointments.get(dogId);
+        Map<String, Object> appointment = dogCopies != null ? dogCopies.get(appointmentId) : null;
+        if (appointment == null) {
+            callback.onSuccess(null);
+            return;
+        }
+        Map<String, Object> copy = new HashMap<>(appointment);
+        copy.put(Documents.ID, appointmentId);
+        callback.onSuccess(copy);
+    }
+
+    @Override
+    public synchronized void getVetAppointmentsOnDate(String vetId, String date, DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(select(vetAppointments.get(vetId), a -> date.equals(a.get("date"))));
+    }
+
+    @Override
+    public synchronized void getDogAppointmentsOnDate(String dogId, String date, DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(select(dogAppointments.get(dogId), a -> date.equals(a.get("date"))));
+    }
+
+    @Override
+    public synchronized void getDogAppointments(String dogId, DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(select(dogAppointments.get(dogId), a -> true));
+    }
+
+    @Override
+    public synchronized void getCompletedDogAppointments(String dogId, DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(select(dogAppointments.get(dogId), a -> Boolean.TRUE.equals(a.get("completed"))));
+    }
+
+    @Override
+    public synchronized void getVetAppointmentsBetween(String vetId, long fromMillis, long toMillis,
+                                                       DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(byStart(select(vetAppointments.get(vetId), a -> startsBetween(a, fromMillis, toMillis))));
+    }
+
+    @Override
+    public synchronized void getOwnerAppointmentsBetween(String ownerId, long fromMillis, long toMillis,
+                                                         DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(byStart(selectFromAllDogs(a -> ownerId.equals(a.get("ownerId")) && startsBetween(a, fromMillis, toMillis))));
+    }
+
+    /**
+     * Checks whether an appointment starts within a range.
+     *
+     * @param appointment The appointment fields
+     * @param fromMillis Start of the range, inclusive
+     * @param toMillis End of the range, exclusive
+     * @return True if the appointment's "startAt" lies in the range
+     */
+    private static boolean startsBetween(Map<String, Object> appointment, long fromMillis, long toMillis) {
+        Object startAt = appointment.get(AppointmentTimes.START_AT);
+        if (!(startAt instanceof Number)) return false;
+        long start = ((Number) startAt).longValue();
+        return start >= fromMillis && start < toMillis;
+    }
+
+    /**
+     * Sorts appointments by start, like an orderBy on "startAt".
+     *
+     * @param appointments The appointments to sort
+     * @return The same list, sorted
+     */
+    private static List<Map<String, Object>> byStart(List<Map<String, Object>> appointments) {
+        appointments.sort((a, b) -> Long.compare(AppointmentTimes.startAtOf(a), AppointmentTimes.startAtOf(b)));
+        return appointments;
+    }
+
+    @Override
+    public synchronized void getCompletedOwnerAppointments(String ownerId, DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(selectFromAllDogs(a -> ownerId.equals(a.get("ownerId")) && Boolean.TRUE.equals(a.get("completed"))));
+    }
+
+    /**
+     * Returns copies of the dog appointments across all dogs that match a filter,
+     * like a collection-group query over the dogs' appointment collections.
+     *
+     * @param filter The filter to apply
+     * @return List of matching appointments
+     */
+    private List<Map<String, Object>> selectFromAllDogs(Predicate<Map<String, Object>> filter) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Map<String, Object>> appointments : dogAppointments.values()) {
+            result.addAll(select(appointments, filter));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void saveAppointment(String appointmentId, Map<String, Object> appointmentData,
+                                             Map<String, Object> previousData,
+                                             Runnable onSuccess, Consumer<String> onFailure) {
+        appointmentData = AppointmentTimes.withTimestamps(appointmentData);
+        String dogId = (String) appointmentData.get("dogId");
+        String vetId = (String) appointmentData.get("vetId");
+        Object date = appointmentData.get("date");
+
+        int start = AppointmentSlotIndex.parseMinutes(appointmentData.get("startTime"));
+        int end = AppointmentSlotIndex.parseMinutes(appointmentData.get("endTime"));
+        if (start >= 0 && end > start) {
+            List<Map<String, Object>> sameDay = select(vetAppointments.get(vetId), a -> date != null && date.equals(a.get("date")));
+            if (AppointmentSlotIndex.fromAppointments(sameDay, appointmentId).findConflict(start, end - start) != null) {
+                if (onFailure != null) onFailure.accept(AppointmentBooking.SLOT_TAKEN);
+                return;
+            }
+        }
+
+        if (previousData != null) {
+            String previousDogId = (String) previousData.get("dogId");
+            String previousVetId = (String) previousData.get("vetId");
+            Map<String, Map<String, Object>> previousDogCopies = dogAppointments.get(previousDogId);
+            if (previousDogCopies != null && !previousDogId.equals(dogId)) previousDogCopies.remove(appointmentId);
+            Map<String, Map<String, Object>> previousVetCopies = vetAppointments.get(previousVetId);
+            if (previousVetCopies != null && !previousVetId.equals(vetId)) previousVetCopies.remove(appointmentId);
+        }
+        if (dogId != null && !dogId.isEmpty()) {
+            dogAppointments.computeIfAbsent(dogId, k -> new LinkedHashMap<>()).put(appointmentId, new HashMap<>(appointmentData));
+        }
+        if (vetId != null && !vetId.isEmpty()) {
+            vetAppointments.computeIfAbsent(vetId, k -> new LinkedHashMap<>()).put(appointmentId, new HashMap<>(appointmentData));
+        }
+        if (onSuccess != null) onSuccess.run();
+    }
+
+    @Override
+    public synchronized void deleteAppointment(String appointmentId, String dogId, String vetId,
+                                               Runnable onSuccess, Consumer<String> onFailure) {
+        Map<String, Map<String, Object>> dogCopies = dogAppointments.get(dogId);
+        if (dogCopies != null) dogCopies.remove(appointmentId);
+        Map<String, Map<String, Object>> vetCopies = vetAppointments.get(vetId);
+        if (vetCopies != null) vetCopies.remove(appointmentId);
+        if (onSuccess != null) onSuccess.run();
+    }
+
+    @Override
+    public synchronized void markCompleted(String appointmentId, String dogId, String vetId,
+                                           Runnable onSuccess, Consumer<String> onFailure) {
+        Map<String, Map<String, Object>> dogCopies = dogAppointments.get(dogId);
+        Map<String, Map<String, Object>> vetCopies = vetAppointments.get(vetId);
+        if (dogCopies == null || !dogCopies.containsKey(appointmentId)
+                || vetCopies == null || !vetCopies.containsKey(appointmentId)) {
+            if (onFailure != null) onFailure.accept("Appointment not found: " + appointmentId);
+            return;
+        }
+        dogCopies.get(appointmentId).put("completed", true);
+        vetCopies.get(appointmentId).put("completed", true);
+        if (onSuccess != null) onSuccess.run();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.vetcalls.repository;
+
+import com.example.vetcalls.obj.Message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * In-memory implementation of {@link ChatRepository}.
+ * Answers synchronously without a network, and notifies message listeners on every send.
+ *
+ * @author Ofek Levi
+ */
+public class InMemoryChatRepository implements ChatRepository {
+
+    private final Map<String, Map<String, Object>> chats = new LinkedHashMap<>();
+    private final Map<String, List<Message>> messages = new HashMap<>();
+    private final Map<String, List<MessageListener>> listeners = new HashMap<>();
+
+    /** Orders messages by time, then by ID, like the Firestore queries. */
+    private static final Comparator<Message> CHRONOLOGICAL = (a, b) -> {
+        Date first = a.getTimestamp();
+        Date second = b.getTimestamp();
+        int byTime = (first == null || second == null) ? 0 : first.compareTo(second);
+        if (byTime != 0) return byTime;
+        String firstId = a.getMessageId() != null ? a.getMessageId() : "";
+        String secondId = b.getMessageId() != null ? b.getMessageId() : "";
+        return firstId.compareTo(secondId);
+    };
+
+    /**
+     * A registered message listener and the size of its window.
+     */
+    private static class MessageListener {
+        final int limit;
+        final DataCallback<List<Message>> callback;
+
+        /**
+         * Creates a listener entry.
+         *
+         * @param limit The maximum number of newest messages to deliver
+         * @param callback The callback to notify
+         */
+        MessageListener(int limit, DataCallback<List<Message>> callback) {
+            this.limit = limit;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Returns a copy of a stored chat with its document ID.
+     *
+     * @param chatId The chat's unique identifier
+     * @param data The stored fields
+     * @return A copy of the fields with the document ID
+     */
+    private static Map<String, Object> copy(String chatId, Map<String, Object> data) {
+        Map<String, Object> result = new HashMap<>(data);
+        result.put(Documents.ID, chatId);
+        return result;
+    }
+
+    @Override
+    public synchronized void getChatsForUser(String userId, DataCallback<List<Map<String, Object>>> callback) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : chats.entrySet()) {
+            Object participants = entry.getValue().get("participants");
+            if (participants instanceof Collection && ((Collection<?>) participants).contains(userId)) {
+                result.add(copy(entry.getKey(), entry.getValue()));
+            }
+        }
+        callback.onSuccess(result);
+    }
+
+    @Override
+    public synchronized void getChat(String chatId, DataCallback<Map<String, Object>> callback) {
+        Map<String, Object> chat = chats.get(chatId);
+        callback.onSuccess(chat != null ? copy(chatId, chat) : null);
+    }
+
+    @Override
+    public synchronized void createChat(String chatId, Map<String, Object> data, Runnable onSuccess, Consumer<String> onFailure) {
+        chats.put(chatId, new HashMap<>(data));
+        if (onSuccess != null) onSuccess.run();
+    }
+
+    @Override
+    public synchronized Subscription listenToRecentMessages(String chatId, int limit, DataCallback<List<Message>> callback) {
+        MessageListener listener = new MessageListener(limit, callback);
+        listeners.computeIfAbsent(chatId, k -> new ArrayList<>()).add(listener);
+        callback.onSuccess(lastMessages(messagesOf(chatId), limit));
+        return () -> {
+            synchronized (InMemoryChatRepository.this) {
+                List<MessageListener> chatListeners = listeners.get(chatId);
+                if (chatListeners != null) chatListeners.remove(listener);
+            }
+        };
+    }
+
+    @Override
+    public synchronized void loadMessagesBefore(String chatId, Message oldest, int limit, DataCallback<List<Message>> callback) {
+        List<Message> older = new ArrayList<>();
+        for (Message message : messagesOf(chatId)) {
+            if (CHRONOLOGICAL.compare(message, oldest) < 0) older.add(message);
+        }
+        callback.onSuccess(lastMessages(older, limit));
+    }
+
+    @Override
+    public synchronized void sendMessage(String chatId, Message message, Runnable onSuccess, Consumer<String> onFailure) {
+        if (message.getMessageId() == null) message.setMessageId(UUID.randomUUID().toString());
+        List<Message> chatMessages = messagesOf(chatId);
+        chatMessages.add(message);
+        chatMessages.sort(CHRONOLOGICAL);
+        List<MessageListener> chatListeners = listeners.get(chatId);
+        if (chatListeners != null) {
+            for (MessageListener listener : new ArrayList<>(chatListeners)) {
+                listener.callback.onSuccess(lastMessages(chatMessages, listener.limit));
+            }
+        }
+        if (onSuccess != null) onSuccess.run();
+    }
+
+    @Override
+    public synchronized void updateLastMessage(String chatId, String lastMessage, Runnable onSuccess, Consumer<String> onFailure) {
+        Map<String, Object> chat = chats.get(chatId);
+        if (chat == null) {
+            if (onFailure != null) onFailure.accept("Chat not found: " + chatId);
+            return;
+        }
+        chat.put("lastMessage", lastMessage);
+        chat.put("lastMessageTime", new Date());
+        if (onSuccess != null) onSuccess.run();
+    }
+
+    @Override
+    public synchronized void updateVetDetails(String vetId, String vetName, String vetImageUrl) {
+        for (Map<String, Object> chat : chats.values()) {
+            if (vetId.equals(chat.get("vetId"))) {
+                chat.put("vetName", vetName);
+                chat.put("vetImageUrl", vetImageUrl);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the newest messages of a chronological list.
+     *
+     * @param messages The messages in chronological order
+     * @param limit The maximum number of messages to return
+     * @return The last {@code limit} messages
+     */
+    private static List<Message> lastMessages(List<Message> messages, int limit) {
+        return new ArrayList<>(messages.subList(Math.max(0, messages.size() - limit), messages.size()));
+    }
+
+    /**
+     * Returns the stored message list of a chat, creating it if needed.
+     *
+     * @param chatId The chat's unique identifier
+     * @return The chat's messages in chronological order
+     */
+    private List<Message> messagesOf(String chatId) {
+        return messages.computeIfAbsent(chatId, k -> new ArrayList<>());
+    }
+}
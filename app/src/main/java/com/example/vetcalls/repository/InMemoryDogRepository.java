@@ -0,0 +1,160 @@
+package com.example.vetcalls.repository;
+
+import com.example.vetcalls.obj.DogProfile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * In-memory implementation of {@link DogRepository}.
+ * Answers synchronously without a network, for local benchmarks and offline experiments.
+ *
+ * @author Ofek Levi
+ */
+public class InMemoryDogRepository implements DogRepository {
+
+    private final Map<String, Map<String, Object>> dogProfiles = new LinkedHashMap<>();
+    private final Map<String, Map<String, Map<String, Object>>> ownerDogs = new HashMap<>();
+
+    /**
+     * Stores a dog profile and its copy under the owner.
+     *
+     * @param dogId The dog's unique identifier
+     * @param data The dog's fields; the "ownerId" field decides where the owner copy goes
+     */
+    public synchronized void putDog(String dogId, Map<String, Object> data) {
+        Map<String, Object> stored = new HashMap<>(data);
+        stored.put("dogId", dogId);
+        dogProfiles.put(dogId, stored);
+
+        Object ownerId = stored.get("ownerId");
+        if (ownerId instanceof String) {
+            ownerDogs.computeIfAbsent((String) ownerId, k -> new LinkedHashMap<>()).put(dogId, new HashMap<>(stored));
+        }
+    }
+
+    /**
+     * Copies a stored document and adds its ID.
+     *
+     * @param id The document ID
+     * @param data The stored fields
+     * @return A copy of the fields with the document ID
+     */
+    private static Map<String, Object> copy(String id, Map<String, Object> data) {
+        Map<String, Object> result = new HashMap<>(data);
+        result.put(Documents.ID, id);
+        return result;
+    }
+
+    /**
+     * Returns copies of every dog profile whose field equals the given value.
+     *
+     * @param field The field to filter on
+     * @param value The value to match
+     * @return List of matching dog documents
+     */
+    private List<Map<String, Object>> where(String field, String value) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : dogProfiles.entrySet()) {
+            if (value != null && value.equals(entry.getValue().get(field))) {
+                result.add(copy(entry.getKey(), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void getOwnerDogs(String ownerId, DataCallback<List<Map<String, Object>>> callback) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        Map<String, Map<String, Object>> dogs = ownerDogs.get(ownerId);
+        if (dogs != null) {
+            for (Map.Entry<String, Map<String, Object>> entry : dogs.entrySet()) {
+                result.add(copy(entry.getKey(), entry.getValue()));
+            }
+        }
+        callback.onSuccess(result);
+    }
+
+    @Override
+    public synchronized void getDogsByOwner(String ownerId, DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(where("ownerId", ownerId));
+    }
+
+    @Override
+    public synchronized void getDogsByVet(String vetId, DataCallback<List<Map<String, Object>>> callback) {
+        callback.onSuccess(where("vetId", vetId));
+    }
+
+    @Override
+    public synchronized void getDog(String dogId, DataCallback<Map<String, Object>> callback) {
+        Map<String, Object> dog = dogProfiles.get(dogId);
+        callback.onSuccess(dog != null ? copy(dogId, dog) : null);
+    }
+
+    @Override
+    public synchronized void getDogs(List<String> dogIds, DataCallback<List<Map<String, Object>>> callback) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String dogId : dogIds) {
+            Map<String, Object> dog = dogProfiles.get(dogId);
+            if (dog != null) result.add(copy(dogId, dog));
+        }
+        callback.onSuccess(result);
+    }
+
+    @Override
+    public synchronized void getDogsUpdatedSince(List<String> dogIds, long since, DataCallback<List<Map<String, Object>>> callback) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String dogId : dogIds) {
+            Map<String, Object> dog = dogProfiles.get(dogId);
+            Object lastUpdated = dog != null ? dog.get("lastUpdated") : null;
+            if (lastUpdated instanceof Number && ((Number) lastUpdated).longValue() > since) result.add(copy(dogId, dog));
+        }
+        callback.onSuccess(result);
+    }
+
+    @Override
+    public synchronized void updateDog(DogProfile dogProfile, Runnable onSuccess, Consumer<String> onFailure) {
+        if (dogProfile == null || dogProfile.dogId == null) {
+            if (onFailure != null) onFailure.accept("Missing dog ID");
+            return;
+        }
+        Map<String, Object> merged = new HashMap<>();
+        Map<String, Object> existing = dogProfiles.get(dogProfile.dogId);
+        if (existing != null) merged.putAll(existing);
+
+        putIfPresent(merged, "name", dogProfile.name);
+        putIfPresent(merged, "age", dogProfile.age);
+        putIfPresent(merged, "bio", dogProfile.bio);
+        putIfPresent(merged, "profileImageUrl", dogProfile.profileImageUrl);
+        putIfPresent(merged, "profileImageMediumUrl", dogProfile.profileImageMediumUrl);
+        putIfPresent(merged, "profileImageThumbUrl", dogProfile.profileImageThumbUrl);
+        putIfPresent(merged, "race", dogProfile.race);
+        putIfPresent(merged, "birthday", dogProfile.birthday);
+        putIfPresent(merged, "weight", dogProfile.weight);
+        putIfPresent(merged, "allergies", dogProfile.allergies);
+        putIfPresent(merged, "vaccines", dogProfile.vaccines);
+        putIfPresent(merged, "ownerId", dogProfile.ownerId);
+        putIfPresent(merged, "vetId", dogProfile.vetId);
+        putIfPresent(merged, "vetName", dogProfile.vetName);
+        if (dogProfile.lastVetChange != 0) merged.put("lastVetChange", dogProfile.lastVetChange);
+        merged.put("lastUpdated", dogProfile.lastUpdated);
+
+        putDog(dogProfile.dogId, merged);
+        if (onSuccess != null) onSuccess.run();
+    }
+
+    /**
+     * Adds a value to the map if it is not null.
+     *
+     * @param fields The map to add to
+     * @param key The field name
+     * @param value The field value
+     */
+    private static void putIfPresent(Map<String, Object> fields, String key, Object value) {
+        if (value != null) fields.put(key, value);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.vetcalls.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * In-memory implementation of {@link VetRepository}.
+ * Answers synchronously without a network.
+ *
+ * @author Ofek Levi
+ */
+public class InMemoryVetRepository implements VetRepository {
+
+    private final Map<String, Map<String, Object>> vets = new LinkedHashMap<>();
+
+    /**
+     * Returns a copy of a stored veterinarian with its document ID.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param data The stored fields
+     * @return A copy of the fields with the document ID
+     */
+    private static Map<String, Object> copy(String vetId, Map<String, Object> data) {
+        Map<String, Object> result = new HashMap<>(data);
+        result.put(Documents.ID, vetId);
+        return result;
+    }
+
+    @Override
+    public synchronized void getAllVets(DataCallback<List<Map<String, Object>>> callback) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : vets.entrySet()) {
+            result.add(copy(entry.getKey(), entry.getValue()));
+        }
+        callback.onSuccess(result);
+    }
+
+    @Override
+    public synchronized void getVet(String vetId, DataCallback<Map<String, Object>> callback) {
+        Map<String, Object> vet = vets.get(vetId);
+        callback.onSuccess(vet != null ? copy(vetId, vet) : null);
+    }
+
+    @Override
+    public synchronized void getVets(List<String> vetIds, DataCallback<List<Map<String, Object>>> callback) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String vetId : vetIds) {
+            Map<String, Object> vet = vets.get(vetId);
+            if (vet != null) result.add(copy(vetId, vet));
+        }
+        callback.onSuccess(result);
+    }
+
+    @Override
+    public synchronized void saveVetProfile(String vetId, Map<String, Object> fields, Runnable onSuccess, Consumer<String> onFailure) {
+        vets.computeIfAbsent(vetId, k -> new HashMap<>()).putAll(fields);
+        if (onSuccess != null) onSuccess.run();
+    }
+}
@@ -0,0 +1,499 @@
+package com.example.vetcalls.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.vetcalls.obj.AppointmentTimes;
+import com.example.vetcalls.obj.ChatPreview;
+import com.example.vetcalls.obj.DogProfile;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * On-device SQLite cache of the data screens show first: dogs, veterinarian profiles, appointments
+ * and chat previews. Each kind of record has its own table, indexed on the columns screens look records
+ * up by, and is written one row at a time, so saving a changed dog or appointment touches only that row
+ * instead of re-serializing a whole list.
+ * <p>
+ * Screens render from the store as soon as they open and then refresh from Firestore, writing what
+ * they load back here. All database work runs on one background thread; reads deliver their results
+ * on the main thread.
+ *
+ * @author Ofek Levi
+ */
+public class LocalStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "LocalStore";
+    private static final String DATABASE_NAME = "vetcalls_cache.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String DOGS = "dogs";
+    private static final String VETS = "vets";
+    private static final String APPOINTMENTS = "appointments";
+    private static final String CHAT_PREVIEWS = "chat_previews";
+
+    /** Veterinarian profile fields kept in the vets table, by column name. */
+    private static final String[] VET_FIELDS = {"fullName", "email", "phoneNumber", "clinicAddress",
+            "workHoursFirstPart", "workHoursSecondPart", "workHoursThirdPart", "profileImageUrl",
+            "profileImageMediumUrl", "profileImageThumbUrl"};
+
+    /** Appointment text fields kept in the appointments table, by column name. */
+    private static final String[] APPOINTMENT_FIELDS = {"dogId", "vetId", "ownerId", "date", "startTime",
+            "endTime", "type", "dogName", "vetName", "notes"};
+
+    private static LocalStore instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Returns the process-wide store, opening it on first use.
+     *
+     * @param context Any context; the application context is used
+     * @return The store
+     */
+    public static synchronized LocalStore get(Context context) {
+        if (instance == null) instance = new LocalStore(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * Creates the store on the application's cache database.
+     *
+     * @param context The application context
+     */
+    private LocalStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Creates the tables and their lookup indexes.
+     *
+     * @param db The database
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + DOGS + " (dogId TEXT PRIMARY KEY, ownerId TEXT, vetId TEXT, name TEXT, age TEXT, "
+                + "bio TEXT, profileImageUrl TEXT, profileImageMediumUrl TEXT, profileImageThumbUrl TEXT, race TEXT, birthday TEXT, weight TEXT, allergies TEXT, vaccines TEXT, "
+                + "lastUpdated INTEGER)");
+        db.execSQL("CREATE INDEX dogs_owner ON " + DOGS + " (ownerId)");
+
+        db.execSQL("CREATE TABLE " + VETS + " (vetId TEXT PRIMARY KEY, fullName TEXT, email TEXT, phoneNumber TEXT, "
+                + "clinicAddress TEXT, workHoursFirstPart TEXT, workHoursSecondPart TEXT, workHoursThirdPart TEXT, "
+                + "profileImageUrl TEXT, profileImageMediumUrl TEXT, profileImageThumbUrl TEXT)");
+
+        db.execSQL("CREATE TABLE " + APPOINTMENTS + " (appointmentId TEXT PRIMARY KEY, dogId TEXT, vetId TEXT, ownerId TEXT, "
+                + "date TEXT, startTime TEXT, endTime TEXT, type TEXT, dogName TEXT, vetName TEXT, notes TEXT, "
+                + "startAt INTEGER, endAt INTEGER, completed INTEGER)");
+        db.execSQL("CREATE INDEX appointments_vet_start ON " + APPOINTMENTS + " (vetId, startAt)");
+        db.execSQL("CREATE INDEX appointments_owner_start ON " + APPOINTMENTS + " (ownerId, startAt)");
+
+        db.execSQL("CREATE TABLE " + CHAT_PREVIEWS + " (chatId TEXT, userId TEXT, displayName TEXT, imageUrl TEXT, "
+                + "lastMessage TEXT, lastMessageTime INTEGER, position INTEGER, PRIMARY KEY (userId, chatId))");
+    }
+
+    /**
+     * Rebuilds the cache when its schema changes; everything in it can be loaded again.
+     *
+     * @param db The database
+     * @param oldVersion The schema version on disk
+     * @param newVersion The current schema version
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (String table : new String[]{DOGS, VETS, APPOINTMENTS, CHAT_PREVIEWS}) {
+            db.execSQL("DROP TABLE IF EXISTS " + table);
+        }
+        onCreate(db);
+    }
+
+    /**
+     * Loads the dogs of an owner.
+     *
+     * @param ownerId The owner's unique identifier
+     * @param onLoaded Callback receiving the cached dogs on the main thread, empty if none are cached
+     */
+    public void loadOwnerDogs(String ownerId, Consumer<List<DogProfile>> onLoaded) {
+        read(() -> {
+            List<DogProfile> dogs = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query(DOGS, null, "ownerId = ?", new String[]{ownerId},
+                    null, null, "rowid")) {
+                while (cursor.moveToNext()) dogs.add(dogFrom(cursor));
+            }
+            return dogs;
+        }, onLoaded);
+    }
+
+    /**
+     * Inserts or updates one dog.
+     *
+     * @param dog The dog profile
+     */
+    public void upsertDog(DogProfile dog) {
+        if (dog == null || dog.dogId == null) return;
+        write(db -> db.insertWithOnConflict(DOGS, null, valuesOf(dog), SQLiteDatabase.CONFLICT_REPLACE));
+    }
+
+    /**
+     * Makes the cached dogs of an owner match a freshly loaded list: listed dogs are inserted or updated
+     * and dogs no longer listed are removed, in one transaction.
+     *
+     * @param ownerId The owner's unique identifier
+     * @param dogs The owner's current dogs
+     */
+    public void replaceOwnerDogs(String ownerId, List<DogProfile> dogs) {
+        List<DogProfile> snapshot = new ArrayList<>(dogs);
+        write(db -> {
+            Set<String> keep = new HashSet<>();
+            for (DogProfile dog : snapshot) {
+                if (dog.dogId == null) continue;
+                keep.add(dog.dogId);
+                db.insertWithOnConflict(DOGS, null, valuesOf(dog), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            try (Cursor cursor = db.query(DOGS, new String[]{"dogId"}, "ownerId = ?", new String[]{ownerId},
+                    null, null, null)) {
+                while (cursor.moveToNext()) {
+                    String dogId = cursor.getString(0);
+                    if (!keep.contains(dogId)) db.delete(DOGS, "dogId = ?", new String[]{dogId});
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads a veterinarian's profile.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param onLoaded Callback receiving the cached profile fields on the main thread, or null if not cached
+     */
+    public void loadVet(String vetId, Consumer<Map<String, Object>> onLoaded) {
+        read(() -> {
+            try (Cursor cursor = getReadableDatabase().query(VETS, null, "vetId = ?", new String[]{vetId},
+                    null, null, null)) {
+                if (!cursor.moveToFirst()) return null;
+                Map<String, Object> vet = new HashMap<>();
+                for (String field : VET_FIELDS) vet.put(field, cursor.getString(cursor.getColumnIndexOrThrow(field)));
+                return vet;
+            }
+        }, onLoaded);
+    }
+
+    /**
+     * Inserts or updates a veterinarian's profile. Fields missing from the map keep their cached value.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param fields The profile fields
+     */
+    public void upsertVet(String vetId, Map<String, Object> fields) {
+        if (vetId == null || fields == null) return;
+        ContentValues values = new ContentValues();
+        for (String field : VET_FIELDS) {
+            if (fields.containsKey(field)) values.put(field, stringOf(fields.get(field)));
+        }
+        write(db -> {
+            if (db.update(VETS, values, "vetId = ?", new String[]{vetId}) == 0) {
+                values.put("vetId", vetId);
+                db.insert(VETS, null, values);
+            }
+        });
+    }
+
+    /**
+     * Loads a veterinarian's appointments starting in a range.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, exclusive
+     * @param onLoaded Callback receiving the cached appointments ordered by start, on the main thread
+     */
+    public void loadVetAppointmentsBetween(String vetId, long fromMillis, long toMillis, Consumer<List<Map<String, Object>>> onLoaded) {
+        loadAppointmentsBetween("vetId", vetId, fromMillis, toMillis, onLoaded);
+    }
+
+    /**
+     * Loads an owner's appointments starting in a range.
+     *
+     * @param ownerId The owner's unique identifier
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, exclusive
+     * @param onLoaded Callback receiving the cached appointments ordered by start, on the main thread
+     */
+    public void loadOwnerAppointmentsBetween(String ownerId, long fromMillis, long toMillis, Consumer<List<Map<String, Object>>> onLoaded) {
+        loadAppointmentsBetween("ownerId", ownerId, fromMillis, toMillis, onLoaded);
+    }
+
+    /**
+     * Makes the cached appointments of a user in a range match a freshly loaded list, in one transaction.
+     *
+     * @param isVet true to replace a veterinarian's appointments, false for an owner's
+     * @param userId The user's unique identifier
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, exclusive
+     * @param appointments The appointments loaded for the range
+     */
+    public void replaceAppointmentsBetween(boolean isVet, String userId, long fromMillis, long toMillis,
+                                           List<Map<String, Object>> appointments) {
+        List<ContentValues> rows = new ArrayList<>();
+        for (Map<String, Object> appointment : appointments) {
+            ContentValues values = valuesOfAppointment(appointment);
+            if (values != null) rows.add(values);
+        }
+        String userColumn = isVet ? "vetId" : "ownerId";
+        write(db -> {
+            db.delete(APPOINTMENTS, userColumn + " = ? AND startAt >= ? AND startAt < ?",
+                    new String[]{userId, String.valueOf(fromMillis), String.valueOf(toMillis)});
+            for (ContentValues values : rows) {
+                db.insertWithOnConflict(APPOINTMENTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    /**
+     * Loads a user's chat previews.
+     *
+     * @param userId The user's unique identifier
+     * @param onLoaded Callback receiving the cached previews in their last displayed order, on the main thread
+     */
+    public void loadChatPreviews(String userId, Consumer<List<ChatPreview>> onLoaded) {
+        read(() -> {
+            List<ChatPreview> previews = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query(CHAT_PREVIEWS, null, "userId = ?", new String[]{userId},
+                    null, null, "position")) {
+                while (cursor.moveToNext()) {
+                    int time = cursor.getColumnIndexOrThrow("lastMessageTime");
+                    previews.add(new ChatPreview(
+                            cursor.getString(cursor.getColumnIndexOrThrow("chatId")),
+                            cursor.getString(cursor.getColumnIndexOrThrow("displayName")),
+                            cursor.getString(cursor.getColumnIndexOrThrow("imageUrl")),
+                            cursor.getString(cursor.getColumnIndexOrThrow("lastMessage")),
+                            cursor.isNull(time) ? null : new Date(cursor.getLong(time))));
+                }
+            }
+            return previews;
+        }, onLoaded);
+    }
+
+    /**
+     * Replaces a user's cached chat previews, in one transaction.
+     *
+     * @param userId The user's unique identifier
+     * @param previews The previews in display order
+     */
+    public void replaceChatPreviews(String userId, List<ChatPreview> previews) {
+        List<ContentValues> rows = new ArrayList<>();
+        for (int i = 0; i < previews.size(); i++) {
+            ChatPreview preview = previews.get(i);
+            if (preview.chatId == null) continue;
+            ContentValues values = new ContentValues();
+            values.put("chatId", preview.chatId);
+            values.put("userId", userId);
+            values.put("displayName", preview.displayName);
+            values.put("imageUrl", preview.imageUrl);
+            values.put("lastMessage", preview.lastMessage);
+            values.put("lastMessageTime", preview.lastMessageTime != null ? preview.lastMessageTime.getTime() : null);
+            values.put("position", i);
+            rows.add(values);
+        }
+        write(db -> {
+            db.delete(CHAT_PREVIEWS, "userId = ?", new String[]{userId});
+            for (ContentValues values : rows) db.insert(CHAT_PREVIEWS, null, values);
+        });
+    }
+
+    /**
+     * Drops everything cached, for example when another user signs in on the device.
+     */
+    public void clear() {
+        write(db -> {
+            for (String table : new String[]{DOGS, VETS, APPOINTMENTS, CHAT_PREVIEWS}) {
+                db.delete(table, null, null);
+            }
+        });
+    }
+
+    /**
+     * Loads a user's appointments starting in a range.
+     *
+     * @param userColumn The column matching the user, "vetId" or "ownerId"
+     * @param userId The user's unique identifier
+     * @param fromMillis Start of the range in epoch milliseconds, inclusive
+     * @param toMillis End of the range in epoch milliseconds, exclusive
+     * @param onLoaded Callback receiving the cached appointments ordered by start, on the main thread
+     */
+    private void loadAppointmentsBetween(String userColumn, String userId, long fromMillis, long toMillis,
+                                         Consumer<List<Map<String, Object>>> onLoaded) {
+        read(() -> {
+            List<Map<String, Object>> appointments = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().query(APPOINTMENTS, null,
+                    userColumn + " = ? AND startAt >= ? AND startAt < ?",
+                    new String[]{userId, String.valueOf(fromMillis), String.valueOf(toMillis)},
+                    null, null, "startAt")) {
+                while (cursor.moveToNext()) appointments.add(appointmentFrom(cursor));
+            }
+            return appointments;
+        }, onLoaded);
+    }
+
+    /**
+     * Runs a query on the database thread and delivers its result on the main thread.
+     *
+     * @param query The query
+     * @param onLoaded Callback receiving the result
+     * @param <T> The result type
+     */
+    private <T> void read(Supplier<T> query, Consumer<T> onLoaded) {
+        executor.execute(() -> {
+            T result;
+            try {
+                result = query.get();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to read local cache", e);
+                return;
+            }
+            mainHandler.post(() -> onLoaded.accept(result));
+        });
+    }
+
+    /**
+     * Runs a change on the database thread inside a transaction.
+     *
+     * @param change The change
+     */
+    private void write(Consumer<SQLiteDatabase> change) {
+        executor.execute(() -> {
+            SQLiteDatabase db;
+            try {
+                db = getWritableDatabase();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to open local cache", e);
+                return;
+            }
+            db.beginTransaction();
+            try {
+                change.accept(db);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to write local cache", e);
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    /**
+     * Builds the row of a dog.
+     *
+     * @param dog The dog profile
+     * @return The row values
+     */
+    private static ContentValues valuesOf(DogProfile dog) {
+        ContentValues values = new ContentValues();
+        values.put("dogId", dog.dogId);
+        values.put("ownerId", dog.ownerId);
+        values.put("vetId", dog.vetId);
+        values.put("name", dog.name);
+        values.put("age", dog.age);
+        values.put("bio", dog.bio);
+        values.put("profileImageUrl", dog.profileImageUrl);
+        values.put("profileImageMediumUrl", dog.profileImageMediumUrl);
+        values.put("profileImageThumbUrl", dog.profileImageThumbUrl);
+        values.put("race", dog.race);
+        values.put("birthday", dog.birthday);
+        values.put("weight", dog.weight);
+        values.put("allergies", dog.allergies);
+        values.put("vaccines", dog.vaccines);
+        values.put("lastUpdated", dog.lastUpdated);
+        return values;
+    }
+
+    /**
+     * Reads a dog from the current row.
+     *
+     * @param cursor Cursor positioned on a dogs row
+     * @return The dog profile
+     */
+    private static DogProfile dogFrom(Cursor cursor) {
+        DogProfile dog = new DogProfile();
+        dog.dogId = cursor.getString(cursor.getColumnIndexOrThrow("dogId"));
+        dog.ownerId = cursor.getString(cursor.getColumnIndexOrThrow("ownerId"));
+        dog.vetId = cursor.getString(cursor.getColumnIndexOrThrow("vetId"));
+        dog.name = cursor.getString(cursor.getColumnIndexOrThrow("name"));
+        dog.age = cursor.getString(cursor.getColumnIndexOrThrow("age"));
+        dog.bio = cursor.getString(cursor.getColumnIndexOrThrow("bio"));
+        dog.profileImageUrl = cursor.getString(cursor.getColumnIndexOrThrow("profileImageUrl"));
+        dog.profileImageMediumUrl = cursor.getString(cursor.getColumnIndexOrThrow("profileImageMediumUrl"));
+        dog.profileImageThumbUrl = cursor.getString(cursor.getColumnIndexOrThrow("profileImageThumbUrl"));
+        dog.race = cursor.getString(cursor.getColumnIndexOrThrow("race"));
+        dog.birthday = cursor.getString(cursor.getColumnIndexOrThrow("birthday"));
+        dog.weight = cursor.getString(cursor.getColumnIndexOrThrow("weight"));
+        dog.allergies = cursor.getString(cursor.getColumnIndexOrThrow("allergies"));
+        dog.vaccines = cursor.getString(cursor.getColumnIndexOrThrow("vaccines"));
+        dog.lastUpdated = cursor.getLong(cursor.getColumnIndexOrThrow("lastUpdated"));
+        return dog;
+    }
+
+    /**
+     * Builds the row of an appointment.
+     *
+     * @param appointment The appointment fields and its document ID
+     * @return The row values, or null if the appointment has no ID or start time
+     */
+    private static ContentValues valuesOfAppointment(Map<String, Object> appointment) {
+        String appointmentId = stringOf(appointment.get(Documents.ID));
+        if (appointmentId == null) appointmentId = stringOf(appointment.get("id"));
+        long startAt = AppointmentTimes.startAtOf(appointment);
+        if (appointmentId == null || startAt < 0) return null;
+
+        ContentValues values = new ContentValues();
+        values.put("appointmentId", appointmentId);
+        for (String field : APPOINTMENT_FIELDS) values.put(field, stringOf(appointment.get(field)));
+        values.put("startAt", startAt);
+        values.put("endAt", AppointmentTimes.endAtOf(appointment));
+        values.put("completed", Boolean.TRUE.equals(appointment.get("completed")) ? 1 : 0);
+        return values;
+    }
+
+    /**
+     * Reads an appointment from the current row, in the shape the repositories return.
+     *
+     * @param cursor Cursor positioned on an appointments row
+     * @return The appointment fields and its document ID
+     */
+    private static Map<String, Object> appointmentFrom(Cursor cursor) {
+        Map<String, Object> appointment = new HashMap<>();
+        String appointmentId = cursor.getString(cursor.getColumnIndexOrThrow("appointmentId"));
+        appointment.put(Documents.ID, appointmentId);
+        appointment.put("id", appointmentId);
+        for (String field : APPOINTMENT_FIELDS) appointment.put(field, cursor.getString(cursor.getColumnIndexOrThrow(field)));
+        appointment.put(AppointmentTimes.START_AT, cursor.getLong(cursor.getColumnIndexOrThrow("startAt")));
+        appointment.put(AppointmentTimes.END_AT, cursor.getLong(cursor.getColumnIndexOrThrow("endAt")));
+        appointment.put("completed", cursor.getInt(cursor.getColumnIndexOrThrow("completed")) != 0);
+        return appointment;
+    }
+
+    /**
+     * Converts a field value to the text stored for it.
+     *
+     * @param value The field value
+     * @return Its text, or null if the value is missing
+     */
+    private static String stringOf(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
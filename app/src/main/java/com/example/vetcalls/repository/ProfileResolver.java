@@ -0,0 +1,148 @@
+package com.example.vetcalls.repository;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Resolves dog and veterinarian profiles for list screens in batches.
+ * Callers pass every ID a screen needs at once; IDs already cached are answered from memory
+ * and the rest are fetched together through the repositories' batched reads,
+ * so a list of N rows costs a handful of reads instead of N.
+ * Cached profiles expire after {@link #TTL_MS}.
+ *
+ * @author Ofek Levi
+ */
+public class ProfileResolver {
+
+    private static final String TAG = "ProfileResolver";
+
+    /** How long a resolved profile is served from memory before it is fetched again. */
+    static final long TTL_MS = 5 * 60 * 1000;
+
+    private final DogRepository dogs;
+    private final VetRepository vets;
+
+    private final Map<String, CachedProfile> dogCache = new HashMap<>();
+    private final Map<String, CachedProfile> vetCache = new HashMap<>();
+
+    /**
+     * A cached profile together with the time it was fetched.
+     */
+    private static class CachedProfile {
+        final Map<String, Object> fields;
+        final long fetchedAt;
+
+        /**
+         * Creates a cache entry.
+         *
+         * @param fields The profile fields
+         * @param fetchedAt The time the profile was fetched, in milliseconds
+         */
+        CachedProfile(Map<String, Object> fields, long fetchedAt) {
+            this.fields = fields;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    /**
+     * Creates a resolver on the given repositories.
+     *
+     * @param dogs The repository to fetch dog profiles from
+     * @param vets The repository to fetch veterinarian profiles from
+     */
+    public ProfileResolver(DogRepository dogs, VetRepository vets) {
+        this.dogs = dogs;
+        this.vets = vets;
+    }
+
+    /**
+     * Resolves several dog profiles at once.
+     *
+     * @param dogIds The dogs' unique identifiers; duplicates and nulls are ignored
+     * @param callback Callback receiving the found profiles keyed by dog ID
+     */
+    public void resolveDogs(Collection<String> dogIds, DataCallback<Map<String, Map<String, Object>>> callback) {
+        resolve(dogIds, dogCache, dogs::getDogs, callback);
+    }
+
+    /**
+     * Resolves several veterinarian profiles at once.
+     *
+     * @param vetIds The veterinarians' unique identifiers; duplicates and nulls are ignored
+     * @param callback Callback receiving the found profiles keyed by vet ID
+     */
+    public void resolveVets(Collection<String> vetIds, DataCallback<Map<String, Map<String, Object>>> callback) {
+        resolve(vetIds, vetCache, vets::getVets, callback);
+    }
+
+    /**
+     * Drops every cached profile.
+     */
+    public synchronized void clear() {
+        dogCache.clear();
+        vetCache.clear();
+    }
+
+    /**
+     * Answers cached IDs from memory and fetches the rest in one batched read.
+     *
+     * @param ids The requested IDs
+     * @param cache The cache for this kind of profile
+     * @param fetcher The batched read used for IDs that are not cached
+     * @param callback Callback receiving the found profiles keyed by ID
+     */
+    private void resolve(Collection<String> ids, Map<String, CachedProfile> cache,
+                         BiConsumer<List<String>, DataCallback<List<Map<String, Object>>>> fetcher,
+                         DataCallback<Map<String, Map<String, Object>>> callback) {
+        Map<String, Map<String, Object>> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            for (String id : new LinkedHashSet<>(ids)) {
+                if (id == null || id.isEmpty()) continue;
+                CachedProfile cached = cache.get(id);
+                if (cached != null && now - cached.fetchedAt < TTL_MS) {
+                    resolved.put(id, new HashMap<>(cached.fields));
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            callback.onSuccess(resolved);
+            return;
+        }
+
+        Log.d(TAG, "Resolving " + missing.size() + " profiles, " + resolved.size() + " served from cache");
+        fetcher.accept(missing, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> profiles) {
+                long fetchedAt = System.currentTimeMillis();
+                synchronized (ProfileResolver.this) {
+                    for (Map<String, Object> profile : profiles) {
+                        String id = (String) profile.get(Documents.ID);
+                        if (id == null) continue;
+                        cache.put(id, new CachedProfile(new HashMap<>(profile), fetchedAt));
+                        resolved.put(id, profile);
+                    }
+                }
+                callback.onSuccess(resolved);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Failed to resolve " + missing.size() + " profiles", e);
+                callback.onFailure(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.vetcalls.repository;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/**
+ * Process-wide access point for the data repositories.
+ * Screens obtain their repositories here instead of talking to Firestore directly,
+ * so caching and batching live in one place and the backend can be swapped.
+ * Defaults to the Firestore backend.
+ *
+ * @author Ofek Levi
+ */
+public final class Repositories {
+
+    private static DogRepository dogs;
+    private static AppointmentRepository appointments;
+    private static ChatRepository chats;
+    private static VetRepository vets;
+    private static ProfileResolver profiles;
+
+    private Repositories() {}
+
+    /**
+     * Returns the dog repository, creating the Firestore one on first use.
+     *
+     * @return The dog repository
+     */
+    public static synchronized DogRepository dogs() {
+        if (dogs == null) dogs = new FirestoreDogRepository(FirebaseFirestore.getInstance());
+        return dogs;
+    }
+
+    /**
+     * Returns the appointment repository, creating the Firestore one on first use.
+     *
+     * @return The appointment repository
+     */
+    public static synchronized AppointmentRepository appointments() {
+        if (appointments == null) appointments = new FirestoreAppointmentRepository(FirebaseFirestore.getInstance());
+        return appointments;
+    }
+
+    /**
+     * Returns the chat repository, creating the Firestore one on first use.
+     *
+     * @return The chat repository
+     */
+    public static synchronized ChatRepository chats() {
+        if (chats == null) chats = new FirestoreChatRepository(FirebaseFirestore.getInstance());
+        return chats;
+    }
+
+    /**
+     * Returns the veterinarian repository, creating the cached Firestore one on first use.
+     * The directory is shared by every screen for the lifetime of the process.
+     *
+     * @return The veterinarian repository
+     */
+    public static synchronized VetRepository vets() {
+        if (vets == null) {
+            FirebaseFirestore db = FirebaseFirestore.getInstance();
+            vets = new CachedVetRepository(db, new FirestoreVetRepository(db));
+        }
+        return vets;
+    }
+
+    /**
+     * Returns the shared profile resolver, built on the current dog and veterinarian repositories.
+     *
+     * @return The profile resolver
+     */
+    public static synchronized ProfileResolver profiles() {
+        if (profiles == null) profiles = new ProfileResolver(dogs(), vets());
+        return profiles;
+    }
+
+    /**
+     * Replaces all repositories, for example with the in-memory backend.
+     *
+     * @param dogRepository The dog repository to use
+     * @param appointmentRepository The appointment repository to use
+     * @param chatRepository The chat repository to use
+     * @param vetRepository The veterinarian repository to use
+     */
+    public static synchronized void install(DogRepository dogRepository,
+                                            AppointmentRepository appointmentRepository,
+                                            ChatRepository chatRepository,
+                                            VetRepository vetRepository) {
+        dogs = dogRepository;
+        appointments = appointmentRepository;
+        chats = chatRepository;
+        vets = vetRepository;
+        profiles = null;
+    }
+
+    /**
+     * Switches every repository to a fresh in-memory backend.
+     */
+    public static synchronized void useInMemory() {
+        install(new InMemoryDogRepository(),
+                new InMemoryAppointmentRepository(),
+                new InMemoryChatRepository(),
+                new InMemoryVetRepository());
+    }
+}
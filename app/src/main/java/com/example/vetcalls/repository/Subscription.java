@@ -0,0 +1,14 @@
+package com.example.vetcalls.repository;
+
+/**
+ * Handle for a live repository listener. Removing it stops further updates.
+ *
+ * @author Ofek Levi
+ */
+public interface Subscription {
+
+    /**
+     * Stops the listener. Calling this more than once has no effect.
+     */
+    void remove();
+}
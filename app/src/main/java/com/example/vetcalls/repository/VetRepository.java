@@ -0,0 +1,47 @@
+package com.example.vetcalls.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Data access for veterinarian profiles.
+ * Results are returned as stored document fields, with the document ID under "documentId".
+ *
+ * @author Ofek Levi
+ */
+public interface VetRepository {
+
+    /**
+     * Loads every veterinarian in the directory.
+     *
+     * @param callback Callback receiving the veterinarian documents
+     */
+    void getAllVets(DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Loads a single veterinarian profile.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param callback Callback receiving the veterinarian document, or null if it does not exist
+     */
+    void getVet(String vetId, DataCallback<Map<String, Object>> callback);
+
+    /**
+     * Loads several veterinarian profiles by ID. Missing veterinarians are left out of the result.
+     *
+     * @param vetIds The veterinarians' unique identifiers
+     * @param callback Callback receiving the found veterinarian documents
+     */
+    void getVets(List<String> vetIds, DataCallback<List<Map<String, Object>>> callback);
+
+    /**
+     * Merges the given fields into a veterinarian's profile.
+     *
+     * @param vetId The veterinarian's unique identifier
+     * @param fields The fields to write
+     * @param onSuccess Callback to run on success, may be null
+     * @param onFailure Callback to run with an error message on failure, may be null
+     */
+    void saveVetProfile(String vetId, Map<String, Object> fields, Runnable onSuccess, Consumer<String> onFailure);
+}
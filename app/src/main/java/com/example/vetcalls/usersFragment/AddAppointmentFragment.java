@@ -1,8 +1,6 @@
 
 package com.example.vetcalls.usersFragment;
 
-import static com.example.vetcalls.obj.FirestoreUserHelper.deleteAppointment;
-
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.icu.util.Calendar;
@@ -24,20 +22,24 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.vetcalls.R;
+import com.example.vetcalls.obj.AppointmentBooking;
+import com.example.vetcalls.obj.AppointmentSlotIndex;
 import com.example.vetcalls.obj.DogItem;
-import com.example.vetcalls.obj.NotificationHelper;
+import com.example.vetcalls.obj.AppointmentTimes;
 import com.example.vetcalls.obj.FirestoreUserHelper;
+import com.example.vetcalls.obj.NotificationHelper;
+import com.example.vetcalls.obj.ReminderRegistry;
 import com.example.vetcalls.obj.VetItem;
+import com.example.vetcalls.repository.AppointmentRepository;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.Repositories;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
@@ -52,7 +54,10 @@ import java.util.UUID;
 public class AddAppointmentFragment extends Fragment {
 
     private static final String TAG = "AddAppointmentFragment";
-    private FirebaseFirestore db;
+
+    /** Number of free slots offered when the requested time is taken. */
+    private static final int SUGGESTED_SLOT_COUNT = 5;
+    private AppointmentRepository appointments;
 
     private TextView dateTextView;
     private Spinner appointmentTypeSpinner, dogSpinner, vetSpinner, reminder1Spinner, reminder2Spinner;
@@ -63,7 +68,13 @@ public class AddAppointmentFragment extends Fragment {
     private String selectedTime = "", endTime, appointmentType;
     private boolean isVet, isEdit = false;
     private long appointmentDurationMinutes = 20;
-    private NotificationHelper notificationHelper;
+
+    /** Owner of each dog offered to a veterinarian, keyed by dog ID. */
+    private final Map<String, String> dogOwners = new HashMap<>();
+
+    /** The appointment as stored before this edit, or null for a new appointment. */
+    private Map<String, Object> originalAppointment;
+    private ReminderRegistry reminders;
 
     /**
      * Creates and returns the view hierarchy associated with the fragment.
@@ -132,9 +143,9 @@ public class AddAppointmentFragment extends Fragment {
      * Initializes data sources and determines user type.
      */
     private void initData() {
-        db = FirebaseFirestore.getInstance();
+        appointments = Repositories.appointments();
         userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        notificationHelper = new NotificationHelper(requireContext());
+        reminders = new ReminderRegistry(requireContext());
 
         SharedPreferences prefs = requireActivity().getSharedPreferences("UserProfile", Context.MODE_PRIVATE);
         isVet = prefs.getBoolean("isVet", false);
@@ -216,11 +227,13 @@ public class AddAppointmentFragment extends Fragment {
                         .setTitle("Delete appointment")
                         .setMessage("Are you sure you want to delete this appointment?")
                         .setPositiveButton("Yes", (dialog, which) -> {
-                            FirestoreUserHelper.deleteAppointmentCompletely(
+                            appointments.deleteAppointment(
                                     appointmentId,
                                     selectedDogId,
                                     selectedVetId,
                                     () -> {
+                                        reminders.cancelAppointment(appointmentId);
+                                        FirestoreUserHelper.deleteAppointmentReminders(userId, appointmentId);
                                         Toast.makeText(requireContext(), "Appointment deleted successfully", Toast.LENGTH_SHORT).show();
                                         requireActivity().getSupportFragmentManager().popBackStack();
                                     },
@@ -254,34 +267,31 @@ public class AddAppointmentFragment extends Fragment {
      * Loads existing appointment data from Firestore for editing.
      */
     private void loadAppointmentDataFromFirestore() {
-        db.collection("DogProfiles")
-                .document(selectedDogId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Map<String, Object> data = documentSnapshot.getData();
-                        if (data != null) {
-                            setSpinnerSelection(appointmentTypeSpinner, (String) data.get("type"));
-                            notesEditText.setText((String) data.get("notes"));
-
-                            String startTime = (String) data.get("startTime");
-                            if (startTime != null) {
-                                selectedTime = startTime;
-                                timeButton.setText(selectedTime);
-                            }
-
-                            updateDogSpinnerSelection(selectedDogId);
-                            updateVetSpinnerSelection(selectedVetId);
-                            updateTimeSpinnerVisibility();
-                        }
+        appointments.getAppointment(selectedDogId, appointmentId, new DataCallback<Map<String, Object>>() {
+            @Override
+            public void onSuccess(Map<String, Object> data) {
+                if (data != null && isAdded()) {
+                    setSpinnerSelection(appointmentTypeSpinner, (String) data.get("type"));
+                    notesEditText.setText((String) data.get("notes"));
+
+                    String startTime = (String) data.get("startTime");
+                    if (startTime != null) {
+                        selectedTime = startTime;
+                        timeButton.setText(selectedTime);
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading appointment", e);
-                    Toast.makeText(requireContext(), "Error loading appointment data", Toast.LENGTH_SHORT).show();
-                });
+
+                    updateDogSpinnerSelection(selectedDogId);
+                    updateVetSpinnerSelection(selectedVetId);
+                    updateTimeSpinnerVisibility();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading appointment", e);
+                Toast.makeText(requireContext(), "Error loading appointment data", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
@@ -324,6 +334,7 @@ public class AddAppointmentFragment extends Fragment {
 
     /**
      * Initiates the appointment saving process with validation and conflict checking.
+     * New appointments are always checked; edited ones when their slot changes.
      */
     private void saveAppointment() {
         if (!validateInputs()) return;
@@ -331,7 +342,7 @@ public class AddAppointmentFragment extends Fragment {
         if (isEdit && !appointmentId.isEmpty()) {
             checkIfTimeChangedAndValidate();
         } else {
-            proceedWithSave();
+            validateNewTimeAndSave();
         }
     }
 
@@ -364,95 +375,144 @@ public class AddAppointmentFragment extends Fragment {
      * Checks if the appointment time has changed during editing and validates accordingly.
      */
     private void checkIfTimeChangedAndValidate() {
-        db.collection("DogProfiles")
-                .document(selectedDogId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Map<String, Object> originalData = documentSnapshot.getData();
-                        if (originalData != null) {
-                            String originalDate = (String) originalData.get("date");
-                            String originalTime = (String) originalData.get("startTime");
-
-                            boolean dateChanged = !selectedDate.equals(originalDate);
-                            boolean timeChanged = !selectedTime.equals(originalTime);
-
-                            if (dateChanged || timeChanged) {
-                                validateNewTimeAndSave();
-                            } else {
-                                proceedWithSave();
-                            }
-                        }
+        appointments.getAppointment(selectedDogId, appointmentId, new DataCallback<Map<String, Object>>() {
+            @Override
+            public void onSuccess(Map<String, Object> originalData) {
+                originalAppointment = originalData;
+                if (originalData != null) {
+                    String originalDate = (String) originalData.get("date");
+                    String originalTime = (String) originalData.get("startTime");
+                    String originalEndTime = (String) originalData.get("endTime");
+                    String originalVetId = (String) originalData.get("vetId");
+                    calculateEndTime();
+
+                    boolean dateChanged = !selectedDate.equals(originalDate);
+                    boolean timeChanged = !selectedTime.equals(originalTime) || endTime == null || !endTime.equals(originalEndTime);
+                    boolean vetChanged = !selectedVetId.equals(originalVetId);
+
+                    if (dateChanged || timeChanged || vetChanged) {
+                        validateNewTimeAndSave();
                     } else {
                         proceedWithSave();
                     }
-                })
-                .addOnFailureListener(e -> proceedWithSave());
+                } else {
+                    proceedWithSave();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                proceedWithSave();
+            }
+        });
     }
 
     /**
-     * Validates the new appointment time against existing appointments to prevent conflicts.
+     * Validates the requested appointment slot against the vet's other appointments that day.
+     * On a conflict, offers the next free slots of the same length instead.
      */
     private void validateNewTimeAndSave() {
-        db.collection("Veterinarians")
-                .document(selectedVetId)
-                .collection("Appointments")
-                .whereEqualTo("date", selectedDate)
-                .get()
-                .addOnSuccessListener(querySnapshots -> {
-                    boolean timeAvailable = true;
-                    String conflictMessage = "";
-
-                    for (QueryDocumentSnapshot document : querySnapshots) {
-                        if (document.getId().equals(appointmentId)) continue;
-
-                        Map<String, Object> data = document.getData();
-                        String existingStart = (String) data.get("startTime");
-                        String existingEnd = (String) data.get("endTime");
-
-                        if (existingStart != null && existingEnd != null) {
-                            int existingStartMin = convertTimeToMinutes(existingStart);
-                            int existingEndMin = convertTimeToMinutes(existingEnd);
-                            int newStartMin = convertTimeToMinutes(selectedTime);
-                            int newEndMin = newStartMin + (int) appointmentDurationMinutes;
-
-                            if ((newStartMin >= existingStartMin && newStartMin < existingEndMin) ||
-                                    (newEndMin > existingStartMin && newEndMin <= existingEndMin) ||
-                                    (newStartMin <= existingStartMin && newEndMin >= existingEndMin)) {
-                                timeAvailable = false;
-                                conflictMessage = "Time conflicts with existing appointment: " + existingStart + " - " + existingEnd;
-                                break;
-                            }
-                        }
-                    }
+        int requestedStart = AppointmentSlotIndex.parseMinutes(selectedTime);
+        if (requestedStart < 0) {
+            Toast.makeText(requireContext(), "You have to choose a time", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        int duration = (int) appointmentDurationMinutes;
+        if (requestedStart + duration > AppointmentSlotIndex.MINUTES_PER_DAY) {
+            Toast.makeText(requireContext(), "The appointment must end by midnight, choose an earlier time", Toast.LENGTH_LONG).show();
+            return;
+        }
 
-                    if (timeAvailable) {
-                        proceedWithSave();
-                    } else {
-                        Toast.makeText(requireContext(), conflictMessage, Toast.LENGTH_LONG).show();
-                    }
-                });
+        appointments.getVetAppointmentsOnDate(selectedVetId, selectedDate, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> dayAppointments) {
+                if (!isAdded()) return;
+                AppointmentSlotIndex slots = AppointmentSlotIndex.fromAppointments(dayAppointments, isEdit ? appointmentId : null);
+                AppointmentSlotIndex.Conflict conflict = slots.findConflict(requestedStart, duration);
+
+                if (conflict == null) {
+                    proceedWithSave();
+                } else {
+                    showConflictWithSuggestions(conflict, slots.nextFreeSlots(requestedStart, duration, SUGGESTED_SLOT_COUNT));
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error checking vet availability", e);
+                if (!isAdded()) return;
+                Toast.makeText(requireContext(), "Error checking availability", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Tells the user the requested slot is taken and lets them pick one of the next free slots.
+     *
+     * @param conflict The appointment that overlaps the requested slot
+     * @param freeSlots Start minutes of the next free slots of the requested length
+     */
+    private void showConflictWithSuggestions(AppointmentSlotIndex.Conflict conflict, List<Integer> freeSlots) {
+        String conflictMessage = "Time conflicts with existing appointment: "
+                + AppointmentSlotIndex.formatMinutes(conflict.startMinute) + " - "
+                + AppointmentSlotIndex.formatMinutes(conflict.endMinute);
+
+        if (freeSlots.isEmpty()) {
+            Toast.makeText(requireContext(), conflictMessage + ". No free time left on this day", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        String[] options = new String[freeSlots.size()];
+        for (int i = 0; i < freeSlots.size(); i++) {
+            options[i] = AppointmentSlotIndex.formatMinutes(freeSlots.get(i));
+        }
+
+        new androidx.appcompat.app.AlertDialog.Builder(requireContext())
+                .setTitle(conflictMessage + ". Choose another time:")
+                .setItems(options, (dialog, which) -> {
+                    selectedTime = options[which];
+                    timeButton.setText(selectedTime);
+                    validateNewTimeAndSave();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
     }
 
     /**
      * Proceeds with saving the appointment after all validations pass.
      */
     private void proceedWithSave() {
-        calculateEndTime();
+        if (!calculateEndTime()) {
+            Toast.makeText(requireContext(), "The appointment must end by midnight, choose an earlier time", Toast.LENGTH_LONG).show();
+            return;
+        }
 
         if (!isEdit || appointmentId.isEmpty()) {
             appointmentId = UUID.randomUUID().toString();
         }
 
         Map<String, Object> appointmentData = createAppointmentData();
-        addReminders(appointmentData);
-
-        FirestoreUserHelper.addAppointment(appointmentId, appointmentData);
 
-        Toast.makeText(requireContext(), isEdit ? "Appointment updated successfully" : "Appointment created successfully", Toast.LENGTH_SHORT).show();
-        requireActivity().getSupportFragmentManager().popBackStack();
+        saveButton.setEnabled(false);
+        appointments.saveAppointment(appointmentId, appointmentData, isEdit ? originalAppointment : null,
+                () -> {
+                    addReminders(appointmentData);
+                    if (!isAdded()) return;
+                    Toast.makeText(requireContext(), isEdit ? "Appointment updated successfully" : "Appointment created successfully", Toast.LENGTH_SHORT).show();
+                    requireActivity().getSupportFragmentManager().popBackStack();
+                },
+                (errorMessage) -> {
+                    Log.e(TAG, "Error saving appointment: " + errorMessage);
+                    if (!isAdded()) return;
+                    saveButton.setEnabled(true);
+                    if (AppointmentBooking.SLOT_TAKEN.equals(errorMessage)) {
+                        // Someone else claimed the slot after our check; recheck to offer the slots still free.
+                        Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
+                        validateNewTimeAndSave();
+                        return;
+                    }
+                    Toast.makeText(requireContext(), "Error: " + errorMessage, Toast.LENGTH_LONG).show();
+                });
     }
 
     /**
@@ -469,7 +529,7 @@ public class AddAppointmentFragment extends Fragment {
         data.put("type", appointmentType);
         data.put("dogId", selectedDogId);
         data.put("vetId", selectedVetId);
-        data.put("ownerId", userId);
+        data.put("ownerId", ownerOfSelectedDog());
         data.put("notes", notesEditText.getText().toString());
         data.put("completed", false);
 
@@ -489,80 +549,93 @@ public class AddAppointmentFragment extends Fragment {
     }
 
     /**
-     * Adds reminder notifications for the appointment.
+     * Returns the owner of the selected dog, which owner queries match appointments on.
+     * A veterinarian booking for a patient records the dog's owner, not themselves.
      *
-     * @param appointmentData The appointment data map
+     * @return The owner's unique identifier
+     */
+    private String ownerOfSelectedDog() {
+        if (!isVet) return userId;
+        String ownerId = dogOwners.get(selectedDogId);
+        if (ownerId == null && originalAppointment != null) ownerId = (String) originalAppointment.get("ownerId");
+        return ownerId;
+    }
+
+    /**
+     * Schedules the reminders picked for the appointment, replacing whatever was scheduled for it before,
+     * and stores them so they can be scheduled again after a reboot.
+     *
+     * @param appointmentData The saved appointment data map
      */
     private void addReminders(Map<String, Object> appointmentData) {
         if (isVet) return;
 
-        String reminder1 = reminder1Spinner.getSelectedItem().toString();
-        String reminder2 = reminder2Spinner.getSelectedItem().toString();
-
-        if (!reminder1.equals("No reminder") || !reminder2.equals("No reminder")) {
-            try {
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-M-d HH:mm", Locale.getDefault());
-                Date appointmentDateTime = format.parse(selectedDate + " " + selectedTime);
-                long appointmentTime = appointmentDateTime.getTime();
+        long appointmentTime = AppointmentTimes.startAtOf(appointmentData);
+        if (appointmentTime < 0) {
+            Log.e(TAG, "Cannot schedule reminders, appointment has no start time");
+            return;
+        }
 
-                if (!reminder1.equals("No reminder")) {
-                    createReminder(reminder1, appointmentTime);
-                }
-                if (!reminder2.equals("No reminder")) {
-                    createReminder(reminder2, appointmentTime);
-                }
-            } catch (ParseException e) {
-                Log.e(TAG, "Error parsing date/time", e);
+        Map<String, Map<String, Object>> storedReminders = new HashMap<>();
+        String[] options = {reminder1Spinner.getSelectedItem().toString(), reminder2Spinner.getSelectedItem().toString()};
+        boolean anyReminder = !options[0].equals("No reminder") || !options[1].equals("No reminder");
+        if (anyReminder && isAdded()) new NotificationHelper(requireContext()).ensureExactAlarmPermission(requireActivity());
+        for (int i = 0; i < options.length; i++) {
+            String slot = "reminder" + (i + 1);
+            if (options[i].equals("No reminder")) {
+                reminders.cancel(appointmentId, slot);
+                continue;
             }
+            Map<String, Object> reminderData = createReminder(slot, options[i], appointmentTime);
+            if (reminderData != null) storedReminders.put((String) reminderData.get("id"), reminderData);
         }
+
+        FirestoreUserHelper.replaceAppointmentReminders(userId, appointmentId, storedReminders);
     }
 
     /**
-     * Creates a specific reminder notification and stores it in Firestore.
+     * Schedules one reminder notification of the appointment.
      *
+     * @param slot Name of the reminder within the appointment
      * @param reminderOption The reminder timing option
      * @param appointmentTime The appointment time in milliseconds
+     * @return The reminder data to store, or null if the reminder time has already passed
      */
-    private void createReminder(String reminderOption, long appointmentTime) {
+    private Map<String, Object> createReminder(String slot, String reminderOption, long appointmentTime) {
         long reminderTime = getReminderTime(reminderOption, appointmentTime);
+        String title = "Reminder: " + appointmentType;
+        String description = "You have an appointment on " + selectedDate + " at " + selectedTime;
 
-        notificationHelper.scheduleNotification(
-                requireContext(),
-                "Reminder: " + appointmentType,
-                "You have an appointment on " + selectedDate + " at " + selectedTime,
-                reminderTime
-        );
+        reminders.schedule(appointmentId, slot, title, description, reminderTime);
+        if (reminderTime <= System.currentTimeMillis()) return null;
 
         Map<String, Object> reminderData = new HashMap<>();
-        reminderData.put("id", UUID.randomUUID().toString());
-        reminderData.put("title", "Reminder: " + appointmentType);
-        reminderData.put("description", "You have an appointment on " + selectedDate + " at " + selectedTime);
+        reminderData.put("id", appointmentId + "_" + slot);
+        reminderData.put("title", title);
+        reminderData.put("description", description);
         reminderData.put("time", new Timestamp(new Date(reminderTime)));
         reminderData.put("appointmentId", appointmentId);
-
-        FirestoreUserHelper.addReminderToUser(userId, (String) reminderData.get("id"), reminderData);
+        reminderData.put("slot", slot);
+        return reminderData;
     }
 
     /**
      * Calculates the end time based on selected time and appointment duration.
-     */
-    private void calculateEndTime() {
-        if (selectedTime != null && !selectedTime.isEmpty()) {
-            int startMinutes = convertTimeToMinutes(selectedTime);
-            int endMinutes = startMinutes + (int) appointmentDurationMinutes;
-            endTime = convertMinutesToTime(endMinutes);
-        }
-    }
-
-    /**
-     * Converts time string to minutes for calculation purposes.
+     * A visit that would run past midnight, or a start time that cannot be parsed, leaves no end time,
+     * since the booking cannot check such a slot against the vet's day.
      *
-     * @param time Time in HH:MM format
-     * @return Time in minutes from midnight
+     * @return true if the end time was set, false if the slot does not fit in the day
      */
-    private int convertTimeToMinutes(String time) {
-        String[] parts = time.split(":");
-        return Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1]);
+    private boolean calculateEndTime() {
+        if (selectedTime == null || selectedTime.isEmpty()) return endTime != null;
+        int startMinutes = AppointmentSlotIndex.parseMinutes(selectedTime);
+        int endMinutes = startMinutes + (int) appointmentDurationMinutes;
+        if (startMinutes < 0 || endMinutes > AppointmentSlotIndex.MINUTES_PER_DAY) {
+            endTime = null;
+            return false;
+        }
+        endTime = convertMinutesToTime(endMinutes);
+        return true;
     }
 
     /**
@@ -645,40 +718,49 @@ public class AddAppointmentFragment extends Fragment {
         dogs.add(new DogItem("", "Choose a dog..."));
 
         if (isVet) {
-            db.collection("DogProfiles")
-                    .whereEqualTo("vetId", userId)
-                    .get()
-                    .addOnSuccessListener(snapshots -> {
-                        for (QueryDocumentSnapshot doc : snapshots) {
-                            Map<String, Object> data = doc.getData();
-                            String dogId = doc.getId();
-                            String dogName = (String) data.get("name");
-                            String ownerId = (String) data.get("ownerId");
-                            dogs.add(new DogItem(dogId, dogName + " (Owner: " + ownerId + ")"));
-                        }
-                        setDogAdapter(dogs);
-                    });
+            Repositories.dogs().getDogsByVet(userId, new DataCallback<List<Map<String, Object>>>() {
+                @Override
+                public void onSuccess(List<Map<String, Object>> result) {
+                    for (Map<String, Object> data : result) {
+                        String dogId = (String) data.get("documentId");
+                        String dogName = (String) data.get("name");
+                        String ownerId = (String) data.get("ownerId");
+                        if (dogId != null && ownerId != null) dogOwners.put(dogId, ownerId);
+                        dogs.add(new DogItem(dogId, dogName + " (Owner: " + ownerId + ")"));
+                    }
+                    if (isAdded()) setDogAdapter(dogs);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "Error loading dogs", e);
+                }
+            });
         } else {
-            db.collection("Users")
-                    .document(userId)
-                    .collection("Dogs")
-                    .get()
-                    .addOnSuccessListener(snapshots -> {
-                        for (QueryDocumentSnapshot doc : snapshots) {
-                            Map<String, Object> data = doc.getData();
-                            String dogId = (String) data.get("dogId");
-                            String dogName = (String) data.get("name");
-                            if (dogId != null && dogName != null) {
-                                dogs.add(new DogItem(dogId, dogName));
-                            }
+            Repositories.dogs().getOwnerDogs(userId, new DataCallback<List<Map<String, Object>>>() {
+                @Override
+                public void onSuccess(List<Map<String, Object>> result) {
+                    for (Map<String, Object> data : result) {
+                        String dogId = (String) data.get("dogId");
+                        String dogName = (String) data.get("name");
+                        if (dogId != null && dogName != null) {
+                            dogs.add(new DogItem(dogId, dogName));
                         }
-                        setDogAdapter(dogs);
+                    }
+                    if (!isAdded()) return;
+                    setDogAdapter(dogs);
 
-                        if (dogs.size() == 2) {
-                            dogSpinner.setSelection(1);
-                            selectedDogId = dogs.get(1).getId();
-                        }
-                    });
+                    if (dogs.size() == 2) {
+                        dogSpinner.setSelection(1);
+                        selectedDogId = dogs.get(1).getId();
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "Error loading dogs", e);
+                }
+            });
         }
     }
 
@@ -705,20 +787,26 @@ public class AddAppointmentFragment extends Fragment {
             ArrayList<VetItem> vets = new ArrayList<>();
             vets.add(new VetItem("", "Choose a vet..."));
 
-            db.collection("Veterinarians")
-                    .get()
-                    .addOnSuccessListener(snapshots -> {
-                        for (QueryDocumentSnapshot doc : snapshots) {
-                            Map<String, Object> data = doc.getData();
-                            String vetId = doc.getId();
-                            String name = (String) data.get("fullName");
-                            vets.add(new VetItem(vetId, name != null ? name : "Veterinarian"));
-                        }
+            Repositories.vets().getAllVets(new DataCallback<List<Map<String, Object>>>() {
+                @Override
+                public void onSuccess(List<Map<String, Object>> result) {
+                    for (Map<String, Object> data : result) {
+                        String vetId = (String) data.get("documentId");
+                        String name = (String) data.get("fullName");
+                        vets.add(new VetItem(vetId, name != null ? name : "Veterinarian"));
+                    }
+                    if (!isAdded()) return;
 
-                        ArrayAdapter<VetItem> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, vets);
-                        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-                        vetSpinner.setAdapter(adapter);
-                    });
+                    ArrayAdapter<VetItem> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, vets);
+                    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+                    vetSpinner.setAdapter(adapter);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "Error loading vets", e);
+                }
+            });
         }
     }
 
@@ -30,14 +30,12 @@ import com.bumptech.glide.Glide;
 import com.example.vetcalls.R;
 import com.example.vetcalls.obj.DogProfile;
 import com.example.vetcalls.obj.FirestoreUserHelper;
+import com.example.vetcalls.obj.ImagePipeline;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.Repositories;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
-import java.io.ByteArrayOutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -68,7 +66,6 @@ public class AddDogProfileFragment extends Fragment {
     private Uri selectedImageUri;
 
     private FirebaseAuth auth;
-    private FirebaseFirestore db;
     private SharedPreferences sharedPreferences;
     private String dogId;
     private String selectedVetId = null;
@@ -111,7 +108,6 @@ public class AddDogProfileFragment extends Fragment {
         vetSpinner = view.findViewById(R.id.vetSpinner);
 
         auth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
         sharedPreferences = requireActivity().getSharedPreferences("UserProfile", Context.MODE_PRIVATE);
 
         loadVetList();
@@ -127,38 +123,44 @@ public class AddDogProfileFragment extends Fragment {
      * Loads the list of available veterinarians from Firestore and populates the spinner.
      */
     private void loadVetList() {
-        db.collection("Veterinarians")
-                .get()
-                .addOnSuccessListener(query -> {
-                    vetNames.clear();
-                    vetNameToId.clear();
-                    for (DocumentSnapshot doc : query.getDocuments()) {
-                        String name = doc.getString("fullName");
-                        String id = doc.getId();
-                        if (name != null) {
-                            vetNames.add(name);
-                            vetNameToId.put(name, id);
-                        }
+        Repositories.vets().getAllVets(new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> vets) {
+                if (!isAdded()) return;
+                vetNames.clear();
+                vetNameToId.clear();
+                for (Map<String, Object> doc : vets) {
+                    String name = (String) doc.get("fullName");
+                    String id = (String) doc.get("documentId");
+                    if (name != null) {
+                        vetNames.add(name);
+                        vetNameToId.put(name, id);
                     }
-                    ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, vetNames);
-                    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-                    vetSpinner.setAdapter(adapter);
-
-                    vetSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
-                        @Override
-                        public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                            selectedVetName = vetNames.get(position);
-                            selectedVetId = vetNameToId.get(selectedVetName);
-                        }
-
-                        @Override
-                        public void onNothingSelected(AdapterView<?> parent) {
-                            selectedVetName = null;
-                            selectedVetId = null;
-                        }
-                    });
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Error loading vet list: " + e.getMessage()));
+                }
+                ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, vetNames);
+                adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+                vetSpinner.setAdapter(adapter);
+
+                vetSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                    @Override
+                    public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                        selectedVetName = vetNames.get(position);
+                        selectedVetId = vetNameToId.get(selectedVetName);
+                    }
+
+                    @Override
+                    public void onNothingSelected(AdapterView<?> parent) {
+                        selectedVetName = null;
+                        selectedVetId = null;
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading vet list: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -204,17 +206,6 @@ public class AddDogProfileFragment extends Fragment {
                 bio, ownerId, selectedVetId, selectedVetName, now
         );
 
-        Map<String, Object> dogData = new HashMap<>();
-        dogData.put("lastVetChange", now);
-        db.collection("DogProfiles").document(dogId)
-                .update(dogData)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "lastVetChange saved successfully for new dog: " + dogId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error saving lastVetChange: " + e.getMessage());
-                });
-
         if (selectedImageUri != null) {
             uploadImageToFirebase(selectedImageUri, ownerId, dogId);
         }
@@ -236,7 +227,8 @@ public class AddDogProfileFragment extends Fragment {
         newDogProfile.lastVetChange = now;
         newDogProfile.lastUpdated = now;
 
-        com.example.vetcalls.obj.FirestoreUserHelper.updateDogProfileEverywhere(newDogProfile);
+        Repositories.dogs().updateDog(newDogProfile, null,
+                (error) -> Log.e(TAG, "Error saving dog profile: " + error));
 
         Bundle result = new Bundle();
         result.putString("updatedBio", bio);
@@ -262,18 +254,6 @@ public class AddDogProfileFragment extends Fragment {
         editor.putString("vetName", selectedVetName);
         editor.apply();
 
-        Map<String, Object> dogBasicData = new HashMap<>();
-        dogBasicData.put("dogId", dogId);
-        dogBasicData.put("name", name);
-        dogBasicData.put("profileImageUrl", selectedImageUri != null ? selectedImageUri.toString() : "");
-        dogBasicData.put("vetId", selectedVetId);
-        dogBasicData.put("age", age);
-        db.collection("Users").document(ownerId)
-                .collection("Dogs").document(dogId)
-                .set(dogBasicData)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Dog basic data saved to user's Dogs subcollection"))
-                .addOnFailureListener(e -> Log.e(TAG, "Error saving dog to user's Dogs subcollection: " + e.getMessage()));
-
         Toast.makeText(requireContext(), "Dog profile added", Toast.LENGTH_SHORT).show();
         navigateBack();
     }
@@ -386,27 +366,13 @@ public class AddDogProfileFragment extends Fragment {
                 selectedImageUri = data.getData();
                 editProfilePic.setImageURI(selectedImageUri);
             } else if (requestCode == REQUEST_IMAGE_CAPTURE) {
-                Bitmap bitmap = (Bitmap) data.getExtras().get("data");
-                selectedImageUri = getImageUriFromBitmap(bitmap);
+                Bitmap bitmap = data.getExtras() != null ? (Bitmap) data.getExtras().get("data") : null;
+                selectedImageUri = ImagePipeline.saveCapture(requireContext(), bitmap);
                 editProfilePic.setImageURI(selectedImageUri);
             }
         }
     }
 
-    /**
-     * Converts a bitmap to a URI for storage and display purposes.
-     *
-     * @param bitmap The bitmap to convert
-     * @return URI representation of the bitmap
-     */
-    private Uri getImageUriFromBitmap(Bitmap bitmap) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, baos);
-        byte[] imageData = baos.toByteArray();
-        String path = MediaStore.Images.Media.insertImage(getContext().getContentResolver(), bitmap, "ProfilePic", null);
-        return Uri.parse(path);
-    }
-
     /**
      * Uploads the selected image to Firebase Storage and updates Firestore with the download URL.
      *
@@ -415,25 +381,16 @@ public class AddDogProfileFragment extends Fragment {
      * @param dogId The dog's unique identifier
      */
     private void uploadImageToFirebase(Uri imageUri, String ownerId, String dogId) {
-        FirebaseStorage storage = FirebaseStorage.getInstance();
-        StorageReference storageRef = storage.getReference().child("profile_pics/" + ownerId + "/" + UUID.randomUUID().toString() + ".jpg");
-
-        storageRef.putFile(imageUri).addOnSuccessListener(taskSnapshot -> {
-            storageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                Log.d(TAG, "Image uploaded successfully: " + uri.toString());
-
-                FirestoreUserHelper.uploadDogProfileImage(imageUri, dogId, ownerId, new FirestoreUserHelper.OnImageUploadListener() {
-                    @Override
-                    public void onUploadSuccess(String imageUrl) {
-                        Log.d(TAG, "Image URL successfully updated in Firestore: " + imageUrl);
-                    }
+        FirestoreUserHelper.uploadDogProfileImage(requireContext(), imageUri, dogId, ownerId, new FirestoreUserHelper.OnImageUploadListener() {
+            @Override
+            public void onUploadSuccess(String imageUrl) {
+                Log.d(TAG, "Image URL successfully updated in Firestore: " + imageUrl);
+            }
 
-                    @Override
-                    public void onUploadFailed(Exception exception) {
-                        Log.e(TAG, "Failed to update image URL in Firestore: " + exception.getMessage());
-                    }
-                });
-            });
-        }).addOnFailureListener(e -> Log.e(TAG, "Image upload failed", e));
+            @Override
+            public void onUploadFailed(Exception exception) {
+                Log.e(TAG, "Image upload failed: " + exception.getMessage());
+            }
+        });
     }
 }
\ No newline at end of file
@@ -7,23 +7,41 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.vetcalls.R;
+import com.example.vetcalls.obj.StableIds;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * RecyclerView adapter for displaying appointment items in a list.
  * Handles the binding of appointment data to view holders and manages navigation
  * to appointment details when items are clicked.
+ * New lists are diffed on a background thread and applied as positional updates.
  *
  * @author Ofek Levi
  */
 public class AppointmentAdapter extends RecyclerView.Adapter<AppointmentViewHolder> {
 
-    /** List of appointment data maps */
-    private List<Map<String, Object>> appointmentList;
+    private static final DiffUtil.ItemCallback<Map<String, Object>> APPOINTMENT_DIFF = new DiffUtil.ItemCallback<Map<String, Object>>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Map<String, Object> oldAppointment, @NonNull Map<String, Object> newAppointment) {
+            return Objects.equals(keyOf(oldAppointment), keyOf(newAppointment));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Map<String, Object> oldAppointment, @NonNull Map<String, Object> newAppointment) {
+            return oldAppointment.equals(newAppointment);
+        }
+    };
+
+    /** Displayed appointment data maps, diffed against each new list */
+    private final AsyncListDiffer<Map<String, Object>> differ = new AsyncListDiffer<>(this, APPOINTMENT_DIFF);
 
     /** Fragment activity for navigation purposes */
     private FragmentActivity activity;
@@ -39,9 +57,22 @@ public class AppointmentAdapter extends RecyclerView.Adapter<AppointmentViewHold
      * @param showActions Whether to show action buttons in appointment details
      */
     public AppointmentAdapter(List<Map<String, Object>> appointmentList, FragmentActivity activity, boolean showActions) {
-        this.appointmentList = appointmentList;
         this.activity = activity;
         this.showActions = showActions;
+        setHasStableIds(true);
+        updateAppointments(appointmentList);
+    }
+
+    /**
+     * Returns the key that identifies an appointment across list updates.
+     *
+     * @param appointment The appointment data map
+     * @return The appointment's ID, falling back to its document ID
+     */
+    private static String keyOf(Map<String, Object> appointment) {
+        Object id = appointment.get("id");
+        if (id == null) id = appointment.get("documentId");
+        return id != null ? id.toString() : null;
     }
 
     /**
@@ -67,7 +98,7 @@ public class AppointmentAdapter extends RecyclerView.Adapter<AppointmentViewHold
      */
     @Override
     public void onBindViewHolder(@NonNull AppointmentViewHolder holder, int position) {
-        Map<String, Object> appointment = appointmentList.get(position);
+        Map<String, Object> appointment = differ.getCurrentList().get(position);
 
         holder.dateTextView.setText("Date: " + (appointment.get("date") != null ? appointment.get("date").toString() : ""));
         holder.timeTextView.setText("Time: " + (appointment.get("startTime") != null ? appointment.get("startTime").toString() : ""));
@@ -93,20 +124,30 @@ public class AppointmentAdapter extends RecyclerView.Adapter<AppointmentViewHold
     /**
      * Returns the total number of items in the data set held by the adapter.
      *
-     * @return The total number of appointments, or 0 if the list is null
+     * @return The total number of appointments
      */
     @Override
     public int getItemCount() {
-        return appointmentList != null ? appointmentList.size() : 0;
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the stable ID of the appointment at the given position.
+     *
+     * @param position The position of the item within the adapter's data set
+     * @return The stable ID derived from the appointment's ID
+     */
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(keyOf(differ.getCurrentList().get(position)));
     }
 
     /**
-     * Updates the appointment list with new data and refreshes the RecyclerView.
+     * Updates the appointment list with new data, refreshing only the rows that changed.
      *
-     * @param appointments The new list of appointment data maps
+     * @param appointments The new list of appointment data maps, may be null
      */
     public void updateAppointments(List<Map<String, Object>> appointments) {
-        this.appointmentList = appointments;
-        notifyDataSetChanged();
+        differ.submitList(appointments != null ? new ArrayList<>(appointments) : new ArrayList<>());
     }
 }
\ No newline at end of file
@@ -16,8 +16,13 @@ import androidx.fragment.app.Fragment;
 
 import com.example.vetcalls.R;
 import com.example.vetcalls.obj.FirestoreUserHelper;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.vetcalls.obj.ReminderRegistry;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.Repositories;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.Map;
 
 /**
  * Fragment for displaying detailed appointment information.
@@ -157,26 +162,33 @@ public class AppointmentDetailsFragment extends Fragment {
         boolean isVet = prefs.getBoolean("isVet", false);
 
         if (appointmentId != null && !appointmentId.isEmpty() && dogId != null && !dogId.isEmpty()) {
-            FirebaseFirestore.getInstance().collection("DogProfiles").document(dogId).collection("Appointments").document(appointmentId)
-                    .get().addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            updateUIWithAppointment(documentSnapshot);
-                            setUiVisibility(view, true);
-                            loadingProgressBar.setVisibility(View.GONE);
-
-                            if (editButton != null) editButton.setVisibility(showActions ? View.VISIBLE : View.GONE);
-                            if (deleteButton != null) deleteButton.setVisibility(showActions ? View.VISIBLE : View.GONE);
-                            if (markCompletedButton != null) markCompletedButton.setVisibility(showActions && isVet ? View.VISIBLE : View.GONE);
-                        } else {
-                            loadingProgressBar.setVisibility(View.GONE);
-                            Toast.makeText(requireContext(), "Appointment not found", Toast.LENGTH_SHORT).show();
-                            requireActivity().getSupportFragmentManager().popBackStack();
-                        }
-                    }).addOnFailureListener(e -> {
+            Repositories.appointments().getAppointment(dogId, appointmentId, new DataCallback<Map<String, Object>>() {
+                @Override
+                public void onSuccess(Map<String, Object> appointment) {
+                    if (!isAdded()) return;
+                    if (appointment != null) {
+                        updateUIWithAppointment(appointment);
+                        setUiVisibility(view, true);
+                        loadingProgressBar.setVisibility(View.GONE);
+
+                        if (editButton != null) editButton.setVisibility(showActions ? View.VISIBLE : View.GONE);
+                        if (deleteButton != null) deleteButton.setVisibility(showActions ? View.VISIBLE : View.GONE);
+                        if (markCompletedButton != null) markCompletedButton.setVisibility(showActions && isVet ? View.VISIBLE : View.GONE);
+                    } else {
                         loadingProgressBar.setVisibility(View.GONE);
-                        Toast.makeText(requireContext(), "Failed to load appointment: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                        Toast.makeText(requireContext(), "Appointment not found", Toast.LENGTH_SHORT).show();
                         requireActivity().getSupportFragmentManager().popBackStack();
-                    });
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (!isAdded()) return;
+                    loadingProgressBar.setVisibility(View.GONE);
+                    Toast.makeText(requireContext(), "Failed to load appointment: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    requireActivity().getSupportFragmentManager().popBackStack();
+                }
+            });
         } else {
             loadingProgressBar.setVisibility(View.GONE);
             Toast.makeText(requireContext(), "Missing appointment information", Toast.LENGTH_SHORT).show();
@@ -273,7 +285,7 @@ public class AppointmentDetailsFragment extends Fragment {
     }
 
     /**
-     * Deletes an appointment from all relevant Firestore collections.
+     * Deletes an appointment from all relevant Firestore collections and cancels its reminders.
      *
      * @param appointmentId Unique appointment identifier
      * @param dogId Dog's unique identifier
@@ -291,8 +303,11 @@ public class AppointmentDetailsFragment extends Fragment {
                 .create();
         loadingDialog.show();
 
-        FirestoreUserHelper.deleteAppointmentCompletely(appointmentId, dogId, vetId,
+        Repositories.appointments().deleteAppointment(appointmentId, dogId, vetId,
                 () -> {
+                    new ReminderRegistry(requireContext()).cancelAppointment(appointmentId);
+                    FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+                    if (user != null) FirestoreUserHelper.deleteAppointmentReminders(user.getUid(), appointmentId);
                     if (loadingDialog.isShowing()) {
                         loadingDialog.dismiss();
                     }
@@ -309,20 +324,20 @@ public class AppointmentDetailsFragment extends Fragment {
     }
 
     /**
-     * Updates all UI fields with appointment data from Firestore document.
+     * Updates all UI fields with the loaded appointment data.
      *
-     * @param doc Firestore document snapshot containing appointment data
+     * @param appointment Map containing the appointment's fields
      */
-    private void updateUIWithAppointment(com.google.firebase.firestore.DocumentSnapshot doc) {
-        date = doc.getString("date");
-        time = doc.getString("startTime");
-        type = doc.getString("type");
-        vetName = doc.getString("vetName");
-        dogName = doc.getString("dogName");
-        details = doc.getString("notes");
-        appointmentId = doc.getString("id");
-        dogId = doc.getString("dogId");
-        vetId = doc.getString("vetId");
+    private void updateUIWithAppointment(Map<String, Object> appointment) {
+        date = (String) appointment.get("date");
+        time = (String) appointment.get("startTime");
+        type = (String) appointment.get("type");
+        vetName = (String) appointment.get("vetName");
+        dogName = (String) appointment.get("dogName");
+        details = (String) appointment.get("notes");
+        appointmentId = (String) appointment.get("id");
+        dogId = (String) appointment.get("dogId");
+        vetId = (String) appointment.get("vetId");
 
         View view = getView();
         if (view == null) return;
@@ -359,8 +374,7 @@ public class AppointmentDetailsFragment extends Fragment {
             Toast.makeText(requireContext(), "Missing appointment, dog ID or vet ID", Toast.LENGTH_SHORT).show();
             return;
         }
-        com.example.vetcalls.obj.FirestoreUserHelper.markAppointmentCompletedEverywhere(
-                requireContext(),
+        Repositories.appointments().markCompleted(
                 appointmentId,
                 dogId,
                 vetId,
@@ -24,22 +24,18 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.vetcalls.R;
-import com.example.vetcalls.obj.FirestoreUserHelper;
-import com.google.android.gms.tasks.Task;
-import com.google.android.gms.tasks.Tasks;
+import com.example.vetcalls.obj.AppointmentTimes;
+import com.example.vetcalls.repository.AppointmentRepository;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.LocalStore;
+import com.example.vetcalls.repository.Repositories;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.CollectionReference;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Fragment for displaying and managing appointments in a calendar interface.
@@ -56,10 +52,13 @@ public class CalendarFragment extends Fragment {
     private RecyclerView appointmentsRecyclerView;
     private AppointmentAdapter appointmentAdapter;
     private List<Map<String, Object>> appointmentList;
-    private FirebaseFirestore db;
+    private AppointmentRepository appointments;
     private boolean isVet;
     private SharedPreferences sharedPreferences;
     private String selectedDate = "";
+
+    /** The date whose Firestore results are on screen, so late cache reads do not replace them. */
+    private String loadedDate;
     private String userId;
     private Button addAppointmentButton;
 
@@ -108,7 +107,7 @@ public class CalendarFragment extends Fragment {
      * Initializes data sources and determines user type from SharedPreferences.
      */
     private void initData() {
-        db = FirebaseFirestore.getInstance();
+        appointments = Repositories.appointments();
         userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         sharedPreferences = requireActivity().getSharedPreferences("UserProfile", Context.MODE_PRIVATE);
         isVet = sharedPreferences.getBoolean("isVet", false);
@@ -166,8 +165,10 @@ public class CalendarFragment extends Fragment {
         Log.d(TAG, "Loading appointments for date: " + date + ", isVet: " + isVet);
 
         appointmentList.clear();
-        appointmentAdapter.notifyDataSetChanged();
+        appointmentAdapter.updateAppointments(appointmentList);
+        loadedDate = null;
 
+        showCachedAppointments(date);
         if (isVet) {
             loadVetAppointments(date);
         } else {
@@ -176,232 +177,145 @@ public class CalendarFragment extends Fragment {
     }
 
     /**
-     * Loads appointments for veterinarian users from their appointments collection.
+     * Shows the appointments cached in the local store for a date while it loads from Firestore.
      *
-     * @param date The date to load appointments for
+     * @param date The date to show appointments for in yyyy-M-d format
      */
-    private void loadVetAppointments(String date) {
-        Log.d(TAG, "Loading vet appointments for: " + date);
+    private void showCachedAppointments(String date) {
+        long dayStart = AppointmentTimes.dayStart(date);
+        long dayEnd = AppointmentTimes.addDays(dayStart, 1);
+        Consumer<List<Map<String, Object>>> onLoaded = cached -> {
+            // Firestore may already have answered, or another date may have been picked, while the cache was read
+            if (!isAdded() || !date.equals(selectedDate) || date.equals(loadedDate) || cached.isEmpty()) return;
+            appointmentList.clear();
+            for (Map<String, Object> appointmentData : cached) {
+                if (isDisplayed(appointmentData)) appointmentList.add(appointmentData);
+            }
+            Log.d(TAG, "Showing " + appointmentList.size() + " cached appointments for " + date);
+            updateUI();
+        };
 
-        db.collection("Veterinarians")
-                .document(userId)
-                .collection("Appointments")
-                .whereEqualTo("date", date)
-                .get()
-                .addOnSuccessListener(querySnapshots -> {
-                    Log.d(TAG, "Vet appointments query successful. Found: " + querySnapshots.size());
-
-                    appointmentList.clear();
-
-                    for (QueryDocumentSnapshot document : querySnapshots) {
-                        Map<String, Object> appointmentData = document.getData();
-                        appointmentData.put("documentId", document.getId());
-                        boolean isCompleted = appointmentData.get("completed") instanceof Boolean && (Boolean) appointmentData.get("completed");
-                        String apptDate = (String) appointmentData.get("date");
-                        String apptTime = (String) appointmentData.get("startTime");
-                        if (!isCompleted) {
-                            if (!isFutureAppointment(apptDate, apptTime)) {
-                                markAppointmentCompletedForVet(document.getId(), (String)appointmentData.get("dogId"), userId);
-                                continue;
-                            }
-                            appointmentList.add(appointmentData);
-                            Log.d(TAG, "Added vet appointment: " + appointmentData.get("type") + " at " + appointmentData.get("startTime"));
-                        }
-                    }
-
-                    updateUI();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading vet appointments", e);
-                    Toast.makeText(getContext(), "Error loading appointments: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    updateUI();
-                });
+        if (isVet) {
+            LocalStore.get(requireContext()).loadVetAppointmentsBetween(userId, dayStart, dayEnd, onLoaded);
+        } else {
+            LocalStore.get(requireContext()).loadOwnerAppointmentsBetween(userId, dayStart, dayEnd, onLoaded);
+        }
     }
 
     /**
-     * Loads appointments for dog owner users by querying their dogs' appointments.
+     * Saves the appointments loaded for a date to the local store and shows the ones still to come.
      *
-     * @param date The date to load appointments for
+     * @param date The date the appointments were loaded for
+     * @param dayAppointments The appointments starting on that date
      */
-    private void loadPatientAppointments(String date) {
-        Log.d(TAG, "Loading patient appointments for: " + date);
-        Log.d(TAG, "selectedDate: " + date);
-        db.collection("Users")
-                .document(userId)
-                .collection("Dogs")
-                .get()
-                .addOnSuccessListener(dogSnapshots -> {
-                    List<String> dogIds = new ArrayList<>();
-                    if (!dogSnapshots.isEmpty()) {
-                        Log.d(TAG, "Found " + dogSnapshots.size() + " dogs for user (Users collection)");
-                        for (QueryDocumentSnapshot dogDoc : dogSnapshots) {
-                            String dogId = dogDoc.getString("dogId");
-                            if (dogId != null) dogIds.add(dogId);
-                        }
-                    }
-                    db.collection("DogProfiles")
-                            .whereEqualTo("ownerId", userId)
-                            .get()
-                            .addOnSuccessListener(dogProfileSnapshots -> {
-                                for (QueryDocumentSnapshot dogProfileDoc : dogProfileSnapshots) {
-                                    String dogId = dogProfileDoc.getId();
-                                    if (!dogIds.contains(dogId)) {
-                                        dogIds.add(dogId);
-                                    }
-                                }
-                                Log.d(TAG, "All dogIds for user: " + dogIds);
-                                if (dogIds.isEmpty()) {
-                                    Log.d(TAG, "No dogs found for user (DogProfiles)");
-                                    updateUI();
-                                    return;
-                                }
-                                Log.d(TAG, "Total dogs for user: " + dogIds.size());
-                                List<Task<QuerySnapshot>> appointmentTasks = new ArrayList<>();
-                                for (String dogId : dogIds) {
-                                    Task<QuerySnapshot> appointmentTask = db.collection("DogProfiles")
-                                            .document(dogId)
-                                            .collection("Appointments")
-                                            .whereEqualTo("date", date)
-                                            .get();
-                                    appointmentTasks.add(appointmentTask);
-                                }
-                                Tasks.whenAllComplete(appointmentTasks)
-                                        .addOnCompleteListener(allTasks -> {
-                                            appointmentList.clear();
-                                            int taskIndex = 0;
-                                            for (String dogId : dogIds) {
-                                                if (taskIndex < allTasks.getResult().size()) {
-                                                    Task<?> task = allTasks.getResult().get(taskIndex);
-                                                    if (task.isSuccessful()) {
-                                                        QuerySnapshot appointmentSnapshot = (QuerySnapshot) task.getResult();
-                                                        Log.d(TAG, "Found " + appointmentSnapshot.size() + " appointments for dogId: " + dogId);
-                                                        for (QueryDocumentSnapshot appointmentDoc : appointmentSnapshot) {
-                                                            Map<String, Object> appointmentData = appointmentDoc.getData();
-                                                            appointmentData.put("dogName", appointmentData.get("dogName"));
-                                                            appointmentData.put("documentId", appointmentDoc.getId());
-                                                            String apptDate = (String) appointmentData.get("date");
-                                                            String apptTime = (String) appointmentData.get("startTime");
-                                                            String apptOwner = (String) appointmentData.get("ownerId");
-                                                            Log.d(TAG, "Appointment candidate: date=" + apptDate + ", startTime=" + apptTime + ", ownerId=" + apptOwner);
-                                                            if (shouldShowAppointment(apptDate, apptTime)) {
-                                                                appointmentList.add(appointmentData);
-                                                                Log.d(TAG, "Added patient appointment: " + appointmentData.get("type") + " for dogId: " + dogId);
-                                                            }
-                                                        }
-                                                    } else {
-                                                        Log.e(TAG, "Error loading appointments for dogId: " + dogId, task.getException());
-                                                    }
-                                                }
-                                                taskIndex++;
-                                            }
-                                            Log.d(TAG, "appointmentList size: " + appointmentList.size());
-                                            for (Map<String, Object> appt : appointmentList) {
-                                                Log.d(TAG, "Appointment in list: " + appt.toString());
-                                            }
-                                            updateUI();
-                                        });
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error loading user dog profiles", e);
-                                updateUI();
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading user dogs", e);
-                    updateUI();
-                });
+    private void showLoadedAppointments(String date, List<Map<String, Object>> dayAppointments) {
+        long dayStart = AppointmentTimes.dayStart(date);
+        if (isAdded()) {
+            LocalStore.get(requireContext()).replaceAppointmentsBetween(isVet, userId, dayStart,
+                    AppointmentTimes.addDays(dayStart, 1), dayAppointments);
+        }
+        if (!date.equals(selectedDate)) return;
+
+        loadedDate = date;
+        appointmentList.clear();
+        for (Map<String, Object> appointmentData : dayAppointments) {
+            if (isDisplayed(appointmentData)) {
+                appointmentList.add(appointmentData);
+                Log.d(TAG, "Added appointment: " + appointmentData.get("type") + " at " + appointmentData.get("startTime"));
+            }
+        }
+        updateUI();
     }
 
     /**
-     * Determines whether an appointment should be displayed based on its date and time.
+     * Determines whether an appointment belongs in the list. Veterinarians see their uncompleted
+     * appointments that have not started yet; owners see every appointment from the start of its day on.
+     * Past appointments are completed by AppointmentCompletionSweeper; until it runs they are only hidden.
      *
-     * @param date The appointment date
-     * @param startTime The appointment start time
-     * @return true if the appointment should be shown, false otherwise
+     * @param appointmentData The appointment fields
+     * @return true if the appointment should be listed
      */
-    private boolean shouldShowAppointment(String date, String startTime) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-M-d", Locale.getDefault());
-            Date appointmentDate = sdf.parse(date);
-            Calendar apptCal = Calendar.getInstance();
-            apptCal.setTime(appointmentDate);
-            Calendar now = Calendar.getInstance();
-            if (apptCal.get(Calendar.YEAR) == now.get(Calendar.YEAR) &&
-                    apptCal.get(Calendar.MONTH) == now.get(Calendar.MONTH) &&
-                    apptCal.get(Calendar.DAY_OF_MONTH) == now.get(Calendar.DAY_OF_MONTH)) {
-                return true;
+    private boolean isDisplayed(Map<String, Object> appointmentData) {
+        if (!isVet) return shouldShowAppointment(appointmentData);
+        boolean isCompleted = appointmentData.get("completed") instanceof Boolean && (Boolean) appointmentData.get("completed");
+        return !isCompleted && isFutureAppointment(appointmentData);
+    }
+
+    /**
+     * Loads appointments for veterinarian users from their appointments collection.
+     *
+     * @param date The date to load appointments for
+     */
+    private void loadVetAppointments(String date) {
+        Log.d(TAG, "Loading vet appointments for: " + date);
+
+        long dayStart = AppointmentTimes.dayStart(date);
+        appointments.getVetAppointmentsBetween(userId, dayStart, AppointmentTimes.addDays(dayStart, 1), new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> dayAppointments) {
+                Log.d(TAG, "Vet appointments query successful. Found: " + dayAppointments.size());
+                showLoadedAppointments(date, dayAppointments);
             }
-            return appointmentDate != null && appointmentDate.after(now.getTime());
-        } catch (Exception e) {
-            return true;
-        }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading vet appointments", e);
+                Toast.makeText(getContext(), "Error loading appointments: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                updateUI();
+            }
+        });
     }
 
     /**
-     * Checks if an appointment is in the future based on date and time.
+     * Loads appointments for dog owner users with one query across all of their dogs.
      *
-     * @param date The appointment date
-     * @param startTime The appointment start time
-     * @return true if the appointment is in the future, false otherwise
+     * @param date The date to load appointments for
      */
-    private boolean isFutureAppointment(String date, String startTime) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-M-d HH:mm", Locale.getDefault());
-            Date appointmentDate = sdf.parse(date + " " + startTime);
-            return appointmentDate != null && appointmentDate.after(new Date());
-        } catch (Exception e) {
-            return true;
-        }
+    private void loadPatientAppointments(String date) {
+        Log.d(TAG, "Loading patient appointments for: " + date);
+        long dayStart = AppointmentTimes.dayStart(date);
+        appointments.getOwnerAppointmentsBetween(userId, dayStart, AppointmentTimes.addDays(dayStart, 1), new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> ownerAppointments) {
+                Log.d(TAG, "Found " + ownerAppointments.size() + " appointments for owner on " + date);
+                showLoadedAppointments(date, ownerAppointments);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading patient appointments", e);
+                updateUI();
+            }
+        });
     }
 
     /**
-     * Marks an appointment as completed in all relevant Firestore collections.
+     * Determines whether an appointment should be displayed: it is shown from the start of its day on.
      *
-     * @param appointmentId The appointment's unique identifier
-     * @param dogId The dog's unique identifier
-     * @param vetId The veterinarian's unique identifier
+     * @param appointmentData The appointment fields
+     * @return true if the appointment should be shown, false otherwise
      */
-    private void markAppointmentCompletedEverywhere(String appointmentId, String dogId, String vetId) {
-        db.collection("Veterinarians")
-                .document(vetId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .update("completed", true)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Appointment marked as completed for vet: " + appointmentId))
-                .addOnFailureListener(e -> Log.e(TAG, "Failed to update appointment for vet: " + appointmentId, e));
-
-        db.collection("DogProfiles")
-                .document(dogId)
-                .collection("Appointments")
-                .document(appointmentId)
-                .update("completed", true)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Appointment marked as completed for dog: " + appointmentId))
-                .addOnFailureListener(e -> Log.e(TAG, "Failed to update appointment for dog: " + appointmentId, e));
+    private boolean shouldShowAppointment(Map<String, Object> appointmentData) {
+        long startAt = AppointmentTimes.startAtOf(appointmentData);
+        return startAt < 0 || startAt >= AppointmentTimes.todayStart();
     }
 
     /**
-     * Marks an appointment as completed using the FirestoreUserHelper utility.
+     * Checks if an appointment is in the future.
      *
-     * @param appointmentId The appointment's unique identifier
-     * @param dogId The dog's unique identifier
-     * @param vetId The veterinarian's unique identifier
+     * @param appointmentData The appointment fields
+     * @return true if the appointment is in the future, false otherwise
      */
-    private void markAppointmentCompletedForVet(String appointmentId, String dogId, String vetId) {
-        com.example.vetcalls.obj.FirestoreUserHelper.markAppointmentCompletedEverywhere(
-                getContext(),
-                appointmentId,
-                dogId,
-                vetId,
-                null,
-                (error) -> Log.e(TAG, "Failed to update appointment: " + error)
-        );
+    private boolean isFutureAppointment(Map<String, Object> appointmentData) {
+        long startAt = AppointmentTimes.startAtOf(appointmentData);
+        return startAt < 0 || startAt > System.currentTimeMillis();
     }
 
     /**
      * Updates the UI to reflect the current appointment list state.
      */
     private void updateUI() {
-        appointmentAdapter.notifyDataSetChanged();
+        appointmentAdapter.updateAppointments(appointmentList);
 
         if (appointmentList.isEmpty()) {
             showEmptyView("No appointments for " + selectedDate);
@@ -458,9 +372,7 @@ public class CalendarFragment extends Fragment {
      * @return Today's date in yyyy-M-d format
      */
     private String getTodayDateString() {
-        Calendar calendar = Calendar.getInstance();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-M-d", Locale.getDefault());
-        String today = dateFormat.format(calendar.getTime());
+        String today = AppointmentTimes.dateOf(System.currentTimeMillis());
         Log.d(TAG, "Today's date: " + today);
         return today;
     }
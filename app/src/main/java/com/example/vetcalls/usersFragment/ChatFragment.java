@@ -18,9 +18,15 @@ import com.example.vetcalls.usersFragment.ChatMessageFragment;
 import com.example.vetcalls.obj.ChatPreview;
 import com.example.vetcalls.obj.ChatPreviewAdapter;
 import com.example.vetcalls.obj.DogProfile;
-import com.example.vetcalls.obj.Veterinarian;
+import com.example.vetcalls.obj.ImageVariants;
+import com.example.vetcalls.obj.ListImagePreloader;
+import com.example.vetcalls.repository.ChatRepository;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.LocalStore;
+import com.example.vetcalls.repository.Repositories;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.*;
+import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.*;
@@ -38,7 +44,7 @@ public class ChatFragment extends Fragment {
     private static final String TAG = "ChatFragment";
     private RecyclerView recyclerView;
     private FloatingActionButton startChatFab;
-    private FirebaseFirestore db;
+    private ChatRepository chats;
     private FirebaseAuth auth;
     private ChatPreviewAdapter adapter;
     private List<ChatPreview> chatList = new ArrayList<>();
@@ -53,34 +59,38 @@ public class ChatFragment extends Fragment {
 
     /**
      * Called when the fragment is first created.
-     * Initializes Firebase instances and determines user type.
+     * Initializes the repositories and determines user type.
      *
      * @param savedInstanceState If the fragment is being re-created from a previous saved state
      */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        db = FirebaseFirestore.getInstance();
+        chats = Repositories.chats();
         auth = FirebaseAuth.getInstance();
 
         String currentUserId = auth.getCurrentUser().getUid();
-        db.collection("Veterinarians").document(currentUserId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    isVet = documentSnapshot.exists();
-                    Log.d(TAG, "User type checked - isVet: " + isVet);
-                    if (recyclerView != null && adapter != null) {
-                        updateAdapterUserType();
-                        loadChatList();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error checking user type", e);
-                    isVet = false;
-                    if (recyclerView != null && adapter != null) {
-                        updateAdapterUserType();
-                        loadChatList();
-                    }
-                });
+        Repositories.vets().getVet(currentUserId, new DataCallback<Map<String, Object>>() {
+            @Override
+            public void onSuccess(Map<String, Object> vet) {
+                isVet = vet != null;
+                Log.d(TAG, "User type checked - isVet: " + isVet);
+                if (recyclerView != null && adapter != null) {
+                    updateAdapterUserType();
+                    loadChatList();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error checking user type", e);
+                isVet = false;
+                if (recyclerView != null && adapter != null) {
+                    updateAdapterUserType();
+                    loadChatList();
+                }
+            }
+        });
     }
 
     /**
@@ -102,9 +112,12 @@ public class ChatFragment extends Fragment {
 
         adapter = new ChatPreviewAdapter(chatList, chat -> openChatFragment(chat));
         recyclerView.setAdapter(adapter);
+        adapter.attachImagePreloader(recyclerView, ListImagePreloader.DEFAULT_ROWS_AHEAD);
 
         startChatFab.setOnClickListener(v -> openNewChatDialog());
 
+        showCachedChatList();
+
         if (isVet || isVet == false) {
             loadChatList();
         }
@@ -124,10 +137,10 @@ public class ChatFragment extends Fragment {
 
     /**
      * Updates the adapter with the current user type.
+     * The adapter is kept, so its image preloader stays attached to the list.
      */
     private void updateAdapterUserType() {
-        adapter = new ChatPreviewAdapter(chatList, chat -> openChatFragment(chat));
-        recyclerView.setAdapter(adapter);
+        adapter.submitList(chatList);
     }
 
     /**
@@ -152,95 +165,158 @@ public class ChatFragment extends Fragment {
     /**
      * Loads the chat list for the current user from Firestore.
      * Displays different information based on whether the user is a veterinarian or dog owner.
+     * Profiles missing from the chat documents are resolved in one batch, and the list is
+     * published to the adapter once.
      */
     private void loadChatList() {
         String currentUserId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
         if (currentUserId == null) return;
         Log.d(TAG, "Loading chats for user: " + currentUserId);
-        db.collection("Chats")
-                .whereArrayContains("participants", currentUserId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    chatList.clear();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        String chatId = doc.getId();
-                        String imageUrl, displayName;
-                        String lastMessage = doc.getString("lastMessage");
-                        Date lastMessageTime = doc.getTimestamp("lastMessageTime") != null ?
-                                doc.getTimestamp("lastMessageTime").toDate() : new Date();
-                        if (isVet) {
-                            displayName = doc.getString("dogName");
-                            imageUrl = doc.getString("dogImageUrl");
-                            String dogId = doc.getString("dogId");
-                            if ((displayName == null || displayName.isEmpty() || imageUrl == null || imageUrl.isEmpty()) && dogId != null && !dogId.isEmpty()) {
-                                db.collection("DogProfiles").document(dogId).get()
-                                        .addOnSuccessListener(dogDoc -> {
-                                            String name = dogDoc.getString("name");
-                                            String img = dogDoc.getString("profileImageUrl");
-                                            String finalName = (name != null && !name.isEmpty()) ? name : "כלב";
-                                            String finalImg = (img != null && !img.isEmpty()) ? img : "https://example.com/default_dog_image.png";
-                                            updateOrAddChatPreview(chatId, finalName, finalImg, lastMessage, lastMessageTime);
-                                        });
-                                continue;
-                            }
-                            if (displayName == null || displayName.isEmpty()) displayName = "כלב";
-                            if (imageUrl == null || imageUrl.isEmpty()) imageUrl = "https://example.com/default_dog_image.png";
-                        } else {
-                            String vetId = doc.getString("vetId");
-                            if (vetId != null && !vetId.isEmpty()) {
-                                db.collection("Veterinarians").document(vetId).get()
-                                        .addOnSuccessListener(vetDoc -> {
-                                            String name = vetDoc.getString("fullName");
-                                            String img = vetDoc.getString("profileImageUrl");
-                                            String finalName = (name != null && !name.isEmpty()) ? name : "וטרינר";
-                                            String finalImg = (img != null && !img.isEmpty()) ? img : "https://example.com/default_vet_image.png";
-                                            updateOrAddChatPreview(chatId, finalName, finalImg, lastMessage, lastMessageTime);
-                                        });
-                                continue;
-                            } else {
-                                displayName = "וטרינר";
-                                imageUrl = "https://example.com/default_vet_image.png";
-                                updateOrAddChatPreview(chatId, displayName, imageUrl, lastMessage, lastMessageTime);
-                            }
+        chats.getChatsForUser(currentUserId, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> userChats) {
+                boolean vetView = isVet;
+                List<String> profileIds = new ArrayList<>();
+                for (Map<String, Object> doc : userChats) {
+                    if (vetView) {
+                        String dogId = (String) doc.get("dogId");
+                        if (isBlank((String) doc.get("dogName")) || isBlank((String) doc.get("dogImageUrl"))) {
+                            if (!isBlank(dogId)) profileIds.add(dogId);
                         }
-                        updateOrAddChatPreview(chatId, displayName, imageUrl, lastMessage, lastMessageTime);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    if (e.getMessage() != null && e.getMessage().contains("PERMISSION_DENIED")) {
+                    } else {
+                        String vetId = (String) doc.get("vetId");
+                        if (!isBlank(vetId)) profileIds.add(vetId);
                     }
-                    Context context = getContext();
-                    if (context != null) {
-                        Toast.makeText(context, "אין לך עדיין צ'אטים, צרי שיחה חדשה!", Toast.LENGTH_LONG).show();
+                }
+
+                DataCallback<Map<String, Map<String, Object>>> onResolved = new DataCallback<Map<String, Map<String, Object>>>() {
+                    @Override
+                    public void onSuccess(Map<String, Map<String, Object>> profiles) {
+                        publishChatList(buildChatPreviews(userChats, profiles, vetView));
                     }
-                    if (emptyChatsText != null && recyclerView != null) {
-                        recyclerView.setVisibility(View.GONE);
-                        emptyChatsText.setVisibility(View.VISIBLE);
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "Error resolving chat profiles", e);
+                        publishChatList(buildChatPreviews(userChats, new HashMap<>(), vetView));
                     }
-                });
+                };
+
+                if (vetView) {
+                    Repositories.profiles().resolveDogs(profileIds, onResolved);
+                } else {
+                    Repositories.profiles().resolveVets(profileIds, onResolved);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Context context = getContext();
+                if (context != null) {
+                    Toast.makeText(context, "אין לך עדיין צ'אטים, צרי שיחה חדשה!", Toast.LENGTH_LONG).show();
+                }
+                if (emptyChatsText != null && recyclerView != null) {
+                    recyclerView.setVisibility(View.GONE);
+                    emptyChatsText.setVisibility(View.VISIBLE);
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the chat previews cached in the local store while the list loads from Firestore.
+     */
+    private void showCachedChatList() {
+        String currentUserId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
+        if (currentUserId == null) return;
+        LocalStore.get(requireContext()).loadChatPreviews(currentUserId, previews -> {
+            // The Firestore load may already have answered while the local store was read
+            if (!isAdded() || adapter == null || previews.isEmpty() || !chatList.isEmpty()) return;
+            chatList.addAll(previews);
+            adapter.submitList(chatList);
+            updateEmptyView();
+        });
     }
 
     /**
-     * Updates an existing chat preview or adds a new one to the list.
+     * Builds the chat previews from the chat documents and the resolved profiles.
+     * A veterinarian sees the dog's name and image, preferring the values stored on the chat.
+     * A dog owner sees the veterinarian's current profile.
      *
-     * @param chatId The unique identifier for the chat
-     * @param displayName The name to display for the chat
-     * @param imageUrl The profile image URL for the chat
-     * @param lastMessage The last message content
-     * @param lastMessageTime The timestamp of the last message
+     * @param userChats The chat documents
+     * @param profiles The resolved dog or veterinarian profiles keyed by ID
+     * @param vetView Whether the current user is a veterinarian
+     * @return The chat previews in chat document order
      */
-    private void updateOrAddChatPreview(String chatId, String displayName, String imageUrl, String lastMessage, Date lastMessageTime) {
-        for (int i = 0; i < chatList.size(); i++) {
-            if (chatList.get(i).chatId.equals(chatId)) {
-                chatList.set(i, new ChatPreview(chatId, displayName, imageUrl, lastMessage, lastMessageTime));
-                adapter.notifyDataSetChanged();
-                updateEmptyView();
-                return;
+    private List<ChatPreview> buildChatPreviews(List<Map<String, Object>> userChats,
+                                                Map<String, Map<String, Object>> profiles, boolean vetView) {
+        List<ChatPreview> previews = new ArrayList<>();
+        for (Map<String, Object> doc : userChats) {
+            String chatId = (String) doc.get("documentId");
+            String lastMessage = (String) doc.get("lastMessage");
+            Date lastMessageTime = toDate(doc.get("lastMessageTime"));
+            String displayName;
+            String imageUrl;
+
+            if (vetView) {
+                displayName = (String) doc.get("dogName");
+                imageUrl = (String) doc.get("dogImageUrl");
+                Map<String, Object> dog = profiles.get((String) doc.get("dogId"));
+                if (dog != null) {
+                    if (isBlank(displayName)) displayName = (String) dog.get("name");
+                    if (isBlank(imageUrl)) imageUrl = ImageVariants.thumbnailOf(dog);
+                }
+                if (isBlank(displayName)) displayName = "כלב";
+                if (isBlank(imageUrl)) imageUrl = "https://example.com/default_dog_image.png";
+            } else {
+                Map<String, Object> vet = profiles.get((String) doc.get("vetId"));
+                displayName = vet != null ? (String) vet.get("fullName") : null;
+                imageUrl = vet != null ? ImageVariants.thumbnailOf(vet) : null;
+                if (isBlank(displayName)) displayName = "וטרינר";
+                if (isBlank(imageUrl)) imageUrl = "https://example.com/default_vet_image.png";
             }
+
+            previews.add(new ChatPreview(chatId, displayName, imageUrl, lastMessage, lastMessageTime));
         }
-        chatList.add(new ChatPreview(chatId, displayName, imageUrl, lastMessage, lastMessageTime));
-        adapter.notifyDataSetChanged();
+        return previews;
+    }
+
+    /**
+     * Replaces the displayed chat list, refreshes the adapter once and caches the list in the local store.
+     *
+     * @param previews The chat previews to display
+     */
+    private void publishChatList(List<ChatPreview> previews) {
+        if (!isAdded() || adapter == null) return;
+        chatList.clear();
+        chatList.addAll(previews);
+        adapter.submitList(chatList);
         updateEmptyView();
+        if (auth.getCurrentUser() != null) {
+            LocalStore.get(requireContext()).replaceChatPreviews(auth.getCurrentUser().getUid(), previews);
+        }
+    }
+
+    /**
+     * Checks whether a string field is missing or empty.
+     *
+     * @param value The value to check
+     * @return True if the value is null or empty
+     */
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * Converts a stored timestamp field into a Date.
+     *
+     * @param value The stored value, either a Firestore Timestamp or a Date
+     * @return The matching Date, or the current time if the value is missing
+     */
+    private static Date toDate(Object value) {
+        if (value instanceof Timestamp) return ((Timestamp) value).toDate();
+        if (value instanceof Date) return (Date) value;
+        return new Date();
     }
 
     /**
@@ -265,75 +341,76 @@ public class ChatFragment extends Fragment {
     private void openNewChatDialog() {
         String currentUserId = auth.getCurrentUser().getUid();
         if (isVet) {
-            db.collection("DogProfiles").whereEqualTo("vetId", currentUserId).get()
-                    .addOnSuccessListener(query -> {
-                        List<String> dogNames = new ArrayList<>();
-                        Map<String, String> dogIdMap = new HashMap<>();
-
-                        for (DocumentSnapshot doc : query.getDocuments()) {
-                            String name = doc.getString("name");
-                            String dogId = doc.getId();
-                            String imageUrl = doc.getString("profileImageUrl");
-                            Object ageObj = doc.get("age");
-                            String age = "";
-                            if (ageObj != null) {
-                                age = ageObj.toString();
-                            }
-
-                            if (name != null && !name.isEmpty()) {
-                                dogNames.add(name);
-                                dogIdMap.put(name, dogId);
-                            }
+            Repositories.dogs().getDogsByVet(currentUserId, new DataCallback<List<Map<String, Object>>>() {
+                @Override
+                public void onSuccess(List<Map<String, Object>> dogs) {
+                    List<String> dogNames = new ArrayList<>();
+                    Map<String, String> dogIdMap = new HashMap<>();
+
+                    for (Map<String, Object> doc : dogs) {
+                        String name = (String) doc.get("name");
+                        String dogId = (String) doc.get("documentId");
+
+                        if (name != null && !name.isEmpty()) {
+                            dogNames.add(name);
+                            dogIdMap.put(name, dogId);
                         }
+                    }
 
-                        Log.d(TAG, "Loaded dogs for vet: " + dogNames);
-                        if (!dogNames.isEmpty()) {
-                            showSelectionDialog(dogNames, dogIdMap);
-                        } else {
-                            Context context = getContext();
-                            if (context != null) {
-                                Toast.makeText(context, "לא נמצאו כלבים משויכים", Toast.LENGTH_SHORT).show();
-                            }
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "שגיאה בטעינת כלבים", e);
+                    Log.d(TAG, "Loaded dogs for vet: " + dogNames);
+                    if (!dogNames.isEmpty()) {
+                        showSelectionDialog(dogNames, dogIdMap);
+                    } else {
                         Context context = getContext();
                         if (context != null) {
-                            Toast.makeText(context, "שגיאה בטעינת כלבים: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                            Toast.makeText(context, "לא נמצאו כלבים משויכים", Toast.LENGTH_SHORT).show();
                         }
-                    });
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "שגיאה בטעינת כלבים", e);
+                    Context context = getContext();
+                    if (context != null) {
+                        Toast.makeText(context, "שגיאה בטעינת כלבים: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         } else {
-            db.collection("Veterinarians").get()
-                    .addOnSuccessListener(query -> {
-                        List<String> vetNames = new ArrayList<>();
-                        Map<String, String> vetIdMap = new HashMap<>();
-
-                        for (DocumentSnapshot doc : query.getDocuments()) {
-                            Veterinarian vet = doc.toObject(Veterinarian.class);
-                            String name = vet != null ? vet.fullName : null;
-                            if (name != null) {
-                                vetNames.add(name);
-                                vetIdMap.put(name, doc.getId());
-                            }
+            Repositories.vets().getAllVets(new DataCallback<List<Map<String, Object>>>() {
+                @Override
+                public void onSuccess(List<Map<String, Object>> vets) {
+                    List<String> vetNames = new ArrayList<>();
+                    Map<String, String> vetIdMap = new HashMap<>();
+
+                    for (Map<String, Object> doc : vets) {
+                        String name = (String) doc.get("fullName");
+                        if (name != null) {
+                            vetNames.add(name);
+                            vetIdMap.put(name, (String) doc.get("documentId"));
                         }
+                    }
 
-                        if (!vetNames.isEmpty()) {
-                            showSelectionDialog(vetNames, vetIdMap);
-                        } else {
-                            Context context = getContext();
-                            if (context != null) {
-                                Toast.makeText(context, "לא נמצאו וטרינרים", Toast.LENGTH_SHORT).show();
-                            }
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "שגיאה בטעינת וטרינרים", e);
+                    if (!vetNames.isEmpty()) {
+                        showSelectionDialog(vetNames, vetIdMap);
+                    } else {
                         Context context = getContext();
                         if (context != null) {
-                            Toast.makeText(context, "שגיאה בטעינת וטרינרים: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                            Toast.makeText(context, "לא נמצאו וטרינרים", Toast.LENGTH_SHORT).show();
                         }
-                    });
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "שגיאה בטעינת וטרינרים", e);
+                    Context context = getContext();
+                    if (context != null) {
+                        Toast.makeText(context, "שגיאה בטעינת וטרינרים: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         }
     }
 
@@ -375,39 +452,41 @@ public class ChatFragment extends Fragment {
             return;
         }
 
-        db.collection("Chats")
-                .whereArrayContains("participants", currentUserId)
-                .get()
-                .addOnSuccessListener(query -> {
-                    boolean found = false;
-                    for (DocumentSnapshot doc : query.getDocuments()) {
-                        List<String> participants = (List<String>) doc.get("participants");
-                        if (participants != null && participants.contains(selectedId) && participants.contains(currentUserId) && participants.size() == 2) {
-                            String displayName, imageUrl;
-                            if (isVet) {
-                                displayName = doc.getString("dogName");
-                                imageUrl = doc.getString("dogImageUrl");
-                            } else {
-                                displayName = doc.getString("vetName");
-                                imageUrl = doc.getString("vetImageUrl");
-                            }
-                            ChatPreview chatPreview = new ChatPreview(doc.getId(), displayName, imageUrl);
-                            openChatFragment(chatPreview);
-                            found = true;
-                            break;
+        chats.getChatsForUser(currentUserId, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> userChats) {
+                boolean found = false;
+                for (Map<String, Object> doc : userChats) {
+                    List<String> participants = (List<String>) doc.get("participants");
+                    if (participants != null && participants.contains(selectedId) && participants.contains(currentUserId) && participants.size() == 2) {
+                        String displayName, imageUrl;
+                        if (isVet) {
+                            displayName = (String) doc.get("dogName");
+                            imageUrl = (String) doc.get("dogImageUrl");
+                        } else {
+                            displayName = (String) doc.get("vetName");
+                            imageUrl = (String) doc.get("vetImageUrl");
                         }
+                        ChatPreview chatPreview = new ChatPreview((String) doc.get("documentId"), displayName, imageUrl);
+                        openChatFragment(chatPreview);
+                        found = true;
+                        break;
                     }
-                    if (!found) {
-                        proceedWithChatCreation(currentUserId, selectedName, selectedId);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "שגיאה בטעינת צ'אט", e);
-                    Context context = getContext();
-                    if (context != null) {
-                        Toast.makeText(context, "שגיאה בטעינת צ'אט: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    }
-                });
+                }
+                if (!found) {
+                    proceedWithChatCreation(currentUserId, selectedName, selectedId);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "שגיאה בטעינת צ'אט", e);
+                Context context = getContext();
+                if (context != null) {
+                    Toast.makeText(context, "שגיאה בטעינת צ'אט: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                }
+            }
+        });
     }
 
     /**
@@ -420,93 +499,111 @@ public class ChatFragment extends Fragment {
      */
     private void proceedWithChatCreation(String currentUserId, String selectedName, String selectedId) {
         if (isVet) {
-            db.collection("DogProfiles").document(selectedId).get()
-                    .addOnSuccessListener(dogDoc -> {
-                        if (dogDoc.exists()) {
-                            String ownerId = dogDoc.getString("ownerId");
-                            String dogImageUrl = dogDoc.getString("profileImageUrl");
-                            String dogName = dogDoc.getString("name");
-                            if (dogImageUrl == null || dogImageUrl.isEmpty()) {
-                                dogImageUrl = "https://example.com/default_dog_image.png";
-                            }
-                            if (dogName == null || dogName.isEmpty()) {
-                                dogName = "כלב";
-                            }
-                            Log.d(TAG, "Dog details - Name: " + dogName + ", Image: " + dogImageUrl);
-                            String chatId = selectedId + "_" + currentUserId;
-                            saveChatToFirestore(chatId, currentUserId, selectedId, dogName, dogImageUrl, "וטרינר", "https://example.com/default_vet_image.png");
-                        } else {
-                            Context context = getContext();
-                            if (context != null) {
-                                Toast.makeText(context, "לא נמצא כלב", Toast.LENGTH_SHORT).show();
-                            }
+            Repositories.dogs().getDog(selectedId, new DataCallback<Map<String, Object>>() {
+                @Override
+                public void onSuccess(Map<String, Object> dogDoc) {
+                    if (dogDoc != null) {
+                        String dogImageUrl = ImageVariants.thumbnailOf(dogDoc);
+                        String dogName = (String) dogDoc.get("name");
+                        if (dogImageUrl == null || dogImageUrl.isEmpty()) {
+                            dogImageUrl = "https://example.com/default_dog_image.png";
+                        }
+                        if (dogName == null || dogName.isEmpty()) {
+                            dogName = "כלב";
                         }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error loading dog", e);
+                        Log.d(TAG, "Dog details - Name: " + dogName + ", Image: " + dogImageUrl);
+                        String chatId = selectedId + "_" + currentUserId;
+                        saveChatToFirestore(chatId, currentUserId, selectedId, dogName, dogImageUrl, "וטרינר", "https://example.com/default_vet_image.png");
+                    } else {
                         Context context = getContext();
                         if (context != null) {
-                            Toast.makeText(context, "שגיאה בטעינת כלב: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                            Toast.makeText(context, "לא נמצא כלב", Toast.LENGTH_SHORT).show();
                         }
-                    });
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "Error loading dog", e);
+                    Context context = getContext();
+                    if (context != null) {
+                        Toast.makeText(context, "שגיאה בטעינת כלב: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         } else {
-            db.collection("Veterinarians").document(selectedId).get()
-                    .addOnSuccessListener(vetDoc -> {
-                        if (vetDoc.exists()) {
-                            String vetImageUrl = vetDoc.getString("profileImageUrl");
-                            if (vetImageUrl != null) vetImageUrl = vetImageUrl.trim();
-                            if (vetImageUrl == null || vetImageUrl.isEmpty()) {
-                                vetImageUrl = "https://example.com/default_vet_image.png";
-                            }
-                            String vetName = vetDoc.getString("fullName");
+            Repositories.vets().getVet(selectedId, new DataCallback<Map<String, Object>>() {
+                @Override
+                public void onSuccess(Map<String, Object> vetDoc) {
+                    if (vetDoc != null) {
+                        String vetImageUrl = ImageVariants.thumbnailOf(vetDoc);
+                        if (vetImageUrl != null) vetImageUrl = vetImageUrl.trim();
+                        if (vetImageUrl == null || vetImageUrl.isEmpty()) {
+                            vetImageUrl = "https://example.com/default_vet_image.png";
+                        }
+                        String vetName = (String) vetDoc.get("fullName");
+                        if (vetName == null || vetName.trim().isEmpty()) {
+                            vetName = (String) vetDoc.get("email");
                             if (vetName == null || vetName.trim().isEmpty()) {
-                                vetName = vetDoc.getString("email");
-                                if (vetName == null || vetName.trim().isEmpty()) {
-                                    vetName = "וטרינר";
-                                }
-                            }
-                            final String finalVetName = vetName;
-                            final String finalVetImageUrl = vetImageUrl;
-                            db.collection("DogProfiles")
-                                    .whereEqualTo("ownerId", currentUserId)
-                                    .limit(1)
-                                    .get()
-                                    .addOnSuccessListener(dogQuery -> {
-                                        String dogName = "כלב";
-                                        String dogImageUrl = "https://example.com/default_dog_image.png";
-                                        String dogId = "";
-                                        if (!dogQuery.isEmpty()) {
-                                            DocumentSnapshot dogDoc = dogQuery.getDocuments().get(0);
-                                            dogName = dogDoc.getString("name");
-                                            dogImageUrl = dogDoc.getString("profileImageUrl");
-                                            dogId = dogDoc.getId();
-                                            if (dogName == null || dogName.isEmpty()) dogName = "כלב";
-                                            if (dogImageUrl == null || dogImageUrl.isEmpty()) dogImageUrl = "https://example.com/default_dog_image.png";
-                                        }
-                                        String chatId = (dogId.isEmpty() ? currentUserId : dogId) + "_" + selectedId;
-                                        saveChatToFirestore(chatId, currentUserId, selectedId, dogName, dogImageUrl, finalVetName, finalVetImageUrl);
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        String chatId = currentUserId + "_" + selectedId;
-                                        saveChatToFirestore(chatId, currentUserId, selectedId, "כלב", "https://example.com/default_dog_image.png", finalVetName, finalVetImageUrl);
-                                    });
-                        } else {
-                            Context context = getContext();
-                            if (context != null) {
-                                Toast.makeText(context, "לא נמצא וטרינר", Toast.LENGTH_SHORT).show();
+                                vetName = "וטרינר";
                             }
                         }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "שגיאה בטעינת וטרינר", e);
+                        createOwnerChat(currentUserId, selectedId, vetName, vetImageUrl);
+                    } else {
                         Context context = getContext();
                         if (context != null) {
-                            Toast.makeText(context, "שגיאה בטעינת וטרינר: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                            Toast.makeText(context, "לא נמצא וטרינר", Toast.LENGTH_SHORT).show();
                         }
-                    });
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "שגיאה בטעינת וטרינר", e);
+                    Context context = getContext();
+                    if (context != null) {
+                        Toast.makeText(context, "שגיאה בטעינת וטרינר: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         }
     }
 
+    /**
+     * Creates a chat between a dog owner and a veterinarian, using the owner's first dog for the header.
+     *
+     * @param currentUserId The current user's ID
+     * @param vetId The selected veterinarian's ID
+     * @param vetName The veterinarian's display name
+     * @param vetImageUrl The veterinarian's profile image URL
+     */
+    private void createOwnerChat(String currentUserId, String vetId, String vetName, String vetImageUrl) {
+        Repositories.dogs().getDogsByOwner(currentUserId, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> ownerDogs) {
+                String dogName = "כלב";
+                String dogImageUrl = "https://example.com/default_dog_image.png";
+                String dogId = "";
+                if (!ownerDogs.isEmpty()) {
+                    Map<String, Object> dogDoc = ownerDogs.get(0);
+                    dogName = (String) dogDoc.get("name");
+                    dogImageUrl = ImageVariants.thumbnailOf(dogDoc);
+                    dogId = (String) dogDoc.get("documentId");
+                    if (dogName == null || dogName.isEmpty()) dogName = "כלב";
+                    if (dogImageUrl == null || dogImageUrl.isEmpty()) dogImageUrl = "https://example.com/default_dog_image.png";
+                }
+                String chatId = (dogId.isEmpty() ? currentUserId : dogId) + "_" + vetId;
+                saveChatToFirestore(chatId, currentUserId, vetId, dogName, dogImageUrl, vetName, vetImageUrl);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                String chatId = currentUserId + "_" + vetId;
+                saveChatToFirestore(chatId, currentUserId, vetId, "כלב", "https://example.com/default_dog_image.png", vetName, vetImageUrl);
+            }
+        });
+    }
+
     /**
      * Saves the chat data to Firestore with all necessary participant information.
      *
@@ -593,9 +690,8 @@ public class ChatFragment extends Fragment {
             return;
         }
 
-        DocumentReference chatRef = db.collection("Chats").document(chatId);
-        chatRef.set(data)
-                .addOnSuccessListener(unused -> {
+        chats.createChat(chatId, data,
+                () -> {
                     Log.d(TAG, "צ'אט חדש נוצר בהצלחה: " + chatId);
                     Context context = getContext();
                     if (context != null) {
@@ -605,18 +701,17 @@ public class ChatFragment extends Fragment {
                     String imageUrl = isVet ? (String) data.get("dogImageUrl") : (String) data.get("vetImageUrl");
                     ChatPreview chatPreview = new ChatPreview(chatId, displayName, imageUrl);
                     openChatFragment(chatPreview);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "שגיאה ביצירת צ'אט", e);
-                    if (e.getMessage() != null && e.getMessage().contains("PERMISSION_DENIED")) {
-                        Context context = getContext();
+                },
+                (error) -> {
+                    Log.e(TAG, "שגיאה ביצירת צ'אט: " + error);
+                    Context context = getContext();
+                    if (error != null && error.contains("PERMISSION_DENIED")) {
                         if (context != null) {
                             Toast.makeText(context, "שגיאה ביצירת צ'אט: אין הרשאות. בדקי את כללי האבטחה של Firestore.", Toast.LENGTH_LONG).show();
                         }
                     } else {
-                        Context context = getContext();
                         if (context != null) {
-                            Toast.makeText(context, "שגיאה ביצירת צ'אט: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                            Toast.makeText(context, "שגיאה ביצירת צ'אט: " + error, Toast.LENGTH_LONG).show();
                         }
                     }
                 });
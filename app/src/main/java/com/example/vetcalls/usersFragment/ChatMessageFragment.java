@@ -1,7 +1,6 @@
 package com.example.vetcalls.usersFragment;
 
 import android.app.Activity;
-import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.net.Uri;
@@ -20,16 +19,22 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.example.vetcalls.R;
+import com.example.vetcalls.obj.ImagePipeline;
 import com.example.vetcalls.obj.MessageAdapter;
 import com.example.vetcalls.obj.Message;
+import com.example.vetcalls.repository.ChatRepository;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.Repositories;
+import com.example.vetcalls.repository.Subscription;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.*;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
-import java.io.ByteArrayOutputStream;
 import java.util.*;
 
 /**
@@ -47,6 +52,18 @@ public class ChatMessageFragment extends Fragment {
     private static final String ARG_RECIPIENT_IMAGE = "recipientImage";
     private static final String ARG_IS_VET = "isVet";
 
+    /** Number of newest messages listened to live, and the size of each older page. */
+    private static final int PAGE_SIZE = 30;
+
+    /** How close to the top, in rows, scrolling starts loading the previous page. */
+    private static final int LOAD_OLDER_THRESHOLD = 5;
+
+    /** Pages of messages kept above the live window; older ones are dropped and fetched again on scroll-up. */
+    private static final int MAX_RETAINED_PAGES = 5;
+
+    /** Rows ahead whose photos are preloaded; fewer than for avatar lists, since each photo is much larger. */
+    private static final int PHOTO_PRELOAD_ROWS = 4;
+
     private ImageView recipientImage;
     private TextView recipientName;
     private RecyclerView messagesRecyclerView;
@@ -55,12 +72,18 @@ public class ChatMessageFragment extends Fragment {
     private ImageButton attachButton, backButton;
 
     private FirebaseFirestore db;
+    private ChatRepository chats;
+    private Subscription messagesSubscription;
     private FirebaseAuth auth;
     private String chatId;
     private String recipientDisplayName;
     private String recipientImageUrl;
     private String currentUserId;
     private ArrayList<Message> messageList = new ArrayList<>();
+    private final List<Message> olderMessages = new ArrayList<>();
+    private List<Message> recentMessages = new ArrayList<>();
+    private boolean loadingOlderMessages = false;
+    private boolean hasOlderMessages = true;
     private MessageAdapter messageAdapter;
     private boolean isVet;
 
@@ -107,6 +130,7 @@ public class ChatMessageFragment extends Fragment {
         super.onCreate(savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        chats = Repositories.chats();
         auth = FirebaseAuth.getInstance();
         currentUserId = auth.getCurrentUser().getUid();
 
@@ -171,6 +195,21 @@ public class ChatMessageFragment extends Fragment {
         messageAdapter = new MessageAdapter(requireContext(), messageList, currentUserId);
         messagesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         messagesRecyclerView.setAdapter(messageAdapter);
+        messageAdapter.attachImagePreloader(messagesRecyclerView, PHOTO_PRELOAD_ROWS);
+        messagesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0) {
+                    if (trimOlderMessages()) showMessages(null);
+                    return;
+                }
+                if (dy == 0) return;
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null && layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    loadOlderMessages();
+                }
+            }
+        });
 
         sendButton.setOnClickListener(v -> {
             if (selectedMediaUri != null && selectedMediaType != null) {
@@ -198,8 +237,10 @@ public class ChatMessageFragment extends Fragment {
     }
 
     /**
-     * Sets up real-time listener for chat messages from Firestore.
-     * Updates the message list and UI automatically when new messages arrive.
+     * Sets up real-time listener for the newest chat messages from Firestore.
+     * Only the last PAGE_SIZE messages are listened to; older messages are loaded page by page
+     * when the user scrolls up, so opening a long chat costs the same as opening a short one.
+     * At most {@link #MAX_RETAINED_PAGES} pages are kept above the live window, see {@link #trimOlderMessages}.
      */
     private void listenForMessages() {
         if (chatId == null || chatId.isEmpty()) {
@@ -208,32 +249,172 @@ public class ChatMessageFragment extends Fragment {
             return;
         }
 
-        db.collection("Chats").document(chatId)
-                .collection("Messages")
-                .orderBy("timestamp", Query.Direction.ASCENDING)
-                .addSnapshotListener((queryDocumentSnapshots, e) -> {
-                    if (e != null) {
-                        Log.e(TAG, "שגיאה בהאזנה להודעות", e);
-                        return;
+        olderMessages.clear();
+        recentMessages = new ArrayList<>();
+        hasOlderMessages = true;
+
+        messagesSubscription = chats.listenToRecentMessages(chatId, PAGE_SIZE, new DataCallback<List<Message>>() {
+            @Override
+            public void onSuccess(List<Message> messages) {
+                Message previousNewest = recentMessages.isEmpty() ? null : recentMessages.get(recentMessages.size() - 1);
+                keepMessagesLeavingWindow(messages);
+                recentMessages = messages;
+                if (olderMessages.isEmpty() && messages.size() < PAGE_SIZE) {
+                    hasOlderMessages = false;
+                }
+                trimOlderMessages();
+
+                Message newest = recentMessages.isEmpty() ? null : recentMessages.get(recentMessages.size() - 1);
+                boolean newestChanged = newest != null && (previousNewest == null || !sameMessage(previousNewest, newest));
+                showMessages(() -> {
+                    if (newestChanged && messagesRecyclerView != null) {
+                        messagesRecyclerView.scrollToPosition(messageAdapter.getItemCount() - 1);
                     }
+                });
+            }
 
-                    if (queryDocumentSnapshots == null) {
-                        return;
-                    }
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "שגיאה בהאזנה להודעות", e);
+            }
+        });
+    }
 
-                    messageList.clear();
+    /**
+     * Moves messages that newer messages pushed out of the live window into the older part of the list,
+     * so they stay on screen instead of disappearing.
+     *
+     * @param window The new live window, in chronological order
+     */
+    private void keepMessagesLeavingWindow(List<Message> window) {
+        if (window.isEmpty()) return;
+        Message windowStart = window.get(0);
+        for (Message message : recentMessages) {
+            if (isOlder(message, windowStart) && !containsMessage(window, message)) {
+                olderMessages.add(message);
+            }
+        }
+    }
 
-                    for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                        Message message = doc.toObject(Message.class);
-                        messageList.add(message);
-                    }
+    /**
+     * Drops the oldest whole pages once more than {@link #MAX_RETAINED_PAGES} pages are kept above
+     * the live window, so a long session does not hold the entire chat in memory.
+     * Only pages at least a page above the first visible row are dropped, and never while an older page
+     * is loading, since that page is fetched relative to the oldest message kept.
+     * Dropped pages are fetched again by {@link #loadOlderMessages} when the user scrolls back up.
+     *
+     * @return True if any messages were dropped
+     */
+    private boolean trimOlderMessages() {
+        int excess = olderMessages.size() - MAX_RETAINED_PAGES * PAGE_SIZE;
+        if (excess <= 0 || loadingOlderMessages) return false;
 
-                    messageAdapter.notifyDataSetChanged();
+        int firstVisible = RecyclerView.NO_POSITION;
+        if (messagesRecyclerView != null && messagesRecyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            firstVisible = ((LinearLayoutManager) messagesRecyclerView.getLayoutManager()).findFirstVisibleItemPosition();
+        }
+        int droppable = firstVisible == RecyclerView.NO_POSITION ? excess : Math.min(excess, firstVisible - PAGE_SIZE);
+        int dropped = droppable / PAGE_SIZE * PAGE_SIZE;
+        if (dropped <= 0) return false;
+
+        olderMessages.subList(0, dropped).clear();
+        hasOlderMessages = true;
+        Log.d(TAG, "Dropped " + dropped + " old messages, keeping " + olderMessages.size());
+        return true;
+    }
 
-                    if (messageList.size() > 0) {
-                        messagesRecyclerView.scrollToPosition(messageList.size() - 1);
-                    }
-                });
+    /**
+     * Shows the kept older messages followed by the live window.
+     *
+     * @param onShown Callback to run once the list is displayed, may be null
+     */
+    private void showMessages(Runnable onShown) {
+        messageList.clear();
+        messageList.addAll(olderMessages);
+        messageList.addAll(recentMessages);
+        messageAdapter.submitMessages(new ArrayList<>(messageList), onShown);
+    }
+
+    /**
+     * Loads the page of messages before the oldest one shown and prepends it to the list.
+     */
+    private void loadOlderMessages() {
+        if (loadingOlderMessages || !hasOlderMessages || messageList.isEmpty()) return;
+        loadingOlderMessages = true;
+
+        chats.loadMessagesBefore(chatId, messageList.get(0), PAGE_SIZE, new DataCallback<List<Message>>() {
+            @Override
+            public void onSuccess(List<Message> page) {
+                loadingOlderMessages = false;
+                if (page.size() < PAGE_SIZE) {
+                    hasOlderMessages = false;
+                }
+                if (page.isEmpty() || !isAdded()) return;
+
+                olderMessages.addAll(0, page);
+                showMessages(null);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                loadingOlderMessages = false;
+                Log.e(TAG, "שגיאה בטעינת הודעות קודמות", e);
+            }
+        });
+    }
+
+    /**
+     * Checks whether a message comes before another in chat order.
+     *
+     * @param first The first message
+     * @param second The second message
+     * @return True if the first message is older
+     */
+    private static boolean isOlder(Message first, Message second) {
+        if (first.getTimestamp() == null || second.getTimestamp() == null) return false;
+        int byTime = first.getTimestamp().compareTo(second.getTimestamp());
+        if (byTime != 0) return byTime < 0;
+        String firstId = first.getMessageId() != null ? first.getMessageId() : "";
+        String secondId = second.getMessageId() != null ? second.getMessageId() : "";
+        return firstId.compareTo(secondId) < 0;
+    }
+
+    /**
+     * Checks whether two message objects represent the same stored message.
+     *
+     * @param first The first message
+     * @param second The second message
+     * @return True if both have the same document ID
+     */
+    private static boolean sameMessage(Message first, Message second) {
+        return first.getMessageId() != null && first.getMessageId().equals(second.getMessageId());
+    }
+
+    /**
+     * Checks whether a list holds the given message.
+     *
+     * @param messages The list to search
+     * @param message The message to look for
+     * @return True if a message with the same document ID is in the list
+     */
+    private static boolean containsMessage(List<Message> messages, Message message) {
+        for (Message candidate : messages) {
+            if (sameMessage(candidate, message)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called when the fragment's view is being destroyed.
+     * Stops listening for messages so the listener does not outlive the view.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (messagesSubscription != null) {
+            messagesSubscription.remove();
+            messagesSubscription = null;
+        }
     }
 
     /**
@@ -254,26 +435,16 @@ public class ChatMessageFragment extends Fragment {
                 text
         );
 
-        db.collection("Chats").document(chatId)
-                .collection("Messages")
-                .add(message)
-                .addOnSuccessListener(documentReference -> {
+        chats.sendMessage(chatId, message,
+                () -> {
                     messageInput.setText("");
 
-                    Map<String, Object> lastMessageData = new HashMap<>();
-                    lastMessageData.put("lastMessage", text);
-                    lastMessageData.put("lastMessageTime", new Date());
-
-                    db.collection("Chats").document(chatId)
-                            .update(lastMessageData)
-                            .addOnSuccessListener(aVoid -> {
-                                sendNotification(text);
-                            })
-                            .addOnFailureListener(e ->
-                                    Log.e(TAG, "שגיאה בעדכון ההודעה האחרונה", e));
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "שגיאה בשליחת הודעה", e);
+                    chats.updateLastMessage(chatId, text,
+                            () -> sendNotification(text),
+                            (error) -> Log.e(TAG, "שגיאה בעדכון ההודעה האחרונה: " + error));
+                },
+                (error) -> {
+                    Log.e(TAG, "שגיאה בשליחת הודעה: " + error);
                     Toast.makeText(getContext(), "שגיאה בשליחת הודעה", Toast.LENGTH_SHORT).show();
                 });
     }
@@ -285,38 +456,44 @@ public class ChatMessageFragment extends Fragment {
      * @param messageText The text content of the message to include in the notification
      */
     private void sendNotification(String messageText) {
-        db.collection("Chats").document(chatId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    String receiverId;
-                    String senderName;
-                    String senderImage;
-
-                    if (isVet) {
-                        receiverId = documentSnapshot.getString("ownerId");
-                        senderName = documentSnapshot.getString("vetName");
-                        senderImage = documentSnapshot.getString("vetImageUrl");
-                    } else {
-                        receiverId = documentSnapshot.getString("vetId");
-                        senderName = documentSnapshot.getString("dogName");
-                        senderImage = documentSnapshot.getString("dogImageUrl");
-                    }
+        chats.getChat(chatId, new DataCallback<Map<String, Object>>() {
+            @Override
+            public void onSuccess(Map<String, Object> chat) {
+                if (chat == null) return;
+                String receiverId;
+                String senderName;
+                String senderImage;
+
+                if (isVet) {
+                    receiverId = (String) chat.get("ownerId");
+                    senderName = (String) chat.get("vetName");
+                    senderImage = (String) chat.get("vetImageUrl");
+                } else {
+                    receiverId = (String) chat.get("vetId");
+                    senderName = (String) chat.get("dogName");
+                    senderImage = (String) chat.get("dogImageUrl");
+                }
+
+                Map<String, Object> notificationData = new HashMap<>();
+                notificationData.put("receiverId", receiverId);
+                notificationData.put("title", senderName);
+                notificationData.put("message", messageText);
+                notificationData.put("senderImage", senderImage);
+                notificationData.put("chatId", chatId);
+
+                db.collection("Notifications")
+                        .add(notificationData)
+                        .addOnSuccessListener(documentReference ->
+                                Log.d(TAG, "התראה נשלחה בהצלחה"))
+                        .addOnFailureListener(e ->
+                                Log.e(TAG, "שגיאה בשליחת התראה", e));
+            }
 
-                    Map<String, Object> notificationData = new HashMap<>();
-                    notificationData.put("receiverId", receiverId);
-                    notificationData.put("title", senderName);
-                    notificationData.put("message", messageText);
-                    notificationData.put("senderImage", senderImage);
-                    notificationData.put("chatId", chatId);
-
-                    db.collection("Notifications")
-                            .add(notificationData)
-                            .addOnSuccessListener(documentReference ->
-                                    Log.d(TAG, "התראה נשלחה בהצלחה"))
-                            .addOnFailureListener(e ->
-                                    Log.e(TAG, "שגיאה בשליחת התראה", e));
-                })
-                .addOnFailureListener(e ->
-                        Log.e(TAG, "שגיאה בקבלת פרטי צ'אט", e));
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "שגיאה בקבלת פרטי צ'אט", e);
+            }
+        });
     }
 
     /**
@@ -372,7 +549,7 @@ public class ChatMessageFragment extends Fragment {
             } else if (requestCode == REQUEST_CAMERA) {
                 Bundle extras = data.getExtras();
                 Bitmap imageBitmap = (Bitmap) extras.get("data");
-                selectedMediaUri = getImageUri(requireContext(), imageBitmap);
+                selectedMediaUri = ImagePipeline.saveCapture(requireContext(), imageBitmap);
                 selectedMediaType = "image";
                 showMediaPreview();
             }
@@ -398,50 +575,73 @@ public class ChatMessageFragment extends Fragment {
         }
     }
 
-    /**
-     * Converts a bitmap to a URI for storage and messaging purposes.
-     *
-     * @param context The application context
-     * @param bitmap The bitmap to convert
-     * @return URI representation of the bitmap
-     */
-    private Uri getImageUri(Context context, Bitmap bitmap) {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, bytes);
-        String path = MediaStore.Images.Media.insertImage(context.getContentResolver(), bitmap, "CameraImage", null);
-        return Uri.parse(path);
-    }
-
     /**
      * Uploads and sends a media message (image or video) to the chat.
-     * Handles Firebase Storage upload and creates message with media URL.
+     * Photos are downscaled and recompressed by {@link ImagePipeline} first. Videos are uploaded as they are,
+     * together with a poster frame and their duration, so the chat can show them without loading the video.
      */
     private void sendMediaMessage() {
         if (selectedMediaUri == null || selectedMediaType == null) return;
         String fileName = UUID.randomUUID().toString();
         String path = "chat_media/" + chatId + "/" + fileName;
         StorageReference storageRef = FirebaseStorage.getInstance().getReference().child(path);
+        Uri mediaUri = selectedMediaUri;
+
+        if ("image".equals(selectedMediaType)) {
+            ImagePipeline.prepare(requireContext(), mediaUri, ImagePipeline.CHAT_PHOTO,
+                    bytes -> sendWhenUploaded(ImagePipeline.upload(storageRef, bytes),
+                            new Message(currentUserId, new Date(), "image", storageRef.toString())),
+                    error -> Toast.makeText(getContext(), "שגיאה בשליחת מדיה", Toast.LENGTH_SHORT).show());
+        } else {
+            StorageReference posterRef = FirebaseStorage.getInstance().getReference().child(path + "_poster.jpg");
+            ImagePipeline.preparePoster(requireContext(), mediaUri, ImagePipeline.VIDEO_POSTER,
+                    poster -> uploadVideo(storageRef, mediaUri, posterRef, poster),
+                    error -> uploadVideo(storageRef, mediaUri, posterRef, null));
+        }
+    }
 
-        storageRef.putFile(selectedMediaUri)
-                .addOnSuccessListener(taskSnapshot -> storageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                    Message message = new Message(
-                            currentUserId,
-                            new Date(),
-                            selectedMediaType,
-                            uri.toString()
-                    );
-                    db.collection("Chats").document(chatId)
-                            .collection("Messages")
-                            .add(message)
-                            .addOnSuccessListener(documentReference -> {
+    /**
+     * Uploads a video and its poster frame side by side, then sends the video message.
+     *
+     * @param storageRef Where the video is uploaded
+     * @param videoUri The picked video
+     * @param posterRef Where the poster frame is uploaded
+     * @param poster The poster frame and duration, or null if they could not be extracted
+     */
+    private void uploadVideo(StorageReference storageRef, Uri videoUri, StorageReference posterRef, ImagePipeline.VideoPoster poster) {
+        Message message = new Message(currentUserId, new Date(), "video", storageRef.toString());
+        List<Task<?>> uploads = new ArrayList<>();
+        uploads.add(storageRef.putFile(videoUri));
+        if (poster != null) {
+            uploads.add(ImagePipeline.uploadImmutable(posterRef, poster.jpeg));
+            message.setPosterUrl(posterRef.toString());
+            message.setDurationMillis(poster.durationMillis);
+        }
+        sendWhenUploaded(Tasks.whenAll(uploads), message);
+    }
+
+    /**
+     * Sends a media message once its uploads complete.
+     * The message records the media's storage location, so it is sent without waiting for a download URL.
+     *
+     * @param uploads The running uploads
+     * @param message The message to send, stamped with the time the uploads finish
+     */
+    private void sendWhenUploaded(Task<?> uploads, Message message) {
+        uploads
+                .addOnSuccessListener(result -> {
+                    message.setTimestamp(new Date());
+                    chats.sendMessage(chatId, message,
+                            () -> {
                                 selectedMediaUri = null;
                                 selectedMediaType = null;
                                 mediaPreviewLayout.setVisibility(View.GONE);
                                 imagePreview.setVisibility(View.GONE);
                                 videoPreview.setVisibility(View.GONE);
                                 closeMediaButton.setVisibility(View.GONE);
-                            });
-                }))
+                            },
+                            (error) -> Log.e(TAG, "שגיאה בשליחת מדיה: " + error));
+                })
                 .addOnFailureListener(e -> {
                     Toast.makeText(getContext(), "שגיאה בשליחת מדיה", Toast.LENGTH_SHORT).show();
                 });
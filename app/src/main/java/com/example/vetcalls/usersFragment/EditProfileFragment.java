@@ -35,16 +35,12 @@ import com.bumptech.glide.request.target.Target;
 import com.example.vetcalls.R;
 import com.example.vetcalls.obj.DogProfile;
 import com.example.vetcalls.obj.FirestoreUserHelper;
-import com.example.vetcalls.obj.Veterinarian;
+import com.example.vetcalls.obj.ImagePipeline;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.Repositories;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.SetOptions;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
-import java.io.ByteArrayOutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -96,8 +92,6 @@ public class EditProfileFragment extends Fragment {
     /** SharedPreferences for storing and retrieving user profile data locally. */
     private SharedPreferences sharedPreferences;
 
-    /** Firebase Firestore instance for database operations. */
-    private FirebaseFirestore db;
     /** FirebaseAuth instance for user authentication. */
     private FirebaseAuth auth;
 
@@ -162,7 +156,6 @@ public class EditProfileFragment extends Fragment {
         cancelButton = view.findViewById(R.id.cancelButton);
 
         auth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
 
         vetSpinner = view.findViewById(R.id.vetSpinner);
         loadVetList();
@@ -215,44 +208,49 @@ public class EditProfileFragment extends Fragment {
      * It also restores the previously selected veterinarian if available.
      */
     private void loadVetList() {
-        db.collection("Veterinarians")
-                .get()
-                .addOnSuccessListener(query -> {
-                    vetNames.clear();
-                    vetNameToId.clear();
-                    for (DocumentSnapshot doc : query.getDocuments()) {
-                        Veterinarian vet = doc.toObject(Veterinarian.class);
-                        String name = vet != null ? vet.fullName : null;
-                        String id = doc.getId();
-                        if (name != null) {
-                            vetNames.add(name);
-                            vetNameToId.put(name, id);
-                        }
+        Repositories.vets().getAllVets(new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> vets) {
+                if (!isAdded()) return;
+                vetNames.clear();
+                vetNameToId.clear();
+                for (Map<String, Object> doc : vets) {
+                    String name = (String) doc.get("fullName");
+                    String id = (String) doc.get("documentId");
+                    if (name != null) {
+                        vetNames.add(name);
+                        vetNameToId.put(name, id);
                     }
-                    ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, vetNames);
-                    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-                    vetSpinner.setAdapter(adapter);
+                }
+                ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, vetNames);
+                adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+                vetSpinner.setAdapter(adapter);
+
+                String savedVetName = sharedPreferences.getString("vetName", null);
+                if (savedVetName != null && vetNames.contains(savedVetName)) {
+                    vetSpinner.setSelection(vetNames.indexOf(savedVetName));
+                }
 
-                    String savedVetName = sharedPreferences.getString("vetName", null);
-                    if (savedVetName != null && vetNames.contains(savedVetName)) {
-                        vetSpinner.setSelection(vetNames.indexOf(savedVetName));
+                vetSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                    @Override
+                    public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                        selectedVetName = vetNames.get(position);
+                        selectedVetId = vetNameToId.get(selectedVetName);
                     }
 
-                    vetSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
-                        @Override
-                        public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                            selectedVetName = vetNames.get(position);
-                            selectedVetId = vetNameToId.get(selectedVetName);
-                        }
+                    @Override
+                    public void onNothingSelected(AdapterView<?> parent) {
+                        selectedVetName = null;
+                        selectedVetId = null;
+                    }
+                });
+            }
 
-                        @Override
-                        public void onNothingSelected(AdapterView<?> parent) {
-                            selectedVetName = null;
-                            selectedVetId = null;
-                        }
-                    });
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Error loading vet list: " + e.getMessage()));
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading vet list: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -315,65 +313,70 @@ public class EditProfileFragment extends Fragment {
         if (dogId == null || dogId.isEmpty()) {
             return;
         }
-        db.collection("DogProfiles").document(dogId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Log.d(TAG, "Dog document exists");
-                        String name = documentSnapshot.getString("name");
-                        String birthday = documentSnapshot.getString("birthday");
-                        String weight = extractStringOrNumber(documentSnapshot, "weight", "");
-                        String race = documentSnapshot.getString("race");
-                        String allergies = documentSnapshot.getString("allergies");
-                        String vaccines = documentSnapshot.getString("vaccines");
-                        String vetId = documentSnapshot.getString("vetId");
-                        String vetName = documentSnapshot.getString("vetName");
-                        String age = extractStringOrNumber(documentSnapshot, "age", "0"); // This field was used for lastVetChange
-                        Long firestoreLastVetChange = documentSnapshot.getLong("lastVetChange");
-
-                        editName.setText(name);
-                        editBirthday.setText(birthday);
-                        editWeight.setText(weight);
-                        editRace.setText(race);
-                        editAllergies.setText(allergies);
-                        editVaccines.setText(vaccines);
-
-                        selectedVetId = vetId;
-                        selectedVetName = vetName;
-                        int position = vetNames.indexOf(vetName);
-                        if (position != -1) {
-                            vetSpinner.setSelection(position);
-                        }
+        Repositories.dogs().getDog(dogId, new DataCallback<Map<String, Object>>() {
+            @Override
+            public void onSuccess(Map<String, Object> dogData) {
+                if (!isAdded()) return;
+                if (dogData != null) {
+                    Log.d(TAG, "Dog document exists");
+                    String name = (String) dogData.get("name");
+                    String birthday = (String) dogData.get("birthday");
+                    String weight = extractStringOrNumber(dogData, "weight", "");
+                    String race = (String) dogData.get("race");
+                    String allergies = (String) dogData.get("allergies");
+                    String vaccines = (String) dogData.get("vaccines");
+                    String vetId = (String) dogData.get("vetId");
+                    String vetName = (String) dogData.get("vetName");
+                    String age = extractStringOrNumber(dogData, "age", "0"); // This field was used for lastVetChange
+                    Object storedLastVetChange = dogData.get("lastVetChange");
+                    Long firestoreLastVetChange = storedLastVetChange instanceof Number ? ((Number) storedLastVetChange).longValue() : null;
+
+                    editName.setText(name);
+                    editBirthday.setText(birthday);
+                    editWeight.setText(weight);
+                    editRace.setText(race);
+                    editAllergies.setText(allergies);
+                    editVaccines.setText(vaccines);
+
+                    selectedVetId = vetId;
+                    selectedVetName = vetName;
+                    int position = vetNames.indexOf(vetName);
+                    if (position != -1) {
+                        vetSpinner.setSelection(position);
+                    }
 
-                        if (firestoreLastVetChange != null) {
-                            lastVetChange = firestoreLastVetChange;
-                        } else {
-                            try {
-                                lastVetChange = Long.parseLong(age);
-                            } catch (NumberFormatException e) {
-                                lastVetChange = 0L;
-                                Log.w(TAG, "Could not parse 'age' as Long for lastVetChange, defaulting to 0.");
-                            }
+                    if (firestoreLastVetChange != null) {
+                        lastVetChange = firestoreLastVetChange;
+                    } else {
+                        try {
+                            lastVetChange = Long.parseLong(age);
+                        } catch (NumberFormatException e) {
+                            lastVetChange = 0L;
+                            Log.w(TAG, "Could not parse 'age' as Long for lastVetChange, defaulting to 0.");
                         }
-                        Log.d(TAG, "Loaded lastVetChange from Firestore: " + lastVetChange + " for dog: " + dogId);
+                    }
+                    Log.d(TAG, "Loaded lastVetChange from Firestore: " + lastVetChange + " for dog: " + dogId);
 
-                        String imageUrl = documentSnapshot.getString("profileImageUrl");
-                        Log.d(TAG, "Loaded image URL: " + imageUrl);
-                        if (imageUrl != null && !imageUrl.isEmpty()) {
-                            loadProfileImage(editProfilePic, imageUrl);
-                            downloadUrl = imageUrl;
-                        }
-                        Log.d(TAG, "Dog data loaded successfully");
-                        originalVetId = vetId;
-                    } else {
-                        Log.d(TAG, "Dog document doesn't exist");
-                        lastVetChange = 0L;
+                    String imageUrl = (String) dogData.get("profileImageUrl");
+                    Log.d(TAG, "Loaded image URL: " + imageUrl);
+                    if (imageUrl != null && !imageUrl.isEmpty()) {
+                        loadProfileImage(editProfilePic, imageUrl);
+                        downloadUrl = imageUrl;
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading dog data: " + e.getMessage());
-                    Toast.makeText(requireContext(), "Error loading dog data", Toast.LENGTH_SHORT).show();
-                });
+                    Log.d(TAG, "Dog data loaded successfully");
+                    originalVetId = vetId;
+                } else {
+                    Log.d(TAG, "Dog document doesn't exist");
+                    lastVetChange = 0L;
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading dog data: " + e.getMessage());
+                if (isAdded()) Toast.makeText(requireContext(), "Error loading dog data", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
@@ -449,8 +452,6 @@ public class EditProfileFragment extends Fragment {
 
         if (downloadUrl != null && !downloadUrl.isEmpty()) {
             dogProfile.profileImageUrl = downloadUrl;
-        } else {
-            dogProfile.profileImageUrl = "";
         }
 
         if (!isNewDog && vetChanged) {
@@ -485,13 +486,8 @@ public class EditProfileFragment extends Fragment {
 
         Log.d(TAG, "Saving profile with dogId: " + dogId);
 
-        FirestoreUserHelper.updateDogProfileEverywhere(dogProfile);
-
-        db.collection("Users").document(ownerId)
-                .collection("Dogs").document(dogId)
-                .set(dogProfile)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Dog full data saved to user's Dogs subcollection"))
-                .addOnFailureListener(e -> Log.e(TAG, "Error saving dog to user's Dogs subcollection: " + e.getMessage()));
+        Repositories.dogs().updateDog(dogProfile, null,
+                (error) -> Log.e(TAG, "Error saving dog profile: " + error));
 
         if (selectedImageUri != null) {
             uploadImageToFirebase(selectedImageUri);
@@ -701,7 +697,7 @@ public class EditProfileFragment extends Fragment {
             } else if (requestCode == REQUEST_IMAGE_CAPTURE && data.getExtras() != null) {
                 Bitmap photo = (Bitmap) data.getExtras().get("data");
                 if (photo != null) {
-                    selectedImageUri = getImageUriFromBitmap(requireContext(), photo);
+                    selectedImageUri = ImagePipeline.saveCapture(requireContext(), photo);
                     Log.d(TAG, "Image captured from camera: " + selectedImageUri);
                 }
             }
@@ -714,23 +710,8 @@ public class EditProfileFragment extends Fragment {
     }
 
     /**
-     * Converts a Bitmap image to a content URI that can be used by other apps or for uploading.
-     * The image is saved to the device's MediaStore.
-     *
-     * @param context The context used to access the ContentResolver.
-     * @param bitmap The Bitmap image to convert.
-     * @return The content URI of the saved image, or null if the conversion fails.
-     */
-    private Uri getImageUriFromBitmap(Context context, Bitmap bitmap) {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, bytes);
-        String path = MediaStore.Images.Media.insertImage(context.getContentResolver(), bitmap, "DogProfile_" + System.currentTimeMillis(), null);
-        return path != null ? Uri.parse(path) : null;
-    }
-
-    /**
-     * Uploads the specified image URI to Firebase Storage under the "dog_profile_images" path.
-     * If successful, it retrieves the download URL, updates Firestore with this URL,
+     * Uploads the specified image URI through {@link FirestoreUserHelper#uploadDogProfileImage}, which stores
+     * every size of it under the "dog_profile_images" path and records their URLs on the profile,
      * and then proceeds to {@link #finishSaveProcess(String, String, String, String, String, String, String, String)}.
      * If no image URI is provided, it directly calls finishSaveProcess.
      * Displays a loading dialog during the upload.
@@ -756,88 +737,57 @@ public class EditProfileFragment extends Fragment {
 
         Log.d(TAG, "Uploading image to Firebase Storage, URI: " + imageUri);
 
-        StorageReference storageRef = FirebaseStorage.getInstance()
-                .getReference()
-                .child("dog_profile_images")
-                .child(dogId + ".jpg");
-
-        Log.d(TAG, "Storage reference path: " + storageRef.getPath());
-
         AlertDialog loadingDialog = new AlertDialog.Builder(requireContext())
                 .setMessage("Uploading image...")
                 .setCancelable(false)
                 .create();
         loadingDialog.show();
 
-        storageRef.putFile(imageUri)
-                .addOnSuccessListener(taskSnapshot -> {
-                    Log.d(TAG, "Image uploaded successfully");
-
-                    storageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                        downloadUrl = uri.toString();
-                        Log.d(TAG, "Got download URL: " + downloadUrl);
-
-                        Map<String, Object> updates = new HashMap<>();
-                        updates.put("profileImageUrl", downloadUrl);
-
-                        db.collection("DogProfiles")
-                                .document(dogId)
-                                .update(updates) // Changed from set(updates, SetOptions.merge()) to update() for clarity
-                                .addOnSuccessListener(aVoid -> {
-                                    Log.d(TAG, "Image URLs updated in Firestore");
-                                    if (loadingDialog.isShowing()) loadingDialog.dismiss();
-
-                                    SharedPreferences.Editor editor = sharedPreferences.edit();
-                                    editor.putString("profileImageUrl", downloadUrl);
-                                    editor.apply();
-
-                                    finishSaveProcess(editName.getText().toString().trim(),
-                                            calculateDogAge(editBirthday.getText().toString().trim()),
-                                            buildBio(editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim(), editRace.getText().toString().trim(), editBirthday.getText().toString().trim()),
-                                            editRace.getText().toString().trim(), editBirthday.getText().toString().trim(), editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim());
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "Error updating image URLs in Firestore: " + e.getMessage());
-                                    if (loadingDialog.isShowing()) loadingDialog.dismiss();
-                                    finishSaveProcess(editName.getText().toString().trim(),
-                                            calculateDogAge(editBirthday.getText().toString().trim()),
-                                            buildBio(editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim(), editRace.getText().toString().trim(), editBirthday.getText().toString().trim()),
-                                            editRace.getText().toString().trim(), editBirthday.getText().toString().trim(), editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim());
-                                });
-                    }).addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to get download URL: " + e.getMessage());
+        FirestoreUserHelper.uploadDogProfileImage(requireContext(), imageUri, dogId, FirebaseAuth.getInstance().getUid(),
+                new FirestoreUserHelper.OnImageUploadListener() {
+                    @Override
+                    public void onUploadSuccess(String imageUrl) {
+                        downloadUrl = imageUrl;
+                        Log.d(TAG, "Image URLs updated in Firestore: " + downloadUrl);
+                        if (loadingDialog.isShowing()) loadingDialog.dismiss();
+
+                        SharedPreferences.Editor editor = sharedPreferences.edit();
+                        editor.putString("profileImageUrl", downloadUrl);
+                        editor.apply();
+
+                        finishWithFormValues();
+                    }
+
+                    @Override
+                    public void onUploadFailed(Exception e) {
+                        Log.e(TAG, "Error uploading image: " + e.getMessage());
                         if (loadingDialog.isShowing()) loadingDialog.dismiss();
+                        Toast.makeText(requireContext(), "Failed to upload image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                        finishWithFormValues();
+                    }
+
+                    /**
+                     * Completes the save with the values currently in the form.
+                     */
+                    private void finishWithFormValues() {
                         finishSaveProcess(editName.getText().toString().trim(),
                                 calculateDogAge(editBirthday.getText().toString().trim()),
                                 buildBio(editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim(), editRace.getText().toString().trim(), editBirthday.getText().toString().trim()),
                                 editRace.getText().toString().trim(), editBirthday.getText().toString().trim(), editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim());
-                    });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error uploading image: " + e.getMessage());
-                    if (loadingDialog.isShowing()) loadingDialog.dismiss();
-                    Toast.makeText(requireContext(), "Failed to upload image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    finishSaveProcess(editName.getText().toString().trim(),
-                            calculateDogAge(editBirthday.getText().toString().trim()),
-                            buildBio(editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim(), editRace.getText().toString().trim(), editBirthday.getText().toString().trim()),
-                            editRace.getText().toString().trim(), editBirthday.getText().toString().trim(), editWeight.getText().toString().trim(), editAllergies.getText().toString().trim(), editVaccines.getText().toString().trim());
-                })
-                .addOnProgressListener(snapshot -> {
-                    double progress = (100.0 * snapshot.getBytesTransferred()) / snapshot.getTotalByteCount();
-                    Log.d(TAG, "Upload progress: " + progress + "%");
+                    }
                 });
     }
 
     /**
-     * Safely extracts a field value from a Firestore DocumentSnapshot, attempting to convert
+     * Safely extracts a field value from a loaded document, attempting to convert
      * it to a String. This handles cases where the field might be stored as a String or a Number.
      *
-     * @param document The DocumentSnapshot from which to extract the field.
+     * @param document The document fields from which to extract the field.
      * @param field The name of the field to extract.
      * @param defaultValue The default value to return if the field is not found or cannot be converted.
      * @return The field value as a String, or the defaultValue if an issue occurs.
      */
-    private String extractStringOrNumber(DocumentSnapshot document, String field, String defaultValue) {
+    private String extractStringOrNumber(Map<String, Object> document, String field, String defaultValue) {
         Object obj = document.get(field);
         if (obj instanceof String) {
             return (String) obj;
@@ -14,9 +14,10 @@ import android.widget.Toast;
 
 import com.example.vetcalls.R;
 import com.example.vetcalls.obj.Appointment;
+import com.example.vetcalls.repository.AppointmentRepository;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.Repositories;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -48,8 +49,8 @@ public class HistoryFragment extends Fragment {
     /** TextView displayed when no appointment history exists */
     private TextView emptyHistoryText;
 
-    /** Firebase Firestore database instance */
-    private FirebaseFirestore db;
+    /** Repository used to load completed appointments */
+    private AppointmentRepository appointments;
 
     /** Current authenticated user's unique identifier */
     private String userId;
@@ -105,10 +106,10 @@ public class HistoryFragment extends Fragment {
     }
 
     /**
-     * Initializes Firebase Firestore database instance.
+     * Initializes the data repositories.
      */
     private void initializeFirebase() {
-        db = FirebaseFirestore.getInstance();
+        appointments = Repositories.appointments();
     }
 
     /**
@@ -136,118 +137,24 @@ public class HistoryFragment extends Fragment {
     }
 
     /**
-     * Loads all completed appointments for the current user's dogs from Firestore.
-     * First retrieves all dogs owned by the user, then fetches completed appointments for each dog.
-     * Handles duplicate removal and updates the UI accordingly.
+     * Loads all completed appointments for the current user's dogs with a single query.
      */
     private void loadCompletedAppointments() {
-        appointmentList.clear();
         Log.d("HistoryDebug", "Start loading completed appointments for userId: " + userId);
 
-        db.collection("DogProfiles")
-                .whereEqualTo("ownerId", userId)
-                .get()
-                .addOnSuccessListener(dogSnapshots -> {
-                    List<String> dogIds = extractDogIds(dogSnapshots);
-                    Log.d("HistoryDebug", "Found " + dogIds.size() + " dogs for userId: " + userId);
-
-                    if (dogIds.isEmpty()) {
-                        handleEmptyDogList();
-                        return;
-                    }
-
-                    loadAppointmentsForDogs(dogIds);
-                });
-    }
-
-    /**
-     * Extracts dog IDs from Firestore query snapshots.
-     *
-     * @param dogSnapshots The query snapshots containing dog documents
-     * @return List of dog IDs
-     */
-    private List<String> extractDogIds(Iterable<QueryDocumentSnapshot> dogSnapshots) {
-        List<String> dogIds = new ArrayList<>();
-        for (QueryDocumentSnapshot dogDoc : dogSnapshots) {
-            dogIds.add(dogDoc.getId());
-        }
-        return dogIds;
-    }
-
-    /**
-     * Handles the case when no dogs are found for the current user.
-     */
-    private void handleEmptyDogList() {
-        adapter.updateAppointments(appointmentList);
-        showEmptyState();
-    }
-
-    /**
-     * Loads completed appointments for all provided dog IDs.
-     * Uses a counter to track completion of all async operations.
-     *
-     * @param dogIds List of dog IDs to load appointments for
-     */
-    private void loadAppointmentsForDogs(List<String> dogIds) {
-        final int[] finished = {0};
-        final int total = dogIds.size();
-
-        for (String dogId : dogIds) {
-            loadAppointmentsForSingleDog(dogId, finished, total);
-        }
-    }
-
-    /**
-     * Loads completed appointments for a single dog.
-     *
-     * @param dogId The ID of the dog to load appointments for
-     * @param finished Array containing the count of finished operations
-     * @param total Total number of operations to complete
-     */
-    private void loadAppointmentsForSingleDog(String dogId, int[] finished, int total) {
-        db.collection("DogProfiles")
-                .document(dogId)
-                .collection("Appointments")
-                .whereEqualTo("completed", true)
-                .get()
-                .addOnSuccessListener(appointmentsSnapshot -> {
-                    Log.d("HistoryDebug", "Dog " + dogId + " has " + appointmentsSnapshot.size() + " completed appointments");
-
-                    addAppointmentsToList(appointmentsSnapshot);
-                    handleOperationComplete(finished, total);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("HistoryDebug", "Failed to load appointments for dog " + dogId, e);
-                    handleOperationComplete(finished, total);
-                });
-    }
-
-    /**
-     * Adds appointments from Firestore snapshot to the appointment list.
-     *
-     * @param appointmentsSnapshot The Firestore query snapshot containing appointments
-     */
-    private void addAppointmentsToList(Iterable<QueryDocumentSnapshot> appointmentsSnapshot) {
-        for (QueryDocumentSnapshot appointmentDoc : appointmentsSnapshot) {
-            Map<String, Object> appointmentData = appointmentDoc.getData();
-            Log.d("HistoryDebug", "Appointment data: " + appointmentData);
-            appointmentList.add(appointmentData);
-        }
-    }
+        appointments.getCompletedOwnerAppointments(userId, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> completed) {
+                Log.d("HistoryDebug", "Total completed appointments loaded: " + completed.size());
+                appointmentList = new ArrayList<>(completed);
+                processAndDisplayAppointments();
+            }
 
-    /**
-     * Handles the completion of a single async operation.
-     * When all operations are complete, processes the final appointment list.
-     *
-     * @param finished Array containing the count of finished operations
-     * @param total Total number of operations to complete
-     */
-    private void handleOperationComplete(int[] finished, int total) {
-        finished[0]++;
-        if (finished[0] == total) {
-            Log.d("HistoryDebug", "Total completed appointments loaded: " + appointmentList.size());
-            processAndDisplayAppointments();
-        }
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("HistoryDebug", "Failed to load completed appointments for userId: " + userId, e);
+            }
+        });
     }
 
     /**
@@ -32,18 +32,23 @@ import com.example.vetcalls.activities.LoginActivity;
 import com.example.vetcalls.obj.DogProfile;
 import com.example.vetcalls.obj.DogProfileAdapter;
 import com.example.vetcalls.obj.FirestoreUserHelper;
+import com.example.vetcalls.obj.ImageVariants;
+import com.example.vetcalls.obj.ListImagePreloader;
+import com.example.vetcalls.obj.UserCascadeDeleter;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.LocalStore;
+import com.example.vetcalls.repository.Repositories;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthRecentLoginRequiredException;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -57,6 +62,9 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
     /** Tag for logging purposes */
     private static final String TAG = "HomeFragment";
 
+    /** Slack subtracted from the revalidation watermark, since "lastUpdated" is written by the clocks of several devices */
+    private static final long CLOCK_SKEW_MARGIN_MILLIS = 10 * 60 * 1000;
+
     /** TextView for displaying the current dog's bio information */
     private TextView bioTextView;
 
@@ -203,6 +211,7 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
         dogRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         adapter = new DogProfileAdapter(requireContext(), new ArrayList<>(), this, 1);
         dogRecyclerView.setAdapter(adapter);
+        adapter.attachImagePreloader(dogRecyclerView, ListImagePreloader.DEFAULT_ROWS_AHEAD);
     }
 
     /**
@@ -224,7 +233,7 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
             saveDogToPreferences(updatedDog);
             organizeDogsAndUpdateUI();
 
-            saveDogsListToPreferences(dogList);
+            LocalStore.get(requireContext()).upsertDog(updatedDog);
 
             loadAllDogProfilesFromFirestore();
         });
@@ -306,48 +315,15 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
     }
 
     /**
-     * Saves the complete list of dogs to SharedPreferences as JSON.
+     * Saves the loaded dogs to the local store, replacing the dogs cached for the current user.
      *
      * @param dogs List of dog profiles to save
      */
-    private void saveDogsListToPreferences(List<DogProfile> dogs) {
-        try {
-            Gson gson = new Gson();
-            String dogsJson = gson.toJson(dogs);
-
-            SharedPreferences.Editor editor = sharedPreferences.edit();
-            editor.putString("dogs_list_json", dogsJson);
-            editor.apply();
-
-            Log.d(TAG, "Dogs list saved to SharedPreferences: " + dogs.size() + " dogs");
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving dogs list: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Loads the complete list of dogs from SharedPreferences JSON data.
-     *
-     * @return List of dog profiles loaded from preferences
-     */
-    private List<DogProfile> loadDogsListFromPreferences() {
-        List<DogProfile> dogs = new ArrayList<>();
-
-        try {
-            String dogsJson = sharedPreferences.getString("dogs_list_json", "");
-
-            if (dogsJson != null && !dogsJson.isEmpty()) {
-                Gson gson = new Gson();
-                Type listType = new TypeToken<ArrayList<DogProfile>>(){}.getType();
-                dogs = gson.fromJson(dogsJson, listType);
-
-                Log.d(TAG, "Dogs list loaded from SharedPreferences: " + dogs.size() + " dogs");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading dogs list: " + e.getMessage());
-        }
-
-        return dogs;
+    private void saveDogsToLocalStore(List<DogProfile> dogs) {
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null || !isAdded()) return;
+        LocalStore.get(requireContext()).replaceOwnerDogs(currentUser.getUid(), dogs);
+        Log.d(TAG, "Dogs list saved to local store: " + dogs.size() + " dogs");
     }
 
     /**
@@ -359,28 +335,10 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
                 .setTitle("מחיקת חשבון")
                 .setMessage("האם אתה בטוח שברצונך למחוק את החשבון שלך? פעולה זו תמחק את כל הנתונים הקשורים לחשבון שלך ואינה ניתנת לביטול.")
                 .setPositiveButton("כן, מחק", (dialog, which) -> {
-                    AlertDialog loadingDialog = new AlertDialog.Builder(requireContext())
-                            .setMessage("מוחק חשבון...")
-                            .setCancelable(false)
-                            .create();
-                    loadingDialog.show();
-
                     FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
                     if (currentUser != null) {
-                        FirestoreUserHelper.deleteUserCompletely(currentUser.getUid(),
-                                () -> {
-                                    if (loadingDialog.isShowing()) loadingDialog.dismiss();
-                                    Toast.makeText(requireContext(), "החשבון נמחק בהצלחה", Toast.LENGTH_LONG).show();
-                                    startActivity(new Intent(requireContext(), LoginActivity.class)
-                                            .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK));
-                                    requireActivity().finish();
-                                },
-                                () -> {
-                                    if (loadingDialog.isShowing()) loadingDialog.dismiss();
-                                    Toast.makeText(requireContext(), "שגיאה במחיקת החשבון, נסה שוב מאוחר יותר", Toast.LENGTH_LONG).show();
-                                });
+                        runAccountDeletion(currentUser.getUid());
                     } else {
-                        loadingDialog.dismiss();
                         Toast.makeText(requireContext(), "אתה לא מחובר למערכת", Toast.LENGTH_SHORT).show();
                     }
                 })
@@ -388,6 +346,57 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
                 .show();
     }
 
+    /**
+     * Runs or resumes the account deletion with a progress dialog.
+     * On success navigates to the login screen. Does nothing but tell the user if the deletion is already running.
+     *
+     * @param userId The unique identifier of the user being deleted
+     */
+    private void runAccountDeletion(String userId) {
+        if (UserCascadeDeleter.isRunning(userId)) {
+            Toast.makeText(requireContext(), "מחיקת החשבון כבר מתבצעת", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        AlertDialog loadingDialog = new AlertDialog.Builder(requireContext())
+                .setMessage("מוחק חשבון...")
+                .setCancelable(false)
+                .create();
+        loadingDialog.show();
+
+        boolean started = FirestoreUserHelper.deleteUserCompletely(requireContext(), userId, new UserCascadeDeleter.ProgressListener() {
+            @Override
+            public void onProgress(UserCascadeDeleter.Stage stage, int deletedCount) {
+                if (loadingDialog.isShowing()) {
+                    loadingDialog.setMessage("מוחק חשבון... (" + deletedCount + " פריטים נמחקו)");
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (loadingDialog.isShowing()) loadingDialog.dismiss();
+                if (!isAdded()) return;
+                Toast.makeText(requireContext(), "החשבון נמחק בהצלחה", Toast.LENGTH_LONG).show();
+                startActivity(new Intent(requireContext(), LoginActivity.class)
+                        .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK));
+                requireActivity().finish();
+            }
+
+            @Override
+            public void onFailure(UserCascadeDeleter.Stage stage, Exception e) {
+                if (loadingDialog.isShowing()) loadingDialog.dismiss();
+                if (!isAdded()) return;
+                if (e instanceof FirebaseAuthRecentLoginRequiredException) {
+                    Toast.makeText(requireContext(), "יש להתחבר מחדש ואז למחוק את החשבון שוב", Toast.LENGTH_LONG).show();
+                } else if (UserCascadeDeleter.isTransient(e)) {
+                    Toast.makeText(requireContext(), "שגיאה במחיקת החשבון, נסה שוב מאוחר יותר", Toast.LENGTH_LONG).show();
+                } else {
+                    Toast.makeText(requireContext(), "מחיקת החשבון נעצרה, לחץ שוב על מחיקת חשבון כדי להמשיך", Toast.LENGTH_LONG).show();
+                }
+            }
+        });
+        if (!started) loadingDialog.dismiss();
+    }
+
     /**
      * Loads a profile image into the specified ImageView using Glide with caching and error handling.
      *
@@ -452,8 +461,10 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
     }
 
     /**
-     * Loads all dog profiles for the current user from Firestore.
-     * Handles both reference-style and direct data storage in subcollections.
+     * Revalidates the displayed dogs of the current user against Firestore.
+     * Handles both reference-style and direct data storage in subcollections. With references, only the
+     * dogs not displayed yet and the dogs whose "lastUpdated" moved since they were loaded are read in full.
+     * The list is patched in place, and the UI is only refreshed when a dog was added, removed or changed.
      */
     private void loadAllDogProfilesFromFirestore() {
         FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
@@ -463,135 +474,182 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
         }
 
         String userId = currentUser.getUid();
-        FirebaseFirestore.getInstance()
-                .collection("Users")
-                .document(userId)
-                .collection("Dogs")
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        dogList.clear();
-                        adapter.notifyDataSetChanged();
-                        return;
-                    }
-
-                    DocumentSnapshot firstDoc = queryDocumentSnapshots.getDocuments().get(0);
-                    if (firstDoc.contains("dogId") && !firstDoc.contains("bio")) {
-                        List<String> dogIds = new ArrayList<>();
-                        for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                            String dogId = doc.getString("dogId");
-                            if (dogId != null) dogIds.add(dogId);
-                        }
+        Repositories.dogs().getOwnerDogs(userId, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> ownerDogs) {
+                if (!isAdded()) return;
+                if (ownerDogs.isEmpty()) {
+                    applyLoadedDogs(new ArrayList<>());
+                    return;
+                }
 
-                        if (!dogIds.isEmpty()) {
-                            loadDogsFromDogProfiles(dogIds);
-                        } else {
-                            dogList.clear();
-                            adapter.notifyDataSetChanged();
-                        }
-                    } else {
-                        List<DogProfile> newDogList = new ArrayList<>();
-                        for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                            try {
-                                DogProfile dogProfile = createDogProfileFromDocument(doc);
-                                if (dogProfile != null) {
-                                    newDogList.add(dogProfile);
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error processing dog document: " + e.getMessage());
+                Map<String, Object> firstDoc = ownerDogs.get(0);
+                if (firstDoc.containsKey("dogId") && !firstDoc.containsKey("bio")) {
+                    Set<String> dogIds = new LinkedHashSet<>();
+                    for (Map<String, Object> doc : ownerDogs) {
+                        String dogId = (String) doc.get("dogId");
+                        if (dogId != null) dogIds.add(dogId);
+                    }
+                    revalidateDogsFromDogProfiles(new ArrayList<>(dogIds));
+                } else {
+                    List<DogProfile> newDogList = new ArrayList<>();
+                    for (Map<String, Object> doc : ownerDogs) {
+                        try {
+                            DogProfile dogProfile = createDogProfileFromDocument(doc);
+                            if (dogProfile != null) {
+                                newDogList.add(dogProfile);
                             }
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error processing dog document: " + e.getMessage());
                         }
-
-                        dogList.clear();
-                        dogList.addAll(newDogList);
-
-                        saveDogsListToPreferences(newDogList);
-
-                        organizeDogsAndUpdateUI();
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading dog profiles: " + e.getMessage());
-                    Toast.makeText(requireContext(), "Error loading dogs", Toast.LENGTH_SHORT).show();
-                });
+                    applyLoadedDogs(newDogList);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading dog profiles: " + e.getMessage());
+                if (isAdded()) Toast.makeText(requireContext(), "Error loading dogs", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
-     * Loads dog profiles from the DogProfiles collection using provided dog IDs.
+     * Revalidates the displayed dogs against the DogProfiles collection.
+     * Dogs that are not displayed yet, or were displayed without a "lastUpdated", are read in full;
+     * the others are only read if their "lastUpdated" is later than the oldest displayed one, and are
+     * only replaced if it differs from their own.
      *
-     * @param dogIds List of dog IDs to load profiles for
+     * @param dogIds The IDs of the user's dogs
      */
-    private void loadDogsFromDogProfiles(List<String> dogIds) {
-        List<DogProfile> newDogList = new ArrayList<>();
-        Set<String> loadedDogIds = new HashSet<>();
-        final int[] loadedCount = {0};
-        final int totalCount = dogIds.size();
+    private void revalidateDogsFromDogProfiles(List<String> dogIds) {
+        Map<String, DogProfile> displayed = new HashMap<>();
+        for (DogProfile dog : dogList) {
+            if (dog.getId() != null) displayed.put(dog.getId(), dog);
+        }
 
+        List<String> missingIds = new ArrayList<>();
+        List<String> knownIds = new ArrayList<>();
+        long watermark = Long.MAX_VALUE;
         for (String dogId : dogIds) {
-            if (loadedDogIds.contains(dogId)) {
-                incrementCounterAndCheckCompletion(loadedCount, totalCount, newDogList);
-                continue;
+            DogProfile dog = displayed.get(dogId);
+            if (dog == null || dog.lastUpdated <= 0) {
+                missingIds.add(dogId);
+            } else {
+                knownIds.add(dogId);
+                watermark = Math.min(watermark, dog.lastUpdated);
             }
+        }
+        long since = watermark - CLOCK_SKEW_MARGIN_MILLIS;
+
+        Repositories.dogs().getDogs(missingIds, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> missingDogs) {
+                Repositories.dogs().getDogsUpdatedSince(knownIds, since, new DataCallback<List<Map<String, Object>>>() {
+                    @Override
+                    public void onSuccess(List<Map<String, Object>> changedDogs) {
+                        if (!isAdded()) return;
+                        Map<String, DogProfile> loaded = new HashMap<>(displayed);
+                        List<Map<String, Object>> documents = new ArrayList<>(missingDogs);
+                        documents.addAll(changedDogs);
+                        for (Map<String, Object> document : documents) {
+                            DogProfile dogProfile = createDogProfileFromDocument(document);
+                            if (dogProfile != null) loaded.put(dogProfile.getId(), dogProfile);
+                        }
 
-            loadedDogIds.add(dogId);
-            FirebaseFirestore.getInstance()
-                    .collection("DogProfiles")
-                    .document(dogId)
-                    .get()
-                    .addOnSuccessListener(document -> {
-                        if (document.exists()) {
-                            try {
-                                DogProfile dogProfile = createDogProfileFromDocument(document);
-                                if (dogProfile != null && !isDuplicate(newDogList, dogProfile)) {
-                                    markAsCurrentIfNeeded(dogProfile);
-                                    newDogList.add(dogProfile);
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error creating dog profile: " + e.getMessage());
-                            }
+                        List<DogProfile> newDogList = new ArrayList<>();
+                        for (String dogId : dogIds) {
+                            DogProfile dog = loaded.get(dogId);
+                            if (dog != null) newDogList.add(dog);
                         }
-                        incrementCounterAndCheckCompletion(loadedCount, totalCount, newDogList);
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error loading dog profile: " + e.getMessage());
-                        incrementCounterAndCheckCompletion(loadedCount, totalCount, newDogList);
-                    });
-        }
+                        Log.d(TAG, "Revalidated " + dogIds.size() + " dogs, read " + documents.size() + " profiles");
+                        applyLoadedDogs(newDogList);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "Error loading changed dog profiles: " + e.getMessage());
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading dog profiles: " + e.getMessage());
+                if (isAdded()) Toast.makeText(requireContext(), "Error loading dogs", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
-     * Increments the counter and checks if all async operations are complete.
+     * Patches the displayed dogs to match the loaded profiles: changed dogs are replaced where they are,
+     * removed dogs are dropped and new dogs are appended. The local store and the UI are only updated
+     * if anything actually changed.
      *
-     * @param loadedCount Array containing the current count of loaded dogs
-     * @param totalCount Total number of dogs to load
-     * @param newDogList List to store the loaded dog profiles
+     * @param newDogList The loaded dog profiles
      */
-    private void incrementCounterAndCheckCompletion(int[] loadedCount, int totalCount, List<DogProfile> newDogList) {
-        loadedCount[0]++;
-        if (loadedCount[0] >= totalCount) {
-            dogList.clear();
-            dogList.addAll(newDogList);
+    private void applyLoadedDogs(List<DogProfile> newDogList) {
+        Map<String, DogProfile> loaded = new HashMap<>();
+        for (DogProfile dog : newDogList) {
+            if (dog.getId() != null) loaded.put(dog.getId(), dog);
+        }
 
-            saveDogsListToPreferences(newDogList);
+        boolean changed = false;
+        Set<String> displayedIds = new HashSet<>();
+        for (int i = dogList.size() - 1; i >= 0; i--) {
+            DogProfile dog = dogList.get(i);
+            DogProfile loadedDog = loaded.get(dog.getId());
+            if (loadedDog == null) {
+                dogList.remove(i);
+                changed = true;
+            } else {
+                displayedIds.add(dog.getId());
+                if (!isSameDog(dog, loadedDog)) {
+                    loadedDog.setCurrent(dog.isCurrent);
+                    if (currentDogProfile == dog) currentDogProfile = loadedDog;
+                    dogList.set(i, loadedDog);
+                    changed = true;
+                }
+            }
+        }
+        for (DogProfile dog : newDogList) {
+            if (dog.getId() == null || displayedIds.contains(dog.getId())) continue;
+            markAsCurrentIfNeeded(dog);
+            dogList.add(dog);
+            displayedIds.add(dog.getId());
+            changed = true;
+        }
 
-            organizeDogsAndUpdateUI();
+        if (!changed) {
+            Log.d(TAG, "Dogs unchanged since last load");
+            return;
         }
+        saveDogsToLocalStore(new ArrayList<>(dogList));
+        organizeDogsAndUpdateUI();
     }
 
     /**
-     * Checks if a dog profile is already in the list to prevent duplicates.
+     * Checks whether two loaded versions of a dog display the same data.
      *
-     * @param dogList List of existing dog profiles
-     * @param dog Dog profile to check for duplication
-     * @return true if dog is duplicate, false otherwise
-     */
-    private boolean isDuplicate(List<DogProfile> dogList, DogProfile dog) {
-        for (DogProfile existingDog : dogList) {
-            if (existingDog.getId() != null && existingDog.getId().equals(dog.getId())) {
-                return true;
-            }
-        }
-        return false;
+     * @param a The displayed version
+     * @param b The loaded version
+     * @return true if nothing shown for the dog differs
+     */
+    private boolean isSameDog(DogProfile a, DogProfile b) {
+        return a.lastUpdated == b.lastUpdated
+                && Objects.equals(a.name, b.name)
+                && Objects.equals(a.age, b.age)
+                && Objects.equals(a.bio, b.bio)
+                && Objects.equals(a.race, b.race)
+                && Objects.equals(a.birthday, b.birthday)
+                && Objects.equals(a.weight, b.weight)
+                && Objects.equals(a.allergies, b.allergies)
+                && Objects.equals(a.vaccines, b.vaccines)
+                && Objects.equals(a.profileImageUrl, b.profileImageUrl)
+                && Objects.equals(a.profileImageMediumUrl, b.profileImageMediumUrl)
+                && Objects.equals(a.profileImageThumbUrl, b.profileImageThumbUrl)
+                && Objects.equals(a.vetId, b.vetId);
     }
 
     /**
@@ -614,7 +672,7 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
     private void organizeDogsAndUpdateUI() {
         if (dogList.isEmpty()) {
             clearTopProfileDisplay();
-            adapter.notifyDataSetChanged();
+            adapter.updateDogList(dogList);
             return;
         }
 
@@ -638,7 +696,6 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
         }
 
         adapter.updateDogList(filteredList);
-        adapter.notifyDataSetChanged();
     }
 
     /**
@@ -693,7 +750,8 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
         String bioText = createBioText(dog);
         bioTextView.setText(bioText);
 
-        String imageUrl = getBestImageUrl(dog.profileImageUrl);
+        String imageUrl = ImageVariants.forView(profilePic,
+                dog.profileImageThumbUrl, dog.profileImageMediumUrl, getBestImageUrl(dog.profileImageUrl));
         loadProfileImage(profilePic, imageUrl);
     }
 
@@ -736,29 +794,29 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
     }
 
     /**
-     * Creates a DogProfile object from a Firestore document.
+     * Creates a DogProfile object from a loaded dog document.
      *
-     * @param document The Firestore document containing dog data
+     * @param document Map containing the dog's fields and its document ID
      * @return DogProfile object or null if creation fails
      */
-    private DogProfile createDogProfileFromDocument(DocumentSnapshot document) {
+    private DogProfile createDogProfileFromDocument(Map<String, Object> document) {
         try {
-            String id = document.getId();
-            String name = document.getString("name");
-            String bio = document.getString("bio");
-            String race = document.getString("race");
-            String birthday = document.getString("birthday");
-            String allergies = document.getString("allergies");
-            String vaccines = document.getString("vaccines");
-            String ownerId = document.getString("ownerId");
-            String vetId = document.getString("vetId");
+            String id = (String) document.get("documentId");
+            String name = (String) document.get("name");
+            String bio = (String) document.get("bio");
+            String race = (String) document.get("race");
+            String birthday = (String) document.get("birthday");
+            String allergies = (String) document.get("allergies");
+            String vaccines = (String) document.get("vaccines");
+            String ownerId = (String) document.get("ownerId");
+            String vetId = (String) document.get("vetId");
 
             String age = extractStringOrNumber(document, "age", "0");
             String weight = extractStringOrNumber(document, "weight", "");
 
-            String imageUrl = document.getString("profileImageUrl");
+            String imageUrl = (String) document.get("profileImageUrl");
             if (imageUrl == null || imageUrl.isEmpty()) {
-                imageUrl = document.getString("imageUrl");
+                imageUrl = (String) document.get("imageUrl");
             }
             if (imageUrl == null) imageUrl = "";
             imageUrl = getBestImageUrl(imageUrl);
@@ -769,6 +827,8 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
             dog.age = age;
             dog.bio = bio;
             dog.profileImageUrl = imageUrl;
+            dog.profileImageMediumUrl = (String) document.get(ImageVariants.MEDIUM_FIELD);
+            dog.profileImageThumbUrl = (String) document.get(ImageVariants.THUMB_FIELD);
             dog.race = race;
             dog.birthday = birthday;
             dog.weight = weight;
@@ -776,6 +836,8 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
             dog.vaccines = vaccines;
             dog.ownerId = ownerId;
             dog.vetId = vetId;
+            Object lastUpdated = document.get("lastUpdated");
+            dog.lastUpdated = lastUpdated instanceof Number ? ((Number) lastUpdated).longValue() : 0;
             return dog;
         } catch (Exception e) {
             Log.e(TAG, "Error creating dog from document: " + e.getMessage());
@@ -784,14 +846,14 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
     }
 
     /**
-     * Safely extracts string or number values from Firestore document.
+     * Safely extracts string or number values from a dog document.
      *
-     * @param document The Firestore document
+     * @param document Map containing the dog's fields
      * @param field The field name to extract
      * @param defaultValue The default value if field is not found or invalid
      * @return The extracted value as string, or default value
      */
-    private String extractStringOrNumber(DocumentSnapshot document, String field, String defaultValue) {
+    private String extractStringOrNumber(Map<String, Object> document, String field, String defaultValue) {
         Object obj = document.get(field);
         if (obj instanceof String) {
             return (String) obj;
@@ -826,7 +888,7 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
 
     /**
      * Called when the fragment becomes visible to the user again.
-     * Handles user changes, updates from preferences, and refreshes data from Firestore.
+     * Handles user changes, shows the dogs cached in the local store, and then revalidates them against Firestore.
      */
     @Override
     public void onResume() {
@@ -836,25 +898,37 @@ public class HomeFragment extends Fragment implements DogProfileAdapter.OnDogCli
                 FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
         String savedUserId = sharedPreferences.getString("userId", null);
 
+        if (UserCascadeDeleter.isRunning(currentUserId)) {
+            Log.d(TAG, "Account deletion already running");
+            return;
+        }
+        if (UserCascadeDeleter.canResumeAutomatically(requireContext(), currentUserId)) {
+            Log.d(TAG, "Resuming interrupted account deletion");
+            runAccountDeletion(currentUserId);
+            return;
+        }
+
         if (currentUserId != null && !currentUserId.equals(savedUserId)) {
             sharedPreferences.edit().clear().apply();
             sharedPreferences.edit().putString("userId", currentUserId).apply();
+            LocalStore.get(requireContext()).clear();
             dogList.clear();
-            adapter.notifyDataSetChanged();
+            adapter.updateDogList(dogList);
             clearTopProfileDisplay();
         }
 
         updateFromPreferences();
 
-        List<DogProfile> savedDogs = loadDogsListFromPreferences();
-        if (!savedDogs.isEmpty()) {
-            Log.d(TAG, "Loaded " + savedDogs.size() + " dogs from SharedPreferences");
-            dogList.clear();
-            dogList.addAll(savedDogs);
-            organizeDogsAndUpdateUI();
-        }
-
-        loadAllDogProfilesFromFirestore();
+        if (currentUserId == null) return;
+        LocalStore.get(requireContext()).loadOwnerDogs(currentUserId, savedDogs -> {
+            if (!isAdded()) return;
+            if (dogList.isEmpty() && !savedDogs.isEmpty()) {
+                Log.d(TAG, "Loaded " + savedDogs.size() + " dogs from local store");
+                dogList.addAll(savedDogs);
+                organizeDogsAndUpdateUI();
+            }
+            loadAllDogProfilesFromFirestore();
+        });
     }
 
     /**
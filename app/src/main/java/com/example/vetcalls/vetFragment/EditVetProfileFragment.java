@@ -32,13 +32,15 @@ import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.Target;
 import com.example.vetcalls.R;
 import com.example.vetcalls.obj.FirestoreUserHelper;
+import com.example.vetcalls.obj.ImagePipeline;
+import com.example.vetcalls.obj.ImageVariants;
 import com.example.vetcalls.obj.Veterinarian;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.SetOptions;
-import com.google.gson.Gson;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.LocalStore;
+import com.example.vetcalls.repository.Repositories;
+import com.example.vetcalls.repository.VetRepository;
 
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -70,9 +72,6 @@ public class EditVetProfileFragment extends Fragment {
     /** EditText fields for veterinarian profile information */
     private EditText editFullName, editClinicAddress, editWorkHoursFirstPart, editWorkHoursSecondPart, editWorkHoursThirdPart, editPhoneNumber;
 
-    /** Bitmap of the selected profile image */
-    private Bitmap selectedImageBitmap;
-
     /** URI of the selected image for direct upload */
     private Uri selectedImageUri;
 
@@ -85,8 +84,11 @@ public class EditVetProfileFragment extends Fragment {
     /** Current profile image URL stored in database */
     private String currentProfileImageUrl = null;
 
-    /** Firebase Firestore database instance */
-    private FirebaseFirestore db;
+    /** Medium size and thumbnail URLs of the current profile image, null if it was uploaded in one size only */
+    private String currentProfileImageMediumUrl = null, currentProfileImageThumbUrl = null;
+
+    /** Repository used to load and save the veterinarian's profile */
+    private VetRepository vets;
 
     /** Firebase authentication instance */
     private FirebaseAuth auth;
@@ -124,7 +126,7 @@ public class EditVetProfileFragment extends Fragment {
      * Initializes Firebase services and SharedPreferences.
      */
     private void initializeFirebase() {
-        db = FirebaseFirestore.getInstance();
+        vets = Repositories.vets();
         auth = FirebaseAuth.getInstance();
         sharedPreferences = requireActivity().getSharedPreferences("VetProfile", Context.MODE_PRIVATE);
     }
@@ -206,12 +208,19 @@ public class EditVetProfileFragment extends Fragment {
         try {
             String vetId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
             if (vetId != null) {
-                db.collection("Veterinarians").document(vetId).get()
-                        .addOnSuccessListener(documentSnapshot -> {
-                            if (documentSnapshot.exists()) {
-                                populateFieldsFromDocument(documentSnapshot);
-                            }
-                        });
+                vets.getVet(vetId, new DataCallback<Map<String, Object>>() {
+                    @Override
+                    public void onSuccess(Map<String, Object> vet) {
+                        if (vet != null && isAdded()) {
+                            populateFieldsFromDocument(vet);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "Error loading vet data from Firestore", e);
+                    }
+                });
             }
         } catch (Exception e) {
             Log.e(TAG, "Error loading vet data from Firestore", e);
@@ -219,18 +228,19 @@ public class EditVetProfileFragment extends Fragment {
     }
 
     /**
-     * Populates form fields with data from Firestore document.
+     * Populates form fields with the loaded veterinarian data.
      *
-     * @param documentSnapshot The Firestore document containing veterinarian data
+     * @param vet Map containing the veterinarian's fields
      */
-    private void populateFieldsFromDocument(com.google.firebase.firestore.DocumentSnapshot documentSnapshot) {
-        String fullName = documentSnapshot.getString("fullName");
-        String clinicAddress = documentSnapshot.getString("clinicAddress");
-        String workHoursFirstPart = documentSnapshot.getString("workHoursFirstPart");
-        String workHoursSecondPart = documentSnapshot.getString("workHoursSecondPart");
-        String workHoursThirdPart = documentSnapshot.getString("workHoursThirdPart");
-        String phoneNumber = documentSnapshot.getString("phoneNumber");
-        String imageUrl = documentSnapshot.getString("profileImageUrl");
+    private void populateFieldsFromDocument(Map<String, Object> vet) {
+        String fullName = (String) vet.get("fullName");
+        String clinicAddress = (String) vet.get("clinicAddress");
+        String workHoursFirstPart = (String) vet.get("workHoursFirstPart");
+        String workHoursSecondPart = (String) vet.get("workHoursSecondPart");
+        String workHoursThirdPart = (String) vet.get("workHoursThirdPart");
+        Object storedPhone = vet.get("phoneNumber");
+        String phoneNumber = storedPhone != null ? storedPhone.toString() : null;
+        String imageUrl = (String) vet.get("profileImageUrl");
 
         if (fullName != null) editFullName.setText(fullName);
         if (clinicAddress != null) editClinicAddress.setText(clinicAddress);
@@ -240,7 +250,9 @@ public class EditVetProfileFragment extends Fragment {
         if (phoneNumber != null) editPhoneNumber.setText(phoneNumber);
         if (imageUrl != null && !imageUrl.isEmpty()) {
             currentProfileImageUrl = imageUrl;
-            loadProfileImage(imageUrl);
+            currentProfileImageMediumUrl = (String) vet.get(ImageVariants.MEDIUM_FIELD);
+            currentProfileImageThumbUrl = (String) vet.get(ImageVariants.THUMB_FIELD);
+            loadProfileImage(ImageVariants.forView(profileImage, currentProfileImageThumbUrl, currentProfileImageMediumUrl, imageUrl));
         }
     }
 
@@ -319,19 +331,17 @@ public class EditVetProfileFragment extends Fragment {
                     Uri imageUri = data.getData();
                     if (imageUri != null) {
                         selectedImageUri = imageUri;
-                        selectedImageBitmap = MediaStore.Images.Media.getBitmap(requireActivity().getContentResolver(), imageUri);
                     }
                 } else if (requestCode == REQUEST_IMAGE_CAPTURE) {
                     Bundle extras = data.getExtras();
                     if (extras != null) {
-                        selectedImageBitmap = (Bitmap) extras.get("data");
-                        selectedImageUri = getImageUriFromBitmap(selectedImageBitmap);
+                        selectedImageUri = ImagePipeline.saveCapture(requireContext(), (Bitmap) extras.get("data"));
                     }
                 }
 
-                if (selectedImageBitmap != null) {
+                if (selectedImageUri != null) {
                     Glide.with(this)
-                            .load(selectedImageBitmap)
+                            .load(selectedImageUri)
                             .circleCrop()
                             .into(profileImage);
 
@@ -344,20 +354,6 @@ public class EditVetProfileFragment extends Fragment {
         }
     }
 
-    /**
-     * Converts a Bitmap to URI by saving it to the device's media store.
-     *
-     * @param bitmap The bitmap image to convert
-     * @return URI of the saved image
-     */
-    private Uri getImageUriFromBitmap(Bitmap bitmap) {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, bytes);
-        String path = MediaStore.Images.Media.insertImage(
-                requireContext().getContentResolver(), bitmap, "ProfileImage", null);
-        return Uri.parse(path);
-    }
-
     /**
      * Validates form fields and initiates the profile save process.
      * Checks for required fields and prevents duplicate save operations.
@@ -395,10 +391,12 @@ public class EditVetProfileFragment extends Fragment {
                 true,
                 auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null
         );
+        profileData.profileImageMediumUrl = currentProfileImageMediumUrl;
+        profileData.profileImageThumbUrl = currentProfileImageThumbUrl;
 
         isUploading = true;
 
-        loadingDialog.setMessage(selectedImageBitmap != null ? "Uploading image..." : "Updating profile...");
+        loadingDialog.setMessage(selectedImageUri != null ? "Uploading image..." : "Updating profile...");
         loadingDialog.show();
 
         updateFirestoreData(profileData);
@@ -420,12 +418,12 @@ public class EditVetProfileFragment extends Fragment {
         Map<String, Object> updates = createUpdateMap(profileData);
 
         String vetId = auth.getCurrentUser().getUid();
-        db.collection("Veterinarians").document(vetId)
-                .set(updates, SetOptions.merge())
-                .addOnSuccessListener(aVoid -> {
+        vets.saveVetProfile(vetId, updates,
+                () -> {
                     Log.d(TAG, "Profile data updated in Firestore successfully");
 
-                    updateChatsWithVetProfile(vetId, profileData.fullName, profileData.profileImageUrl);
+                    updateChatsWithVetProfile(vetId, profileData.fullName,
+                            profileData.profileImageThumbUrl != null ? profileData.profileImageThumbUrl : profileData.profileImageUrl);
 
                     saveBasicDataToSharedPreferences(profileData);
 
@@ -434,10 +432,10 @@ public class EditVetProfileFragment extends Fragment {
                     } else {
                         finishProfileUpdate(profileData);
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to update profile in Firestore", e);
-                    Toast.makeText(requireContext(), "Failed to update profile: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                },
+                (error) -> {
+                    Log.e(TAG, "Failed to update profile in Firestore: " + error);
+                    Toast.makeText(requireContext(), "Failed to update profile: " + error, Toast.LENGTH_SHORT).show();
                     isUploading = false;
                     if (loadingDialog.isShowing()) loadingDialog.dismiss();
                 });
@@ -459,13 +457,15 @@ public class EditVetProfileFragment extends Fragment {
         updates.put("email", profileData.email);
         updates.put("phoneNumber", profileData.phoneNumber);
         updates.put("profileImageUrl", profileData.profileImageUrl);
+        if (profileData.profileImageMediumUrl != null) updates.put(ImageVariants.MEDIUM_FIELD, profileData.profileImageMediumUrl);
+        if (profileData.profileImageThumbUrl != null) updates.put(ImageVariants.THUMB_FIELD, profileData.profileImageThumbUrl);
         updates.put("isVet", true);
         updates.put("uid", profileData.uid);
         return updates;
     }
 
     /**
-     * Saves basic profile data to SharedPreferences for local access.
+     * Saves basic profile data to SharedPreferences and the local store for local access.
      *
      * @param profileData The Veterinarian object containing profile data
      */
@@ -478,13 +478,10 @@ public class EditVetProfileFragment extends Fragment {
         editor.putString("workHoursThirdPart", profileData.workHoursThirdPart);
         editor.putString("email", profileData.email);
         editor.putString("phoneNumber", profileData.phoneNumber);
-
-        Gson gson = new Gson();
-        String profileJson = gson.toJson(profileData);
-        editor.putString("vet_profile_json", profileJson);
-
         editor.apply();
-        Log.d(TAG, "Basic profile data saved to SharedPreferences");
+
+        LocalStore.get(requireContext()).upsertVet(auth.getCurrentUser().getUid(), createUpdateMap(profileData));
+        Log.d(TAG, "Basic profile data saved to SharedPreferences and local store");
     }
 
     /**
@@ -496,13 +493,23 @@ public class EditVetProfileFragment extends Fragment {
     private void uploadProfileImageUsingHelper(Uri imageUri, Veterinarian profileData) {
         String vetId = auth.getCurrentUser().getUid();
 
-        FirestoreUserHelper.uploadVetProfileImage(imageUri, vetId, new FirestoreUserHelper.OnImageUploadListener() {
+        FirestoreUserHelper.uploadVetProfileImage(requireContext(), imageUri, vetId, new FirestoreUserHelper.OnImageUploadListener() {
+            @Override
+            public void onVariantsUploaded(Map<String, String> urls) {
+                profileData.profileImageMediumUrl = urls.get(ImageVariants.MEDIUM_FIELD);
+                profileData.profileImageThumbUrl = urls.get(ImageVariants.THUMB_FIELD);
+            }
+
             @Override
             public void onUploadSuccess(String imageUrl) {
                 Log.d(TAG, "Image uploaded successfully via FirestoreUserHelper. URL: " + imageUrl);
 
                 profileData.profileImageUrl = imageUrl;
                 currentProfileImageUrl = imageUrl;
+                currentProfileImageMediumUrl = profileData.profileImageMediumUrl;
+                currentProfileImageThumbUrl = profileData.profileImageThumbUrl;
+                updateChatsWithVetProfile(vetId, profileData.fullName,
+                        profileData.profileImageThumbUrl != null ? profileData.profileImageThumbUrl : imageUrl);
 
                 SharedPreferences.Editor editor = sharedPreferences.edit();
                 editor.putString("profileImageUrl", imageUrl);
@@ -535,13 +542,10 @@ public class EditVetProfileFragment extends Fragment {
                 Log.d(TAG, "Saving final image URL to SharedPreferences: " + profileData.profileImageUrl);
             }
 
-            Gson gson = new Gson();
-            String profileJson = gson.toJson(profileData);
-            editor.putString("vet_profile_json", profileJson);
-
             editor.commit();
 
-            Log.d(TAG, "Profile data saved to SharedPreferences as JSON");
+            LocalStore.get(requireContext()).upsertVet(auth.getCurrentUser().getUid(), createUpdateMap(profileData));
+            Log.d(TAG, "Profile data saved to local store");
 
             updateParentFragment();
 
@@ -586,8 +590,8 @@ public class EditVetProfileFragment extends Fragment {
         Map<String, Object> updates = createUpdateMap(profileData);
         String vetId = auth.getCurrentUser() != null ? auth.getCurrentUser().getUid() : null;
         if (vetId != null) {
-            db.collection("Veterinarians").document(vetId)
-                    .set(updates, SetOptions.merge());
+            vets.saveVetProfile(vetId, updates, null,
+                    (error) -> Log.e(TAG, "Failed to save profile again: " + error));
         }
     }
 
@@ -608,14 +612,7 @@ public class EditVetProfileFragment extends Fragment {
      * @param newImageUrl The updated profile image URL
      */
     private void updateChatsWithVetProfile(String vetId, String newName, String newImageUrl) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("Chats")
-                .whereEqualTo("vetId", vetId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    for (com.google.firebase.firestore.DocumentSnapshot chatDoc : querySnapshot.getDocuments()) {
-                        chatDoc.getReference().update("vetName", newName, "vetImageUrl", newName != null && !newName.trim().isEmpty() ? newImageUrl : "https://example.com/default_vet_image.png");
-                    }
-                });
+        Repositories.chats().updateVetDetails(vetId, newName,
+                newName != null && !newName.trim().isEmpty() ? newImageUrl : "https://example.com/default_vet_image.png");
     }
 }
\ No newline at end of file
@@ -20,11 +20,14 @@ import com.example.vetcalls.R;
 import com.example.vetcalls.obj.Appointment;
 import com.example.vetcalls.obj.DogProfile;
 import com.example.vetcalls.obj.DogProfileAdapter;
+import com.example.vetcalls.obj.ImageVariants;
+import com.example.vetcalls.obj.ListImagePreloader;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.example.vetcalls.repository.AppointmentRepository;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.DogRepository;
+import com.example.vetcalls.repository.Repositories;
 import com.bumptech.glide.Glide;
-import com.google.firebase.firestore.DocumentSnapshot;
 import android.util.Log;
 import java.text.SimpleDateFormat;
 
@@ -43,6 +46,8 @@ import java.util.ArrayList;
  */
 public class PatientDetailsFragment extends Fragment {
 
+    private static final String TAG = "PatientDetailsFragment";
+
     /** TextView components for displaying dog information */
     private TextView nameText, birthdayText, raceText, weightText, vaccinesText, allergiesText, lastVisitText;
 
@@ -58,8 +63,11 @@ public class PatientDetailsFragment extends Fragment {
     /** RecyclerView for displaying the list of dogs */
     private RecyclerView dogsRecyclerView;
 
-    /** Firebase Firestore database instance */
-    private FirebaseFirestore db;
+    /** Repository used to load the veterinarian's patients */
+    private DogRepository dogs;
+
+    /** Repository used to load appointment history */
+    private AppointmentRepository appointments;
 
     /** Owner ID of the currently selected dog */
     private String ownerId;
@@ -130,13 +138,15 @@ public class PatientDetailsFragment extends Fragment {
         dogsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         dogAdapter = new DogProfileAdapter(getContext(), dogList, position -> showDogDetails(dogList.get(position)), 0);
         dogsRecyclerView.setAdapter(dogAdapter);
+        dogAdapter.attachImagePreloader(dogsRecyclerView, ListImagePreloader.DEFAULT_ROWS_AHEAD);
     }
 
     /**
-     * Initializes Firebase services and gets current veterinarian ID.
+     * Initializes the data repositories and gets current veterinarian ID.
      */
     private void initializeFirebase() {
-        db = FirebaseFirestore.getInstance();
+        dogs = Repositories.dogs();
+        appointments = Repositories.appointments();
         vetId = FirebaseAuth.getInstance().getCurrentUser().getUid();
     }
 
@@ -169,28 +179,33 @@ public class PatientDetailsFragment extends Fragment {
      * Populates the dog list and updates the RecyclerView adapter.
      */
     private void loadVetDogs() {
-        db.collection("DogProfiles")
-                .whereEqualTo("vetId", vetId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    dogList.clear();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        DogProfile dog = createDogProfileFromDocument(doc);
-                        dogList.add(dog);
-                    }
-                    dogAdapter.notifyDataSetChanged();
-                });
+        dogs.getDogsByVet(vetId, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> patients) {
+                dogList.clear();
+                for (Map<String, Object> doc : patients) {
+                    DogProfile dog = createDogProfileFromDocument(doc);
+                    dogList.add(dog);
+                }
+                dogAdapter.updateDogList(dogList);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading patients", e);
+            }
+        });
     }
 
     /**
-     * Creates a DogProfile object from a Firestore document.
+     * Creates a DogProfile object from a loaded dog document.
      *
-     * @param doc The Firestore document containing dog data
+     * @param doc Map containing the dog's fields and its document ID
      * @return DogProfile object populated with document data
      */
-    private DogProfile createDogProfileFromDocument(DocumentSnapshot doc) {
+    private DogProfile createDogProfileFromDocument(Map<String, Object> doc) {
         DogProfile dog = new DogProfile();
-        dog.dogId = doc.getId();
+        dog.dogId = (String) doc.get("documentId");
         dog.name = getStringField(doc, "name");
 
         Object ageObj = doc.get("age");
@@ -204,6 +219,8 @@ public class PatientDetailsFragment extends Fragment {
 
         dog.bio = getStringField(doc, "bio");
         dog.profileImageUrl = getStringField(doc, "profileImageUrl");
+        dog.profileImageMediumUrl = getStringField(doc, ImageVariants.MEDIUM_FIELD);
+        dog.profileImageThumbUrl = getStringField(doc, ImageVariants.THUMB_FIELD);
         dog.race = getStringField(doc, "race");
         dog.birthday = getStringField(doc, "birthday");
         dog.weight = getStringField(doc, "weight");
@@ -217,13 +234,13 @@ public class PatientDetailsFragment extends Fragment {
     }
 
     /**
-     * Safely extracts a string field from a Firestore document.
+     * Safely extracts a string field from a dog document.
      *
-     * @param doc The Firestore document
+     * @param doc Map containing the dog's fields
      * @param field The field name to extract
      * @return The field value as string, or empty string if null
      */
-    private String getStringField(DocumentSnapshot doc, String field) {
+    private String getStringField(Map<String, Object> doc, String field) {
         Object value = doc.get(field);
         return value != null ? value.toString() : "";
     }
@@ -259,14 +276,15 @@ public class PatientDetailsFragment extends Fragment {
     }
 
     /**
-     * Loads the dog's profile image using Glide.
+     * Loads the smallest size of the dog's profile image that covers the image view, using Glide.
      *
-     * @param dog The DogProfile object containing the image URL
+     * @param dog The DogProfile object containing the image URLs
      */
     private void loadDogImage(DogProfile dog) {
-        if (dog.profileImageUrl != null && !dog.profileImageUrl.isEmpty()) {
+        String imageUrl = ImageVariants.forView(dogImage, dog.profileImageThumbUrl, dog.profileImageMediumUrl, dog.profileImageUrl);
+        if (imageUrl != null) {
             Glide.with(this)
-                    .load(dog.profileImageUrl)
+                    .load(imageUrl)
                     .placeholder(R.drawable.user_person_profile_avatar_icon_190943)
                     .into(dogImage);
         }
@@ -289,44 +307,47 @@ public class PatientDetailsFragment extends Fragment {
      * @param vetId The veterinarian's unique identifier
      */
     private void loadAppointmentHistoryForDog(String dogId, String dogName, String vetId) {
-        db.collection("DogProfiles")
-                .document(dogId)
-                .collection("Appointments")
-                .get()
-                .addOnSuccessListener(querySnapshots -> {
-                    appointmentsContainer.removeAllViews();
-                    boolean hasHistory = false;
-
-                    for (QueryDocumentSnapshot doc : querySnapshots) {
-                        Button appointmentButton = createAppointmentButton(doc, dogId, dogName, vetId);
-                        appointmentsContainer.addView(appointmentButton);
-                        hasHistory = true;
-                    }
-
-                    if (!hasHistory) {
-                        showNoAppointmentsMessage();
-                    }
-                });
+        appointments.getDogAppointments(dogId, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> history) {
+                if (!isAdded()) return;
+                appointmentsContainer.removeAllViews();
+
+                for (Map<String, Object> doc : history) {
+                    Button appointmentButton = createAppointmentButton(doc, dogId, dogName, vetId);
+                    appointmentsContainer.addView(appointmentButton);
+                }
+
+                if (history.isEmpty()) {
+                    showNoAppointmentsMessage();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Error loading appointment history for dog " + dogId, e);
+            }
+        });
     }
 
     /**
      * Creates a clickable button for an appointment with navigation to appointment details.
      *
-     * @param doc The Firestore document containing appointment data
+     * @param doc Map containing the appointment's fields
      * @param dogId The unique identifier of the dog
      * @param dogName The name of the dog
      * @param vetId The veterinarian's unique identifier
      * @return Button configured with appointment information and click listener
      */
-    private Button createAppointmentButton(QueryDocumentSnapshot doc, String dogId, String dogName, String vetId) {
-        String date = doc.getString("date");
-        String endTime = doc.getString("endTime");
-        String type = doc.getString("type");
-        String notes = doc.getString("notes");
-        String appointmentId = doc.getString("id");
-        String vetName = doc.getString("vetName");
-        String ownerId = doc.getString("ownerId");
-        String startTime = doc.getString("startTime");
+    private Button createAppointmentButton(Map<String, Object> doc, String dogId, String dogName, String vetId) {
+        String date = (String) doc.get("date");
+        String endTime = (String) doc.get("endTime");
+        String type = (String) doc.get("type");
+        String notes = (String) doc.get("notes");
+        String appointmentId = (String) doc.get("id");
+        String vetName = (String) doc.get("vetName");
+        String ownerId = (String) doc.get("ownerId");
+        String startTime = (String) doc.get("startTime");
 
         Button appointmentButton = new Button(getContext());
         appointmentButton.setText((date != null ? date : "") + " " + (startTime != null ? startTime : "") + " - " + (type != null ? type : ""));
@@ -23,11 +23,13 @@ import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.Target;
 import com.example.vetcalls.R;
+import com.example.vetcalls.obj.ImageVariants;
 import com.example.vetcalls.obj.Veterinarian;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.gson.Gson;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.LocalStore;
+import com.example.vetcalls.repository.Repositories;
+import com.example.vetcalls.repository.VetRepository;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -55,8 +57,8 @@ public class VetHomeFragment extends Fragment {
     /** Button for navigating to profile editing screen */
     private Button editProfileButton;
 
-    /** Firebase Firestore database instance */
-    private FirebaseFirestore db;
+    /** Repository used to load the veterinarian's profile */
+    private VetRepository vets;
 
     /** Firebase authentication instance */
     private FirebaseAuth auth;
@@ -80,7 +82,7 @@ public class VetHomeFragment extends Fragment {
         initializeFirebase();
         initializeUIComponents(view);
         setupEditButton();
-        loadVetProfileFromSharedPreferences();
+        loadVetProfileFromLocalStore();
 
         return view;
     }
@@ -99,7 +101,7 @@ public class VetHomeFragment extends Fragment {
      * Initializes Firebase services and SharedPreferences.
      */
     private void initializeFirebase() {
-        db = FirebaseFirestore.getInstance();
+        vets = Repositories.vets();
         auth = FirebaseAuth.getInstance();
         sharedPreferences = requireActivity().getSharedPreferences("VetProfile", Context.MODE_PRIVATE);
     }
@@ -134,7 +136,7 @@ public class VetHomeFragment extends Fragment {
     public void updateProfileView() {
         Log.d(TAG, "updateProfileView() called - updating profile view");
 
-        loadVetProfileFromSharedPreferences();
+        loadVetProfileFromLocalStore();
         loadVetProfileFromServer();
     }
 
@@ -152,30 +154,33 @@ public class VetHomeFragment extends Fragment {
         String userEmail = auth.getCurrentUser().getEmail();
         Log.d(TAG, "Requesting profile data from Firestore for vet ID: " + vetId);
 
-        db.collection("Veterinarians").document(vetId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Log.d(TAG, "Firestore document exists, processing data");
-                        processFirestoreDocument(documentSnapshot);
-                    } else {
-                        Log.d(TAG, "No Firestore document exists for this vet");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load vet profile from Firestore", e);
-                });
+        vets.getVet(vetId, new DataCallback<Map<String, Object>>() {
+            @Override
+            public void onSuccess(Map<String, Object> vet) {
+                if (vet != null) {
+                    Log.d(TAG, "Firestore document exists, processing data");
+                    processFirestoreDocument(vet);
+                } else {
+                    Log.d(TAG, "No Firestore document exists for this vet");
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Failed to load vet profile from Firestore", e);
+            }
+        });
     }
 
     /**
-     * Processes Firestore document and updates UI with retrieved data.
+     * Processes the loaded veterinarian document and updates UI with retrieved data.
      *
-     * @param documentSnapshot The Firestore document containing veterinarian data
+     * @param vetMap Map containing the veterinarian's fields
      */
-    private void processFirestoreDocument(DocumentSnapshot documentSnapshot) {
-        Map<String, Object> vetMap = documentSnapshot.getData();
+    private void processFirestoreDocument(Map<String, Object> vetMap) {
         if (vetMap != null) {
-            String phoneNumber = extractStringOrNumber(documentSnapshot, "phoneNumber", "");
+            vetMap.remove("documentId");
+            String phoneNumber = extractStringOrNumber(vetMap, "phoneNumber", "");
             vetMap.put("phoneNumber", phoneNumber);
             saveVetProfileToSharedPreferences(vetMap);
             updateUIWithProfileData(vetMap);
@@ -183,14 +188,14 @@ public class VetHomeFragment extends Fragment {
     }
 
     /**
-     * Safely extracts string or number values from Firestore document.
+     * Safely extracts string or number values from a loaded document.
      *
-     * @param document The Firestore document
+     * @param document Map containing the document's fields
      * @param field The field name to extract
      * @param defaultValue The default value if field is not found or invalid
      * @return The extracted value as string, or default value
      */
-    private String extractStringOrNumber(DocumentSnapshot document, String field, String defaultValue) {
+    private String extractStringOrNumber(Map<String, Object> document, String field, String defaultValue) {
         Object obj = document.get(field);
         if (obj instanceof String) {
             return (String) obj;
@@ -291,8 +296,10 @@ public class VetHomeFragment extends Fragment {
      */
     private void updateProfileImage(Map<String, Object> profileData) {
         String profileImageUrl = profileData.get("profileImageUrl") != null ? profileData.get("profileImageUrl").toString() : null;
+        String mediumUrl = profileData.get(ImageVariants.MEDIUM_FIELD) != null ? profileData.get(ImageVariants.MEDIUM_FIELD).toString() : null;
+        String thumbUrl = profileData.get(ImageVariants.THUMB_FIELD) != null ? profileData.get(ImageVariants.THUMB_FIELD).toString() : null;
         Log.d(TAG, "Setting profileImageUrl: " + profileImageUrl);
-        loadProfileImage(profileImageUrl);
+        loadProfileImage(ImageVariants.forView(vetProfileImage, thumbUrl, mediumUrl, getBestImageUrl(profileImageUrl)));
     }
 
     /**
@@ -355,7 +362,8 @@ public class VetHomeFragment extends Fragment {
     }
 
     /**
-     * Saves veterinarian profile data to SharedPreferences for local caching.
+     * Saves veterinarian profile data for local caching: the fields other screens read to SharedPreferences,
+     * the whole profile to the local store.
      *
      * @param profileData Map containing profile information to save
      */
@@ -364,10 +372,12 @@ public class VetHomeFragment extends Fragment {
             SharedPreferences.Editor editor = sharedPreferences.edit();
 
             saveIndividualFields(editor, profileData);
-            saveCompleteProfileAsJson(editor, profileData);
+            editor.apply();
 
-            editor.commit();
-            Log.d(TAG, "Vet profile saved to SharedPreferences");
+            if (auth.getCurrentUser() != null) {
+                LocalStore.get(requireContext()).upsertVet(auth.getCurrentUser().getUid(), profileData);
+            }
+            Log.d(TAG, "Vet profile saved to SharedPreferences and local store");
         } catch (Exception e) {
             Log.e(TAG, "Error saving vet profile to SharedPreferences", e);
         }
@@ -392,64 +402,41 @@ public class VetHomeFragment extends Fragment {
     }
 
     /**
-     * Saves the complete profile data as JSON to SharedPreferences.
-     *
-     * @param editor SharedPreferences editor
-     * @param profileData Map containing profile information
+     * Loads veterinarian profile data from the local store.
+     * Falls back to the individual SharedPreferences fields if the profile is not cached yet.
      */
-    private void saveCompleteProfileAsJson(SharedPreferences.Editor editor, Map<String, Object> profileData) {
-        Gson gson = new Gson();
-        String profileJson = gson.toJson(profileData);
-        editor.putString("vet_profile_json", profileJson);
-    }
-
-    /**
-     * Loads veterinarian profile data from SharedPreferences.
-     * Attempts to load from JSON first, falls back to individual fields if needed.
-     */
-    private void loadVetProfileFromSharedPreferences() {
-        try {
-            Log.d(TAG, "Loading vet profile from SharedPreferences");
-
-            if (loadFromJsonPreferences()) {
-                return;
-            }
-
+    private void loadVetProfileFromLocalStore() {
+        if (auth.getCurrentUser() == null) {
             loadFromIndividualFields();
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading vet profile from SharedPreferences", e);
-            loadDefaultProfileData();
+            return;
         }
-    }
 
-    /**
-     * Attempts to load profile data from JSON stored in SharedPreferences.
-     *
-     * @return true if successful, false if JSON not found or invalid
-     */
-    private boolean loadFromJsonPreferences() {
-        String profileJson = sharedPreferences.getString("vet_profile_json", null);
-        if (profileJson != null && !profileJson.isEmpty()) {
-            Gson gson = new Gson();
-            Map<String, Object> profileDataMap = gson.fromJson(profileJson, Map.class);
+        Log.d(TAG, "Loading vet profile from local store");
+        LocalStore.get(requireContext()).loadVet(auth.getCurrentUser().getUid(), profileDataMap -> {
+            if (!isAdded()) return;
+            if (profileDataMap == null) {
+                loadFromIndividualFields();
+                return;
+            }
 
             String directImageUrl = sharedPreferences.getString("profileImageUrl", null);
             if (directImageUrl != null && !directImageUrl.equals(profileDataMap.get("profileImageUrl"))) {
                 profileDataMap.put("profileImageUrl", directImageUrl);
+                // The cached smaller sizes belong to the previous image
+                profileDataMap.remove(ImageVariants.MEDIUM_FIELD);
+                profileDataMap.remove(ImageVariants.THUMB_FIELD);
             }
 
             updateUIWithProfileData(profileDataMap);
-            Log.d(TAG, "Loaded vet profile from JSON in SharedPreferences");
-            return true;
-        }
-        return false;
+            Log.d(TAG, "Loaded vet profile from local store");
+        });
     }
 
     /**
      * Loads profile data from individual SharedPreferences fields.
      */
     private void loadFromIndividualFields() {
-        Log.d(TAG, "No valid JSON found, loading from individual fields");
+        Log.d(TAG, "No cached profile found, loading from individual fields");
 
         Map<String, Object> profileDataMap = createProfileMapFromIndividualFields();
         String directImageUrl = sharedPreferences.getString("profileImageUrl", null);
@@ -495,22 +482,6 @@ public class VetHomeFragment extends Fragment {
         return profileDataMap;
     }
 
-    /**
-     * Loads default profile data when SharedPreferences loading fails.
-     */
-    private void loadDefaultProfileData() {
-        Map<String, Object> defaultDataMap = new HashMap<>();
-        defaultDataMap.put("fullName", "Veterinarian");
-        defaultDataMap.put("clinicAddress", "");
-        defaultDataMap.put("workHoursFirstPart", "Sunday - Thursday: 08:00 - 00:00");
-        defaultDataMap.put("workHoursSecondPart", "Friday: 08:00 - 16:00");
-        defaultDataMap.put("workHoursThirdPart", "Saturday: 19:00 - 23:00");
-        defaultDataMap.put("profileImageUrl", null);
-        defaultDataMap.put("email", auth.getCurrentUser() != null ? auth.getCurrentUser().getEmail() : "");
-        defaultDataMap.put("phoneNumber", "");
-        updateUIWithProfileData(defaultDataMap);
-    }
-
     /**
      * Opens the edit profile fragment for veterinarian profile modification.
      */
@@ -0,0 +1,251 @@
+package com.example.vetcalls.vetFragment;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.CalendarView;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.vetcalls.R;
+import com.example.vetcalls.obj.AppointmentTimes;
+import com.example.vetcalls.obj.VetScheduleIndex;
+import com.example.vetcalls.repository.AppointmentRepository;
+import com.example.vetcalls.repository.DataCallback;
+import com.example.vetcalls.repository.LocalStore;
+import com.example.vetcalls.repository.Repositories;
+import com.example.vetcalls.usersFragment.AddAppointmentFragment;
+import com.example.vetcalls.usersFragment.AppointmentAdapter;
+import com.google.firebase.auth.FirebaseAuth;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fragment showing a veterinarian's schedule a week or a month at a time.
+ * The range around the selected day is loaded with one range query into a {@link VetScheduleIndex},
+ * and the neighbouring range is prefetched as the selection nears its edge,
+ * so moving between days is answered from memory instead of the network.
+ * While a range loads, the selected day is shown from the appointments cached in the {@link LocalStore}.
+ *
+ * @author Ofek Levi
+ */
+public class VetScheduleFragment extends Fragment {
+
+    private static final String TAG = "VetScheduleFragment";
+
+    /** The neighbouring range is prefetched when the selected day is this close to the edge of its range. */
+    private static final int PREFETCH_MARGIN_DAYS = 7;
+
+    private CalendarView calendarView;
+    private RadioGroup rangeToggle;
+    private TextView rangeSummary, emptyView;
+    private RecyclerView appointmentsRecyclerView;
+    private AppointmentAdapter appointmentAdapter;
+
+    private AppointmentRepository appointments;
+    private final VetScheduleIndex index = new VetScheduleIndex();
+
+    /** Start and end of every range currently being loaded, so a range is never requested twice at once. */
+    private final Set<String> loadingRanges = new HashSet<>();
+
+    private String userId;
+    private long selectedDay;
+    private boolean weekMode = false;
+
+    /**
+     * Creates and returns the view hierarchy associated with the fragment.
+     *
+     * @param inflater The LayoutInflater object that can be used to inflate views
+     * @param container The parent view that the fragment's UI should be attached to
+     * @param savedInstanceState If non-null, this fragment is being re-constructed from a previous saved state
+     * @return The View for the fragment's UI
+     */
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_vet_schedule, container, false);
+
+        calendarView = view.findViewById(R.id.calendarView);
+        rangeToggle = view.findViewById(R.id.rangeToggle);
+        rangeSummary = view.findViewById(R.id.rangeSummary);
+        emptyView = view.findViewById(R.id.emptyView);
+        appointmentsRecyclerView = view.findViewById(R.id.appointmentsRecyclerView);
+        Button addAppointmentButton = view.findViewById(R.id.addAppointmentButton);
+
+        appointmentAdapter = new AppointmentAdapter(new ArrayList<>(), requireActivity(), true);
+        appointmentsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        appointmentsRecyclerView.setAdapter(appointmentAdapter);
+
+        appointments = Repositories.appointments();
+        userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        selectedDay = AppointmentTimes.todayStart();
+
+        calendarView.setOnDateChangeListener((view1, year, month, dayOfMonth) ->
+                showDay(AppointmentTimes.dayStart(year, month + 1, dayOfMonth)));
+        rangeToggle.setOnCheckedChangeListener((group, checkedId) -> {
+            weekMode = checkedId == R.id.weekRangeButton;
+            showDay(selectedDay);
+        });
+        addAppointmentButton.setOnClickListener(v -> openAddAppointmentFragment());
+
+        return view;
+    }
+
+    /**
+     * Reloads the schedule when the fragment becomes visible again, since appointments may have
+     * been added or changed while it was in the background.
+     */
+    @Override
+    public void onResume() {
+        super.onResume();
+        index.clear();
+        showDay(selectedDay);
+    }
+
+    /**
+     * Selects a day, showing it from the index or loading its range first.
+     *
+     * @param dayStart Local midnight of the day
+     */
+    private void showDay(long dayStart) {
+        selectedDay = dayStart;
+        long[] range = rangeAround(dayStart);
+
+        if (index.isLoaded(dayStart)) {
+            renderDay(index);
+        } else {
+            loadRange(range[0], range[1]);
+        }
+
+        if (dayStart - range[0] < daysToMillis(range[0], PREFETCH_MARGIN_DAYS)) {
+            long[] previous = rangeAround(AppointmentTimes.addDays(range[0], -1));
+            if (!index.isLoaded(previous[0])) loadRange(previous[0], previous[1]);
+        }
+        if (range[1] - dayStart <= daysToMillis(dayStart, PREFETCH_MARGIN_DAYS)) {
+            long[] next = rangeAround(range[1]);
+            if (!index.isLoaded(next[0])) loadRange(next[0], next[1]);
+        }
+    }
+
+    /**
+     * Loads a whole range with one query and stores it in the index.
+     *
+     * @param fromMillis Local midnight starting the range
+     * @param toMillis Local midnight ending the range
+     */
+    private void loadRange(long fromMillis, long toMillis) {
+        String rangeKey = fromMillis + "-" + toMillis;
+        if (!loadingRanges.add(rangeKey)) return;
+        Log.d(TAG, "Loading schedule " + AppointmentTimes.dateOf(fromMillis) + " to " + AppointmentTimes.dateOf(toMillis));
+
+        LocalStore.get(requireContext()).loadVetAppointmentsBetween(userId, fromMillis, toMillis, cached -> {
+            // Only fills the screen until the range arrives from Firestore
+            if (!isAdded() || index.isLoaded(selectedDay) || selectedDay < fromMillis || selectedDay >= toMillis) return;
+            VetScheduleIndex cachedIndex = new VetScheduleIndex();
+            cachedIndex.putRange(fromMillis, toMillis, cached);
+            renderDay(cachedIndex);
+        });
+
+        appointments.getVetAppointmentsBetween(userId, fromMillis, toMillis, new DataCallback<List<Map<String, Object>>>() {
+            @Override
+            public void onSuccess(List<Map<String, Object>> rangeAppointments) {
+                loadingRanges.remove(rangeKey);
+                index.putRange(fromMillis, toMillis, rangeAppointments);
+                if (isAdded()) {
+                    LocalStore.get(requireContext()).replaceAppointmentsBetween(true, userId, fromMillis, toMillis, rangeAppointments);
+                }
+                Log.d(TAG, "Loaded " + rangeAppointments.size() + " appointments from " + AppointmentTimes.dateOf(fromMillis));
+                if (isAdded() && selectedDay >= fromMillis && selectedDay < toMillis) renderDay(index);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                loadingRanges.remove(rangeKey);
+                Log.e(TAG, "Error loading schedule", e);
+                if (!isAdded()) return;
+                Toast.makeText(getContext(), "Error loading appointments: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Shows the selected day's appointments and a summary of its range.
+     *
+     * @param source The index to show the day from
+     */
+    private void renderDay(VetScheduleIndex source) {
+        List<Map<String, Object>> dayAppointments = source.appointmentsOn(selectedDay);
+        appointmentAdapter.updateAppointments(dayAppointments);
+
+        long[] range = rangeAround(selectedDay);
+        int busyDays = source.busyDays(range[0], range[1]);
+        rangeSummary.setText(busyDays + (busyDays == 1 ? " busy day " : " busy days ") + (weekMode ? "this week" : "this month"));
+
+        boolean empty = dayAppointments.isEmpty();
+        emptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
+        appointmentsRecyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+    }
+
+    /**
+     * Returns the week or month containing a day, depending on the selected range mode.
+     *
+     * @param dayStart Local midnight of the day
+     * @return The range as {from, to} local midnights, to exclusive
+     */
+    private long[] rangeAround(long dayStart) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayStart);
+        if (weekMode) {
+            int offset = (calendar.get(Calendar.DAY_OF_WEEK) - calendar.getFirstDayOfWeek() + 7) % 7;
+            long from = AppointmentTimes.addDays(dayStart, -offset);
+            return new long[]{from, AppointmentTimes.addDays(from, 7)};
+        }
+        long from = AppointmentTimes.dayStart(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, 1);
+        calendar.setTimeInMillis(from);
+        calendar.add(Calendar.MONTH, 1);
+        return new long[]{from, calendar.getTimeInMillis()};
+    }
+
+    /**
+     * Returns the length of a number of days starting at a given day, honouring daylight saving changes.
+     *
+     * @param dayStart Local midnight of the first day
+     * @param days Number of days
+     * @return The length in milliseconds
+     */
+    private static long daysToMillis(long dayStart, int days) {
+        return AppointmentTimes.addDays(dayStart, days) - dayStart;
+    }
+
+    /**
+     * Opens the add appointment fragment for the selected day.
+     */
+    private void openAddAppointmentFragment() {
+        Bundle bundle = new Bundle();
+        bundle.putString("selectedDate", AppointmentTimes.dateOf(selectedDay));
+        bundle.putBoolean("isVet", true);
+
+        AddAppointmentFragment addAppointmentFragment = new AddAppointmentFragment();
+        addAppointmentFragment.setArguments(bundle);
+
+        requireActivity().getSupportFragmentManager().beginTransaction()
+                .replace(R.id.fragment_container, addAppointmentFragment)
+                .addToBackStack(null)
+                .commit();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.vetcalls.obj;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AppointmentSlotIndex}, checked against a brute-force scan of the same day.
+ *
+ * @author Ofek Levi
+ */
+public class AppointmentSlotIndexTest {
+
+    /**
+     * Builds an appointment document with the given times.
+     *
+     * @param id Document ID
+     * @param startTime Start time as stored
+     * @param endTime End time as stored
+     * @return The appointment document
+     */
+    private static Map<String, Object> appointment(String id, Object startTime, Object endTime) {
+        Map<String, Object> appointment = new HashMap<>();
+        appointment.put("documentId", id);
+        appointment.put("startTime", startTime);
+        appointment.put("endTime", endTime);
+        return appointment;
+    }
+
+    /**
+     * Returns the latest end among appointments overlapping [start, start + duration), by scanning all of them.
+     *
+     * @param intervals Valid appointments as {start, end}
+     * @param start Start of the requested slot
+     * @param duration Length of the requested slot
+     * @return The latest overlapping end, or -1 if the slot is free
+     */
+    private static int bruteConflictEnd(List<int[]> intervals, int start, int duration) {
+        int latest = -1;
+        for (int[] interval : intervals) {
+            if (interval[0] < start + duration && interval[1] > start) {
+                latest = Math.max(latest, interval[1]);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Finds free slots by trying every aligned minute of the day in order.
+     *
+     * @param intervals Valid appointments as {start, end}
+     * @param from The earliest acceptable start
+     * @param duration Length of each slot
+     * @param count The maximum number of slots
+     * @return Start minutes of the free slots
+     */
+    private static List<Integer> bruteFreeSlots(List<int[]> intervals, int from, int duration, int count) {
+        List<Integer> slots = new ArrayList<>();
+        if (duration <= 0) return slots;
+        int step = AppointmentSlotIndex.SLOT_ALIGNMENT_MINUTES;
+        int candidate = (Math.max(0, from) + step - 1) / step * step;
+        while (slots.size() < count && candidate + duration <= AppointmentSlotIndex.MINUTES_PER_DAY) {
+            if (bruteConflictEnd(intervals, candidate, duration) < 0) {
+                slots.add(candidate);
+                candidate = (candidate + duration + step - 1) / step * step;
+            } else {
+                candidate += step;
+            }
+        }
+        return slots;
+    }
+
+    @Test
+    public void findConflict_matchesBruteForceOnRandomDays() {
+        Random random = new Random(42);
+        for (int day = 0; day < 300; day++) {
+            List<Map<String, Object>> appointments = new ArrayList<>();
+            List<int[]> intervals = new ArrayList<>();
+            int count = random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                int start = random.nextInt(AppointmentSlotIndex.MINUTES_PER_DAY);
+                int end = Math.min(AppointmentSlotIndex.MINUTES_PER_DAY, start + 1 + random.nextInt(180));
+                appointments.add(appointment("a" + i, AppointmentSlotIndex.formatMinutes(start),
+                        AppointmentSlotIndex.formatMinutes(end)));
+                intervals.add(new int[]{start, end});
+            }
+            AppointmentSlotIndex index = AppointmentSlotIndex.fromAppointments(appointments, null);
+            assertEquals(intervals.size(), index.size());
+
+            for (int query = 0; query < 50; query++) {
+                int start = random.nextInt(AppointmentSlotIndex.MINUTES_PER_DAY);
+                int duration = 1 + random.nextInt(180);
+                int expectedEnd = bruteConflictEnd(intervals, start, duration);
+                AppointmentSlotIndex.Conflict conflict = index.findConflict(start, duration);
+
+                if (expectedEnd < 0) {
+                    assertNull(conflict);
+                } else {
+                    assertNotNull(conflict);
+                    assertEquals(expectedEnd, conflict.endMinute);
+                    assertTrue(conflict.startMinute < start + duration);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nextFreeSlots_matchesBruteForceOnRandomDays() {
+        Random random = new Random(7);
+        for (int day = 0; day < 300; day++) {
+            List<Map<String, Object>> appointments = new ArrayList<>();
+            List<int[]> intervals = new ArrayList<>();
+            int count = random.nextInt(15);
+            for (int i = 0; i < count; i++) {
+                int start = random.nextInt(AppointmentSlotIndex.MINUTES_PER_DAY);
+                int end = Math.min(AppointmentSlotIndex.MINUTES_PER_DAY, start + 1 + random.nextInt(240));
+                appointments.add(appointment("a" + i, AppointmentSlotIndex.formatMinutes(start),
+                        AppointmentSlotIndex.formatMinutes(end)));
+                intervals.add(new int[]{start, end});
+            }
+            AppointmentSlotIndex index = AppointmentSlotIndex.fromAppointments(appointments, null);
+
+            for (int query = 0; query < 20; query++) {
+                int from = random.nextInt(AppointmentSlotIndex.MINUTES_PER_DAY + 60) - 30;
+                int duration = 1 + random.nextInt(180);
+                int wanted = 1 + random.nextInt(5);
+                assertEquals(bruteFreeSlots(intervals, from, duration, wanted),
+                        index.nextFreeSlots(from, duration, wanted));
+            }
+        }
+    }
+
+    @Test
+    public void touchingIntervals_doNotConflict() {
+        AppointmentSlotIndex index = AppointmentSlotIndex.fromAppointments(Arrays.asList(
+                appointment("a", "09:00", "10:00"),
+                appointment("b", "10:00", "11:00")), null);
+
+        assertTrue(index.isFree(8 * 60, 60));
+        assertTrue(index.isFree(11 * 60, 30));
+        assertFalse(index.isFree(8 * 60 + 59, 2));
+        assertEquals("b", index.findConflict(10 * 60 + 59, 1).appointmentId);
+        assertEquals(Arrays.asList(8 * 60, 11 * 60), index.nextFreeSlots(8 * 60, 60, 2));
+    }
+
+    @Test
+    public void midnightEnd_isAcceptedAndBoundsTheDay() {
+        assertEquals(AppointmentSlotIndex.MINUTES_PER_DAY, AppointmentSlotIndex.parseMinutes("24:00"));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes("24:01"));
+
+        AppointmentSlotIndex index = AppointmentSlotIndex.fromAppointments(Collections.singletonList(
+                appointment("late", "23:00", "24:00")), null);
+
+        assertEquals(1, index.size());
+        assertFalse(index.isFree(23 * 60 + 30, 10));
+        assertEquals(Collections.singletonList(22 * 60), index.nextFreeSlots(22 * 60, 60, 3));
+        assertTrue(index.nextFreeSlots(23 * 60, 5, 3).isEmpty());
+    }
+
+    @Test
+    public void malformedTimes_areIgnored() {
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes(null));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes(930));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes(""));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes("9"));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes(":30"));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes("09:"));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes("ab:cd"));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes("10:60"));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes("25:00"));
+        assertEquals(-1, AppointmentSlotIndex.parseMinutes("-1:00"));
+
+        AppointmentSlotIndex index = AppointmentSlotIndex.fromAppointments(Arrays.asList(
+                appointment("missing", null, "10:00"),
+                appointment("garbled", "9:3o", "10:00"),
+                appointment("overnight", "23:00", "25:00"),
+                appointment("backwards", "11:00", "10:00"),
+                appointment("empty", "10:00", "10:00"),
+                appointment("valid", "12:00", "12:30")), null);
+
+        assertEquals(1, index.size());
+        assertTrue(index.isFree(9 * 60, 120));
+        assertEquals("valid", index.findConflict(12 * 60, 5).appointmentId);
+    }
+
+    @Test
+    public void excludedAppointment_doesNotConflictWithItself() {
+        List<Map<String, Object>> appointments = Arrays.asList(
+                appointment("edited", "09:00", "10:00"),
+                appointment("other", "10:30", "11:00"));
+
+        assertFalse(AppointmentSlotIndex.fromAppointments(appointments, null).isFree(9 * 60, 60));
+        assertTrue(AppointmentSlotIndex.fromAppointments(appointments, "edited").isFree(9 * 60, 60));
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.vetcalls.obj;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the field diff of {@link DogProfilePropagator} and for which copies receive which fields.
+ *
+ * @author Ofek Levi
+ */
+public class DogProfilePropagatorTest {
+
+    /**
+     * Builds a field map from alternating names and values.
+     *
+     * @param entries Field names and values
+     * @return The map
+     */
+    private static Map<String, Object> fields(Object... entries) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], entries[i + 1]);
+        }
+        return map;
+    }
+
+    /**
+     * Returns a stored profile with every copied field set.
+     *
+     * @return The stored profile
+     */
+    private static Map<String, Object> storedProfile() {
+        return fields("dogId", "d1", "name", "Rex", "allergies", "none", "bio", "Good dog",
+                "ownerId", "o1", "vetId", "v1", "vetName", "Dr. Cohen", "lastUpdated", 10L);
+    }
+
+    /**
+     * Finds the write to a document.
+     *
+     * @param writes The planned writes
+     * @param path Document path
+     * @return The write, or null if the document is not written
+     */
+    private static DogProfilePropagator.CopyWrite writeTo(List<DogProfilePropagator.CopyWrite> writes, String path) {
+        for (DogProfilePropagator.CopyWrite write : writes) {
+            if (write.path.equals(path)) return write;
+        }
+        return null;
+    }
+
+    @Test
+    public void plan_fieldEdit_updatesOnlyThatFieldOnEveryCopy() {
+        Map<String, Object> stored = storedProfile();
+        Map<String, Object> changes = fields("allergies", "pollen", "lastUpdated", 20L);
+
+        List<DogProfilePropagator.CopyWrite> writes = DogProfilePropagator.plan("d1", stored, changes,
+                new HashMap<>(stored), new HashMap<>(stored));
+
+        assertEquals(3, writes.size());
+        for (String path : new String[]{"DogProfiles/d1", "Users/o1/Dogs/d1", "Veterinarians/v1/Patients/d1"}) {
+            DogProfilePropagator.CopyWrite write = writeTo(writes, path);
+            assertNotNull(write);
+            assertEquals(DogProfilePropagator.CopyWrite.Kind.UPDATE, write.kind);
+            assertEquals(changes, write.fields);
+        }
+    }
+
+    @Test
+    public void plan_referenceOnlyOwnerCopy_getsWholeProfileOnce() {
+        Map<String, Object> stored = storedProfile();
+        Map<String, Object> changes = fields("allergies", "pollen", "lastUpdated", 20L);
+
+        List<DogProfilePropagator.CopyWrite> writes = DogProfilePropagator.plan("d1", stored, changes,
+                fields("dogId", "d1", "name", "Rex"), new HashMap<>(stored));
+
+        DogProfilePropagator.CopyWrite owner = writeTo(writes, "Users/o1/Dogs/d1");
+        assertEquals(DogProfilePropagator.CopyWrite.Kind.MERGE, owner.kind);
+        assertEquals("pollen", owner.fields.get("allergies"));
+        assertEquals("Good dog", owner.fields.get("bio"));
+        assertEquals("Dr. Cohen", owner.fields.get("vetName"));
+        assertEquals(changes, writeTo(writes, "DogProfiles/d1").fields);
+        assertEquals(changes, writeTo(writes, "Veterinarians/v1/Patients/d1").fields);
+
+        // Once upgraded, the owner copy only receives changes
+        Map<String, Object> upgraded = new HashMap<>(owner.fields);
+        assertEquals(DogProfilePropagator.CopyWrite.Kind.UPDATE, writeTo(DogProfilePropagator.plan("d1", upgraded,
+                fields("bio", "Sleepy"), upgraded, upgraded), "Users/o1/Dogs/d1").kind);
+    }
+
+    @Test
+    public void plan_vetChange_movesThePatientCopy() {
+        Map<String, Object> stored = storedProfile();
+        Map<String, Object> changes = fields("vetId", "v2", "vetName", "Dr. Levi", "lastUpdated", 20L);
+
+        List<DogProfilePropagator.CopyWrite> writes = DogProfilePropagator.plan("d1", stored, changes,
+                new HashMap<>(stored), new HashMap<>(stored));
+
+        assertEquals(4, writes.size());
+        assertEquals(DogProfilePropagator.CopyWrite.Kind.DELETE, writeTo(writes, "Veterinarians/v1/Patients/d1").kind);
+        DogProfilePropagator.CopyWrite newVet = writeTo(writes, "Veterinarians/v2/Patients/d1");
+        assertEquals(DogProfilePropagator.CopyWrite.Kind.MERGE, newVet.kind);
+        assertEquals("v2", newVet.fields.get("vetId"));
+        assertEquals("none", newVet.fields.get("allergies"));
+        assertEquals(changes, writeTo(writes, "Users/o1/Dogs/d1").fields);
+    }
+
+    @Test
+    public void plan_unreadCopies_mergeOnlyTheChanges() {
+        Map<String, Object> stored = storedProfile();
+        Map<String, Object> changes = fields("name", "Max", "lastUpdated", 20L);
+
+        List<DogProfilePropagator.CopyWrite> writes = DogProfilePropagator.plan("d1", stored, changes, null, null);
+
+        for (String path : new String[]{"Users/o1/Dogs/d1", "Veterinarians/v1/Patients/d1"}) {
+            DogProfilePropagator.CopyWrite write = writeTo(writes, path);
+            assertEquals(DogProfilePropagator.CopyWrite.Kind.MERGE, write.kind);
+            assertEquals(changes, write.fields);
+        }
+    }
+
+    @Test
+    public void plan_missingProfile_isCreatedWhole() {
+        Map<String, Object> changes = fields("dogId", "d1", "name", "Rex", "ownerId", "o1", "lastUpdated", 20L);
+
+        List<DogProfilePropagator.CopyWrite> writes = DogProfilePropagator.plan("d1", new HashMap<>(), changes,
+                new HashMap<>(), null);
+
+        assertEquals(2, writes.size());
+        assertEquals(DogProfilePropagator.CopyWrite.Kind.MERGE, writeTo(writes, "DogProfiles/d1").kind);
+        assertEquals(changes, writeTo(writes, "Users/o1/Dogs/d1").fields);
+        assertEquals(DogProfilePropagator.CopyWrite.Kind.MERGE, writeTo(writes, "Users/o1/Dogs/d1").kind);
+    }
+
+    @Test
+    public void diff_unchangedFields_areLeftOut() {
+        Map<String, Object> baseline = fields("name", "Rex", "allergies", "none", "lastVetChange", 5L);
+        Map<String, Object> updated = fields("name", "Rex", "allergies", "none", "lastVetChange", 5L);
+
+        assertTrue(DogProfilePropagator.diff(baseline, updated).isEmpty());
+    }
+
+    @Test
+    public void diff_changedField_isTheOnlyOneReturned() {
+        Map<String, Object> baseline = fields("name", "Rex", "allergies", "none");
+        Map<String, Object> updated = fields("name", "Rex", "allergies", "pollen");
+
+        assertEquals(fields("allergies", "pollen"), DogProfilePropagator.diff(baseline, updated));
+    }
+
+    @Test
+    public void diff_fieldMissingFromBaseline_isAChange() {
+        Map<String, Object> baseline = fields("dogId", "d1");
+        Map<String, Object> updated = fields("dogId", "d1", "bio", "Good dog");
+
+        assertEquals(fields("bio", "Good dog"), DogProfilePropagator.diff(baseline, updated));
+    }
+
+    @Test
+    public void diff_fieldsOnlyInBaseline_areNotCleared() {
+        Map<String, Object> baseline = fields("name", "Rex", "weight", "20");
+        Map<String, Object> updated = fields("name", "Rex");
+
+        assertTrue(DogProfilePropagator.diff(baseline, updated).isEmpty());
+    }
+
+    @Test
+    public void diff_numbersOfDifferentTypes_compareByValue() {
+        // Firestore reads whole numbers back as Long, while the profile may carry an Integer
+        Map<String, Object> baseline = fields("lastVetChange", 1700L);
+
+        assertTrue(DogProfilePropagator.diff(baseline, fields("lastVetChange", 1700)).isEmpty());
+        assertEquals(fields("lastVetChange", 1800), DogProfilePropagator.diff(baseline, fields("lastVetChange", 1800)));
+    }
+
+    @Test
+    public void diff_valueRestoredAfterRemoteEdit_isAChange() {
+        // The stored profile was edited elsewhere; restoring the older value must still be written
+        Map<String, Object> stored = fields("vetName", "Dr. Cohen");
+        Map<String, Object> updated = fields("vetName", "Dr. Levi");
+
+        assertEquals(updated, DogProfilePropagator.diff(stored, updated));
+    }
+}